@@ -1,27 +1,34 @@
 #version 130
 
+//---------INCLUDES------------
+#include "frame.glsl"
+
 //---------IN------------
 layout(location = 0) in vec3 in_position;
 layout(location = 1) in vec2 in_textureCoords;
-layout(location = 1) in vec3 in_normal;
+layout(location = 2) in vec3 in_normal;
 layout(location = 3) in vec3 in_tangent;
+layout(location = 4) in mat4 in_modelMatrix;
+layout(location = 8) in vec3 in_colour;
 
 //---------UNIFORM------------
-uniform mat4 projectionMatrix;
-uniform mat4 viewMatrix;
 uniform vec4 clipPlane;
-uniform mat4 modelMatrix;
+uniform vec3 positionOffset;
+uniform vec3 positionScale;
 
 //---------OUT------------
 out vec4 pass_positionRelativeToCam;
 out vec3 pass_surfaceNormal;
+out vec3 pass_colour;
 
 //---------MAIN------------
 void main(void) {
-	vec4 worldPosition = modelMatrix * vec4(in_position, 1.0);
-	mat4 modelViewMatrix = viewMatrix * modelMatrix;
-	pass_positionRelativeToCam = modelViewMatrix * vec4(in_position, 1.0);
-	pass_surfaceNormal = (modelMatrix * vec4(in_normal, 0.0)).xyz;
+	vec3 position = positionOffset + in_position * positionScale;
+	vec4 worldPosition = in_modelMatrix * vec4(position, 1.0);
+	mat4 modelViewMatrix = viewMatrix * in_modelMatrix;
+	pass_positionRelativeToCam = modelViewMatrix * vec4(position, 1.0);
+	pass_surfaceNormal = (in_modelMatrix * vec4(in_normal, 0.0)).xyz;
+	pass_colour = in_colour;
 
 	gl_ClipDistance[0] = dot(worldPosition, clipPlane);
 	gl_Position = projectionMatrix * pass_positionRelativeToCam;
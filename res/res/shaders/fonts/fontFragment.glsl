@@ -9,16 +9,18 @@ in vec2 pass_textureCoords;
 //---------UNIFORM------------
 layout(binding = 0) uniform sampler2D fontTexture;
 uniform bool polygonMode;
-uniform vec4 colour;
-uniform vec3 borderColour;
-uniform vec2 borderSizes;
-uniform vec2 edgeData;
+uniform vec4 fontData[5];
 
 //---------OUT------------
 layout(location = 0) out vec4 out_colour;
 
 //---------MAIN------------
 void main(void) {
+	vec2 edgeData = fontData[1].zw;
+	vec4 colour = fontData[2];
+	vec3 borderColour = fontData[3].rgb;
+	vec2 borderSizes = fontData[4].xy;
+
 	float dist = texture(fontTexture, pass_textureCoords).a;
 	float alpha = smoothlyStep((1.0 - edgeData.x) - edgeData.y, 1.0 - edgeData.x, dist);
 	float outlineAlpha = smoothlyStep((1.0 - borderSizes.x) - borderSizes.y, 1.0 - borderSizes.x, dist);
@@ -7,15 +7,18 @@ layout(location = 1) in vec2 in_textureCoords;
 //---------UNIFORM------------
 uniform float aspectRatio;
 
-uniform vec2 size;
-uniform vec3 transform;
-uniform float rotation;
+// 0: position, scale, rotation, 1: size, edge data, 2: colour, 3: border colour, 4: border sizes.
+uniform vec4 fontData[5];
 
 //---------OUT------------
 out vec2 pass_textureCoords;
 
 //---------MAIN------------
 void main(void) {
+	vec3 transform = fontData[0].xyz;
+	float rotation = fontData[0].w;
+	vec2 size = fontData[1].xy;
+
 	vec2 screenPosition = vec2(
 		(in_position.x - size.x) * transform.z * cos(rotation) - (in_position.y - size.y) * transform.z * sin(rotation),
 		(in_position.x - size.x) * transform.z * sin(rotation) + (in_position.y - size.y) * transform.z * cos(rotation)
@@ -0,0 +1,8 @@
+#extension GL_ARB_uniform_buffer_object : enable
+
+// Filled by FlounderRenderer for each pass, must match its std140 layout. Without uniform buffers the block is read as plain uniforms.
+layout(std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 viewMatrix;
+	vec3 cameraPosition;
+};
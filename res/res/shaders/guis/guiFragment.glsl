@@ -6,16 +6,15 @@ in vec2 pass_textureCoords;
 //---------UNIFORM------------
 layout(binding = 0) uniform sampler2D guiTexture;
 uniform bool polygonMode;
-uniform float alpha;
-uniform vec3 colourOffset;
+uniform vec4 guiData[5];
 
 //---------OUT------------
 layout(location = 0) out vec4 out_colour;
 
 //---------MAIN------------
 void main(void) {
-	out_colour = texture(guiTexture, pass_textureCoords) + vec4(colourOffset, 0.0);
-	out_colour.a *= alpha;
+	out_colour = texture(guiTexture, pass_textureCoords) + vec4(guiData[4].rgb, 0.0);
+	out_colour.a *= guiData[2].w;
 
 	if (polygonMode) {
 		out_colour = vec4(1.0, 0.0, 0.0, 1.0);
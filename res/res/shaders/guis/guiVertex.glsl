@@ -6,18 +6,22 @@ layout(location = 0) in vec2 in_position;
 //---------UNIFORM------------
 uniform float aspectRatio;
 
-uniform vec2 size;
-uniform vec4 transform;
-uniform float rotation;
-uniform bool flipTexture;
-uniform float atlasRows;
-uniform vec2 atlasOffset;
+// 0: transform, 1: atlas region, 2: size, rotation, alpha, 3: atlas offset, atlas rows, flip texture, 4: colour offset.
+uniform vec4 guiData[5];
 
 //---------OUT------------
 out vec2 pass_textureCoords;
 
 //---------MAIN------------
 void main(void) {
+	vec4 transform = guiData[0];
+	vec4 atlasRegion = guiData[1];
+	vec2 size = guiData[2].xy;
+	float rotation = guiData[2].z;
+	vec2 atlasOffset = guiData[3].xy;
+	float atlasRows = guiData[3].z;
+	float flipTexture = guiData[3].w;
+
 	vec2 screenPosition = vec2(
 		(in_position.x - size.x) * transform.z * cos(rotation) - (in_position.y - size.y) * transform.w * sin(rotation),
 		(in_position.x - size.x) * transform.z * sin(rotation) + (in_position.y - size.y) * transform.w * cos(rotation)
@@ -30,4 +34,5 @@ void main(void) {
 	pass_textureCoords = in_position;
 	pass_textureCoords = (pass_textureCoords / atlasRows) + atlasOffset;
 	pass_textureCoords.x = mix(pass_textureCoords.x, 1.0 - pass_textureCoords.x, flipTexture);
+	pass_textureCoords = atlasRegion.xy + pass_textureCoords * atlasRegion.zw;
 }
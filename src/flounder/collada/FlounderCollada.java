@@ -14,6 +14,7 @@ import flounder.profiling.*;
 import flounder.resources.*;
 
 import java.lang.ref.*;
+import java.nio.*;
 import java.util.*;
 
 /**
@@ -85,15 +86,39 @@ public class FlounderCollada extends Module {
 	}
 
 	public static void loadModelToOpenGL(ModelAnimated model) {
-		model.setVaoID(FlounderLoader.createVAO());
-		model.setVaoLength(model.getMeshData().getIndices() != null ? model.getMeshData().getIndices().length : (model.getMeshData().getVertices().length / 3));
-		FlounderLoader.createIndicesVBO(model.getVaoID(), model.getMeshData().getIndices());
-		FlounderLoader.storeDataInVBO(model.getVaoID(), model.getMeshData().getVertices(), 0, 3);
-		FlounderLoader.storeDataInVBO(model.getVaoID(), model.getMeshData().getTextures(), 1, 2);
-		FlounderLoader.storeDataInVBO(model.getVaoID(), model.getMeshData().getNormals(), 2, 3);
-		FlounderLoader.storeDataInVBO(model.getVaoID(), model.getMeshData().getTangents(), 3, 3);
-		FlounderLoader.storeDataInVBO(model.getVaoID(), model.getMeshData().getJointIds(), 4, 3);
-		FlounderLoader.storeDataInVBO(model.getVaoID(), model.getMeshData().getVertexWeights(), 5, 3);
+		MeshData meshData = model.getMeshData();
+		VertexFormat format = new VertexFormat().addFloats(0, 3).addFloats(1, 2).addFloats(2, 3).addFloats(3, 3).addIntegers(4, 3).addFloats(5, 3);
+		int vertexCount = meshData.getVertices().length / 3;
+		ByteBuffer buffer = FlounderLoader.acquireBuffer(vertexCount * format.getStride());
+
+		// Writes the mesh arrays straight into one interleaved buffer.
+		for (int i = 0; i < vertexCount; i++) {
+			putVertex(buffer, meshData.getVertices(), i, 3);
+			putVertex(buffer, meshData.getTextures(), i, 2);
+			putVertex(buffer, meshData.getNormals(), i, 3);
+			putVertex(buffer, meshData.getTangents(), i, 3);
+
+			for (int j = 0; j < 3; j++) {
+				buffer.putInt(meshData.getJointIds() != null ? meshData.getJointIds()[i * 3 + j] : 0);
+			}
+
+			putVertex(buffer, meshData.getVertexWeights(), i, 3);
+		}
+
+		buffer.flip();
+
+		model.setVaoID(FlounderLoader.createInterleavedVAO(buffer, meshData.getIndices(), format));
+		model.setVaoLength(meshData.getIndices() != null ? meshData.getIndices().length : vertexCount);
+		FlounderLoader.releaseBuffer(buffer);
+	}
+
+	/**
+	 * Puts a vertex of a mesh array into the buffer, or zeros when the mesh does not have the array (such as a mesh without texture coords).
+	 */
+	private static void putVertex(ByteBuffer buffer, float[] data, int vertex, int size) {
+		for (int i = 0; i < size; i++) {
+			buffer.putFloat(data != null ? data[vertex * size + i] : 0.0f);
+		}
 	}
 
 	@Override
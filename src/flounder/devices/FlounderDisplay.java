@@ -2,8 +2,10 @@ package flounder.devices;
 
 import flounder.fbos.*;
 import flounder.framework.*;
+import flounder.helpers.*;
 import flounder.logger.*;
 import flounder.profiling.*;
+import flounder.renderer.*;
 import flounder.resources.*;
 import org.lwjgl.*;
 import org.lwjgl.glfw.*;
@@ -230,7 +232,8 @@ public class FlounderDisplay extends Module {
 		glfwSetFramebufferSizeCallback(window, callbackFramebufferSize = new GLFWFramebufferSizeCallback() {
 			@Override
 			public void invoke(long window, int width, int height) {
-				glViewport(0, 0, width, height);
+				// Callbacks run on the update thread, the viewport is set by the thread owning the OpenGL context.
+				FlounderRenderer.runOnRenderThread(() -> OpenGlUtils.viewport(0, 0, width, height));
 			}
 		});
 
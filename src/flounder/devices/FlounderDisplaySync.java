@@ -1,6 +1,7 @@
 package flounder.devices;
 
 import flounder.framework.*;
+import flounder.renderer.*;
 
 /**
  * A module used for synchronizing to the display after rendering.
@@ -22,7 +23,10 @@ public class FlounderDisplaySync extends Module {
 
 	@Override
 	public void update() {
-		FlounderDisplay.swapBuffers();
+		// A render thread swaps the buffers itself once it has rendered each frame.
+		if (!FlounderRenderer.isThreaded()) {
+			FlounderDisplay.swapBuffers();
+		}
 	}
 
 	@Override
@@ -1,6 +1,7 @@
 package flounder.fbos;
 
 import flounder.devices.*;
+import flounder.helpers.*;
 import flounder.logger.*;
 import org.lwjgl.*;
 
@@ -134,7 +135,7 @@ public class FBO {
 
 	private void createFBO() {
 		frameBuffer = glGenFramebuffers();
-		glBindFramebuffer(GL_FRAMEBUFFER, frameBuffer);
+		OpenGlUtils.bindFramebuffer(GL_FRAMEBUFFER, frameBuffer);
 
 		if (useColourBuffer) {
 			determineDrawBuffers();
@@ -156,7 +157,7 @@ public class FBO {
 
 	private void createTextureAttachment(int attachment) {
 		colourTexture[attachment - GL_COLOR_ATTACHMENT0] = glGenTextures();
-		glBindTexture(GL_TEXTURE_2D, colourTexture[attachment - GL_COLOR_ATTACHMENT0]);
+		OpenGlUtils.bindTexture(colourTexture[attachment - GL_COLOR_ATTACHMENT0], GL_TEXTURE_2D, 0);
 		glTexImage2D(GL_TEXTURE_2D, 0, alphaChannel ? GL_RGBA : GL_RGB, width, height, 0, alphaChannel ? GL_RGBA : GL_RGB, GL_UNSIGNED_BYTE, (ByteBuffer) null);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, linearFiltering ? GL_LINEAR : GL_NEAREST);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, linearFiltering ? GL_LINEAR : GL_NEAREST);
@@ -184,7 +185,7 @@ public class FBO {
 
 	private void createDepthTextureAttachment() {
 		depthTexture = glGenTextures();
-		glBindTexture(GL_TEXTURE_2D, depthTexture);
+		OpenGlUtils.bindTexture(depthTexture, GL_TEXTURE_2D, 0);
 		glTexImage2D(GL_TEXTURE_2D, 0, GL_DEPTH_COMPONENT24, width, height, 0, GL_DEPTH_COMPONENT, GL_FLOAT, (ByteBuffer) null);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
@@ -203,26 +204,26 @@ public class FBO {
 	 */
 	public void bindFrameBuffer() {
 		updateSize();
-		glBindTexture(GL_TEXTURE_2D, 0);
-		glBindFramebuffer(GL_DRAW_FRAMEBUFFER, frameBuffer);
-		glViewport(0, 0, width, height);
+		OpenGlUtils.bindTexture(0, GL_TEXTURE_2D, 0);
+		OpenGlUtils.bindFramebuffer(GL_DRAW_FRAMEBUFFER, frameBuffer);
+		OpenGlUtils.viewport(0, 0, width, height);
 	}
 
 	/**
 	 * Unbinds the FBO so that other rendering objects can be used.
 	 */
 	public void unbindFrameBuffer() {
-		glBindFramebuffer(GL_FRAMEBUFFER, 0);
-		glViewport(0, 0, FlounderDisplay.getWidth(), FlounderDisplay.getHeight());
+		OpenGlUtils.bindFramebuffer(GL_FRAMEBUFFER, 0);
+		OpenGlUtils.viewport(0, 0, FlounderDisplay.getWidth(), FlounderDisplay.getHeight());
 	}
 
 	/**
 	 * Renders the colour buffer to the display.
 	 */
 	public void blitToScreen() {
-		glBindFramebuffer(GL_DRAW_FRAMEBUFFER, 0);
+		OpenGlUtils.bindFramebuffer(GL_DRAW_FRAMEBUFFER, 0);
 		glDrawBuffer(GL_BACK);
-		glBindFramebuffer(GL_READ_FRAMEBUFFER, frameBuffer);
+		OpenGlUtils.bindFramebuffer(GL_READ_FRAMEBUFFER, frameBuffer);
 		glBlitFramebuffer(0, 0, width, height, 0, 0, FlounderDisplay.getWidth(), FlounderDisplay.getHeight(), GL_COLOR_BUFFER_BIT, GL_NEAREST);
 	}
 
@@ -252,8 +253,8 @@ public class FBO {
 	 */
 	public void resolveFBO(int readBuffer, int drawBuffer, FBO outputFBO) {
 		outputFBO.updateSize();
-		glBindFramebuffer(GL_DRAW_FRAMEBUFFER, outputFBO.frameBuffer);
-		glBindFramebuffer(GL_READ_FRAMEBUFFER, frameBuffer);
+		OpenGlUtils.bindFramebuffer(GL_DRAW_FRAMEBUFFER, outputFBO.frameBuffer);
+		OpenGlUtils.bindFramebuffer(GL_READ_FRAMEBUFFER, frameBuffer);
 
 		glReadBuffer(GL_COLOR_ATTACHMENT0 + readBuffer);
 		glDrawBuffer(GL_COLOR_ATTACHMENT0 + drawBuffer);
@@ -380,9 +381,13 @@ public class FBO {
 	 * Deletes the FBO and its attachments.
 	 */
 	public void delete() {
-		glDeleteFramebuffers(frameBuffer);
-		glDeleteTextures(colourTexture);
-		glDeleteTextures(depthTexture);
+		OpenGlUtils.deleteFramebuffer(frameBuffer);
+
+		for (int texture : colourTexture) {
+			OpenGlUtils.deleteTexture(texture);
+		}
+
+		OpenGlUtils.deleteTexture(depthTexture);
 		glDeleteRenderbuffers(depthBuffer);
 		glDeleteRenderbuffers(colourBuffer);
 	}
@@ -50,7 +50,19 @@ public class FlounderFonts extends Module {
 	public void update() {
 		// Creates all font family's that have not been loaded.
 		if (FontType.NEEDS_TO_BE_CREATED.size() > 0) {
-			FontType.NEEDS_TO_BE_CREATED.forEach(FontType::createLoader);
+			// The font sheets are created as a batch so they decode concurrently.
+			TextureBuilder[] builders = new TextureBuilder[FontType.NEEDS_TO_BE_CREATED.size()];
+
+			for (int i = 0; i < builders.length; i++) {
+				builders[i] = FontType.NEEDS_TO_BE_CREATED.get(i).getTextureBuilder();
+			}
+
+			TextureObject[] textures = TextureFactory.createBatch(builders);
+
+			for (int i = 0; i < builders.length; i++) {
+				FontType.NEEDS_TO_BE_CREATED.get(i).createLoader(textures[i]);
+			}
+
 			FontType.NEEDS_TO_BE_CREATED.clear();
 		}
 
@@ -10,6 +10,8 @@ import flounder.renderer.*;
 import flounder.resources.*;
 import flounder.shaders.*;
 
+import java.util.*;
+
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL20.*;
 
@@ -20,23 +22,63 @@ public class FontRenderer extends Renderer {
 	private static final MyFile VERTEX_SHADER = new MyFile(FlounderShaders.SHADERS_LOC, "fonts", "fontVertex.glsl");
 	private static final MyFile FRAGMENT_SHADER = new MyFile(FlounderShaders.SHADERS_LOC, "fonts", "fontFragment.glsl");
 
+	private static final String SNAPSHOT_KEY = "fonts";
+
 	private ShaderObject shader;
+	private UniformFloat aspectRatio;
+	private UniformBool polygonMode;
+	private UniformBlock fontData;
 
 	/**
 	 * Creates a new font renderer.
 	 */
 	public FontRenderer() {
 		this.shader = ShaderFactory.newBuilder().setName("fonts").addType(new ShaderType(GL_VERTEX_SHADER, VERTEX_SHADER)).addType(new ShaderType(GL_FRAGMENT_SHADER, FRAGMENT_SHADER)).create();
+		this.aspectRatio = shader.handleFloat("aspectRatio");
+		this.polygonMode = shader.handleBool("polygonMode");
+		this.fontData = shader.handleBlock("fontData", 5);
+
+		FlounderRenderer.registerSnapshotItem(SNAPSHOT_KEY, FontRenderer::capture);
+	}
+
+	/**
+	 * Copies the texts of the frame being updated, the render thread draws the copies while the texts change for the next frame.
+	 */
+	private static List<SnapshotDraw> capture() {
+		List<SnapshotDraw> draws = new ArrayList<>();
+
+		for (List<Text> texts : FlounderFonts.getTexts().values()) {
+			for (Text text : texts) {
+				if (!text.isLoaded()) {
+					continue;
+				}
+
+				Vector2f textPosition = text.getPosition();
+				Colour textColour = text.getColour();
+				Colour borderColour = text.getBorderColour();
+				draws.add(new SnapshotDraw(text.getFontType().getTexture(), text.getMesh(), text.getVertexCount(), 5)
+						.set(0, textPosition.x, textPosition.y, text.getScale(), (float) Math.toRadians(text.getRotation()))
+						.set(1, text.getOriginalWidth() / 2.0f, text.getOriginalHeight() / 2.0f, text.calculateEdgeStart(), text.calculateAntialiasSize())
+						.set(2, textColour.getR(), textColour.getG(), textColour.getB(), text.getCurrentAlpha())
+						.set(3, borderColour.r, borderColour.g, borderColour.b, 0.0f)
+						.set(4, text.getTotalBorderSize(), text.getGlowSize(), 0.0f, 0.0f));
+			}
+		}
+
+		return Collections.unmodifiableList(draws);
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public void renderObjects(Vector4f clipPlane, Camera camera) {
-		if (!shader.isLoaded() || FlounderFonts.getTexts().keySet().size() < 1) {
+		List<SnapshotDraw> draws = (List<SnapshotDraw>) FlounderRenderer.getFrameItem(SNAPSHOT_KEY);
+
+		if (!shader.isLoaded() || draws == null || draws.isEmpty()) {
 			return;
 		}
 
 		prepareRendering();
-		FlounderFonts.getTexts().keySet().forEach(font -> FlounderFonts.getTexts().get(font).forEach(this::renderText));
+		draws.forEach(this::renderText);
 		endRendering();
 	}
 
@@ -48,28 +90,17 @@ public class FontRenderer extends Renderer {
 		OpenGlUtils.disableDepthTesting();
 		OpenGlUtils.cullBackFaces(true);
 
-		shader.getUniformFloat("aspectRatio").loadFloat(FlounderDisplay.getAspectRatio());
-		shader.getUniformBool("polygonMode").loadBoolean(OpenGlUtils.isInWireframe());
+		aspectRatio.loadFloat(FlounderDisplay.getAspectRatio());
+		polygonMode.loadBoolean(OpenGlUtils.isInWireframe());
 	}
 
-	private void renderText(Text text) {
-		if (!text.isLoaded()) {
-			return;
-		}
-
-		OpenGlUtils.bindVAO(text.getMesh(), 0, 1);
-		OpenGlUtils.bindTexture(text.getFontType().getTexture(), 0);
-		Vector2f textPosition = text.getPosition();
-		Colour textColour = text.getColour();
-		shader.getUniformVec2("size").loadVec2(text.getOriginalWidth() / 2.0f, text.getOriginalHeight() / 2.0f);
-		shader.getUniformVec3("transform").loadVec3(textPosition.x, textPosition.y, text.getScale());
-		shader.getUniformFloat("rotation").loadFloat((float) Math.toRadians(text.getRotation()));
-		shader.getUniformVec4("colour").loadVec4(textColour.getR(), textColour.getG(), textColour.getB(), text.getCurrentAlpha());
-		shader.getUniformVec3("borderColour").loadVec3(text.getBorderColour());
-		shader.getUniformVec2("edgeData").loadVec2(text.calculateEdgeStart(), text.calculateAntialiasSize());
-		shader.getUniformVec2("borderSizes").loadVec2(text.getTotalBorderSize(), text.getGlowSize());
-		glDrawArrays(GL_TRIANGLES, 0, text.getVertexCount());
-		OpenGlUtils.unbindVAO(0, 1);
+	private void renderText(SnapshotDraw draw) {
+		OpenGlUtils.bindVAO(draw.getVaoID(), 0, 1);
+		OpenGlUtils.bindTexture(draw.getTexture(), 0);
+		draw.load(fontData);
+		fontData.upload();
+		glDrawArrays(GL_TRIANGLES, 0, draw.getVertexCount());
+		OpenGlUtils.unbindVAO();
 	}
 
 	private void endRendering() {
@@ -83,6 +114,7 @@ public class FontRenderer extends Renderer {
 
 	@Override
 	public void dispose() {
+		FlounderRenderer.removeSnapshotItem(SNAPSHOT_KEY);
 		shader.delete();
 	}
 }
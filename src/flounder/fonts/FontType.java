@@ -44,6 +44,24 @@ public class FontType {
 		loader = new TextLoader(textureAtlas, fontFile);
 	}
 
+	/**
+	 * Creates the font loader with a font texture already created, such as by a batch.
+	 *
+	 * @param texture The font texture, created from {@link #getTextureBuilder()}.
+	 */
+	protected void createLoader(TextureObject texture) {
+		loader = new TextLoader(texture, fontFile);
+	}
+
+	/**
+	 * Gets a builder for the font texture.
+	 *
+	 * @return The font texture builder.
+	 */
+	protected TextureBuilder getTextureBuilder() {
+		return TextLoader.newTextureBuilder(textureAtlas);
+	}
+
 	/**
 	 * Loads the text.
 	 *
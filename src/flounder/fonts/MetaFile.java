@@ -1,6 +1,7 @@
 package flounder.fonts;
 
 import flounder.devices.*;
+import flounder.loaders.*;
 import flounder.logger.*;
 import flounder.resources.*;
 
@@ -53,7 +54,7 @@ public class MetaFile {
 	 */
 	private void openFile(MyFile file) {
 		try {
-			reader = file.getReader();
+			reader = FlounderLoader.openReader(file);
 		} catch (Exception e) {
 			FlounderLogger.error("Couldn't read font meta file " + file.getPath());
 			FlounderLogger.exception(e);
@@ -17,10 +17,18 @@ public class TextLoader {
 	private MetaFile metaData;
 
 	public TextLoader(MyFile fontSheet, MyFile metaFile) {
-		this.fontTexture = TextureFactory.newBuilder().setFile(fontSheet).noFiltering().clampEdges().create();
+		this(newTextureBuilder(fontSheet).create(), metaFile);
+	}
+
+	public TextLoader(TextureObject fontTexture, MyFile metaFile) {
+		this.fontTexture = fontTexture;
 		this.metaData = new MetaFile(metaFile);
 	}
 
+	public static TextureBuilder newTextureBuilder(MyFile fontSheet) {
+		return TextureFactory.newBuilder().setFile(fontSheet).noFiltering().clampEdges();
+	}
+
 	public TextureObject getFontTexture() {
 		return fontTexture;
 	}
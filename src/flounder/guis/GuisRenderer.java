@@ -9,6 +9,9 @@ import flounder.profiling.*;
 import flounder.renderer.*;
 import flounder.resources.*;
 import flounder.shaders.*;
+import flounder.textures.*;
+
+import java.util.*;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL20.*;
@@ -21,54 +24,104 @@ public class GuisRenderer extends Renderer {
 	private static final float POSITION_MAX = 1.0f;
 	private static final float[] POSITIONS = {POSITION_MIN, POSITION_MIN, POSITION_MIN, POSITION_MAX, POSITION_MAX, POSITION_MIN, POSITION_MAX, POSITION_MAX};
 
+	private static final String SNAPSHOT_KEY = "guis";
+
 	private ShaderObject shader;
+	private UniformFloat aspectRatio;
+	private UniformBool polygonMode;
+	private UniformBlock guiData;
+	private RenderQueue<SnapshotDraw> queue;
 	private int vaoID;
 
 	public GuisRenderer() {
 		this.shader = ShaderFactory.newBuilder().setName("guis").addType(new ShaderType(GL_VERTEX_SHADER, VERTEX_SHADER)).addType(new ShaderType(GL_FRAGMENT_SHADER, FRAGMENT_SHADER)).create();
+		this.aspectRatio = shader.handleFloat("aspectRatio");
+		this.polygonMode = shader.handleBool("polygonMode");
+		this.guiData = shader.handleBlock("guiData", 5);
+		this.queue = new RenderQueue<>(64);
 		this.vaoID = FlounderLoader.createInterleavedVAO(POSITIONS, 2);
+
+		// The queue only binds the VAO, the position attribute is enabled once and kept in the VAO.
+		if (vaoID != -1) {
+			OpenGlUtils.bindVAO(vaoID, 0);
+			OpenGlUtils.unbindVAO();
+		}
+
+		FlounderRenderer.registerSnapshotItem(SNAPSHOT_KEY, GuisRenderer::capture);
+	}
+
+	/**
+	 * Copies the guis of the frame being updated, the render thread draws the copies while the guis change for the next frame.
+	 */
+	private static List<SnapshotDraw> capture() {
+		List<SnapshotDraw> draws = new ArrayList<>();
+
+		for (GuiTexture gui : FlounderGuis.getGuiTextures()) {
+			TextureObject texture = gui.getTexture();
+
+			if (texture == null || !texture.isLoaded()) {
+				continue;
+			}
+
+			Vector4f atlasRegion = texture.getAtlasRegion();
+			Vector2f textureOffset = gui.getTextureOffset();
+			draws.add(new SnapshotDraw(texture, -1, POSITIONS.length / 2, 5)
+					.set(0, gui.getPosition().x, gui.getPosition().y, gui.getScale().x, gui.getScale().y)
+					.set(1, atlasRegion.x, atlasRegion.y, atlasRegion.z, atlasRegion.w)
+					.set(2, (POSITION_MAX - POSITION_MIN) / 2.0f, (POSITION_MAX - POSITION_MIN) / 2.0f, (float) Math.toRadians(gui.getRotation()), gui.getAlpha())
+					.set(3, textureOffset.x, textureOffset.y, texture.getNumberOfRows(), gui.isFlipTexture() ? 1.0f : 0.0f)
+					.set(4, gui.getColourOffset().r, gui.getColourOffset().g, gui.getColourOffset().b, 0.0f));
+		}
+
+		return Collections.unmodifiableList(draws);
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public void renderObjects(Vector4f clipPlane, Camera camera) {
-		if (!shader.isLoaded() || FlounderGuis.getGuiTextures().isEmpty()) {
+		List<SnapshotDraw> draws = (List<SnapshotDraw>) FlounderRenderer.getFrameItem(SNAPSHOT_KEY);
+
+		if (!shader.isLoaded() || draws == null || draws.isEmpty()) {
 			return;
 		}
 
 		prepareRendering();
-		FlounderGuis.getGuiTextures().forEach(this::renderGui);
+
+		// Guis are keyed by their order, so overlapping guis still blend in order and only neighbouring guis share binds.
+		int order = 0;
+
+		for (SnapshotDraw draw : draws) {
+			TextureObject texture = draw.getTexture();
+
+			if (vaoID != -1 && texture.isLoaded() && texture.getTextureID() != -1) {
+				FlounderTextures.markUsed(texture);
+				queue.submit(RenderKey.translucent(0, order++, shader.getProgramID(), texture.getTextureID(), vaoID), shader.getProgramID(), vaoID, texture.getGlType(), texture.getTextureID(), draw);
+			}
+		}
+
+		queue.execute(this::renderGui);
+		OpenGlUtils.unbindVAO();
 		endRendering();
 	}
 
 	private void prepareRendering() {
-		shader.start();
+		// The queue binds the shader, VAO and textures as it draws.
+		FlounderShaders.markUsed(shader);
 
 		OpenGlUtils.antialias(false);
 		OpenGlUtils.cullBackFaces(true);
 		OpenGlUtils.enableAlphaBlending();
 		OpenGlUtils.disableDepthTesting();
-
-		shader.getUniformFloat("aspectRatio").loadFloat(FlounderDisplay.getAspectRatio());
-		shader.getUniformBool("polygonMode").loadBoolean(OpenGlUtils.isInWireframe());
 	}
 
-	private void renderGui(GuiTexture gui) {
-		if (vaoID == -1 || !gui.getTexture().isLoaded()) {
-			return;
-		}
+	private void renderGui(SnapshotDraw draw) {
+		// Uniforms are loaded once the queue has bound the shader, unchanged values are not uploaded again.
+		aspectRatio.loadFloat(FlounderDisplay.getAspectRatio());
+		polygonMode.loadBoolean(OpenGlUtils.isInWireframe());
 
-		OpenGlUtils.bindVAO(vaoID, 0);
-		OpenGlUtils.bindTexture(gui.getTexture(), 0);
-		shader.getUniformVec2("size").loadVec2((POSITION_MAX - POSITION_MIN) / 2.0f, (POSITION_MAX - POSITION_MIN) / 2.0f);
-		shader.getUniformVec4("transform").loadVec4(gui.getPosition().x, gui.getPosition().y, gui.getScale().x, gui.getScale().y);
-		shader.getUniformFloat("rotation").loadFloat((float) Math.toRadians(gui.getRotation()));
-		shader.getUniformFloat("alpha").loadFloat(gui.getAlpha());
-		shader.getUniformBool("flipTexture").loadBoolean(gui.isFlipTexture());
-		shader.getUniformFloat("atlasRows").loadFloat(gui.getTexture().getNumberOfRows());
-		shader.getUniformVec2("atlasOffset").loadVec2(gui.getTextureOffset());
-		shader.getUniformVec3("colourOffset").loadVec3(gui.getColourOffset());
-		glDrawArrays(GL_TRIANGLE_STRIP, 0, POSITIONS.length / 2);
-		OpenGlUtils.unbindVAO(0);
+		draw.load(guiData);
+		guiData.upload();
+		glDrawArrays(GL_TRIANGLE_STRIP, 0, draw.getVertexCount());
 	}
 
 	private void endRendering() {
@@ -78,10 +131,14 @@ public class GuisRenderer extends Renderer {
 	@Override
 	public void profile() {
 		FlounderProfiler.add(FlounderGuis.PROFILE_TAB_NAME, "Render Time", super.getRenderTime());
+		FlounderProfiler.add(FlounderGuis.PROFILE_TAB_NAME, "Draws", queue.getDraws());
+		FlounderProfiler.add(FlounderGuis.PROFILE_TAB_NAME, "State Changes", queue.getStateChanges());
+		FlounderProfiler.add(FlounderGuis.PROFILE_TAB_NAME, "Redundant Binds Skipped", queue.getRedundantBinds());
 	}
 
 	@Override
 	public void dispose() {
+		FlounderRenderer.removeSnapshotItem(SNAPSHOT_KEY);
 		shader.delete();
 	}
 }
@@ -1,7 +1,11 @@
 package flounder.helpers;
 
 import flounder.maths.*;
+import flounder.models.*;
 import flounder.textures.*;
+import org.lwjgl.opengl.*;
+
+import java.util.*;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL12.*;
@@ -18,6 +22,27 @@ public class OpenGlUtils {
 	private static boolean isAlphaBlending = false;
 	private static boolean additiveBlending = false;
 	private static boolean antialiasing = false;
+	private static boolean depthTesting = false;
+	private static boolean depthMask = true;
+
+	// The currently bound objects, -1 is unknown and always rebound. Units past the cached ones are always rebound.
+	private static final int MAX_TEXTURE_UNITS = 32;
+	private static int boundProgram = -1;
+	private static int boundVertexArray = -1;
+	private static int activeTextureUnit = -1;
+	private static final int[] boundTextures = new int[MAX_TEXTURE_UNITS];
+	private static final int[] boundTextureTargets = new int[MAX_TEXTURE_UNITS];
+	private static int boundDrawFramebuffer = -1;
+	private static int boundReadFramebuffer = -1;
+	private static final int[] viewport = {-1, -1, -1, -1};
+	private static final Map<Integer, Integer> enabledAttributes = new HashMap<>();
+
+	private static long stateCalls = 0;
+	private static long redundantCalls = 0;
+
+	static {
+		invalidateState();
+	}
 
 	/**
 	 * Prepares the screen for a new render.
@@ -49,13 +74,15 @@ public class OpenGlUtils {
 	 * @param cull Should back faces be culled.
 	 */
 	public static void cullBackFaces(boolean cull) {
-		if (cull && !cullingBackFace) {
-			glEnable(GL_CULL_FACE);
-			glCullFace(GL_BACK);
-			cullingBackFace = true;
-		} else if (!cull && cullingBackFace) {
-			glDisable(GL_CULL_FACE);
-			cullingBackFace = false;
+		if (changed(cull != cullingBackFace)) {
+			if (cull) {
+				glEnable(GL_CULL_FACE);
+				glCullFace(GL_BACK);
+			} else {
+				glDisable(GL_CULL_FACE);
+			}
+
+			cullingBackFace = cull;
 		}
 	}
 
@@ -63,14 +90,32 @@ public class OpenGlUtils {
 	 * Enables depth testing.
 	 */
 	public static void enableDepthTesting() {
-		glEnable(GL_DEPTH_TEST);
+		if (changed(!depthTesting)) {
+			glEnable(GL_DEPTH_TEST);
+			depthTesting = true;
+		}
 	}
 
 	/**
 	 * Disables depth testing.
 	 */
 	public static void disableDepthTesting() {
-		glDisable(GL_DEPTH_TEST);
+		if (changed(depthTesting)) {
+			glDisable(GL_DEPTH_TEST);
+			depthTesting = false;
+		}
+	}
+
+	/**
+	 * Toggles writing to the depth buffer.
+	 *
+	 * @param write If depth values are written.
+	 */
+	public static void depthMask(boolean write) {
+		if (changed(depthMask != write)) {
+			glDepthMask(write);
+			depthMask = write;
+		}
 	}
 
 	/**
@@ -86,12 +131,9 @@ public class OpenGlUtils {
 	 * @param goWireframe If the display should be in wireframe.
 	 */
 	public static void goWireframe(boolean goWireframe) {
-		if (goWireframe && !inWireframe) {
-			glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
-			inWireframe = true;
-		} else if (!goWireframe && inWireframe) {
-			glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
-			inWireframe = false;
+		if (changed(goWireframe != inWireframe)) {
+			glPolygonMode(GL_FRONT_AND_BACK, goWireframe ? GL_LINE : GL_FILL);
+			inWireframe = goWireframe;
 		}
 	}
 
@@ -99,7 +141,7 @@ public class OpenGlUtils {
 	 * Enables alpha blending.
 	 */
 	public static void enableAlphaBlending() {
-		if (!isAlphaBlending) {
+		if (changed(!isAlphaBlending)) {
 			glEnable(GL_BLEND);
 			glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 			isAlphaBlending = true;
@@ -111,7 +153,7 @@ public class OpenGlUtils {
 	 * Enables additive blending.
 	 */
 	public static void enableAdditiveBlending() {
-		if (!additiveBlending) {
+		if (changed(!additiveBlending)) {
 			glEnable(GL_BLEND);
 			glBlendFunc(GL_SRC_ALPHA, GL_ONE);
 			additiveBlending = true;
@@ -123,7 +165,7 @@ public class OpenGlUtils {
 	 * Disables alpha and additive blending.
 	 */
 	public static void disableBlending() {
-		if (isAlphaBlending || additiveBlending) {
+		if (changed(isAlphaBlending || additiveBlending)) {
 			glDisable(GL_BLEND);
 			isAlphaBlending = false;
 			additiveBlending = false;
@@ -136,12 +178,14 @@ public class OpenGlUtils {
 	 * @param enable Should antialias be enabled?
 	 */
 	public static void antialias(boolean enable) {
-		if (enable && !antialiasing) {
-			glEnable(GL_MULTISAMPLE);
-			antialiasing = true;
-		} else if (!enable && antialiasing) {
-			glDisable(GL_MULTISAMPLE);
-			antialiasing = false;
+		if (changed(enable != antialiasing)) {
+			if (enable) {
+				glEnable(GL_MULTISAMPLE);
+			} else {
+				glDisable(GL_MULTISAMPLE);
+			}
+
+			antialiasing = enable;
 		}
 	}
 
@@ -152,24 +196,141 @@ public class OpenGlUtils {
 	 * @param attributes Attributes to enable.
 	 */
 	public static void bindVAO(int vaoID, int... attributes) {
-		glBindVertexArray(vaoID);
+		bindVertexArray(vaoID);
+
+		// Enabled attributes are stored in the VAO, so each is only enabled the first time.
+		int enabled = enabledAttributes.getOrDefault(vaoID, 0);
 
 		for (int i : attributes) {
-			glEnableVertexAttribArray(i);
+			if (changed((enabled & (1 << i)) == 0)) {
+				glEnableVertexAttribArray(i);
+				enabled |= 1 << i;
+			}
 		}
+
+		enabledAttributes.put(vaoID, enabled);
+	}
+
+	/**
+	 * Unbinds the current VAO. The attributes stay enabled in the VAO for the next time it is bound.
+	 */
+	public static void unbindVAO() {
+		bindVertexArray(0);
 	}
 
 	/**
-	 * Unbinds the current VAO and all attributes.
+	 * Unbinds the current VAO, the attributes are ignored.
+	 *
+	 * @param attributes The attributes used, no longer disabled.
 	 *
-	 * @param attributes Attributes to disable.
+	 * @deprecated Attributes stay enabled in the VAO, use {@link #unbindVAO()}.
 	 */
+	@Deprecated
 	public static void unbindVAO(int... attributes) {
-		for (int i : attributes) {
-			glDisableVertexAttribArray(i);
+		unbindVAO();
+	}
+
+	/**
+	 * Binds a VAO if it is not already bound.
+	 *
+	 * @param vaoID The VAO to bind, or 0 to unbind.
+	 */
+	public static void bindVertexArray(int vaoID) {
+		if (changed(boundVertexArray != vaoID)) {
+			glBindVertexArray(vaoID);
+			boundVertexArray = vaoID;
 		}
+	}
 
-		glBindVertexArray(0);
+	/**
+	 * Uses a shader program if it is not already in use.
+	 *
+	 * @param programID The program to use, or 0 for none.
+	 */
+	public static void useProgram(int programID) {
+		if (changed(boundProgram != programID)) {
+			glUseProgram(programID);
+			boundProgram = programID;
+		}
+	}
+
+	/**
+	 * Binds a framebuffer if it is not already bound.
+	 *
+	 * @param target {@code GL_FRAMEBUFFER} for both drawing and reading, {@code GL_DRAW_FRAMEBUFFER} or {@code GL_READ_FRAMEBUFFER}.
+	 * @param framebufferID The framebuffer to bind, or 0 for the display.
+	 */
+	public static void bindFramebuffer(int target, int framebufferID) {
+		boolean draw = target != GL_READ_FRAMEBUFFER;
+		boolean read = target != GL_DRAW_FRAMEBUFFER;
+
+		if (changed((draw && boundDrawFramebuffer != framebufferID) || (read && boundReadFramebuffer != framebufferID))) {
+			glBindFramebuffer(target, framebufferID);
+
+			if (draw) {
+				boundDrawFramebuffer = framebufferID;
+			}
+
+			if (read) {
+				boundReadFramebuffer = framebufferID;
+			}
+		}
+	}
+
+	/**
+	 * Sets the viewport if it has changed.
+	 *
+	 * @param x The left of the viewport.
+	 * @param y The bottom of the viewport.
+	 * @param width The viewport width.
+	 * @param height The viewport height.
+	 */
+	public static void viewport(int x, int y, int width, int height) {
+		if (changed(viewport[0] != x || viewport[1] != y || viewport[2] != width || viewport[3] != height)) {
+			glViewport(x, y, width, height);
+			viewport[0] = x;
+			viewport[1] = y;
+			viewport[2] = width;
+			viewport[3] = height;
+		}
+	}
+
+	/**
+	 * Draws a model with its VAO bound. Every model draw must go through this or {@link #renderElementsInstanced(int, ModelObject, int)},
+	 * models in a shared geometry arena are drawn from their base vertex and first index, and models without indices as arrays.
+	 *
+	 * @param glMode The OpenGL primitive mode, {@code GL_TRIANGLES} is the most common.
+	 * @param model The model to draw.
+	 */
+	public static void renderElements(int glMode, ModelObject model) {
+		FlounderModels.markUsed(model);
+
+		if (model.getIndices() == null) {
+			glDrawArrays(glMode, 0, model.getVaoLength());
+		} else if (model.getSharedMesh() != null) {
+			ARBDrawElementsBaseVertex.glDrawElementsBaseVertex(glMode, model.getVaoLength(), GL_UNSIGNED_INT, model.getFirstIndex() * 4L, model.getBaseVertex());
+		} else {
+			glDrawElements(glMode, model.getVaoLength(), GL_UNSIGNED_INT, 0);
+		}
+	}
+
+	/**
+	 * Renders many instances of a model with one call, the per instance attributes must already be set up in the models VAO.
+	 *
+	 * @param glMode The OpenGL primitive mode.
+	 * @param model The model to render.
+	 * @param instances The number of instances.
+	 */
+	public static void renderElementsInstanced(int glMode, ModelObject model, int instances) {
+		FlounderModels.markUsed(model);
+
+		if (model.getIndices() == null) {
+			ARBDrawInstanced.glDrawArraysInstancedARB(glMode, 0, model.getVaoLength(), instances);
+		} else if (model.getSharedMesh() != null) {
+			ARBDrawElementsBaseVertex.glDrawElementsInstancedBaseVertex(glMode, model.getVaoLength(), GL_UNSIGNED_INT, model.getFirstIndex() * 4L, instances, model.getBaseVertex());
+		} else {
+			ARBDrawInstanced.glDrawElementsInstancedARB(glMode, model.getVaoLength(), GL_UNSIGNED_INT, 0, instances);
+		}
 	}
 
 	/**
@@ -183,8 +344,8 @@ public class OpenGlUtils {
 			return;
 		}
 
-		glActiveTexture(GL_TEXTURE0 + bankID);
-		glBindTexture(texture.getGlType(), texture.getTextureID());
+		FlounderTextures.markUsed(texture);
+		bindTexture(texture.getTextureID(), texture.getGlType(), bankID);
 	}
 
 	/**
@@ -199,8 +360,26 @@ public class OpenGlUtils {
 			return;
 		}
 
-		glActiveTexture(GL_TEXTURE0 + bankID);
-		glBindTexture(glTarget, textureID);
+		activeTexture(bankID);
+
+		if (bankID >= MAX_TEXTURE_UNITS) {
+			changed(true);
+			glBindTexture(glTarget, textureID);
+			return;
+		}
+
+		if (changed(boundTextures[bankID] != textureID || boundTextureTargets[bankID] != glTarget)) {
+			glBindTexture(glTarget, textureID);
+			boundTextures[bankID] = textureID;
+			boundTextureTargets[bankID] = glTarget;
+		}
+	}
+
+	private static void activeTexture(int bankID) {
+		if (changed(activeTextureUnit != bankID)) {
+			glActiveTexture(GL_TEXTURE0 + bankID);
+			activeTextureUnit = bankID;
+		}
 	}
 
 	/**
@@ -215,9 +394,123 @@ public class OpenGlUtils {
 			return;
 		}
 
-		glActiveTexture(GL_TEXTURE0 + bankID);
-		glBindTexture(GL_TEXTURE_2D, textureID);
+		bindTexture(textureID, GL_TEXTURE_2D, bankID);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, lodBias);
-		glActiveTexture(0);
+	}
+
+	/**
+	 * Deletes a shader program, and forgets it if it was in use.
+	 *
+	 * @param programID The program to delete.
+	 */
+	public static void deleteProgram(int programID) {
+		glDeleteProgram(programID);
+
+		if (boundProgram == programID) {
+			boundProgram = -1;
+		}
+	}
+
+	/**
+	 * Deletes a VAO, and forgets it if it was bound.
+	 *
+	 * @param vaoID The VAO to delete.
+	 */
+	public static void deleteVertexArray(int vaoID) {
+		glDeleteVertexArrays(vaoID);
+		enabledAttributes.remove(vaoID);
+
+		if (boundVertexArray == vaoID) {
+			boundVertexArray = -1;
+		}
+	}
+
+	/**
+	 * Deletes a texture, and forgets it on every unit it was bound to.
+	 *
+	 * @param textureID The texture to delete.
+	 */
+	public static void deleteTexture(int textureID) {
+		glDeleteTextures(textureID);
+
+		for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+			if (boundTextures[i] == textureID) {
+				boundTextures[i] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Deletes a framebuffer, and forgets it if it was bound.
+	 *
+	 * @param framebufferID The framebuffer to delete.
+	 */
+	public static void deleteFramebuffer(int framebufferID) {
+		glDeleteFramebuffers(framebufferID);
+
+		if (boundDrawFramebuffer == framebufferID) {
+			boundDrawFramebuffer = -1;
+		}
+
+		if (boundReadFramebuffer == framebufferID) {
+			boundReadFramebuffer = -1;
+		}
+	}
+
+	/**
+	 * Forgets the cached bindings, so the next bind of each is always made. Used when the context changed thread, or after OpenGL calls made outside of these helpers.
+	 */
+	public static void invalidateState() {
+		boundProgram = -1;
+		boundVertexArray = -1;
+		activeTextureUnit = -1;
+		Arrays.fill(boundTextures, -1);
+		Arrays.fill(boundTextureTargets, -1);
+		boundDrawFramebuffer = -1;
+		boundReadFramebuffer = -1;
+		Arrays.fill(viewport, -1);
+	}
+
+	/**
+	 * Counts a state change, or a call skipped because the state was already set.
+	 *
+	 * @param changed If the state changes.
+	 *
+	 * @return If the OpenGL call should be made.
+	 */
+	private static boolean changed(boolean changed) {
+		if (changed) {
+			stateCalls++;
+		} else {
+			redundantCalls++;
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Gets the number of state changes made since the counters were reset.
+	 *
+	 * @return The state change count.
+	 */
+	public static long getStateCalls() {
+		return stateCalls;
+	}
+
+	/**
+	 * Gets the number of calls skipped since the counters were reset, because the state was already set.
+	 *
+	 * @return The redundant call count.
+	 */
+	public static long getRedundantCalls() {
+		return redundantCalls;
+	}
+
+	/**
+	 * Resets the state change and redundant call counters, called once per frame by the renderer.
+	 */
+	public static void resetCallCounters() {
+		stateCalls = 0;
+		redundantCalls = 0;
 	}
 }
@@ -0,0 +1,118 @@
+package flounder.loaders;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A adaptive replacement cache policy. Keys used once and keys used repeatedly are kept in separate LRU lists,
+ * and ghost lists of recently evicted keys shift the split between them, so a scan of one-off loads does not flush frequently used objects.
+ */
+public class ArcCachePolicy implements CachePolicy {
+	private final LinkedHashSet<String> recent;
+	private final LinkedHashSet<String> frequent;
+	private final LinkedHashSet<String> recentGhosts;
+	private final LinkedHashSet<String> frequentGhosts;
+
+	private double target;
+	private int capacity;
+
+	/**
+	 * Creates a new ARC cache policy.
+	 */
+	public ArcCachePolicy() {
+		this.recent = new LinkedHashSet<>();
+		this.frequent = new LinkedHashSet<>();
+		this.recentGhosts = new LinkedHashSet<>();
+		this.frequentGhosts = new LinkedHashSet<>();
+		this.target = 0.0;
+		this.capacity = 0;
+	}
+
+	@Override
+	public void onInsert(String key) {
+		if (recent.contains(key) || frequent.contains(key)) {
+			onAccess(key);
+			return;
+		}
+
+		if (recentGhosts.remove(key)) {
+			// Evicted from the recent list too early, give recent keys more room.
+			target = Math.min(capacity, target + Math.max((double) frequentGhosts.size() / Math.max(recentGhosts.size(), 1), 1.0));
+			frequent.add(key);
+		} else if (frequentGhosts.remove(key)) {
+			target = Math.max(0.0, target - Math.max((double) recentGhosts.size() / Math.max(frequentGhosts.size(), 1), 1.0));
+			frequent.add(key);
+		} else {
+			recent.add(key);
+		}
+
+		capacity = Math.max(capacity, recent.size() + frequent.size());
+	}
+
+	@Override
+	public void onAccess(String key) {
+		if (recent.remove(key) || frequent.remove(key)) {
+			frequent.add(key);
+		}
+	}
+
+	@Override
+	public void onEvict(String key) {
+		if (recent.remove(key)) {
+			recentGhosts.add(key);
+		} else if (frequent.remove(key)) {
+			frequentGhosts.add(key);
+		}
+
+		// Ghosts are bounded by the most keys the cache has held.
+		while (recentGhosts.size() + frequentGhosts.size() > capacity) {
+			LinkedHashSet<String> ghosts = recentGhosts.size() > frequentGhosts.size() ? recentGhosts : frequentGhosts;
+			Iterator<String> iterator = ghosts.iterator();
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	@Override
+	public void onRemove(String key) {
+		recent.remove(key);
+		frequent.remove(key);
+		recentGhosts.remove(key);
+		frequentGhosts.remove(key);
+	}
+
+	@Override
+	public String findVictim(Predicate<String> evictable) {
+		boolean fromRecent = !recent.isEmpty() && (recent.size() > target || frequent.isEmpty());
+		String victim = findVictim(fromRecent ? recent : frequent, evictable);
+		return victim != null ? victim : findVictim(fromRecent ? frequent : recent, evictable);
+	}
+
+	private static String findVictim(LinkedHashSet<String> keys, Predicate<String> evictable) {
+		for (String key : keys) {
+			if (evictable.test(key)) {
+				return key;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		recent.clear();
+		frequent.clear();
+		recentGhosts.clear();
+		frequentGhosts.clear();
+		target = 0.0;
+	}
+
+	/**
+	 * Gets the adaptive target size of the recent list.
+	 *
+	 * @return The recent list target.
+	 */
+	public double getTarget() {
+		return target;
+	}
+}
@@ -0,0 +1,186 @@
+package flounder.loaders;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * A read only archive of many asset files, memory mapped so entries are served as slices of the mapping without per file opens or copies.
+ * A pack is a header, a index of entry paths, offsets and sizes, then the entry data aligned to {@link #ALIGNMENT} bytes. Packs are written by {@link AssetPackBuilder}.
+ */
+public class AssetPack {
+	protected static final int MAGIC = 0x46504B31;
+	protected static final int VERSION = 1;
+	protected static final int ALIGNMENT = 16;
+
+	protected static final byte STORED = 0;
+	protected static final byte DEFLATED = 1;
+
+	private final File file;
+	private final MappedByteBuffer mapping;
+	private final Map<String, PackEntry> entries;
+
+	private AssetPack(File file, MappedByteBuffer mapping, Map<String, PackEntry> entries) {
+		this.file = file;
+		this.mapping = mapping;
+		this.entries = entries;
+	}
+
+	/**
+	 * Opens and maps a pack file, the file is closed again once mapped.
+	 *
+	 * @param file The pack file.
+	 *
+	 * @return The opened pack.
+	 *
+	 * @throws IOException If the file could not be mapped or is not a valid pack.
+	 */
+	public static AssetPack open(File file) throws IOException {
+		MappedByteBuffer mapping;
+
+		try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Asset pack " + file + " is larger than 2 GB");
+			}
+
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(mapping));
+
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Not a asset pack, or a unsupported version: " + file);
+		}
+
+		int count = in.readInt();
+		Map<String, PackEntry> entries = new HashMap<>(count * 2);
+
+		for (int i = 0; i < count; i++) {
+			String path = in.readUTF();
+			entries.put(path, new PackEntry(in.readInt(), in.readInt(), in.readInt(), in.readByte()));
+		}
+
+		return new AssetPack(file, mapping, entries);
+	}
+
+	/**
+	 * Turns a file path into the form paths are stored in, forward slashes without a leading slash.
+	 *
+	 * @param path The file path.
+	 *
+	 * @return The normalized path.
+	 */
+	public static String normalize(String path) {
+		String normalized = path.replace('\\', '/');
+
+		while (normalized.startsWith("/")) {
+			normalized = normalized.substring(1);
+		}
+
+		return normalized;
+	}
+
+	/**
+	 * Gets if a file is stored in this pack.
+	 *
+	 * @param path The file path.
+	 *
+	 * @return If the pack contains the file.
+	 */
+	public boolean contains(String path) {
+		return entries.containsKey(normalize(path));
+	}
+
+	/**
+	 * Gets the contents of a packed file. Stored entries are read only slices of the mapping, deflated entries are inflated into a new buffer.
+	 *
+	 * @param path The file path.
+	 *
+	 * @return The file contents from position 0 to the limit, or null if the file is not packed.
+	 *
+	 * @throws IOException If a deflated entry is corrupt.
+	 */
+	public ByteBuffer get(String path) throws IOException {
+		PackEntry entry = entries.get(normalize(path));
+
+		if (entry == null) {
+			return null;
+		}
+
+		ByteBuffer slice = mapping.duplicate();
+		slice.limit(entry.offset + entry.storedSize);
+		slice.position(entry.offset);
+		slice = slice.slice();
+
+		if (entry.compression == STORED) {
+			return slice;
+		}
+
+		byte[] stored = new byte[entry.storedSize];
+		slice.get(stored);
+		byte[] data = new byte[entry.size];
+		Inflater inflater = new Inflater();
+
+		try {
+			inflater.setInput(stored);
+			int inflated = 0;
+
+			while (inflated < data.length) {
+				int read = inflater.inflate(data, inflated, data.length - inflated);
+
+				if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new IOException("Truncated asset pack entry " + path + " in " + file);
+				}
+
+				inflated += read;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt asset pack entry " + path + " in " + file, e);
+		} finally {
+			inflater.end();
+		}
+
+		return ByteBuffer.wrap(data);
+	}
+
+	/**
+	 * Gets the paths of every packed file.
+	 *
+	 * @return The packed paths.
+	 */
+	public Set<String> getPaths() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the size of the mapping.
+	 *
+	 * @return The pack size in bytes.
+	 */
+	public int getMappedBytes() {
+		return mapping.capacity();
+	}
+
+	/**
+	 * A entry in the pack index.
+	 */
+	private static class PackEntry {
+		private final int offset;
+		private final int storedSize;
+		private final int size;
+		private final byte compression;
+
+		private PackEntry(int offset, int storedSize, int size, byte compression) {
+			this.offset = offset;
+			this.storedSize = storedSize;
+			this.size = size;
+			this.compression = compression;
+		}
+	}
+}
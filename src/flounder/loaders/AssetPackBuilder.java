@@ -0,0 +1,186 @@
+package flounder.loaders;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Writes {@link AssetPack} files. Can be run as a tool: {@code AssetPackBuilder <folder> <output> [--deflate]},
+ * which packs every file under the folder with paths starting at the folders name, matching the paths of files under the resources folder.
+ */
+public class AssetPackBuilder {
+	private final Map<String, byte[]> files;
+	private boolean deflate;
+
+	/**
+	 * Creates a new empty asset pack builder.
+	 */
+	public AssetPackBuilder() {
+		this.files = new TreeMap<>();
+		this.deflate = false;
+	}
+
+	/**
+	 * Deflates entries that shrink by at least a tenth, already compressed formats such as PNG are stored as they are.
+	 *
+	 * @return this.
+	 */
+	public AssetPackBuilder deflate() {
+		this.deflate = true;
+		return this;
+	}
+
+	/**
+	 * Adds a file.
+	 *
+	 * @param path The path the file is looked up by.
+	 * @param data The file contents.
+	 *
+	 * @return this.
+	 */
+	public AssetPackBuilder add(String path, byte[] data) {
+		files.put(AssetPack.normalize(path), data);
+		return this;
+	}
+
+	/**
+	 * Adds every file under a folder.
+	 *
+	 * @param folder The folder to add.
+	 * @param prefix The path the folders contents are placed under.
+	 *
+	 * @return this.
+	 *
+	 * @throws IOException If a file could not be read.
+	 */
+	public AssetPackBuilder addFolder(File folder, String prefix) throws IOException {
+		Path root = folder.toPath();
+
+		try (DirectoryStream<Path> children = Files.newDirectoryStream(root)) {
+			for (Path child : children) {
+				String path = prefix + "/" + child.getFileName();
+
+				if (Files.isDirectory(child)) {
+					addFolder(child.toFile(), path);
+				} else {
+					add(path, Files.readAllBytes(child));
+				}
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Writes the pack.
+	 *
+	 * @param output The file to write.
+	 *
+	 * @throws IOException If the file could not be written.
+	 */
+	public void write(File output) throws IOException {
+		List<String> paths = new ArrayList<>(files.keySet());
+		byte[][] stored = new byte[paths.size()][];
+		byte[] compression = new byte[paths.size()];
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		DataOutputStream indexOut = new DataOutputStream(index);
+
+		for (int i = 0; i < paths.size(); i++) {
+			byte[] data = files.get(paths.get(i));
+			byte[] deflated = deflate ? deflate(data) : null;
+			boolean smaller = deflated != null && deflated.length < data.length * 0.9;
+			stored[i] = smaller ? deflated : data;
+			compression[i] = smaller ? AssetPack.DEFLATED : AssetPack.STORED;
+			indexOut.writeUTF(paths.get(i));
+			indexOut.writeInt(0);
+			indexOut.writeInt(0);
+			indexOut.writeInt(0);
+			indexOut.writeByte(0);
+		}
+
+		// The index size is known once every path is written, the entry offsets follow from it.
+		long offset = align(12 + index.size());
+		index.reset();
+
+		for (int i = 0; i < paths.size(); i++) {
+			if (offset + stored[i].length > Integer.MAX_VALUE) {
+				throw new IOException("Asset pack would be larger than 2 GB");
+			}
+
+			indexOut.writeUTF(paths.get(i));
+			indexOut.writeInt((int) offset);
+			indexOut.writeInt(stored[i].length);
+			indexOut.writeInt(files.get(paths.get(i)).length);
+			indexOut.writeByte(compression[i]);
+			offset = align(offset + stored[i].length);
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+			out.writeInt(AssetPack.MAGIC);
+			out.writeInt(AssetPack.VERSION);
+			out.writeInt(paths.size());
+			index.writeTo(out);
+			pad(out, 12 + index.size());
+			long written = align(12 + index.size());
+
+			for (byte[] data : stored) {
+				out.write(data);
+				pad(out, written + data.length);
+				written = align(written + data.length);
+			}
+		}
+	}
+
+	private static byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+		byte[] buffer = new byte[8192];
+
+		while (!deflater.finished()) {
+			out.write(buffer, 0, deflater.deflate(buffer));
+		}
+
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static long align(long offset) {
+		return (offset + AssetPack.ALIGNMENT - 1) / AssetPack.ALIGNMENT * AssetPack.ALIGNMENT;
+	}
+
+	private static void pad(OutputStream out, long position) throws IOException {
+		for (long i = position; i < align(position); i++) {
+			out.write(0);
+		}
+	}
+
+	/**
+	 * Gets the number of files added.
+	 *
+	 * @return The file count.
+	 */
+	public int getFileCount() {
+		return files.size();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: AssetPackBuilder <folder> <output> [--deflate]");
+			return;
+		}
+
+		File folder = new File(args[0]);
+		AssetPackBuilder builder = new AssetPackBuilder();
+
+		if (args.length > 2 && args[2].equals("--deflate")) {
+			builder.deflate();
+		}
+
+		builder.addFolder(folder, folder.getName());
+		builder.write(new File(args[1]));
+		System.out.println("Packed " + builder.getFileCount() + " files into " + args[1]);
+	}
+}
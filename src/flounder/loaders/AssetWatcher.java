@@ -0,0 +1,184 @@
+package flounder.loaders;
+
+import flounder.logger.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a asset folder with the platforms file change notifications instead of polling, and reports each changed file once it has been quiet for the debounce time.
+ * Editors often write a file several times when saving, the debounce turns these into a single reload. Changes are reported on a worker thread.
+ */
+public class AssetWatcher {
+	private final Path root;
+	private final long debounceMs;
+	private final Consumer<String> onChange;
+	private final WatchService service;
+	private final Map<WatchKey, Path> keys;
+	private final Map<String, Long> pending;
+	private final ExecutorService reloader;
+	private final Thread thread;
+
+	private volatile boolean running;
+	private final AtomicLong reloads;
+
+	/**
+	 * Creates and starts a new asset watcher.
+	 *
+	 * @param root The folder to watch, sub folders (including ones created later) are watched too.
+	 * @param debounceMs The time in milliseconds a file must go without changing before it is reported.
+	 * @param onChange Called with the path of a changed file, relative to the root and separated by {@code /}, such as {@code res/models/tree.obj} when the root is the resource folder.
+	 *
+	 * @throws IOException If the folder could not be watched.
+	 */
+	public AssetWatcher(File root, long debounceMs, Consumer<String> onChange) throws IOException {
+		this.root = root.toPath().toAbsolutePath().normalize();
+		this.debounceMs = debounceMs;
+		this.onChange = onChange;
+		this.service = FileSystems.getDefault().newWatchService();
+		this.keys = new HashMap<>();
+		this.pending = new LinkedHashMap<>();
+		this.reloads = new AtomicLong();
+		this.reloader = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Asset Reloader");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		register(this.root);
+
+		this.running = true;
+		this.thread = new Thread(this::run, "Asset Watcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Watches a folder and every folder below it.
+	 */
+	private void register(Path folder) throws IOException {
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+				keys.put(directory.register(service, ENTRY_CREATE, ENTRY_MODIFY), directory);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void run() {
+		while (running) {
+			WatchKey key;
+
+			try {
+				// Blocks until something changes, only waking on a timer while changes are waiting out their debounce.
+				key = pending.isEmpty() ? service.take() : service.poll(debounceMs, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			if (key != null) {
+				collect(key);
+			}
+
+			flush();
+		}
+	}
+
+	/**
+	 * Adds the events of a key to the pending changes.
+	 */
+	private void collect(WatchKey key) {
+		Path folder = keys.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (folder == null || event.kind() == OVERFLOW) {
+				continue;
+			}
+
+			Path path = folder.resolve((Path) event.context());
+
+			if (Files.isDirectory(path)) {
+				if (event.kind() == ENTRY_CREATE) {
+					try {
+						register(path);
+					} catch (IOException e) {
+						FlounderLogger.warning("Could not watch asset folder " + path);
+					}
+				}
+
+				continue;
+			}
+
+			pending.put(toAssetPath(path), System.currentTimeMillis());
+		}
+
+		if (!key.reset()) {
+			keys.remove(key);
+		}
+	}
+
+	/**
+	 * Hands the changes that have been quiet for the debounce time to the reload thread.
+	 */
+	private void flush() {
+		long now = System.currentTimeMillis();
+
+		for (Iterator<Map.Entry<String, Long>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+			Map.Entry<String, Long> entry = iterator.next();
+
+			if (now - entry.getValue() < debounceMs) {
+				continue;
+			}
+
+			String path = entry.getKey();
+			iterator.remove();
+			reloads.incrementAndGet();
+
+			reloader.execute(() -> {
+				try {
+					onChange.accept(path);
+				} catch (Exception e) {
+					FlounderLogger.error("Could not reload asset " + path);
+					FlounderLogger.exception(e);
+				}
+			});
+		}
+	}
+
+	private String toAssetPath(Path path) {
+		return AssetPack.normalize(root.relativize(path.toAbsolutePath().normalize()).toString());
+	}
+
+	/**
+	 * Gets the number of changes reported since the watcher started.
+	 *
+	 * @return The reload count.
+	 */
+	public long getReloads() {
+		return reloads.get();
+	}
+
+	/**
+	 * Stops watching, changes still waiting out their debounce are dropped.
+	 */
+	public void close() {
+		running = false;
+
+		try {
+			service.close();
+		} catch (IOException e) {
+			FlounderLogger.warning("Could not close asset watcher");
+		}
+
+		thread.interrupt();
+		reloader.shutdownNow();
+	}
+}
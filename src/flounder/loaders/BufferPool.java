@@ -0,0 +1,153 @@
+package flounder.loaders;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * A pool of direct byte buffers in power of two size classes. Buffers must be explicitly released once their data is uploaded,
+ * released buffers are reused by later acquires instead of waiting for the garbage collector to free the off-heap memory.
+ */
+public class BufferPool {
+	private static final int MIN_CLASS_SHIFT = 12; // 4 KB.
+	private static final int MAX_CLASS_SHIFT = 26; // 64 MB.
+
+	private final List<Deque<ByteBuffer>> idle;
+	private final Set<ByteBuffer> idleSet;
+	private final long maxIdleBytes;
+
+	private long idleBytes;
+	private long offHeapBytes;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a new buffer pool.
+	 *
+	 * @param maxIdleBytes The maximum bytes of released buffers to keep for reuse, further released buffers are left to the garbage collector.
+	 */
+	public BufferPool(long maxIdleBytes) {
+		this.idle = new ArrayList<>();
+		this.idleSet = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.maxIdleBytes = maxIdleBytes;
+
+		for (int i = MIN_CLASS_SHIFT; i <= MAX_CLASS_SHIFT; i++) {
+			idle.add(new ArrayDeque<>());
+		}
+	}
+
+	/**
+	 * Acquires a native ordered direct buffer, the position is zero and the limit is the requested size.
+	 *
+	 * @param bytes The number of bytes needed.
+	 *
+	 * @return The buffer, must be given back with {@link #release(ByteBuffer)}.
+	 */
+	public synchronized ByteBuffer acquire(int bytes) {
+		int sizeClass = getSizeClass(bytes);
+		ByteBuffer buffer = null;
+
+		if (sizeClass != -1) {
+			buffer = idle.get(sizeClass).poll();
+		}
+
+		if (buffer != null) {
+			idleSet.remove(buffer);
+			idleBytes -= buffer.capacity();
+			hits++;
+		} else {
+			int capacity = sizeClass != -1 ? 1 << (sizeClass + MIN_CLASS_SHIFT) : bytes;
+			buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+			offHeapBytes += capacity;
+			misses++;
+		}
+
+		buffer.clear();
+		buffer.limit(bytes);
+		return buffer;
+	}
+
+	/**
+	 * Gives a acquired buffer back to the pool. The buffer, and any views of it, must not be used after this.
+	 *
+	 * @param buffer The buffer to release, null is ignored.
+	 */
+	public synchronized void release(ByteBuffer buffer) {
+		if (buffer == null || idleSet.contains(buffer)) {
+			return;
+		}
+
+		int capacity = buffer.capacity();
+		int sizeClass = getSizeClass(capacity);
+
+		if (sizeClass == -1 || 1 << (sizeClass + MIN_CLASS_SHIFT) != capacity || idleBytes + capacity > maxIdleBytes) {
+			offHeapBytes -= capacity;
+			return;
+		}
+
+		idle.get(sizeClass).push(buffer);
+		idleSet.add(buffer);
+		idleBytes += capacity;
+	}
+
+	/**
+	 * Drops all idle buffers, leaving them to the garbage collector.
+	 */
+	public synchronized void clear() {
+		idle.forEach(Deque::clear);
+		idleSet.clear();
+		offHeapBytes -= idleBytes;
+		idleBytes = 0;
+	}
+
+	/**
+	 * Gets the size class index of a buffer size.
+	 *
+	 * @param bytes The buffer size.
+	 *
+	 * @return The size class, or -1 if the size is too large to pool.
+	 */
+	private static int getSizeClass(int bytes) {
+		if (bytes > 1 << MAX_CLASS_SHIFT) {
+			return -1;
+		}
+
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(bytes, 1) - 1);
+		return Math.max(shift, MIN_CLASS_SHIFT) - MIN_CLASS_SHIFT;
+	}
+
+	/**
+	 * Gets the fraction of acquires that reused a idle buffer.
+	 *
+	 * @return The hit rate from 0 to 1.
+	 */
+	public synchronized float getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0.0f : (float) hits / total;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the bytes of direct memory allocated by the pool that have not been dropped, both in use and idle.
+	 *
+	 * @return The off-heap bytes.
+	 */
+	public synchronized long getOffHeapBytes() {
+		return offHeapBytes;
+	}
+
+	/**
+	 * Gets the bytes of released buffers waiting to be reused.
+	 *
+	 * @return The idle bytes.
+	 */
+	public synchronized long getIdleBytes() {
+		return idleBytes;
+	}
+}
@@ -0,0 +1,67 @@
+package flounder.loaders;
+
+import java.io.*;
+import java.nio.*;
+
+/**
+ * A input stream reading from a byte buffer without copying it, used to hand packed assets to stream based decoders.
+ */
+public class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates a new byte buffer input stream.
+	 *
+	 * @param buffer The buffer to read from its position to its limit, the buffer is not modified.
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate();
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if (length == 0) {
+			return 0;
+		}
+
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+
+		int read = Math.min(length, buffer.remaining());
+		buffer.get(bytes, offset, read);
+		return read;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skipped = (int) Math.max(Math.min(n, buffer.remaining()), 0);
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readLimit) {
+		buffer.mark();
+	}
+
+	@Override
+	public synchronized void reset() {
+		buffer.reset();
+	}
+}
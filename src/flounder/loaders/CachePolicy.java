@@ -0,0 +1,50 @@
+package flounder.loaders;
+
+import java.util.function.*;
+
+/**
+ * Decides which entry a {@link FactoryCache} evicts next. Policies only track keys, the cache owns the objects and their weights.
+ */
+public interface CachePolicy {
+	/**
+	 * Called when a key is added to the cache.
+	 *
+	 * @param key The added key.
+	 */
+	void onInsert(String key);
+
+	/**
+	 * Called when a cached key is looked up.
+	 *
+	 * @param key The accessed key.
+	 */
+	void onAccess(String key);
+
+	/**
+	 * Called when the policy's victim is evicted.
+	 *
+	 * @param key The evicted key.
+	 */
+	void onEvict(String key);
+
+	/**
+	 * Called when a key is removed without being evicted, such as when its object is deleted.
+	 *
+	 * @param key The removed key.
+	 */
+	void onRemove(String key);
+
+	/**
+	 * Finds the next key to evict.
+	 *
+	 * @param evictable Tests if a key can be evicted now.
+	 *
+	 * @return The victim, or null if no key can be evicted.
+	 */
+	String findVictim(Predicate<String> evictable);
+
+	/**
+	 * Forgets every key.
+	 */
+	void clear();
+}
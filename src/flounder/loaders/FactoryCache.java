@@ -0,0 +1,294 @@
+package flounder.loaders;
+
+import flounder.factory.*;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A size bounded cache of factory objects, used as a factories loaded map. Cached objects are strongly held so they are never collected without being deleted,
+ * once the cache is over its weight budget the {@link CachePolicy} picks objects to evict and the eviction callback frees their OpenGL handles.
+ * The callback is expected to delete the object, its delete request then removes the entry.
+ * A cache without a weight budget never evicts, so idle objects are only held by their soft reference, as factories loaded maps held every object before the cache.
+ *
+ * @param <T> The type of cached object.
+ */
+public class FactoryCache<T extends FactoryObject> extends AbstractMap<String, SoftReference<FactoryObject>> {
+	/**
+	 * The number of frames a object must go unused before it is idle, objects held by renderers are drawn each frame so are never idle for this long.
+	 */
+	public static final int IDLE_FRAMES = 120;
+
+	private final Map<String, CacheEntry> entries;
+	private final Map<String, SoftReference<FactoryObject>> references;
+	private final long maxWeight;
+	private final CachePolicy policy;
+	private final ToLongFunction<T> weigher;
+	private final Predicate<T> evictable;
+	private final Consumer<T> evictor;
+
+	private volatile long frame;
+	private long weight;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long purged;
+
+	/**
+	 * Creates a new factory cache.
+	 *
+	 * @param maxWeight The total weight (usually bytes) the cache evicts down to.
+	 * @param policy The policy choosing which object is evicted.
+	 * @param weigher Gets the weight of a object.
+	 * @param evictable Tests if a object can be evicted now, objects still loading or in use should not be. Without a weight budget, objects passing this are held softly.
+	 * @param evictor Frees a evicted object.
+	 */
+	public FactoryCache(long maxWeight, CachePolicy policy, ToLongFunction<T> weigher, Predicate<T> evictable, Consumer<T> evictor) {
+		this.entries = new HashMap<>();
+		this.references = new HashMap<>();
+		this.maxWeight = maxWeight;
+		this.policy = policy;
+		this.weigher = weigher;
+		this.evictable = evictable;
+		this.evictor = evictor;
+	}
+
+	@Override
+	public synchronized SoftReference<FactoryObject> get(Object key) {
+		CacheEntry entry = entries.get(key);
+
+		if (entry == null || entry.reference.get() == null) {
+			misses++;
+			return entry == null ? null : entry.reference;
+		}
+
+		if (!entry.evicting) {
+			hits++;
+			policy.onAccess(entry.key);
+			entry.strong = entry.reference.get();
+		}
+
+		return entry.reference;
+	}
+
+	@Override
+	public synchronized SoftReference<FactoryObject> put(String key, SoftReference<FactoryObject> reference) {
+		CacheEntry previous = entries.put(key, new CacheEntry(key, reference));
+		references.put(key, reference);
+
+		if (previous != null && !previous.evicting) {
+			weight -= previous.weight;
+		}
+
+		policy.onInsert(key);
+		return previous == null ? null : previous.reference;
+	}
+
+	@Override
+	public synchronized SoftReference<FactoryObject> remove(Object key) {
+		CacheEntry entry = entries.remove(key);
+		references.remove(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		// Evicted entries were already handed to the policy as evictions.
+		if (!entry.evicting) {
+			weight -= entry.weight;
+			policy.onRemove(entry.key);
+		}
+
+		return entry.reference;
+	}
+
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		references.clear();
+		policy.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Gets a snapshot of the entries, taken under the cache lock so it is safe to iterate while other threads load objects.
+	 *
+	 * @return The entries.
+	 */
+	@Override
+	public synchronized Set<Entry<String, SoftReference<FactoryObject>>> entrySet() {
+		return Collections.unmodifiableMap(new HashMap<>(references)).entrySet();
+	}
+
+	/**
+	 * Advances the frame, purges entries whose references were cleared, updates the weights of loaded objects, then evicts until the cache is within its budget.
+	 * Called from the owning module's update, which may not be the OpenGL thread. The eviction callback must therefore free OpenGL objects through {@link flounder.renderer.FlounderRenderer#sendRequest}, as the model, shader and texture deletes do.
+	 */
+	public synchronized void update() {
+		frame++;
+		weight = 0;
+
+		for (Iterator<CacheEntry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+			CacheEntry entry = iterator.next();
+
+			if (entry.evicting) {
+				continue;
+			}
+
+			T object = entry.get();
+
+			if (object == null) {
+				iterator.remove();
+				references.remove(entry.key);
+				policy.onRemove(entry.key);
+				purged++;
+				continue;
+			}
+
+			// Nothing is evicted without a budget, so idle objects are left for the collector to reclaim like the soft references they were given as.
+			entry.strong = maxWeight == Long.MAX_VALUE && evictable.test(object) ? null : object;
+			entry.weight = weigher.applyAsLong(object);
+			weight += entry.weight;
+		}
+
+		while (weight > maxWeight) {
+			String victim = policy.findVictim(key -> {
+				CacheEntry entry = entries.get(key);
+				return entry != null && !entry.evicting && entry.get() != null && evictable.test(entry.get());
+			});
+
+			if (victim == null) {
+				break;
+			}
+
+			CacheEntry entry = entries.get(victim);
+			entry.evicting = true;
+			weight -= entry.weight;
+			policy.onEvict(victim);
+			evictions++;
+			evictor.accept(entry.get());
+		}
+	}
+
+	/**
+	 * Gets the number of updates, objects record the frame they were last used in to tell if they are idle.
+	 *
+	 * @return The current frame.
+	 */
+	public long getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Gets if a object last used in a frame has gone unused for {@link #IDLE_FRAMES}.
+	 *
+	 * @param lastUsedFrame The frame the object was last used in.
+	 *
+	 * @return If the object is idle.
+	 */
+	public boolean isIdle(long lastUsedFrame) {
+		return lastUsedFrame < frame - IDLE_FRAMES;
+	}
+
+	/**
+	 * Gets a snapshot of the cached objects that are not being evicted, safe to iterate from any thread.
+	 *
+	 * @return The cached objects.
+	 */
+	public synchronized List<FactoryObject> getObjects() {
+		List<FactoryObject> objects = new ArrayList<>();
+
+		for (CacheEntry entry : entries.values()) {
+			FactoryObject object = entry.reference.get();
+
+			if (!entry.evicting && object != null) {
+				objects.add(object);
+			}
+		}
+
+		return objects;
+	}
+
+	/**
+	 * Gets the fraction of lookups that found a cached object.
+	 *
+	 * @return The hit rate from 0 to 1.
+	 */
+	public synchronized float getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0.0f : (float) hits / total;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Gets the number of entries removed because their reference was cleared without the cache being told.
+	 *
+	 * @return The purged entry count.
+	 */
+	public synchronized long getPurged() {
+		return purged;
+	}
+
+	/**
+	 * Gets the total weight of the cached objects after the last update.
+	 *
+	 * @return The cache weight.
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public CachePolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * A cached object, held strongly alongside the reference given to the cache unless it is idle in a cache without a budget.
+	 */
+	private class CacheEntry {
+		private final String key;
+		private final SoftReference<FactoryObject> reference;
+		private FactoryObject strong;
+		private long weight;
+		private boolean evicting;
+
+		private CacheEntry(String key, SoftReference<FactoryObject> reference) {
+			this.key = key;
+			this.reference = reference;
+			this.strong = reference.get();
+			this.weight = 0;
+			this.evicting = false;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T get() {
+			return (T) (strong != null ? strong : reference.get());
+		}
+	}
+}
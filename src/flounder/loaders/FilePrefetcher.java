@@ -0,0 +1,122 @@
+package flounder.loaders;
+
+import flounder.resources.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Prefetches whole files into memory on a background thread, the loaders file readers take prefetched files before going to disk.
+ */
+public class FilePrefetcher implements Prefetcher {
+	private final PriorityExecutor executor;
+	private final Map<String, byte[]> files;
+	private final long maxBytes;
+	private final FileOpener opener;
+
+	private long bytes;
+	private long taken;
+	private long generation;
+
+	/**
+	 * Creates a new file prefetcher.
+	 *
+	 * @param maxBytes The most bytes of prefetched files to hold, further prefetches are dropped until files are taken.
+	 * @param opener Opens the files to prefetch, such as from the mounted asset packs.
+	 */
+	public FilePrefetcher(long maxBytes, FileOpener opener) {
+		this.executor = new PriorityExecutor("File Prefetcher", 1);
+		this.files = new ConcurrentHashMap<>();
+		this.maxBytes = maxBytes;
+		this.opener = opener;
+	}
+
+	@Override
+	public void prefetch(String path) {
+		final long submitted = getGeneration();
+
+		executor.submit(LoadPriority.BACKGROUND, () -> {
+			if (files.containsKey(path) || getGeneration() != submitted) {
+				return null;
+			}
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+			try (InputStream in = opener.open(new MyFile(path))) {
+				byte[] buffer = new byte[8192];
+				int read;
+
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+			} catch (IOException e) {
+				// The file may have moved since the trace was recorded, it will be read normally if requested.
+				return null;
+			}
+
+			// Prefetches still reading when the prefetcher was cleared are dropped.
+			synchronized (this) {
+				if (generation == submitted && bytes + out.size() <= maxBytes && !files.containsKey(path)) {
+					files.put(path, out.toByteArray());
+					bytes += out.size();
+				}
+			}
+
+			return null;
+		});
+	}
+
+	/**
+	 * Takes a prefetched file, it is removed from the prefetcher.
+	 *
+	 * @param path The path of the file.
+	 *
+	 * @return The file contents, or null if the file was not prefetched.
+	 */
+	public synchronized byte[] take(String path) {
+		byte[] data = files.remove(path);
+
+		if (data != null) {
+			bytes -= data.length;
+			taken++;
+		}
+
+		return data;
+	}
+
+	@Override
+	public synchronized void clear() {
+		files.clear();
+		bytes = 0;
+		generation++;
+	}
+
+	private synchronized long getGeneration() {
+		return generation;
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized long getTaken() {
+		return taken;
+	}
+
+	/**
+	 * Opens a file for the prefetcher to read.
+	 */
+	public interface FileOpener {
+		/**
+		 * Opens a file.
+		 *
+		 * @param file The file to open.
+		 *
+		 * @return The files input stream.
+		 *
+		 * @throws IOException If the file could not be opened.
+		 */
+		InputStream open(MyFile file) throws IOException;
+	}
+}
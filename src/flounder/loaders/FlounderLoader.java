@@ -2,12 +2,19 @@ package flounder.loaders;
 
 import flounder.framework.*;
 import flounder.helpers.*;
+import flounder.logger.*;
 import flounder.profiling.*;
-import org.lwjgl.*;
+import flounder.renderer.*;
+import flounder.resources.*;
 import org.lwjgl.opengl.*;
 
+import java.io.*;
+import java.net.*;
 import java.nio.*;
+import java.nio.charset.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL15.*;
@@ -22,26 +29,155 @@ public class FlounderLoader extends Module {
 	public static final String PROFILE_TAB_NAME = "Loader";
 
 	private Map<Integer, List<Integer>> vaoCache;
+	private Map<VertexFormat, GeometryArena> arenas;
+	private UploadScheduler uploads;
+	private BufferPool bufferPool;
+	private List<AssetPack> packs;
+
+	private Map<String, Prefetcher> prefetchers;
+	private FilePrefetcher filePrefetcher;
+	private String level;
+	private long levelStart;
+	private LoadTrace recording;
+	private PrefetchScheduler replay;
+
+	private List<Consumer<String>> reloaders;
+	private AssetWatcher watcher;
+	private boolean hotReload = false;
+	private File resourceRoot = null;
+
+	// Totals published by the thread owning the OpenGL context, the only thread changing the VAOs and arenas.
+	private volatile int loadedVaos;
+	private volatile int arenaCount;
+	private volatile int arenaMeshes;
+	private volatile long arenaUsed;
+	private volatile long arenaCapacity;
+
+	private long uploadByteBudget = 8 * 1024 * 1024;
+	private double uploadTimeBudget = 4.0;
+
+	/**
+	 * A function called before initialization to configure the per frame upload budget.
+	 *
+	 * @param uploadByteBudget The maximum bytes to upload per frame.
+	 * @param uploadTimeBudget The maximum time to spend uploading per frame, in milliseconds.
+	 */
+	public static void setup(long uploadByteBudget, double uploadTimeBudget) {
+		INSTANCE.uploadByteBudget = uploadByteBudget;
+		INSTANCE.uploadTimeBudget = uploadTimeBudget;
+
+		if (INSTANCE.uploads != null) {
+			INSTANCE.uploads.setBudget(uploadByteBudget, uploadTimeBudget);
+		}
+	}
+
+	/**
+	 * A function called before initialization to configure hot reloading.
+	 *
+	 * @param hotReload If changes to files in the resource folder are reloaded into the loaded assets while running, used while developing.
+	 */
+	public static void setupHotReload(boolean hotReload) {
+		INSTANCE.hotReload = hotReload;
+	}
+
+	/**
+	 * A function called before initialization to configure hot reloading.
+	 *
+	 * @param hotReload If changes to files in the resource folder are reloaded into the loaded assets while running, used while developing.
+	 * @param resourceRoot The folder holding the resource folder to watch, such as the source folder when the classpath has a copy of the resources. Null finds it from the classpath.
+	 */
+	public static void setupHotReload(boolean hotReload, File resourceRoot) {
+		INSTANCE.hotReload = hotReload;
+		INSTANCE.resourceRoot = resourceRoot;
+	}
 
 	/**
 	 * Creates a new OpenGL loader class.
 	 */
 	public FlounderLoader() {
 		super(ModuleUpdate.UPDATE_PRE, PROFILE_TAB_NAME, FlounderProfiler.class);
+
+		// Created with the instance, so buffers can be acquired by resource threads before the module is initialized.
+		this.bufferPool = new BufferPool(32 * 1024 * 1024);
+		this.packs = new CopyOnWriteArrayList<>();
+		this.prefetchers = new ConcurrentHashMap<>();
+		this.filePrefetcher = new FilePrefetcher(64 * 1024 * 1024, FlounderLoader::openSource);
+		this.prefetchers.put("model", filePrefetcher);
+		this.reloaders = new CopyOnWriteArrayList<>();
 	}
 
 	@Override
 	public void init() {
 		this.vaoCache = new HashMap<>();
+		this.arenas = new HashMap<>();
+		this.uploads = new UploadScheduler(UploadBackend.OPENGL, uploadByteBudget, uploadTimeBudget);
+
+		// The resource root holds the res folder, so watched paths match the paths of loaded files.
+		File resources = hotReload ? getResourceRoot() : null;
+
+		if (resources != null && resources.isDirectory()) {
+			try {
+				this.watcher = new AssetWatcher(resources, 150, path -> reloaders.forEach(reloader -> reloader.accept(path)));
+			} catch (IOException e) {
+				FlounderLogger.warning("Could not watch " + resources + " for changes, hot reloading is disabled");
+			}
+		}
 	}
 
 	@Override
 	public void update() {
+		if (replay != null) {
+			replay.update((System.nanoTime() - levelStart) / 1000000L);
+		}
+
+		// Uploads run on the thread owning the OpenGL context, which is the render thread when the renderer is threaded.
+		FlounderRenderer.runOnRenderThread(() -> {
+			uploads.drain();
+			arenas.values().forEach(GeometryArena::update);
+			publishTotals();
+		});
+	}
+
+	/**
+	 * Copies the VAO and arena totals into the fields read by {@link #profile()}, the maps themselves are only used on the OpenGL thread.
+	 */
+	private void publishTotals() {
+		long used = 0;
+		long capacity = 0;
+		int meshes = 0;
+
+		for (GeometryArena arena : arenas.values()) {
+			used += arena.getUsedBytes();
+			capacity += arena.getCapacityBytes();
+			meshes += arena.getMeshCount();
+		}
+
+		loadedVaos = vaoCache.size();
+		arenaCount = arenas.size();
+		arenaMeshes = meshes;
+		arenaUsed = used;
+		arenaCapacity = capacity;
 	}
 
 	@Override
 	public void profile() {
-		FlounderProfiler.add(PROFILE_TAB_NAME, "Loaded", vaoCache.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Loaded", loadedVaos);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Arenas", arenaCount);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Arena Meshes", arenaMeshes);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Arena Used KB", arenaUsed / 1024);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Arena Capacity KB", arenaCapacity / 1024);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Upload Queue", uploads.getQueueDepth());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Upload Queued KB", uploads.getQueuedBytes() / 1024);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Upload Frame Count", uploads.getFrameUploads());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Upload Frame KB", uploads.getFrameBytes() / 1024);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Buffer Pool Hit Rate", bufferPool.getHitRate());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Buffer Pool Off-Heap KB", bufferPool.getOffHeapBytes() / 1024);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Buffer Pool Idle KB", bufferPool.getIdleBytes() / 1024);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Asset Packs", packs.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Prefetch Issued", replay == null ? 0 : replay.getIssued());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Prefetch Remaining", replay == null ? 0 : replay.getRemaining());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Prefetched Files Taken", filePrefetcher.getTaken());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Hot Reloads", watcher == null ? 0 : watcher.getReloads());
 	}
 
 	/**
@@ -51,7 +187,7 @@ public class FlounderLoader extends Module {
 	 */
 	public static int createVAO() {
 		int vertexArrayID = glGenVertexArrays();
-		glBindVertexArray(vertexArrayID);
+		OpenGlUtils.bindVertexArray(vertexArrayID);
 		INSTANCE.vaoCache.put(vertexArrayID, new ArrayList<>());
 		return vertexArrayID;
 	}
@@ -107,6 +243,22 @@ public class FlounderLoader extends Module {
 		return vertexArrayID;
 	}
 
+	/**
+	 * Loads interleaved vertex data described by a vertex format into a VBO which is stored in a newly created VAO (with index buffer).
+	 *
+	 * @param data The interleaved data, from position to limit.
+	 * @param indices Index buffer data, or null for none.
+	 * @param format The layout of each vertex in the data.
+	 *
+	 * @return The ID of the new VAO.
+	 */
+	public static int createInterleavedVAO(ByteBuffer data, int[] indices, VertexFormat format) {
+		int vertexArrayID = createVAO();
+		createIndicesVBO(vertexArrayID, indices);
+		storeInterleavedDataInVAO(vertexArrayID, data, format);
+		return vertexArrayID;
+	}
+
 	/**
 	 * Stores interleaved data into a VAO.
 	 *
@@ -115,11 +267,12 @@ public class FlounderLoader extends Module {
 	 * @param lengths The lengths in floats of each of the data elements associated with any given vertex.
 	 */
 	public static void storeInterleavedDataInVAO(int vaoID, float[] data, int... lengths) {
-		FloatBuffer interleavedData = INSTANCE.storeDataInBuffer(data);
+		ByteBuffer interleavedData = INSTANCE.storeDataInBuffer(data);
 		int bufferObjectID = glGenBuffers();
 		INSTANCE.vaoCache.get(vaoID).add(bufferObjectID);
 		glBindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
 		glBufferData(GL_ARRAY_BUFFER, interleavedData, GL_STATIC_DRAW);
+		releaseBuffer(interleavedData);
 
 		int total = 0;
 
@@ -136,7 +289,284 @@ public class FlounderLoader extends Module {
 		}
 
 		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindVertexArray(0);
+		OpenGlUtils.bindVertexArray(0);
+	}
+
+	/**
+	 * Stores interleaved data described by a vertex format into a VAO.
+	 *
+	 * @param vaoID The ID of the VAO.
+	 * @param data The interleaved data, from position to limit.
+	 * @param format The layout of each vertex in the data.
+	 *
+	 * @return The ID of the new VBO.
+	 */
+	public static int storeInterleavedDataInVAO(int vaoID, ByteBuffer data, VertexFormat format) {
+		int bufferObjectID = glGenBuffers();
+		INSTANCE.vaoCache.get(vaoID).add(bufferObjectID);
+		OpenGlUtils.bindVertexArray(vaoID);
+		glBindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
+		glBufferData(GL_ARRAY_BUFFER, data, GL_STATIC_DRAW);
+
+		for (VertexFormat.Attribute attribute : format.getAttributes()) {
+			if (attribute.isInteger()) {
+				glVertexAttribIPointer(attribute.getIndex(), attribute.getComponents(), attribute.getGlType(), format.getStride(), attribute.getOffset());
+			} else {
+				glVertexAttribPointer(attribute.getIndex(), attribute.getComponents(), attribute.getGlType(), attribute.isNormalized(), format.getStride(), attribute.getOffset());
+			}
+		}
+
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		OpenGlUtils.bindVertexArray(0);
+		return bufferObjectID;
+	}
+
+	/**
+	 * Queues a buffer or texture upload to be executed on the OpenGL thread within the per frame upload budget.
+	 *
+	 * @param request The upload to queue.
+	 * @param priority The priority of the requester.
+	 */
+	public static void queueUpload(UploadRequest request, UploadPriority priority) {
+		INSTANCE.uploads.queue(request, priority);
+	}
+
+	/**
+	 * Acquires a native ordered direct buffer from the loaders pool, used to stage data for uploads.
+	 *
+	 * @param bytes The number of bytes needed.
+	 *
+	 * @return The buffer, the limit is the requested size. Must be given back with {@link #releaseBuffer(ByteBuffer)}.
+	 */
+	public static ByteBuffer acquireBuffer(int bytes) {
+		return INSTANCE.bufferPool.acquire(bytes);
+	}
+
+	/**
+	 * Gives a buffer acquired with {@link #acquireBuffer(int)} back to the loaders pool.
+	 *
+	 * @param buffer The buffer to release.
+	 */
+	public static void releaseBuffer(ByteBuffer buffer) {
+		INSTANCE.bufferPool.release(buffer);
+	}
+
+	/**
+	 * Mounts a asset pack, files in mounted packs are read from the pack instead of being opened one by one. Packs mounted first are searched first.
+	 *
+	 * @param file The pack file.
+	 *
+	 * @return If the pack was mounted.
+	 */
+	public static boolean mountPack(File file) {
+		try {
+			INSTANCE.packs.add(AssetPack.open(file));
+			return true;
+		} catch (IOException e) {
+			FlounderLogger.error("Could not mount asset pack " + file);
+			FlounderLogger.exception(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the contents of a file from the mounted asset packs.
+	 *
+	 * @param file The file to find.
+	 *
+	 * @return The file contents, or null if no mounted pack contains the file.
+	 *
+	 * @throws IOException If the packed entry is corrupt.
+	 */
+	public static ByteBuffer getPacked(MyFile file) throws IOException {
+		for (AssetPack pack : INSTANCE.packs) {
+			ByteBuffer data = pack.get(file.getPath());
+
+			if (data != null) {
+				return data;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Opens a file from the mounted asset packs, or from disk if it is not packed.
+	 *
+	 * @param file The file to open.
+	 *
+	 * @return The files input stream.
+	 *
+	 * @throws IOException If the file could not be opened.
+	 */
+	public static InputStream openStream(MyFile file) throws IOException {
+		byte[] prefetched = INSTANCE.filePrefetcher.take(file.getPath());
+
+		if (prefetched != null) {
+			return new ByteArrayInputStream(prefetched);
+		}
+
+		return openSource(file);
+	}
+
+	/**
+	 * Opens a file from the mounted asset packs, or from disk if it is not packed, without taking a prefetched copy. Used by the file prefetcher.
+	 *
+	 * @param file The file to open.
+	 *
+	 * @return The files input stream.
+	 *
+	 * @throws IOException If the file could not be opened.
+	 */
+	private static InputStream openSource(MyFile file) throws IOException {
+		ByteBuffer packed = getPacked(file);
+		return packed != null ? new ByteBufferInputStream(packed) : file.getInputStream();
+	}
+
+	/**
+	 * Opens a UTF-8 text file from the mounted asset packs, or from disk if it is not packed.
+	 *
+	 * @param file The file to open.
+	 *
+	 * @return The files reader.
+	 *
+	 * @throws Exception If the file could not be opened.
+	 */
+	public static BufferedReader openReader(MyFile file) throws Exception {
+		byte[] prefetched = INSTANCE.filePrefetcher.take(file.getPath());
+		ByteBuffer packed = prefetched != null ? ByteBuffer.wrap(prefetched) : getPacked(file);
+		return packed != null ? new BufferedReader(new InputStreamReader(new ByteBufferInputStream(packed), StandardCharsets.UTF_8)) : file.getReader();
+	}
+
+	/**
+	 * Registers the prefetcher used to replay recorded loads of a factory type.
+	 *
+	 * @param type The factory type, such as {@code texture}.
+	 * @param prefetcher The prefetcher.
+	 */
+	public static void registerPrefetcher(String type, Prefetcher prefetcher) {
+		INSTANCE.prefetchers.put(type, prefetcher);
+	}
+
+	/**
+	 * Registers a function that reloads changed files while hot reloading is enabled. Reloaders are called on the watchers worker thread,
+	 * so they should parse and decode there and only send the OpenGL work to the OpenGL thread.
+	 *
+	 * @param reloader Called with the normalized path of each changed file, such as {@code res/models/tree.obj}.
+	 */
+	public static void registerReloader(Consumer<String> reloader) {
+		INSTANCE.reloaders.add(reloader);
+	}
+
+	/**
+	 * Starts a level. Asset requests are recorded into the levels load trace, and the trace saved by the last run of the level is replayed as background prefetches.
+	 *
+	 * @param name The name of the level, used to name the trace file.
+	 */
+	public static void beginLevel(String name) {
+		endLevel();
+
+		File file = getTraceFile(name);
+		INSTANCE.replay = null;
+
+		if (file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				INSTANCE.replay = new PrefetchScheduler(LoadTrace.read(in), INSTANCE.prefetchers, 2000);
+			} catch (IOException e) {
+				FlounderLogger.warning("Could not read load trace " + file + ", it will be recorded again");
+			}
+		}
+
+		INSTANCE.level = name;
+		INSTANCE.recording = new LoadTrace();
+		INSTANCE.levelStart = System.nanoTime();
+	}
+
+	/**
+	 * Ends the current level, saving its load trace and dropping prefetched data that was never requested.
+	 */
+	public static void endLevel() {
+		if (INSTANCE.level == null) {
+			return;
+		}
+
+		File file = getTraceFile(INSTANCE.level);
+		file.getParentFile().mkdirs();
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			INSTANCE.recording.write(out);
+		} catch (IOException e) {
+			FlounderLogger.warning("Could not save load trace " + file);
+		}
+
+		INSTANCE.prefetchers.values().forEach(Prefetcher::clear);
+		INSTANCE.level = null;
+		INSTANCE.recording = null;
+		INSTANCE.replay = null;
+	}
+
+	/**
+	 * Records a asset request into the current levels load trace.
+	 *
+	 * @param type The factory type, such as {@code texture}.
+	 * @param file The requested file.
+	 */
+	public static void recordLoad(String type, MyFile file) {
+		LoadTrace recording = INSTANCE.recording;
+		PrefetchScheduler replay = INSTANCE.replay;
+
+		if (recording != null) {
+			recording.record(type, file.getPath(), (System.nanoTime() - INSTANCE.levelStart) / 1000000L);
+		}
+
+		if (replay != null) {
+			replay.markRequested(type, file.getPath());
+		}
+	}
+
+	/**
+	 * Gets the folder holding the resource folder, the configured one or the classpath folder the resource folder is loaded from.
+	 *
+	 * @return The resource root, or null if the resources are not loaded from a folder, such as when running from a jar.
+	 */
+	public static File getResourceRoot() {
+		if (INSTANCE.resourceRoot != null) {
+			return INSTANCE.resourceRoot;
+		}
+
+		URL url = FlounderLoader.class.getResource("/" + AssetPack.normalize(MyFile.RES_FOLDER.getPath()));
+
+		if (url == null || !"file".equals(url.getProtocol())) {
+			return null;
+		}
+
+		try {
+			return new File(url.toURI()).getParentFile();
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+	private static File getTraceFile(String level) {
+		return new File(new File(Framework.getRoamingFolder().getPath(), "cache" + File.separator + "traces"), level + ".trace");
+	}
+
+	/**
+	 * Gets the shared geometry arena for a vertex format, creating it if it does not exist.
+	 *
+	 * @param format The vertex format of the meshes to be stored.
+	 *
+	 * @return The arena for the format.
+	 */
+	public static GeometryArena getArena(VertexFormat format) {
+		GeometryArena arena = INSTANCE.arenas.get(format);
+
+		if (arena == null) {
+			arena = new GeometryArena(format);
+			INSTANCE.arenas.put(format, arena);
+		}
+
+		return arena;
 	}
 
 	/**
@@ -149,7 +579,7 @@ public class FlounderLoader extends Module {
 			INSTANCE.vaoCache.get(vao).forEach(GL15::glDeleteBuffers);
 			INSTANCE.vaoCache.get(vao).clear();
 			INSTANCE.vaoCache.remove(vao);
-			glDeleteVertexArrays(vao);
+			OpenGlUtils.deleteVertexArray(vao);
 		}
 	}
 
@@ -176,7 +606,7 @@ public class FlounderLoader extends Module {
 
 		int vertexByteCount = ByteWork.FLOAT_LENGTH * total;
 		int maxSize = vertexByteCount * maxCount;
-		glBindVertexArray(vaoID);
+		OpenGlUtils.bindVertexArray(vaoID);
 		glBindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
 		glBufferData(GL_ARRAY_BUFFER, maxSize, GL_DYNAMIC_DRAW);
 
@@ -193,7 +623,7 @@ public class FlounderLoader extends Module {
 		}
 
 		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindVertexArray(0);
+		OpenGlUtils.bindVertexArray(0);
 		return bufferObjectID;
 	}
 
@@ -225,13 +655,12 @@ public class FlounderLoader extends Module {
 			return 0;
 		}
 
-		IntBuffer indicesBuffer = BufferUtils.createIntBuffer(indices.length);
-		indicesBuffer.put(indices);
-		indicesBuffer.flip();
+		ByteBuffer indicesBuffer = INSTANCE.storeDataInBuffer(indices);
 		int indicesBufferId = glGenBuffers();
 		INSTANCE.vaoCache.get(vaoID).add(indicesBufferId);
 		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, indicesBufferId);
 		glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
+		releaseBuffer(indicesBuffer);
 		return indicesBufferId;
 	}
 
@@ -275,11 +704,11 @@ public class FlounderLoader extends Module {
 	 */
 	public static void addInstancedAttribute(int vao, int vbo, int attribute, int dataSize, int instancedDataLength, int offset) {
 		glBindBuffer(GL_ARRAY_BUFFER, vbo);
-		glBindVertexArray(vao);
+		OpenGlUtils.bindVertexArray(vao);
 		glVertexAttribPointer(attribute, dataSize, GL_FLOAT, false, instancedDataLength * 4, offset * 4);
 		ARBInstancedArrays.glVertexAttribDivisorARB(attribute, 1);
 		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindVertexArray(0);
+		OpenGlUtils.bindVertexArray(0);
 	}
 
 	/**
@@ -317,8 +746,9 @@ public class FlounderLoader extends Module {
 		int bufferObjectID = glGenBuffers();
 		INSTANCE.vaoCache.get(vaoID).add(bufferObjectID);
 		glBindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
-		FloatBuffer buffer = INSTANCE.storeDataInBuffer(data);
+		ByteBuffer buffer = INSTANCE.storeDataInBuffer(data);
 		glBufferData(GL_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
+		releaseBuffer(buffer);
 		glVertexAttribPointer(attributeNumber, coordSize, GL_FLOAT, false, 0, 0);
 		glBindBuffer(GL_ARRAY_BUFFER, 0);
 		return bufferObjectID;
@@ -342,8 +772,9 @@ public class FlounderLoader extends Module {
 		int bufferObjectID = glGenBuffers();
 		INSTANCE.vaoCache.get(vaoID).add(bufferObjectID);
 		glBindBuffer(GL_ARRAY_BUFFER, bufferObjectID);
-		IntBuffer buffer = INSTANCE.storeDataInBuffer(data);
+		ByteBuffer buffer = INSTANCE.storeDataInBuffer(data);
 		glBufferData(GL_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
+		releaseBuffer(buffer);
 		glVertexAttribIPointer(attributeNumber, coordSize, GL_INT, coordSize * ByteWork.BYTES_PER_FLOAT, 0);
 		glBindBuffer(GL_ARRAY_BUFFER, 0);
 		return bufferObjectID;
@@ -420,30 +851,28 @@ public class FlounderLoader extends Module {
 	}
 
 	/**
-	 * Stores a float array into a new float buffer.
+	 * Stores a float array into a pooled buffer.
 	 *
 	 * @param data The data to store.
 	 *
-	 * @return The data in a float buffer.
+	 * @return The data in a pooled buffer, released once uploaded.
 	 */
-	private FloatBuffer storeDataInBuffer(float[] data) {
-		FloatBuffer buffer = BufferUtils.createFloatBuffer(data.length);
-		buffer.put(data);
-		buffer.flip();
+	private ByteBuffer storeDataInBuffer(float[] data) {
+		ByteBuffer buffer = bufferPool.acquire(data.length * ByteWork.FLOAT_LENGTH);
+		buffer.asFloatBuffer().put(data);
 		return buffer;
 	}
 
 	/**
-	 * Stores a int array into a new int buffer.
+	 * Stores a int array into a pooled buffer.
 	 *
 	 * @param data The data to store.
 	 *
-	 * @return The data in a int buffer.
+	 * @return The data in a pooled buffer, released once uploaded.
 	 */
-	private IntBuffer storeDataInBuffer(int[] data) {
-		IntBuffer buffer = BufferUtils.createIntBuffer(data.length);
-		buffer.put(data);
-		buffer.flip();
+	private ByteBuffer storeDataInBuffer(int[] data) {
+		ByteBuffer buffer = bufferPool.acquire(data.length * 4);
+		buffer.asIntBuffer().put(data);
 		return buffer;
 	}
 
@@ -454,15 +883,26 @@ public class FlounderLoader extends Module {
 
 	@Override
 	public void dispose() {
+		endLevel();
+
+		if (watcher != null) {
+			watcher.close();
+			watcher = null;
+		}
+
 		glDisableVertexAttribArray(0);
 		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindVertexArray(0);
+		OpenGlUtils.bindVertexArray(0);
 
 		for (int vaoID : vaoCache.keySet()) {
 			vaoCache.get(vaoID).forEach(cache -> glDeleteBuffers(cache));
-			glDeleteVertexArrays(vaoID);
+			OpenGlUtils.deleteVertexArray(vaoID);
 		}
 
+		uploads.clear();
+		bufferPool.clear();
 		vaoCache.clear();
+		arenas.values().forEach(GeometryArena::delete);
+		arenas.clear();
 	}
 }
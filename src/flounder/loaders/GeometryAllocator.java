@@ -0,0 +1,285 @@
+package flounder.loaders;
+
+import java.util.*;
+
+/**
+ * A first fit free list allocator that hands out ranges from a linear space, used to sub-allocate vertices and indices from shared buffers.
+ * This class does not touch OpenGL, units are whatever the owner chooses (vertices, indices, bytes).
+ */
+public class GeometryAllocator {
+	private int capacity;
+	private TreeMap<Integer, Integer> freeBlocks;
+	private List<Allocation> allocations;
+	private int used;
+
+	/**
+	 * Creates a new allocator with a single free block.
+	 *
+	 * @param capacity The number of units that can be allocated.
+	 */
+	public GeometryAllocator(int capacity) {
+		this.capacity = capacity;
+		this.freeBlocks = new TreeMap<>();
+		this.allocations = new ArrayList<>();
+		this.used = 0;
+
+		if (capacity > 0) {
+			freeBlocks.put(0, capacity);
+		}
+	}
+
+	/**
+	 * Allocates a range from the first free block large enough to hold it.
+	 *
+	 * @param size The number of units to allocate.
+	 *
+	 * @return The allocation, or null if no free block is large enough.
+	 */
+	public Allocation allocate(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Allocation size must be positive: " + size);
+		}
+
+		for (Map.Entry<Integer, Integer> block : freeBlocks.entrySet()) {
+			if (block.getValue() >= size) {
+				int offset = block.getKey();
+				freeBlocks.remove(offset);
+
+				if (block.getValue() > size) {
+					freeBlocks.put(offset + size, block.getValue() - size);
+				}
+
+				Allocation allocation = new Allocation(offset, size);
+				allocations.add(allocation);
+				used += size;
+				return allocation;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Frees a allocation, merging the range with any neighbouring free blocks.
+	 *
+	 * @param allocation The allocation to free.
+	 */
+	public void free(Allocation allocation) {
+		if (allocation == null || allocation.freed || !allocations.remove(allocation)) {
+			return;
+		}
+
+		allocation.freed = true;
+		used -= allocation.size;
+
+		int offset = allocation.offset;
+		int size = allocation.size;
+		Map.Entry<Integer, Integer> previous = freeBlocks.lowerEntry(offset);
+		Map.Entry<Integer, Integer> next = freeBlocks.higherEntry(offset);
+
+		if (previous != null && previous.getKey() + previous.getValue() == offset) {
+			freeBlocks.remove(previous.getKey());
+			offset = previous.getKey();
+			size += previous.getValue();
+		}
+
+		if (next != null && offset + size == next.getKey()) {
+			freeBlocks.remove(next.getKey());
+			size += next.getValue();
+		}
+
+		freeBlocks.put(offset, size);
+	}
+
+	/**
+	 * Grows the allocatable space, the new units are added at the end.
+	 *
+	 * @param newCapacity The new capacity, must not be smaller than the current capacity.
+	 */
+	public void grow(int newCapacity) {
+		if (newCapacity < capacity) {
+			throw new IllegalArgumentException("Allocator can not shrink from " + capacity + " to " + newCapacity);
+		}
+
+		if (newCapacity == capacity) {
+			return;
+		}
+
+		Map.Entry<Integer, Integer> last = freeBlocks.lastEntry();
+
+		if (last != null && last.getKey() + last.getValue() == capacity) {
+			freeBlocks.put(last.getKey(), last.getValue() + newCapacity - capacity);
+		} else {
+			freeBlocks.put(capacity, newCapacity - capacity);
+		}
+
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Slides every allocation down towards offset zero, leaving one free block at the end.
+	 * Allocations are updated in place, the returned moves must be applied to the backing storage.
+	 *
+	 * @return The moves applied, in ascending offset order.
+	 */
+	public List<Move> compact() {
+		List<Move> moves = new ArrayList<>();
+		allocations.sort(Comparator.comparingInt(Allocation::getOffset));
+		int cursor = 0;
+
+		for (Allocation allocation : allocations) {
+			if (allocation.offset != cursor) {
+				moves.add(new Move(allocation.offset, cursor, allocation.size));
+				allocation.offset = cursor;
+			}
+
+			cursor += allocation.size;
+		}
+
+		freeBlocks.clear();
+
+		if (cursor < capacity) {
+			freeBlocks.put(cursor, capacity - cursor);
+		}
+
+		return moves;
+	}
+
+	/**
+	 * Gets the total number of units.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of allocated units.
+	 *
+	 * @return The used units.
+	 */
+	public int getUsed() {
+		return used;
+	}
+
+	/**
+	 * Gets the size of the largest free block.
+	 *
+	 * @return The largest allocation that can currently succeed.
+	 */
+	public int getLargestFreeBlock() {
+		int largest = 0;
+
+		for (int size : freeBlocks.values()) {
+			largest = Math.max(largest, size);
+		}
+
+		return largest;
+	}
+
+	/**
+	 * Gets the number of separate free blocks.
+	 *
+	 * @return The free block count.
+	 */
+	public int getFreeBlockCount() {
+		return freeBlocks.size();
+	}
+
+	/**
+	 * Gets the fraction of free space that is not in the largest free block, 0 when there is no fragmentation.
+	 *
+	 * @return The fragmentation from 0 to 1.
+	 */
+	public float getFragmentation() {
+		int free = capacity - used;
+
+		if (free == 0) {
+			return 0.0f;
+		}
+
+		return 1.0f - ((float) getLargestFreeBlock() / free);
+	}
+
+	/**
+	 * Gets the live allocations.
+	 *
+	 * @return The allocations.
+	 */
+	public List<Allocation> getAllocations() {
+		return Collections.unmodifiableList(allocations);
+	}
+
+	/**
+	 * A range handed out by the allocator. The offset may change when the allocator is compacted.
+	 */
+	public static class Allocation {
+		private int offset;
+		private final int size;
+		private boolean freed;
+
+		private Allocation(int offset, int size) {
+			this.offset = offset;
+			this.size = size;
+			this.freed = false;
+		}
+
+		public int getOffset() {
+			return offset;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public boolean isFreed() {
+			return freed;
+		}
+
+		@Override
+		public String toString() {
+			return "Allocation{" +
+					"offset=" + offset +
+					", size=" + size +
+					", freed=" + freed +
+					'}';
+		}
+	}
+
+	/**
+	 * A range that was moved during compaction.
+	 */
+	public static class Move {
+		private final int from;
+		private final int to;
+		private final int size;
+
+		private Move(int from, int to, int size) {
+			this.from = from;
+			this.to = to;
+			this.size = size;
+		}
+
+		public int getFrom() {
+			return from;
+		}
+
+		public int getTo() {
+			return to;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			return "Move{" +
+					"from=" + from +
+					", to=" + to +
+					", size=" + size +
+					'}';
+		}
+	}
+}
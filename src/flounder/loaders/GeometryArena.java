@@ -0,0 +1,290 @@
+package flounder.loaders;
+
+import flounder.helpers.*;
+import flounder.logger.*;
+import org.lwjgl.opengl.*;
+
+import java.nio.*;
+import java.util.*;
+
+import static org.lwjgl.opengl.ARBCopyBuffer.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * A shared vertex and index buffer pair for meshes of a common vertex format.
+ * Meshes are sub-allocated from the buffers and drawn with base vertex draws from a single bound VAO.
+ */
+public class GeometryArena {
+	private static final int INITIAL_VERTICES = 65536;
+	private static final int INITIAL_INDICES = 3 * INITIAL_VERTICES;
+	private static final float COMPACT_FRAGMENTATION = 0.5f;
+
+	private final VertexFormat format;
+	private GeometryAllocator vertexAllocator;
+	private GeometryAllocator indexAllocator;
+
+	private int vaoID;
+	private int vertexBufferID;
+	private int indexBufferID;
+
+	/**
+	 * Creates a new arena, the VAO and buffers are created immediately so this must be called on the OpenGL thread.
+	 *
+	 * @param format The vertex format shared by all meshes in this arena.
+	 */
+	protected GeometryArena(VertexFormat format) {
+		this.format = format;
+		this.vertexAllocator = new GeometryAllocator(INITIAL_VERTICES);
+		this.indexAllocator = new GeometryAllocator(INITIAL_INDICES);
+
+		this.vaoID = glGenVertexArrays();
+		this.vertexBufferID = createBuffer((long) INITIAL_VERTICES * format.getStride());
+		this.indexBufferID = createBuffer((long) INITIAL_INDICES * 4);
+		bindBuffers();
+	}
+
+	/**
+	 * Gets if the current context supports arenas (copy buffers and base vertex draws).
+	 *
+	 * @return If arenas can be used.
+	 */
+	public static boolean isSupported() {
+		GLCapabilities capabilities = GL.getCapabilities();
+		return capabilities.GL_ARB_copy_buffer && capabilities.GL_ARB_draw_elements_base_vertex;
+	}
+
+	/**
+	 * Copies a mesh into the arena, growing the buffers if there is no free range large enough.
+	 *
+	 * @param vertices The interleaved vertex data laid out by this arenas format, from position to limit.
+	 * @param indices The mesh indices, relative to the first vertex of the mesh.
+	 *
+	 * @return The allocated mesh.
+	 */
+	public Mesh allocate(ByteBuffer vertices, int[] indices) {
+		int vertexCount = vertices.remaining() / format.getStride();
+		GeometryAllocator.Allocation vertexAllocation = vertexAllocator.allocate(vertexCount);
+		GeometryAllocator.Allocation indexAllocation = indexAllocator.allocate(indices.length);
+
+		if (vertexAllocation == null || indexAllocation == null) {
+			vertexAllocator.free(vertexAllocation);
+			indexAllocator.free(indexAllocation);
+			rebuild(fitCapacity(vertexAllocator, vertexCount), fitCapacity(indexAllocator, indices.length));
+			vertexAllocation = vertexAllocator.allocate(vertexCount);
+			indexAllocation = indexAllocator.allocate(indices.length);
+		}
+
+		ByteBuffer indicesBuffer = FlounderLoader.acquireBuffer(indices.length * 4);
+		indicesBuffer.asIntBuffer().put(indices);
+
+		// Uploads through the copy target, so the element binding of whatever VAO is bound is not changed.
+		glBindBuffer(GL_COPY_WRITE_BUFFER, vertexBufferID);
+		glBufferSubData(GL_COPY_WRITE_BUFFER, (long) vertexAllocation.getOffset() * format.getStride(), vertices);
+		glBindBuffer(GL_COPY_WRITE_BUFFER, indexBufferID);
+		glBufferSubData(GL_COPY_WRITE_BUFFER, (long) indexAllocation.getOffset() * 4, indicesBuffer);
+		glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+		FlounderLoader.releaseBuffer(indicesBuffer);
+
+		return new Mesh(this, vertexAllocation, indexAllocation);
+	}
+
+	/**
+	 * Compacts the arena when the free space has become too fragmented. Called once per update on the OpenGL thread.
+	 */
+	public void update() {
+		if (vertexAllocator.getFragmentation() > COMPACT_FRAGMENTATION || indexAllocator.getFragmentation() > COMPACT_FRAGMENTATION) {
+			rebuild(vertexAllocator.getCapacity(), indexAllocator.getCapacity());
+		}
+	}
+
+	/**
+	 * Copies all live meshes into new compacted buffers of the given capacities.
+	 *
+	 * @param vertexCapacity The new vertex capacity.
+	 * @param indexCapacity The new index capacity.
+	 */
+	private void rebuild(int vertexCapacity, int indexCapacity) {
+		Map<GeometryAllocator.Allocation, Integer> vertexOffsets = getOffsets(vertexAllocator);
+		Map<GeometryAllocator.Allocation, Integer> indexOffsets = getOffsets(indexAllocator);
+		vertexAllocator.compact();
+		indexAllocator.compact();
+		vertexAllocator.grow(vertexCapacity);
+		indexAllocator.grow(indexCapacity);
+
+		int newVertexBufferID = createBuffer((long) vertexCapacity * format.getStride());
+		int newIndexBufferID = createBuffer((long) indexCapacity * 4);
+		copyAllocations(vertexOffsets, vertexBufferID, newVertexBufferID, format.getStride());
+		copyAllocations(indexOffsets, indexBufferID, newIndexBufferID, 4);
+
+		glDeleteBuffers(vertexBufferID);
+		glDeleteBuffers(indexBufferID);
+		vertexBufferID = newVertexBufferID;
+		indexBufferID = newIndexBufferID;
+		bindBuffers();
+
+		FlounderLogger.log("Rebuilt geometry arena to " + vertexCapacity + " vertices and " + indexCapacity + " indices");
+	}
+
+	private Map<GeometryAllocator.Allocation, Integer> getOffsets(GeometryAllocator allocator) {
+		Map<GeometryAllocator.Allocation, Integer> offsets = new HashMap<>();
+
+		for (GeometryAllocator.Allocation allocation : allocator.getAllocations()) {
+			offsets.put(allocation, allocation.getOffset());
+		}
+
+		return offsets;
+	}
+
+	private void copyAllocations(Map<GeometryAllocator.Allocation, Integer> oldOffsets, int fromBufferID, int toBufferID, int unitBytes) {
+		glBindBuffer(GL_COPY_READ_BUFFER, fromBufferID);
+		glBindBuffer(GL_COPY_WRITE_BUFFER, toBufferID);
+
+		for (Map.Entry<GeometryAllocator.Allocation, Integer> entry : oldOffsets.entrySet()) {
+			GeometryAllocator.Allocation allocation = entry.getKey();
+			glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, (long) entry.getValue() * unitBytes, (long) allocation.getOffset() * unitBytes, (long) allocation.getSize() * unitBytes);
+		}
+
+		glBindBuffer(GL_COPY_READ_BUFFER, 0);
+		glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+	}
+
+	private int fitCapacity(GeometryAllocator allocator, int required) {
+		int capacity = allocator.getCapacity();
+
+		while (capacity - allocator.getUsed() < required) {
+			capacity *= 2;
+		}
+
+		return capacity;
+	}
+
+	private int createBuffer(long bytes) {
+		int bufferID = glGenBuffers();
+		glBindBuffer(GL_COPY_WRITE_BUFFER, bufferID);
+		glBufferData(GL_COPY_WRITE_BUFFER, bytes, GL_STATIC_DRAW);
+		glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+		return bufferID;
+	}
+
+	private void bindBuffers() {
+		OpenGlUtils.bindVertexArray(vaoID);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, indexBufferID);
+		glBindBuffer(GL_ARRAY_BUFFER, vertexBufferID);
+
+		for (VertexFormat.Attribute attribute : format.getAttributes()) {
+			if (attribute.isInteger()) {
+				glVertexAttribIPointer(attribute.getIndex(), attribute.getComponents(), attribute.getGlType(), format.getStride(), attribute.getOffset());
+			} else {
+				glVertexAttribPointer(attribute.getIndex(), attribute.getComponents(), attribute.getGlType(), attribute.isNormalized(), format.getStride(), attribute.getOffset());
+			}
+		}
+
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		OpenGlUtils.bindVertexArray(0);
+	}
+
+	/**
+	 * Gets the vertex format shared by meshes in this arena.
+	 *
+	 * @return The vertex format.
+	 */
+	public VertexFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Gets the VAO all meshes in this arena are drawn from.
+	 *
+	 * @return The VAO ID.
+	 */
+	public int getVaoID() {
+		return vaoID;
+	}
+
+	/**
+	 * Gets the number of bytes used by live meshes.
+	 *
+	 * @return The used bytes.
+	 */
+	public long getUsedBytes() {
+		return (long) vertexAllocator.getUsed() * format.getStride() + (long) indexAllocator.getUsed() * 4;
+	}
+
+	/**
+	 * Gets the number of bytes allocated on the GPU.
+	 *
+	 * @return The capacity in bytes.
+	 */
+	public long getCapacityBytes() {
+		return (long) vertexAllocator.getCapacity() * format.getStride() + (long) indexAllocator.getCapacity() * 4;
+	}
+
+	/**
+	 * Gets the number of meshes in this arena.
+	 *
+	 * @return The mesh count.
+	 */
+	public int getMeshCount() {
+		return vertexAllocator.getAllocations().size();
+	}
+
+	/**
+	 * Deletes the arena VAO and buffers.
+	 */
+	protected void delete() {
+		glDeleteBuffers(vertexBufferID);
+		glDeleteBuffers(indexBufferID);
+		OpenGlUtils.deleteVertexArray(vaoID);
+	}
+
+	/**
+	 * A mesh sub-allocated from a arena. The offsets may change after the arena is compacted, so read them when drawing.
+	 */
+	public static class Mesh {
+		private final GeometryArena arena;
+		private final GeometryAllocator.Allocation vertices;
+		private final GeometryAllocator.Allocation indices;
+
+		private Mesh(GeometryArena arena, GeometryAllocator.Allocation vertices, GeometryAllocator.Allocation indices) {
+			this.arena = arena;
+			this.vertices = vertices;
+			this.indices = indices;
+		}
+
+		public GeometryArena getArena() {
+			return arena;
+		}
+
+		/**
+		 * Gets the vertex added to every index when drawing.
+		 *
+		 * @return The base vertex.
+		 */
+		public int getBaseVertex() {
+			return vertices.getOffset();
+		}
+
+		/**
+		 * Gets the first index of this mesh in the arenas index buffer.
+		 *
+		 * @return The first index.
+		 */
+		public int getFirstIndex() {
+			return indices.getOffset();
+		}
+
+		public int getIndexCount() {
+			return indices.getSize();
+		}
+
+		/**
+		 * Frees this meshes ranges in the arena.
+		 */
+		public void delete() {
+			arena.vertexAllocator.free(vertices);
+			arena.indexAllocator.free(indices);
+		}
+	}
+}
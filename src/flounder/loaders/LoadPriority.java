@@ -0,0 +1,23 @@
+package flounder.loaders;
+
+/**
+ * The priority classes of asset loads. Visible loads are needed on screen now, prefetches are expected to be needed soon, and background loads whenever there is time.
+ */
+public enum LoadPriority {
+	VISIBLE_NOW(UploadPriority.HIGH), PREFETCH(UploadPriority.NORMAL), BACKGROUND(UploadPriority.LOW);
+
+	private final UploadPriority uploadPriority;
+
+	LoadPriority(UploadPriority uploadPriority) {
+		this.uploadPriority = uploadPriority;
+	}
+
+	/**
+	 * Gets the priority loads of this class are uploaded to the GPU with.
+	 *
+	 * @return The upload priority.
+	 */
+	public UploadPriority getUploadPriority() {
+		return uploadPriority;
+	}
+}
@@ -0,0 +1,144 @@
+package flounder.loaders;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * A record of the assets requested while a level loaded, in request order with the time since the level started.
+ * Traces are saved as text, one {@code offset type path} line per asset, and replayed by a {@link PrefetchScheduler} the next time the level starts.
+ */
+public class LoadTrace {
+	private static final String HEADER = "# flounder load trace v1";
+
+	private final List<TraceEntry> entries;
+	private final Set<String> recorded;
+
+	/**
+	 * Creates a new empty load trace.
+	 */
+	public LoadTrace() {
+		this.entries = new ArrayList<>();
+		this.recorded = new HashSet<>();
+	}
+
+	/**
+	 * Records a asset request, only the first request for each asset is kept.
+	 *
+	 * @param type The factory type, such as {@code texture}.
+	 * @param path The path of the requested file.
+	 * @param offsetMs The milliseconds since the level started.
+	 */
+	public synchronized void record(String type, String path, long offsetMs) {
+		if (recorded.add(type + ":" + path)) {
+			entries.add(new TraceEntry(type, path, offsetMs));
+		}
+	}
+
+	/**
+	 * Reads a trace.
+	 *
+	 * @param in The stream to read, it is not closed.
+	 *
+	 * @return The read trace.
+	 *
+	 * @throws IOException If the stream is not a valid trace.
+	 */
+	public static LoadTrace read(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+		if (!HEADER.equals(reader.readLine())) {
+			throw new IOException("Not a load trace");
+		}
+
+		LoadTrace trace = new LoadTrace();
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			String[] parts = line.split("\t", 3);
+
+			if (parts.length != 3) {
+				throw new IOException("Malformed load trace line: " + line);
+			}
+
+			try {
+				trace.record(parts[1], parts[2], Long.parseLong(parts[0]));
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed load trace line: " + line, e);
+			}
+		}
+
+		return trace;
+	}
+
+	/**
+	 * Writes the trace.
+	 *
+	 * @param out The stream to write to, it is flushed but not closed.
+	 *
+	 * @throws IOException If the stream could not be written.
+	 */
+	public synchronized void write(OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write(HEADER + "\n");
+
+		for (TraceEntry entry : entries) {
+			writer.write(entry.offsetMs + "\t" + entry.type + "\t" + entry.path + "\n");
+		}
+
+		writer.flush();
+	}
+
+	/**
+	 * Gets the recorded entries, in request order.
+	 *
+	 * @return A copy of the entries.
+	 */
+	public synchronized List<TraceEntry> getEntries() {
+		return new ArrayList<>(entries);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * A recorded asset request.
+	 */
+	public static class TraceEntry {
+		private final String type;
+		private final String path;
+		private final long offsetMs;
+
+		public TraceEntry(String type, String path, long offsetMs) {
+			this.type = type;
+			this.path = path;
+			this.offsetMs = offsetMs;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public long getOffsetMs() {
+			return offsetMs;
+		}
+
+		@Override
+		public String toString() {
+			return "TraceEntry{" +
+					"type='" + type + '\'' +
+					", path='" + path + '\'' +
+					", offsetMs=" + offsetMs +
+					'}';
+		}
+	}
+}
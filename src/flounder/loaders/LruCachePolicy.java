@@ -0,0 +1,55 @@
+package flounder.loaders;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A cache policy that evicts the least recently used key.
+ */
+public class LruCachePolicy implements CachePolicy {
+	private final LinkedHashSet<String> order;
+
+	/**
+	 * Creates a new LRU cache policy.
+	 */
+	public LruCachePolicy() {
+		this.order = new LinkedHashSet<>();
+	}
+
+	@Override
+	public void onInsert(String key) {
+		onAccess(key);
+	}
+
+	@Override
+	public void onAccess(String key) {
+		order.remove(key);
+		order.add(key);
+	}
+
+	@Override
+	public void onEvict(String key) {
+		order.remove(key);
+	}
+
+	@Override
+	public void onRemove(String key) {
+		order.remove(key);
+	}
+
+	@Override
+	public String findVictim(Predicate<String> evictable) {
+		for (String key : order) {
+			if (evictable.test(key)) {
+				return key;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		order.clear();
+	}
+}
@@ -0,0 +1,92 @@
+package flounder.loaders;
+
+import java.util.*;
+
+/**
+ * Replays a {@link LoadTrace} as prefetches. Each entry is handed to the prefetcher of its type a lead time before it was requested in the recorded run,
+ * entries already requested in this run are skipped. Time is passed in by the caller, so the schedule does not depend on a clock or on OpenGL.
+ */
+public class PrefetchScheduler {
+	private final List<LoadTrace.TraceEntry> entries;
+	private final Map<String, Prefetcher> prefetchers;
+	private final Set<String> requested;
+	private final long leadMs;
+
+	private int next;
+	private int issued;
+	private int skipped;
+
+	/**
+	 * Creates a new prefetch scheduler.
+	 *
+	 * @param trace The trace recorded in a earlier run.
+	 * @param prefetchers The prefetchers by asset type, entries of other types are skipped.
+	 * @param leadMs How many milliseconds before its recorded time a entry is prefetched.
+	 */
+	public PrefetchScheduler(LoadTrace trace, Map<String, Prefetcher> prefetchers, long leadMs) {
+		this.entries = trace.getEntries();
+		this.entries.sort(Comparator.comparingLong(LoadTrace.TraceEntry::getOffsetMs));
+		this.prefetchers = prefetchers;
+		this.requested = new HashSet<>();
+		this.leadMs = leadMs;
+		this.next = 0;
+	}
+
+	/**
+	 * Marks a asset as requested in this run, so it is not prefetched.
+	 *
+	 * @param type The asset type.
+	 * @param path The asset path.
+	 */
+	public synchronized void markRequested(String type, String path) {
+		requested.add(type + ":" + path);
+	}
+
+	/**
+	 * Issues every entry due by the current time.
+	 *
+	 * @param elapsedMs The milliseconds since the level started.
+	 *
+	 * @return The number of prefetches issued.
+	 */
+	public synchronized int update(long elapsedMs) {
+		int started = 0;
+
+		while (next < entries.size() && entries.get(next).getOffsetMs() - leadMs <= elapsedMs) {
+			LoadTrace.TraceEntry entry = entries.get(next++);
+			Prefetcher prefetcher = prefetchers.get(entry.getType());
+
+			if (prefetcher == null || requested.contains(entry.getType() + ":" + entry.getPath())) {
+				skipped++;
+				continue;
+			}
+
+			prefetcher.prefetch(entry.getPath());
+			issued++;
+			started++;
+		}
+
+		return started;
+	}
+
+	/**
+	 * Gets if every entry has been issued or skipped.
+	 *
+	 * @return If the trace is fully replayed.
+	 */
+	public synchronized boolean isFinished() {
+		return next >= entries.size();
+	}
+
+	public synchronized int getIssued() {
+		return issued;
+	}
+
+	public synchronized int getSkipped() {
+		return skipped;
+	}
+
+	public synchronized int getRemaining() {
+		return entries.size() - next;
+	}
+}
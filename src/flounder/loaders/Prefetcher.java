@@ -0,0 +1,18 @@
+package flounder.loaders;
+
+/**
+ * Loads assets ahead of their request for a {@link PrefetchScheduler}. Implementations should do the work on background threads at a low priority.
+ */
+public interface Prefetcher {
+	/**
+	 * Starts prefetching a asset.
+	 *
+	 * @param path The path of the file to prefetch.
+	 */
+	void prefetch(String path);
+
+	/**
+	 * Drops prefetched data that was never requested.
+	 */
+	void clear();
+}
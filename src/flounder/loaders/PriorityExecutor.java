@@ -0,0 +1,71 @@
+package flounder.loaders;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A fixed pool of daemon worker threads that runs queued tasks by {@link LoadPriority}, tasks of the same priority run in the order they were submitted.
+ */
+public class PriorityExecutor {
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong sequence;
+
+	/**
+	 * Creates a new priority executor.
+	 *
+	 * @param name The name of the worker threads.
+	 * @param threads The number of worker threads.
+	 */
+	public PriorityExecutor(String name, int threads) {
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.sequence = new AtomicLong();
+	}
+
+	/**
+	 * Queues a task.
+	 *
+	 * @param priority The priority of the task.
+	 * @param task The task to run.
+	 * @param <T> The result type.
+	 *
+	 * @return The tasks future, cancelling it before it starts skips the task.
+	 */
+	public <T> Future<T> submit(LoadPriority priority, Callable<T> task) {
+		PriorityTask<T> future = new PriorityTask<>(task, priority, sequence.getAndIncrement());
+		executor.execute(future);
+		return future;
+	}
+
+	/**
+	 * Gets the number of tasks waiting for a worker.
+	 *
+	 * @return The queued task count.
+	 */
+	public int getQueued() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * A future ordered by priority, then by submission.
+	 */
+	private static class PriorityTask<T> extends FutureTask<T> implements Comparable<PriorityTask<?>> {
+		private final LoadPriority priority;
+		private final long sequence;
+
+		private PriorityTask(Callable<T> task, LoadPriority priority, long sequence) {
+			super(task);
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(PriorityTask<?> other) {
+			int compare = priority.compareTo(other.priority);
+			return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package flounder.loaders;
+
+import flounder.factory.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Tracks factory objects that are still loading by name, so a second request for the same name attaches to the object already loading instead of loading it again.
+ */
+public class RequestCoalescer {
+	private final Map<String, FactoryObject> inFlight;
+	private long coalesced;
+
+	/**
+	 * Creates a new request coalescer.
+	 */
+	public RequestCoalescer() {
+		this.inFlight = new HashMap<>();
+		this.coalesced = 0;
+	}
+
+	/**
+	 * Gets the object loading under a name, or creates it.
+	 *
+	 * @param name The name of the object.
+	 * @param create Creates the object when nothing is loading under the name.
+	 *
+	 * @return The loading or created object.
+	 */
+	public synchronized FactoryObject request(String name, Supplier<FactoryObject> create) {
+		FactoryObject existing = inFlight.get(name);
+
+		if (existing != null) {
+			coalesced++;
+			return existing;
+		}
+
+		FactoryObject object = create.get();
+
+		if (object != null && !object.isLoaded()) {
+			inFlight.put(name, object);
+		}
+
+		return object;
+	}
+
+	/**
+	 * Marks a object as loaded, later requests go back through the factory.
+	 *
+	 * @param name The name of the loaded object.
+	 */
+	public synchronized void complete(String name) {
+		inFlight.remove(name);
+	}
+
+	/**
+	 * Gets if a object is still loading under a name.
+	 *
+	 * @param name The name of the object.
+	 *
+	 * @return If the object is loading.
+	 */
+	public synchronized boolean isInFlight(String name) {
+		return inFlight.containsKey(name);
+	}
+
+	/**
+	 * Gets the number of objects still loading.
+	 *
+	 * @return The in flight count.
+	 */
+	public synchronized int getInFlight() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Gets the number of requests that attached to a object already loading.
+	 *
+	 * @return The coalesced request count.
+	 */
+	public synchronized long getCoalesced() {
+		return coalesced;
+	}
+}
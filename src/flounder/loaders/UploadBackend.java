@@ -0,0 +1,35 @@
+package flounder.loaders;
+
+/**
+ * The backend a {@link UploadScheduler} executes requests and measures time with, replaced with a fake backend when testing scheduling.
+ */
+public interface UploadBackend {
+	/**
+	 * The default backend, requests are executed directly on the calling OpenGL thread.
+	 */
+	UploadBackend OPENGL = new UploadBackend() {
+		@Override
+		public void upload(UploadRequest request) {
+			request.executeUpload();
+		}
+
+		@Override
+		public long getTimeNanos() {
+			return System.nanoTime();
+		}
+	};
+
+	/**
+	 * Executes a upload request.
+	 *
+	 * @param request The request to execute.
+	 */
+	void upload(UploadRequest request);
+
+	/**
+	 * Gets the current time used to measure the time budget.
+	 *
+	 * @return The time in nanoseconds.
+	 */
+	long getTimeNanos();
+}
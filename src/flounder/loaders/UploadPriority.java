@@ -0,0 +1,9 @@
+package flounder.loaders;
+
+/**
+ * The priorities queued GPU uploads are drained in, uploads of the same priority are drained in the order they were queued.
+ * Immediate uploads ignore the per frame budget.
+ */
+public enum UploadPriority {
+	IMMEDIATE, HIGH, NORMAL, LOW
+}
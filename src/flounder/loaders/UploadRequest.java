@@ -0,0 +1,18 @@
+package flounder.loaders;
+
+/**
+ * A buffer or texture upload that is queued by a {@link UploadScheduler} and executed on the OpenGL thread.
+ */
+public interface UploadRequest {
+	/**
+	 * Gets the number of bytes this request will upload, used to charge the per frame budget.
+	 *
+	 * @return The upload size in bytes.
+	 */
+	long getUploadBytes();
+
+	/**
+	 * Executes the upload, called on the OpenGL thread.
+	 */
+	void executeUpload();
+}
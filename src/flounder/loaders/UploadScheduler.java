@@ -0,0 +1,176 @@
+package flounder.loaders;
+
+import java.util.*;
+
+/**
+ * Queues GPU uploads and drains them once per frame, limited by a byte and time budget so large loads are spread over many frames.
+ * At least one request is drained every frame so a request larger than the budget can not stall the queue.
+ */
+public class UploadScheduler {
+	private final UploadBackend backend;
+	private final PriorityQueue<QueuedUpload> queue;
+	private long sequence;
+
+	private long byteBudget;
+	private long timeBudgetNanos;
+
+	private long queuedBytes;
+	private long frameBytes;
+	private int frameUploads;
+	private long totalBytes;
+
+	/**
+	 * Creates a new upload scheduler.
+	 *
+	 * @param backend The backend to execute uploads with.
+	 * @param byteBudget The maximum bytes to upload per frame.
+	 * @param timeBudgetMs The maximum time to spend uploading per frame, in milliseconds.
+	 */
+	public UploadScheduler(UploadBackend backend, long byteBudget, double timeBudgetMs) {
+		this.backend = backend;
+		this.queue = new PriorityQueue<>();
+		this.sequence = 0;
+		setBudget(byteBudget, timeBudgetMs);
+	}
+
+	/**
+	 * Sets the per frame budget.
+	 *
+	 * @param byteBudget The maximum bytes to upload per frame.
+	 * @param timeBudgetMs The maximum time to spend uploading per frame, in milliseconds.
+	 */
+	public synchronized void setBudget(long byteBudget, double timeBudgetMs) {
+		this.byteBudget = byteBudget;
+		this.timeBudgetNanos = (long) (timeBudgetMs * 1000000.0);
+	}
+
+	/**
+	 * Queues a upload request.
+	 *
+	 * @param request The request to queue.
+	 * @param priority The priority of the requester.
+	 */
+	public synchronized void queue(UploadRequest request, UploadPriority priority) {
+		queue.add(new QueuedUpload(request, priority, sequence++));
+		queuedBytes += request.getUploadBytes();
+	}
+
+	/**
+	 * Drains queued requests until the frame budget is used, should be called once per frame on the OpenGL thread.
+	 * Each request is taken from the queue under the lock and uploaded outside it, so loader threads queueing requests are not blocked for the whole drain.
+	 *
+	 * @return The number of requests executed.
+	 */
+	public int drain() {
+		long drainedBytes = 0;
+		int drainedUploads = 0;
+		long start = backend.getTimeNanos();
+
+		while (true) {
+			QueuedUpload next;
+			long bytes;
+
+			synchronized (this) {
+				next = queue.peek();
+
+				if (next == null) {
+					break;
+				}
+
+				bytes = next.request.getUploadBytes();
+
+				if (next.priority != UploadPriority.IMMEDIATE && drainedUploads > 0) {
+					if (drainedBytes + bytes > byteBudget || backend.getTimeNanos() - start >= timeBudgetNanos) {
+						break;
+					}
+				}
+
+				queue.poll();
+				queuedBytes -= bytes;
+			}
+
+			backend.upload(next.request);
+			drainedBytes += bytes;
+			drainedUploads++;
+		}
+
+		synchronized (this) {
+			frameBytes = drainedBytes;
+			frameUploads = drainedUploads;
+			totalBytes += drainedBytes;
+		}
+
+		return drainedUploads;
+	}
+
+	/**
+	 * Removes all queued requests without executing them.
+	 */
+	public synchronized void clear() {
+		queue.clear();
+		queuedBytes = 0;
+	}
+
+	/**
+	 * Gets the number of requests waiting to be uploaded.
+	 *
+	 * @return The queue depth.
+	 */
+	public synchronized int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the number of bytes waiting to be uploaded.
+	 *
+	 * @return The queued bytes.
+	 */
+	public synchronized long getQueuedBytes() {
+		return queuedBytes;
+	}
+
+	/**
+	 * Gets the number of bytes uploaded by the last drain.
+	 *
+	 * @return The bytes uploaded last frame.
+	 */
+	public synchronized long getFrameBytes() {
+		return frameBytes;
+	}
+
+	/**
+	 * Gets the number of requests executed by the last drain.
+	 *
+	 * @return The uploads executed last frame.
+	 */
+	public synchronized int getFrameUploads() {
+		return frameUploads;
+	}
+
+	/**
+	 * Gets the number of bytes uploaded since the scheduler was created.
+	 *
+	 * @return The total bytes uploaded.
+	 */
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	private static class QueuedUpload implements Comparable<QueuedUpload> {
+		private final UploadRequest request;
+		private final UploadPriority priority;
+		private final long sequence;
+
+		private QueuedUpload(UploadRequest request, UploadPriority priority, long sequence) {
+			this.request = request;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(QueuedUpload other) {
+			int compare = priority.compareTo(other.priority);
+			return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package flounder.loaders;
+
+import flounder.helpers.*;
+
+import java.util.*;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Describes the layout of interleaved vertex data stored in a single VBO.
+ */
+public class VertexFormat {
+	private List<Attribute> attributes;
+	private int stride;
+
+	/**
+	 * Creates a new empty vertex format, attributes are laid out in the order they are added.
+	 */
+	public VertexFormat() {
+		this.attributes = new ArrayList<>();
+		this.stride = 0;
+	}
+
+	/**
+	 * Adds a attribute of float components.
+	 *
+	 * @param index The attribute index in the shader.
+	 * @param components The number of floats per vertex.
+	 *
+	 * @return this.
+	 */
+	public VertexFormat addFloats(int index, int components) {
+		return addAttribute(index, components, GL_FLOAT, false, false, components * ByteWork.FLOAT_LENGTH);
+	}
+
+	/**
+	 * Adds a attribute of integer components that are read as integers by the shader.
+	 *
+	 * @param index The attribute index in the shader.
+	 * @param components The number of integers per vertex.
+	 *
+	 * @return this.
+	 */
+	public VertexFormat addIntegers(int index, int components) {
+		return addAttribute(index, components, GL_INT, false, true, components * 4);
+	}
+
+	/**
+	 * Adds a attribute of packed components that are converted to floats by OpenGL.
+	 *
+	 * @param index The attribute index in the shader.
+	 * @param components The number of components per vertex.
+	 * @param glType The OpenGL type of the packed data, for example {@code GL_HALF_FLOAT}.
+	 * @param normalized If integer components are normalized into [0, 1] or [-1, 1].
+	 * @param bytes The number of bytes used per vertex, padded to a multiple of 4.
+	 *
+	 * @return this.
+	 */
+	public VertexFormat addPacked(int index, int components, int glType, boolean normalized, int bytes) {
+		return addAttribute(index, components, glType, normalized, false, bytes);
+	}
+
+	private VertexFormat addAttribute(int index, int components, int glType, boolean normalized, boolean integer, int bytes) {
+		int aligned = (bytes + 3) & ~3;
+		attributes.add(new Attribute(index, components, glType, normalized, integer, stride));
+		stride += aligned;
+		return this;
+	}
+
+	/**
+	 * Gets the attributes in this format.
+	 *
+	 * @return The attributes.
+	 */
+	public List<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Gets the shader attribute indices used by this format, used when binding the VAO.
+	 *
+	 * @return The attribute indices.
+	 */
+	public int[] getAttributeIndices() {
+		int[] indices = new int[attributes.size()];
+
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = attributes.get(i).index;
+		}
+
+		return indices;
+	}
+
+	/**
+	 * Gets the number of bytes between the starts of two vertices.
+	 *
+	 * @return The vertex stride.
+	 */
+	public int getStride() {
+		return stride;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+
+		if (object == null || !(object instanceof VertexFormat)) {
+			return false;
+		}
+
+		VertexFormat other = (VertexFormat) object;
+		return stride == other.stride && attributes.equals(other.attributes);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(attributes, stride);
+	}
+
+	@Override
+	public String toString() {
+		return "VertexFormat{" +
+				"attributes=" + attributes +
+				", stride=" + stride +
+				'}';
+	}
+
+	/**
+	 * A single attribute within a interleaved vertex.
+	 */
+	public static class Attribute {
+		private final int index;
+		private final int components;
+		private final int glType;
+		private final boolean normalized;
+		private final boolean integer;
+		private final int offset;
+
+		private Attribute(int index, int components, int glType, boolean normalized, boolean integer, int offset) {
+			this.index = index;
+			this.components = components;
+			this.glType = glType;
+			this.normalized = normalized;
+			this.integer = integer;
+			this.offset = offset;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public int getComponents() {
+			return components;
+		}
+
+		public int getGlType() {
+			return glType;
+		}
+
+		public boolean isNormalized() {
+			return normalized;
+		}
+
+		/**
+		 * Gets if the attribute is read as integers by the shader.
+		 *
+		 * @return If the attribute is a integer attribute.
+		 */
+		public boolean isInteger() {
+			return integer;
+		}
+
+		/**
+		 * Gets the byte offset of this attribute from the start of a vertex.
+		 *
+		 * @return The byte offset.
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+
+			if (object == null || !(object instanceof Attribute)) {
+				return false;
+			}
+
+			Attribute other = (Attribute) object;
+			return index == other.index && components == other.components && glType == other.glType && normalized == other.normalized && integer == other.integer && offset == other.offset;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(index, components, glType, normalized, integer, offset);
+		}
+
+		@Override
+		public String toString() {
+			return "Attribute{" +
+					"index=" + index +
+					", components=" + components +
+					", glType=" + glType +
+					", normalized=" + normalized +
+					", integer=" + integer +
+					", offset=" + offset +
+					'}';
+		}
+	}
+}
@@ -5,6 +5,7 @@ import flounder.framework.*;
 import flounder.loaders.*;
 import flounder.processing.*;
 import flounder.profiling.*;
+import org.lwjgl.opengl.*;
 
 import java.lang.ref.*;
 import java.util.*;
@@ -16,7 +17,22 @@ public class FlounderModels extends Module {
 	private static final FlounderModels INSTANCE = new FlounderModels();
 	public static final String PROFILE_TAB_NAME = "Models";
 
-	private Map<String, SoftReference<FactoryObject>> loaded;
+	private FactoryCache<ModelObject> loaded;
+	private boolean packedDirectionsSupported;
+	private boolean instancingSupported;
+	private long cacheWeight = Long.MAX_VALUE;
+	private CachePolicy cachePolicy = new LruCachePolicy();
+
+	/**
+	 * A function called before initialization to configure the model cache.
+	 *
+	 * @param cacheWeight The bytes of loaded models to keep, the least valuable unused models past this are deleted.
+	 * @param cachePolicy The policy choosing which models are evicted, {@link LruCachePolicy} or {@link ArcCachePolicy}.
+	 */
+	public static void setupCache(long cacheWeight, CachePolicy cachePolicy) {
+		INSTANCE.cacheWeight = cacheWeight;
+		INSTANCE.cachePolicy = cachePolicy;
+	}
 
 	/**
 	 * Creates a new model loader class.
@@ -27,16 +43,40 @@ public class FlounderModels extends Module {
 
 	@Override
 	public void init() {
-		this.loaded = new HashMap<>();
+		this.loaded = new FactoryCache<>(cacheWeight, cachePolicy, model -> model.isLoaded() ? getGpuBytes(model) : 0, model -> model.isLoaded() && loaded.isIdle(model.getLastUsedFrame()), ModelObject::delete);
+
+		// Capabilities are only readable from the OpenGL thread, loaders check this flag instead.
+		this.packedDirectionsSupported = GL.getCapabilities().GL_ARB_vertex_type_2_10_10_10_rev;
+		// Models in a shared geometry arena are drawn instanced from their base vertex.
+		this.instancingSupported = GL.getCapabilities().GL_ARB_draw_instanced && GL.getCapabilities().GL_ARB_instanced_arrays && GL.getCapabilities().GL_ARB_draw_elements_base_vertex;
+
+		FlounderLoader.registerReloader(ModelFactory::reload);
 	}
 
 	@Override
 	public void update() {
+		loaded.update();
+	}
+
+	/**
+	 * Estimates the GPU memory used by a models vertices and indices.
+	 */
+	private static long getGpuBytes(ModelObject model) {
+		long vertices = model.getVertices() == null ? 0 : model.getVertices().length / 3;
+		long stride = model.getVertexFormat() != null ? model.getVertexFormat().getStride() : 4 * (3 + 2 + 3 + 3);
+		return vertices * stride + 4L * model.getVaoLength();
 	}
 
 	@Override
 	public void profile() {
 		FlounderProfiler.add(PROFILE_TAB_NAME, "Loaded", loaded.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Hit Rate", loaded.getHitRate());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Hits", loaded.getHits());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Misses", loaded.getMisses());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Evictions", loaded.getEvictions());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "In Flight", ModelFactory.getCoalescer().getInFlight());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Coalesced", ModelFactory.getCoalescer().getCoalesced());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache MB", loaded.getWeight() / (1024.0 * 1024.0));
 	}
 
 	/**
@@ -48,6 +88,35 @@ public class FlounderModels extends Module {
 		return INSTANCE.loaded;
 	}
 
+	/**
+	 * Records a model as drawn this frame, models held by renderers are drawn every frame so are never evicted from the cache.
+	 *
+	 * @param model The model being drawn.
+	 */
+	public static void markUsed(ModelObject model) {
+		if (INSTANCE.loaded != null) {
+			model.setLastUsedFrame(INSTANCE.loaded.getFrame());
+		}
+	}
+
+	/**
+	 * Gets if normals and tangents can be packed into 10_10_10_2 integers.
+	 *
+	 * @return If GL_ARB_vertex_type_2_10_10_10_rev is supported.
+	 */
+	public static boolean isPackedDirectionsSupported() {
+		return INSTANCE.packedDirectionsSupported;
+	}
+
+	/**
+	 * Gets if models can be drawn many times with one instanced draw call.
+	 *
+	 * @return If GL_ARB_draw_instanced, GL_ARB_instanced_arrays and GL_ARB_draw_elements_base_vertex are supported.
+	 */
+	public static boolean isInstancingSupported() {
+		return INSTANCE.instancingSupported;
+	}
+
 	@Override
 	public Module getInstance() {
 		return INSTANCE;
@@ -55,10 +124,10 @@ public class FlounderModels extends Module {
 
 	@Override
 	public void dispose() {
-		loaded.keySet().forEach(key -> {
-			ModelObject model = ((ModelObject) loaded.get(key).get());
+		loaded.getObjects().forEach(object -> {
+			ModelObject model = (ModelObject) object;
 
-			if (model != null && model.isLoaded()) {
+			if (model.isLoaded()) {
 				model.delete();
 			}
 		});
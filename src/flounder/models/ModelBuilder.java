@@ -1,6 +1,7 @@
 package flounder.models;
 
 import flounder.factory.*;
+import flounder.loaders.*;
 import flounder.resources.*;
 
 /**
@@ -9,11 +10,21 @@ import flounder.resources.*;
 public class ModelBuilder extends FactoryBuilder {
 	private MyFile file;
 	private ModelLoadManual manual;
+	private boolean packVertices;
+	private boolean quantizePositions;
+	private boolean shareGeometry;
+	private LoadPriority loadPriority;
+	private UploadPriority uploadPriority;
 
 	protected ModelBuilder(Factory factory) {
 		super(factory);
 		this.file = null;
 		this.manual = null;
+		this.packVertices = false;
+		this.quantizePositions = false;
+		this.shareGeometry = false;
+		this.loadPriority = LoadPriority.VISIBLE_NOW;
+		this.uploadPriority = loadPriority.getUploadPriority();
 	}
 
 	/**
@@ -40,6 +51,65 @@ public class ModelBuilder extends FactoryBuilder {
 		return this;
 	}
 
+	/**
+	 * Packs texture coords into half floats, and normals and tangents into 10_10_10_2 integers when uploading.
+	 *
+	 * @return this.
+	 */
+	public ModelBuilder packVertices() {
+		this.packVertices = true;
+		return this;
+	}
+
+	/**
+	 * Packs the model vertices, and quantizes positions into shorts relative to the models AABB.
+	 * Shaders rendering the model must restore positions with {@link ModelObject#getPositionOffset()} and {@link ModelObject#getPositionScale()}.
+	 *
+	 * @return this.
+	 */
+	public ModelBuilder quantizePositions() {
+		this.quantizePositions = true;
+		return packVertices();
+	}
+
+	/**
+	 * Stores the model in a shared geometry arena with other models of the same vertex format, so switching between them does not rebind a VAO.
+	 * Models without indices, or on contexts without copy buffers and base vertex draws, fall back to their own VAO.
+	 * A shared model must only be drawn with {@link flounder.helpers.OpenGlUtils#renderElements(int, ModelObject)} or its instanced variant,
+	 * a plain {@code glDrawElements} from index zero draws the first mesh in the arena instead.
+	 *
+	 * @return this.
+	 */
+	public ModelBuilder shareGeometry() {
+		this.shareGeometry = true;
+		return this;
+	}
+
+	/**
+	 * Sets the priority class of the model load (default = visible now), also sets the upload priority to match.
+	 *
+	 * @param loadPriority The load priority.
+	 *
+	 * @return this.
+	 */
+	public ModelBuilder setLoadPriority(LoadPriority loadPriority) {
+		this.loadPriority = loadPriority;
+		this.uploadPriority = loadPriority.getUploadPriority();
+		return this;
+	}
+
+	/**
+	 * Sets the priority the model is uploaded to the GPU with (default = normal).
+	 *
+	 * @param uploadPriority The upload priority.
+	 *
+	 * @return this.
+	 */
+	public ModelBuilder setUploadPriority(UploadPriority uploadPriority) {
+		this.uploadPriority = uploadPriority;
+		return this;
+	}
+
 	/**
 	 * Gets the source file.
 	 *
@@ -58,12 +128,58 @@ public class ModelBuilder extends FactoryBuilder {
 		return manual;
 	}
 
+	/**
+	 * Gets if the vertices will be packed.
+	 *
+	 * @return If packing vertices.
+	 */
+	public boolean isPackVertices() {
+		return packVertices;
+	}
+
+	/**
+	 * Gets if the positions will be quantized.
+	 *
+	 * @return If quantizing positions.
+	 */
+	public boolean isQuantizePositions() {
+		return quantizePositions;
+	}
+
+	/**
+	 * Gets if the model will be stored in a shared geometry arena.
+	 *
+	 * @return If sharing geometry.
+	 */
+	public boolean isShareGeometry() {
+		return shareGeometry;
+	}
+
+	/**
+	 * Gets the load priority.
+	 *
+	 * @return The load priority.
+	 */
+	public LoadPriority getLoadPriority() {
+		return loadPriority;
+	}
+
+	/**
+	 * Gets the upload priority.
+	 *
+	 * @return The upload priority.
+	 */
+	public UploadPriority getUploadPriority() {
+		return uploadPriority;
+	}
+
 	@Override
 	public ModelObject create() {
 		if (manual != null) {
-			return (ModelObject) builderCreate(manual.getName());
+			return (ModelObject) ModelFactory.coalesce(manual.getName(), () -> builderCreate(manual.getName()));
 		} else if (file != null) {
-			return (ModelObject) builderCreate(file.getName());
+			FlounderLoader.recordLoad("model", file);
+			return (ModelObject) ModelFactory.coalesce(file.getName(), () -> builderCreate(file.getName()));
 		}
 
 		return null;
@@ -74,6 +190,11 @@ public class ModelBuilder extends FactoryBuilder {
 		return "ModelBuilder{" +
 				"file=" + file +
 				", manual=" + manual +
+				", packVertices=" + packVertices +
+				", quantizePositions=" + quantizePositions +
+				", shareGeometry=" + shareGeometry +
+				", loadPriority=" + loadPriority +
+				", uploadPriority=" + uploadPriority +
 				'}';
 	}
 }
@@ -27,6 +27,10 @@ public class ModelDeleteRequest implements RequestOpenGL {
 		FlounderModels.getLoaded().get(model.getName()).clear();
 		FlounderModels.getLoaded().remove(model.getName());
 
-		FlounderLoader.deleteVAOFromCache(model.getVaoID());
+		if (model.getSharedMesh() != null) {
+			model.getSharedMesh().delete();
+		} else {
+			FlounderLoader.deleteVAOFromCache(model.getVaoID());
+		}
 	}
 }
@@ -5,11 +5,19 @@ import flounder.loaders.*;
 import flounder.logger.*;
 import flounder.maths.vectors.*;
 import flounder.physics.*;
+import flounder.processing.opengl.*;
+import flounder.renderer.*;
 import flounder.resources.*;
 
 import java.io.*;
 import java.lang.ref.*;
+import java.nio.*;
 import java.util.*;
+import java.util.function.*;
+
+import static org.lwjgl.opengl.ARBVertexType2_10_10_10_REV.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
 
 /**
  * A class that represents a factory for loading models.
@@ -17,8 +25,11 @@ import java.util.*;
 public class ModelFactory extends Factory {
 	private static final ModelFactory INSTANCE = new ModelFactory();
 
+	private final RequestCoalescer coalescer;
+
 	private ModelFactory() {
 		super("model");
+		this.coalescer = new RequestCoalescer();
 	}
 
 	/**
@@ -30,6 +41,27 @@ public class ModelFactory extends Factory {
 		return new ModelBuilder(INSTANCE);
 	}
 
+	/**
+	 * Creates a model, or attaches to the model already loading under the same name.
+	 *
+	 * @param name The name of the model.
+	 * @param create Creates the model through the factory.
+	 *
+	 * @return The loading or created model.
+	 */
+	protected static FactoryObject coalesce(String name, Supplier<FactoryObject> create) {
+		return INSTANCE.coalescer.request(name, create);
+	}
+
+	/**
+	 * Gets the tracker of models still loading.
+	 *
+	 * @return The request coalescer.
+	 */
+	public static RequestCoalescer getCoalescer() {
+		return INSTANCE.coalescer;
+	}
+
 	@Override
 	public ModelObject newObject() {
 		return new ModelObject();
@@ -46,13 +78,25 @@ public class ModelFactory extends Factory {
 		} else if (((ModelBuilder) builder).getFile() != null) {
 			loadOBJ(o, b.getFile(), name);
 		}
+
+		o.loadBuilder(b);
+
+		// Interleaves on the loader thread, the OpenGL thread only uploads the finished buffer.
+		if (o.getVertices() != null) {
+			boolean quantized = b.isQuantizePositions() && o.getAABB() != null;
+
+			// 10_10_10_2 vertex formats are core in OpenGL 3.3, the engine only requests a 3.0 context.
+			boolean packDirections = b.isPackVertices() && FlounderModels.isPackedDirectionsSupported();
+			VertexFormat format = createFormat(o, quantized, b.isPackVertices(), packDirections);
+			o.loadInterleaved(format, interleaveData(o, format, quantized, b.isPackVertices(), packDirections), quantized);
+		}
 	}
 
 	private void loadOBJ(ModelObject object, MyFile file, String name) {
 		BufferedReader reader;
 
 		try {
-			reader = file.getReader();
+			reader = FlounderLoader.openReader(file);
 		} catch (Exception e) {
 			FlounderLogger.log(e);
 			return;
@@ -276,14 +320,217 @@ public class ModelFactory extends Factory {
 		ModelBuilder b = (ModelBuilder) builder;
 		ModelObject o = (ModelObject) object;
 
-		int vaoID = FlounderLoader.createVAO();
-		FlounderLoader.createIndicesVBO(vaoID, o.getIndices());
-		FlounderLoader.storeDataInVBO(vaoID, o.getVertices(), 0, 3);
-		FlounderLoader.storeDataInVBO(vaoID, o.getTextures(), 1, 2);
-		FlounderLoader.storeDataInVBO(vaoID, o.getNormals(), 2, 3);
-		FlounderLoader.storeDataInVBO(vaoID, o.getTangents(), 3, 3);
+		ByteBuffer data = o.takeInterleavedData();
+
+		if (data == null) {
+			FlounderLogger.error("Model " + o.getName() + " has no vertex data to upload");
+			coalescer.complete(o.getName());
+			return;
+		}
+
+		VertexFormat format = o.getVertexFormat();
+		boolean quantized = o.isQuantized();
+		boolean share = b.isShareGeometry() && o.getIndices() != null && GeometryArena.isSupported();
+
+		// The interleaved data was built by the loader thread, the GPU upload is spread over frames by the loaders upload budget.
+		FlounderLoader.queueUpload(new UploadRequest() {
+			@Override
+			public long getUploadBytes() {
+				return data.remaining() + (o.getIndices() != null ? o.getIndices().length * 4 : 0);
+			}
+
+			@Override
+			public void executeUpload() {
+				upload(o, format, data, quantized, share);
+			}
+		}, b.getUploadPriority());
+	}
+
+	/**
+	 * Uploads a models interleaved data, either into its own VAO or into a shared geometry arena.
+	 *
+	 * @param o The model to upload.
+	 * @param format The format created for the model.
+	 * @param data The interleaved data.
+	 * @param quantized If positions are quantized relative to the models AABB.
+	 * @param share If the model is stored in a shared geometry arena.
+	 */
+	private void upload(ModelObject o, VertexFormat format, ByteBuffer data, boolean quantized, boolean share) {
+		// A failed upload must still end the request, otherwise later requests attach to a model that never loads.
+		try {
+			uploadMesh(o, format, data, quantized, share);
+		} finally {
+			coalescer.complete(o.getName());
+		}
+	}
+
+	private static void uploadMesh(ModelObject o, VertexFormat format, ByteBuffer data, boolean quantized, boolean share) {
 		int vaoLength = o.getIndices() != null ? o.getIndices().length : (o.getVertices().length / 3);
-		((ModelObject) object).loadGL(vaoID, vaoLength);
+
+		if (share) {
+			GeometryArena arena = FlounderLoader.getArena(format);
+			GeometryArena.Mesh mesh = arena.allocate(data, o.getIndices());
+			FlounderLoader.releaseBuffer(data);
+			o.loadGL(arena.getVaoID(), vaoLength, format, quantized, mesh);
+			return;
+		}
+
+		int vaoID = FlounderLoader.createInterleavedVAO(data, o.getIndices(), format);
+		FlounderLoader.releaseBuffer(data);
+		o.loadGL(vaoID, vaoLength, format, quantized, null);
+	}
+
+	/**
+	 * Reloads the models loaded from a changed OBJ file, used by hot reloading. The file is parsed and interleaved on the calling thread,
+	 * then the new mesh is uploaded and swapped into the existing model objects so models held by renderers show the change.
+	 *
+	 * @param path The normalized path of the changed file.
+	 */
+	protected static void reload(String path) {
+		for (FactoryObject object : ((FactoryCache<?>) FlounderModels.getLoaded()).getObjects()) {
+			ModelObject o = (ModelObject) object;
+			ModelBuilder b = o.getBuilder();
+
+			if (b == null || b.getManual() != null || o.getFile() == null || !o.isLoaded() || !AssetPack.normalize(o.getFile().getPath()).equals(path)) {
+				continue;
+			}
+
+			ModelObject reloaded = new ModelObject();
+			INSTANCE.loadOBJ(reloaded, b.getFile(), o.getName());
+
+			if (reloaded.getVertices() == null) {
+				FlounderLogger.error("Could not reload model '" + path + "'");
+				continue;
+			}
+
+			boolean quantized = b.isQuantizePositions() && reloaded.getAABB() != null;
+			boolean packDirections = b.isPackVertices() && FlounderModels.isPackedDirectionsSupported();
+			VertexFormat format = INSTANCE.createFormat(reloaded, quantized, b.isPackVertices(), packDirections);
+			ByteBuffer data = INSTANCE.interleaveData(reloaded, format, quantized, b.isPackVertices(), packDirections);
+			boolean share = b.isShareGeometry() && reloaded.getIndices() != null && GeometryArena.isSupported();
+
+			FlounderRenderer.sendRequest((RequestOpenGL) () -> {
+				if (!o.isLoaded()) {
+					FlounderLoader.releaseBuffer(data);
+					return;
+				}
+
+				int oldVaoID = o.getVaoID();
+				GeometryArena.Mesh oldMesh = o.getSharedMesh();
+
+				uploadMesh(reloaded, format, data, quantized, share);
+				o.loadReloaded(reloaded);
+
+				if (oldMesh != null) {
+					oldMesh.delete();
+				} else {
+					FlounderLoader.deleteVAOFromCache(oldVaoID);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Creates the interleaved vertex format used by a model.
+	 *
+	 * @param o The model to describe.
+	 * @param quantized If positions are quantized relative to the models AABB.
+	 * @param packTextures If texture coords are packed into half floats.
+	 * @param packDirections If normals and tangents are packed into 10_10_10_2 integers.
+	 *
+	 * @return The models vertex format.
+	 */
+	private VertexFormat createFormat(ModelObject o, boolean quantized, boolean packTextures, boolean packDirections) {
+		VertexFormat format = new VertexFormat();
+
+		if (quantized) {
+			format.addPacked(0, 3, GL_UNSIGNED_SHORT, true, VertexPacker.POSITION_QUANTIZED_BYTES);
+		} else {
+			format.addFloats(0, 3);
+		}
+
+		if (o.getTextures() != null) {
+			if (packTextures) {
+				format.addPacked(1, 2, GL_HALF_FLOAT, false, VertexPacker.TEXTURE_PACKED_BYTES);
+			} else {
+				format.addFloats(1, 2);
+			}
+		}
+
+		if (o.getNormals() != null) {
+			if (packDirections) {
+				format.addPacked(2, 4, GL_INT_2_10_10_10_REV, true, VertexPacker.DIRECTION_PACKED_BYTES);
+			} else {
+				format.addFloats(2, 3);
+			}
+		}
+
+		if (o.getTangents() != null) {
+			if (packDirections) {
+				format.addPacked(3, 4, GL_INT_2_10_10_10_REV, true, VertexPacker.DIRECTION_PACKED_BYTES);
+			} else {
+				format.addFloats(3, 3);
+			}
+		}
+
+		return format;
+	}
+
+	/**
+	 * Writes the models arrays straight into a interleaved buffer laid out by the vertex format.
+	 *
+	 * @param o The model to interleave.
+	 * @param format The format created for the model.
+	 * @param quantized If positions are quantized relative to the models AABB.
+	 * @param packTextures If texture coords are packed into half floats.
+	 * @param packDirections If normals and tangents are packed into 10_10_10_2 integers.
+	 *
+	 * @return The interleaved data.
+	 */
+	private ByteBuffer interleaveData(ModelObject o, VertexFormat format, boolean quantized, boolean packTextures, boolean packDirections) {
+		int vertexCount = o.getVertices().length / 3;
+		ByteBuffer buffer = FlounderLoader.acquireBuffer(vertexCount * format.getStride());
+
+		for (int i = 0; i < vertexCount; i++) {
+			if (quantized) {
+				VertexPacker.putQuantizedPosition(buffer, o.getVertices(), i, o.getAABB());
+			} else {
+				putFloats(buffer, o.getVertices(), i * 3, 3);
+			}
+
+			if (o.getTextures() != null) {
+				if (packTextures) {
+					VertexPacker.putHalfTexture(buffer, o.getTextures(), i);
+				} else {
+					putFloats(buffer, o.getTextures(), i * 2, 2);
+				}
+			}
+
+			if (o.getNormals() != null) {
+				if (packDirections) {
+					VertexPacker.putPackedDirection(buffer, o.getNormals(), i);
+				} else {
+					putFloats(buffer, o.getNormals(), i * 3, 3);
+				}
+			}
+
+			if (o.getTangents() != null) {
+				if (packDirections) {
+					VertexPacker.putPackedDirection(buffer, o.getTangents(), i);
+				} else {
+					putFloats(buffer, o.getTangents(), i * 3, 3);
+				}
+			}
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+
+	private void putFloats(ByteBuffer buffer, float[] data, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			buffer.putFloat(data[offset + i]);
+		}
 	}
 
 	@Override
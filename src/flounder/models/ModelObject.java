@@ -1,10 +1,14 @@
 package flounder.models;
 
 import flounder.factory.*;
+import flounder.loaders.*;
+import flounder.maths.vectors.*;
 import flounder.physics.*;
-import flounder.processing.*;
+import flounder.renderer.*;
 import flounder.resources.*;
 
+import java.nio.*;
+
 /**
  * Class that represents a loaded model.
  */
@@ -24,6 +28,15 @@ public class ModelObject extends FactoryObject { // TODO: Document more!
 
 	private int vaoID;
 	private int vaoLength;
+	private VertexFormat vertexFormat;
+	private boolean quantized;
+	private Vector3f positionOffset;
+	private Vector3f positionScale;
+	private GeometryArena.Mesh sharedMesh;
+	private ByteBuffer interleavedData;
+
+	private ModelBuilder builder;
+	private long lastUsedFrame;
 
 	/**
 	 * A new OpenGL model object.
@@ -42,6 +55,15 @@ public class ModelObject extends FactoryObject { // TODO: Document more!
 
 		this.vaoID = -1;
 		this.vaoLength = -1;
+		this.vertexFormat = null;
+		this.quantized = false;
+		this.positionOffset = new Vector3f(0.0f, 0.0f, 0.0f);
+		this.positionScale = new Vector3f(1.0f, 1.0f, 1.0f);
+		this.sharedMesh = null;
+		this.interleavedData = null;
+
+		this.builder = null;
+		this.lastUsedFrame = 0;
 	}
 
 	protected void loadData(float[] vertices, float[] textureCoords, float[] normals, float[] tangents, int[] indices, boolean smoothShading, AABB aabb, QuickHull hull, String name, MyFile file) {
@@ -61,13 +83,78 @@ public class ModelObject extends FactoryObject { // TODO: Document more!
 		setDataLoaded(true);
 	}
 
-	protected void loadGL(int vaoID, int vaoLength) {
+	/**
+	 * Takes the interleaved vertex data built on the loader thread, uploaded later by {@link #loadGL}.
+	 *
+	 * @param vertexFormat The layout of the data.
+	 * @param interleavedData The interleaved vertices, a pooled buffer released once uploaded.
+	 * @param quantized If positions are quantized relative to the models AABB.
+	 */
+	protected synchronized void loadInterleaved(VertexFormat vertexFormat, ByteBuffer interleavedData, boolean quantized) {
+		this.vertexFormat = vertexFormat;
+		this.interleavedData = interleavedData;
+		this.quantized = quantized;
+	}
+
+	/**
+	 * Gets and forgets the interleaved vertex data waiting to be uploaded.
+	 *
+	 * @return The interleaved data, or null if there is none.
+	 */
+	protected synchronized ByteBuffer takeInterleavedData() {
+		ByteBuffer data = interleavedData;
+		interleavedData = null;
+		return data;
+	}
+
+	protected void loadGL(int vaoID, int vaoLength, VertexFormat vertexFormat, boolean quantized, GeometryArena.Mesh sharedMesh) {
 		this.vaoID = vaoID;
 		this.vaoLength = vaoLength;
+		this.vertexFormat = vertexFormat;
+		this.quantized = quantized;
+		this.sharedMesh = sharedMesh;
+
+		// Keeps the bounds the positions were quantized within, the AABB may be replaced after uploading.
+		if (quantized) {
+			positionOffset.set(aabb.getMinExtents());
+			Vector3f.subtract(aabb.getMaxExtents(), aabb.getMinExtents(), positionScale);
+		} else {
+			positionOffset.set(0.0f, 0.0f, 0.0f);
+			positionScale.set(1.0f, 1.0f, 1.0f);
+		}
 
 		setFullyLoaded(true);
 	}
 
+	protected void loadBuilder(ModelBuilder builder) {
+		this.builder = builder;
+	}
+
+	/**
+	 * Takes the data and OpenGL objects of a model loaded again from a changed file, called on the OpenGL thread so renderers holding this model draw the new mesh next frame.
+	 *
+	 * @param reloaded The fully uploaded model to take from.
+	 */
+	protected void loadReloaded(ModelObject reloaded) {
+		this.vertices = reloaded.vertices;
+		this.textures = reloaded.textures;
+		this.normals = reloaded.normals;
+		this.tangents = reloaded.tangents;
+		this.indices = reloaded.indices;
+		this.smoothShading = reloaded.smoothShading;
+
+		this.aabb = reloaded.aabb;
+		this.hull = reloaded.hull;
+
+		this.vaoID = reloaded.vaoID;
+		this.vaoLength = reloaded.vaoLength;
+		this.vertexFormat = reloaded.vertexFormat;
+		this.quantized = reloaded.quantized;
+		this.positionOffset.set(reloaded.positionOffset);
+		this.positionScale.set(reloaded.positionScale);
+		this.sharedMesh = reloaded.sharedMesh;
+	}
+
 	public float[] getVertices() {
 		return vertices;
 	}
@@ -126,6 +213,93 @@ public class ModelObject extends FactoryObject { // TODO: Document more!
 		return vaoLength;
 	}
 
+	/**
+	 * Gets the layout of the models interleaved vertex buffer.
+	 *
+	 * @return The models vertex format.
+	 */
+	public VertexFormat getVertexFormat() {
+		return vertexFormat;
+	}
+
+	/**
+	 * Gets if the uploaded positions are quantized into [0, 1] within the models AABB, shaders restore them with {@link #getPositionOffset()} and {@link #getPositionScale()}.
+	 *
+	 * @return If the positions are quantized.
+	 */
+	public boolean isQuantized() {
+		return quantized;
+	}
+
+	/**
+	 * Gets the offset added to uploaded positions, the AABB minimum for quantized models and zero otherwise.
+	 * Shaders drawing models restore positions with {@code positionOffset + position * positionScale}.
+	 *
+	 * @return The position offset.
+	 */
+	public Vector3f getPositionOffset() {
+		return positionOffset;
+	}
+
+	/**
+	 * Gets the scale uploaded positions are multiplied by, the AABB size for quantized models and one otherwise.
+	 *
+	 * @return The position scale.
+	 */
+	public Vector3f getPositionScale() {
+		return positionScale;
+	}
+
+	/**
+	 * Gets the range of a shared geometry arena this model is stored in, the VAO ID is then the arenas VAO. Draw the model with
+	 * {@link flounder.helpers.OpenGlUtils#renderElements(int, ModelObject)}, which offsets the draw into this range.
+	 *
+	 * @return The shared mesh, or null if the model has its own VAO.
+	 */
+	public GeometryArena.Mesh getSharedMesh() {
+		return sharedMesh;
+	}
+
+	/**
+	 * Gets the vertex added to every index when drawing, non zero only for shared models.
+	 *
+	 * @return The base vertex.
+	 */
+	public int getBaseVertex() {
+		return sharedMesh != null ? sharedMesh.getBaseVertex() : 0;
+	}
+
+	/**
+	 * Gets the first index to draw from the bound index buffer, non zero only for shared models.
+	 *
+	 * @return The first index.
+	 */
+	public int getFirstIndex() {
+		return sharedMesh != null ? sharedMesh.getFirstIndex() : 0;
+	}
+
+	/**
+	 * Gets the builder the model was loaded from.
+	 *
+	 * @return The models builder.
+	 */
+	protected ModelBuilder getBuilder() {
+		return builder;
+	}
+
+	/**
+	 * Gets the last model cache frame the model was drawn in.
+	 *
+	 * @return The last used frame.
+	 */
+	public long getLastUsedFrame() {
+		return lastUsedFrame;
+	}
+
+	protected void setLastUsedFrame(long lastUsedFrame) {
+		this.lastUsedFrame = lastUsedFrame;
+	}
+
 	@Override
 	public boolean isLoaded() {
 		return super.isLoaded() && vaoID != -1 && vaoLength != -1;
@@ -135,9 +309,15 @@ public class ModelObject extends FactoryObject { // TODO: Document more!
 	 * Deletes the model from OpenGL memory.
 	 */
 	public void delete() {
+		ByteBuffer data = takeInterleavedData();
+
+		if (data != null) {
+			FlounderLoader.releaseBuffer(data);
+		}
+
 		if (isLoaded()) {
 			setFullyLoaded(false);
-			FlounderProcessors.sendRequest(new ModelDeleteRequest(this));
+			FlounderRenderer.sendRequest(new ModelDeleteRequest(this));
 
 			this.vertices = null;
 			this.textures = null;
@@ -0,0 +1,228 @@
+package flounder.models;
+
+import flounder.physics.*;
+
+import java.nio.*;
+
+/**
+ * A CPU side encoder used to pack model vertex attributes into smaller GPU formats.
+ * Texture coords are stored as half floats, normals and tangents as signed normalized 10_10_10_2 integers, and positions optionally as unsigned normalized shorts relative to the models AABB.
+ */
+public class VertexPacker {
+	/**
+	 * The number of bytes used by a packed position (3 shorts padded to 4 for alignment).
+	 */
+	public static final int POSITION_QUANTIZED_BYTES = 8;
+
+	/**
+	 * The number of bytes used by a packed texture coord.
+	 */
+	public static final int TEXTURE_PACKED_BYTES = 4;
+
+	/**
+	 * The number of bytes used by a packed normal or tangent.
+	 */
+	public static final int DIRECTION_PACKED_BYTES = 4;
+
+	private static final int UNORM16_MAX = 65535;
+	private static final int SNORM10_MAX = 511;
+
+	/**
+	 * Converts a float into a IEEE 754 half float, rounding to the nearest even value.
+	 *
+	 * @param value The float to convert.
+	 *
+	 * @return The half float bits.
+	 */
+	public static short toHalfFloat(float value) {
+		int bits = Float.floatToIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = (bits >>> 23) & 0xFF;
+		int mantissa = bits & 0x007FFFFF;
+
+		// NaN and infinity.
+		if (exponent == 0xFF) {
+			return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x0200 : 0));
+		}
+
+		int halfExponent = exponent - 127 + 15;
+
+		// Overflows to infinity.
+		if (halfExponent >= 0x1F) {
+			return (short) (sign | 0x7C00);
+		}
+
+		// Underflows to a sub-normal or zero.
+		if (halfExponent <= 0) {
+			if (halfExponent < -10) {
+				return (short) sign;
+			}
+
+			mantissa |= 0x00800000;
+			int shift = 14 - halfExponent;
+			int half = mantissa >> shift;
+			int remainder = mantissa & ((1 << shift) - 1);
+			int halfway = 1 << (shift - 1);
+
+			if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+				half++;
+			}
+
+			return (short) (sign | half);
+		}
+
+		int half = (halfExponent << 10) | (mantissa >> 13);
+		int remainder = mantissa & 0x1FFF;
+
+		// Rounding may carry into the exponent, which correctly produces the next power of two (or infinity).
+		if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+			half++;
+		}
+
+		return (short) (sign | half);
+	}
+
+	/**
+	 * Converts a IEEE 754 half float back into a float.
+	 *
+	 * @param half The half float bits.
+	 *
+	 * @return The float value.
+	 */
+	public static float fromHalfFloat(short half) {
+		int bits = half & 0xFFFF;
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1F;
+		int mantissa = bits & 0x03FF;
+
+		if (exponent == 0) {
+			if (mantissa == 0) {
+				return Float.intBitsToFloat(sign);
+			}
+
+			// Normalizes the sub-normal.
+			exponent = 1;
+
+			while ((mantissa & 0x0400) == 0) {
+				mantissa <<= 1;
+				exponent--;
+			}
+
+			mantissa &= 0x03FF;
+		} else if (exponent == 0x1F) {
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+		}
+
+		return Float.intBitsToFloat(sign | ((exponent + 127 - 15) << 23) | (mantissa << 13));
+	}
+
+	/**
+	 * Packs a direction into the layout used by {@code GL_INT_2_10_10_10_REV}. Components are clamped to [-1, 1].
+	 *
+	 * @param x The x component, stored in the lowest 10 bits.
+	 * @param y The y component.
+	 * @param z The z component.
+	 * @param w The w component, stored in the highest 2 bits.
+	 *
+	 * @return The packed integer.
+	 */
+	public static int packSnorm1010102(float x, float y, float z, float w) {
+		int px = Math.round(clamp(x, -1.0f, 1.0f) * SNORM10_MAX) & 0x3FF;
+		int py = Math.round(clamp(y, -1.0f, 1.0f) * SNORM10_MAX) & 0x3FF;
+		int pz = Math.round(clamp(z, -1.0f, 1.0f) * SNORM10_MAX) & 0x3FF;
+		int pw = Math.round(clamp(w, -1.0f, 1.0f)) & 0x3;
+		return px | (py << 10) | (pz << 20) | (pw << 30);
+	}
+
+	/**
+	 * Unpacks a single component from a {@code GL_INT_2_10_10_10_REV} integer.
+	 *
+	 * @param packed The packed integer.
+	 * @param component The component to get, 0 to 3 for x, y, z, w.
+	 *
+	 * @return The unpacked value in [-1, 1].
+	 */
+	public static float unpackSnorm1010102(int packed, int component) {
+		if (component == 3) {
+			return Math.max(packed >> 30, -1);
+		}
+
+		int value = (packed << (22 - component * 10)) >> 22;
+		return Math.max((float) value / SNORM10_MAX, -1.0f);
+	}
+
+	/**
+	 * Quantizes a value into a unsigned normalized short within a range.
+	 *
+	 * @param value The value to quantize, will be clamped into the range.
+	 * @param min The range minimum.
+	 * @param max The range maximum.
+	 *
+	 * @return The quantized short.
+	 */
+	public static short quantizeUnorm16(float value, float min, float max) {
+		float range = max - min;
+
+		if (range <= 0.0f) {
+			return 0;
+		}
+
+		float normalized = clamp((value - min) / range, 0.0f, 1.0f);
+		return (short) Math.round(normalized * UNORM16_MAX);
+	}
+
+	/**
+	 * Restores a value from a unsigned normalized short within a range.
+	 *
+	 * @param quantized The quantized short.
+	 * @param min The range minimum.
+	 * @param max The range maximum.
+	 *
+	 * @return The restored value.
+	 */
+	public static float dequantizeUnorm16(short quantized, float min, float max) {
+		return min + ((quantized & 0xFFFF) / (float) UNORM16_MAX) * (max - min);
+	}
+
+	/**
+	 * Puts a position as unsigned normalized shorts relative to a AABB. Shaders restore the position with {@code min + position * (max - min)}.
+	 *
+	 * @param buffer The buffer to put 4 shorts into (the last is padding).
+	 * @param positions The positions, 3 floats per vertex.
+	 * @param vertex The vertex to put.
+	 * @param aabb The bounds enclosing all positions.
+	 */
+	public static void putQuantizedPosition(ByteBuffer buffer, float[] positions, int vertex, AABB aabb) {
+		buffer.putShort(quantizeUnorm16(positions[vertex * 3], aabb.getMinExtents().x, aabb.getMaxExtents().x));
+		buffer.putShort(quantizeUnorm16(positions[vertex * 3 + 1], aabb.getMinExtents().y, aabb.getMaxExtents().y));
+		buffer.putShort(quantizeUnorm16(positions[vertex * 3 + 2], aabb.getMinExtents().z, aabb.getMaxExtents().z));
+		buffer.putShort((short) 0);
+	}
+
+	/**
+	 * Puts a texture coord as half floats.
+	 *
+	 * @param buffer The buffer to put 2 half floats into.
+	 * @param textures The texture coords, 2 floats per vertex.
+	 * @param vertex The vertex to put.
+	 */
+	public static void putHalfTexture(ByteBuffer buffer, float[] textures, int vertex) {
+		buffer.putShort(toHalfFloat(textures[vertex * 2]));
+		buffer.putShort(toHalfFloat(textures[vertex * 2 + 1]));
+	}
+
+	/**
+	 * Puts a normal or tangent as a signed normalized 10_10_10_2 integer.
+	 *
+	 * @param buffer The buffer to put 1 integer into.
+	 * @param directions The directions, 3 floats per vertex.
+	 * @param vertex The vertex to put.
+	 */
+	public static void putPackedDirection(ByteBuffer buffer, float[] directions, int vertex) {
+		buffer.putInt(packSnorm1010102(directions[vertex * 3], directions[vertex * 3 + 1], directions[vertex * 3 + 2], 0.0f));
+	}
+
+	private static float clamp(float value, float min, float max) {
+		return value < min ? min : value > max ? max : value;
+	}
+}
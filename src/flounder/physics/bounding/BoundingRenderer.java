@@ -13,6 +13,8 @@ import flounder.renderer.*;
 import flounder.resources.*;
 import flounder.shaders.*;
 
+import java.util.*;
+
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL20.*;
 
@@ -23,13 +25,17 @@ public class BoundingRenderer extends Renderer {
 	private static final MyFile VERTEX_SHADER = new MyFile(FlounderShaders.SHADERS_LOC, "bounding", "boundingVertex.glsl");
 	private static final MyFile FRAGMENT_SHADER = new MyFile(FlounderShaders.SHADERS_LOC, "bounding", "boundingFragment.glsl");
 
+	private static final String SNAPSHOT_KEY = "bounding";
+
 	private static Vector3f POSITION_REUSABLE = new Vector3f();
 	private static Vector3f ROTATION_REUSABLE = new Vector3f();
 	private static Vector3f SCALE_REUSABLE = new Vector3f();
-	private static Matrix4f MODEL_MATRIX_REUSABLE = new Matrix4f();
-	private static Colour COLOUR_REUSABLE = new Colour();
 
 	private ShaderObject shader;
+	private UniformVec4 clipPlane;
+	private UniformVec3 positionOffset;
+	private UniformVec3 positionScale;
+	private InstancedBatcher batcher;
 	private boolean lastWireframe;
 
 	/**
@@ -37,37 +43,61 @@ public class BoundingRenderer extends Renderer {
 	 */
 	public BoundingRenderer() {
 		shader = ShaderFactory.newBuilder().setName("bounding").addType(new ShaderType(GL_VERTEX_SHADER, VERTEX_SHADER)).addType(new ShaderType(GL_FRAGMENT_SHADER, FRAGMENT_SHADER)).create();
+		clipPlane = shader.handleVec4("clipPlane");
+		positionOffset = shader.handleVec3("positionOffset");
+		positionScale = shader.handleVec3("positionScale");
+		batcher = new InstancedBatcher(4);
 		lastWireframe = false;
+
+		FlounderRenderer.registerSnapshotItem(SNAPSHOT_KEY, BoundingRenderer::capture);
+	}
+
+	/**
+	 * Copies the transforms and colours of the shapes of the frame being updated, the render thread draws the copies while the shapes move for the next frame.
+	 */
+	private static List<ShapeDraw> capture() {
+		List<ShapeDraw> draws = new ArrayList<>();
+
+		if (!FlounderBounding.renders() || FlounderBounding.getRenderShapes() == null) {
+			return draws;
+		}
+
+		for (Map.Entry<ModelObject, List<IBounding>> entry : FlounderBounding.getRenderShapes().entrySet()) {
+			if (entry.getKey().isLoaded()) {
+				for (IBounding shape : entry.getValue()) {
+					draws.add(captureShape(entry.getKey(), shape));
+				}
+			}
+		}
+
+		return Collections.unmodifiableList(draws);
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public void renderObjects(Vector4f clipPlane, Camera camera) {
-		if (!shader.isLoaded() || !FlounderBounding.renders() || FlounderBounding.getRenderShapes() == null) {
+		List<ShapeDraw> draws = (List<ShapeDraw>) FlounderRenderer.getFrameItem(SNAPSHOT_KEY);
+
+		if (!shader.isLoaded() || draws == null || draws.isEmpty()) {
 			return;
 		}
 
 		prepareRendering(clipPlane, camera);
 
-		for (ModelObject model : FlounderBounding.getRenderShapes().keySet()) {
-			if (model.isLoaded()) {
-				prepareModel(model);
-
-				for (IBounding shape : FlounderBounding.getRenderShapes().get(model)) {
-					renderShape(model, shape);
-				}
-
-				unbindModel();
+		for (ShapeDraw draw : draws) {
+			if (draw.model.isLoaded()) {
+				batcher.add(draw.model, draw.transform, draw.colour);
 			}
 		}
 
+		batcher.render(GL_TRIANGLES, this::prepareModel, 0, 1, 2, 3);
 		endRendering();
 	}
 
 	private void prepareRendering(Vector4f clipPlane, Camera camera) {
 		shader.start();
-		shader.getUniformMat4("projectionMatrix").loadMat4(camera.getProjectionMatrix());
-		shader.getUniformMat4("viewMatrix").loadMat4(camera.getViewMatrix());
-		shader.getUniformVec4("clipPlane").loadVec4(clipPlane);
+		FlounderRenderer.bindFrame(shader, camera);
+		this.clipPlane.loadVec4(clipPlane);
 
 		lastWireframe = OpenGlUtils.isInWireframe();
 
@@ -78,30 +108,20 @@ public class BoundingRenderer extends Renderer {
 	}
 
 	private void prepareModel(ModelObject model) {
-		OpenGlUtils.bindVAO(model.getVaoID(), 0, 1, 2, 3);
+		positionOffset.loadVec3(model.getPositionOffset());
+		positionScale.loadVec3(model.getPositionScale());
 	}
 
-	private void renderShape(ModelObject model, IBounding shape) {
-		if (model == null || !model.isLoaded()) {
-			return;
-		}
-
+	private static ShapeDraw captureShape(ModelObject model, IBounding shape) {
 		POSITION_REUSABLE.set(0.0f, 0.0f, 0.0f);
 		ROTATION_REUSABLE.set(0.0f, 0.0f, 0.0f);
 		SCALE_REUSABLE.set(0.0f, 0.0f, 0.0f);
-		MODEL_MATRIX_REUSABLE.setIdentity();
-		COLOUR_REUSABLE.set(0.0f, 0.0f, 0.0f);
-
-		Matrix4f.transformationMatrix(shape.getRenderCentre(POSITION_REUSABLE), ROTATION_REUSABLE, shape.getRenderScale(SCALE_REUSABLE), MODEL_MATRIX_REUSABLE);
 
-		shader.getUniformMat4("modelMatrix").loadMat4(MODEL_MATRIX_REUSABLE);
-		shader.getUniformVec3("colour").loadVec3(shape.getRenderColour(COLOUR_REUSABLE));
+		// Each draw keeps its own matrix and colour, as the snapshot is drawn while the next frame is captured.
+		Matrix4f transform = new Matrix4f();
+		Matrix4f.transformationMatrix(shape.getRenderCentre(POSITION_REUSABLE), ROTATION_REUSABLE, shape.getRenderScale(SCALE_REUSABLE), transform);
 
-		glDrawElements(GL_TRIANGLES, model.getVaoLength(), GL_UNSIGNED_INT, 0);
-	}
-
-	private void unbindModel() {
-		OpenGlUtils.unbindVAO(0, 1, 2, 3);
+		return new ShapeDraw(model, transform, shape.getRenderColour(new Colour()));
 	}
 
 	private void endRendering() {
@@ -112,10 +132,29 @@ public class BoundingRenderer extends Renderer {
 	@Override
 	public void profile() {
 		FlounderProfiler.add(FlounderBounding.PROFILE_TAB_NAME, "Render Time", super.getRenderTime());
+		FlounderProfiler.add(FlounderBounding.PROFILE_TAB_NAME, "Draws", batcher.getDraws());
+		FlounderProfiler.add(FlounderBounding.PROFILE_TAB_NAME, "Instances", batcher.getInstances());
 	}
 
 	@Override
 	public void dispose() {
+		FlounderRenderer.removeSnapshotItem(SNAPSHOT_KEY);
 		shader.delete();
+		batcher.delete();
+	}
+
+	/**
+	 * A shape copied into a frame snapshot.
+	 */
+	private static class ShapeDraw {
+		private final ModelObject model;
+		private final Matrix4f transform;
+		private final Colour colour;
+
+		private ShapeDraw(ModelObject model, Matrix4f transform, Colour colour) {
+			this.model = model;
+			this.transform = transform;
+			this.colour = colour;
+		}
 	}
-}
\ No newline at end of file
+}
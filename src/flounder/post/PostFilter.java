@@ -3,6 +3,9 @@ package flounder.post;
 import flounder.fbos.*;
 import flounder.helpers.*;
 import flounder.loaders.*;
+import flounder.maths.*;
+import flounder.profiling.*;
+import flounder.renderer.*;
 import flounder.resources.*;
 import flounder.shaders.*;
 
@@ -22,6 +25,9 @@ public abstract class PostFilter {
 	public ShaderObject shader;
 	public FBO fbo;
 
+	private GpuTimer gpuTimer;
+	private Timer timerProfile;
+
 	public PostFilter(String filterName, MyFile fragmentShader) {
 		this(ShaderFactory.newBuilder().setName(filterName).addType(new ShaderType(GL_VERTEX_SHADER, VERTEX_LOCATION)).addType(new ShaderType(GL_FRAGMENT_SHADER, fragmentShader)).create(), FBO.newFBO(1.0f).create());
 	}
@@ -33,6 +39,8 @@ public abstract class PostFilter {
 	public PostFilter(ShaderObject shader, FBO fbo) {
 		this.shader = shader;
 		this.fbo = fbo;
+		this.gpuTimer = new GpuTimer(shader.getName());
+		this.timerProfile = new Timer(1.0 / 5.0);
 	}
 
 	/**
@@ -47,6 +55,7 @@ public abstract class PostFilter {
 
 		boolean lastWireframe = OpenGlUtils.isInWireframe();
 
+		gpuTimer.begin();
 		fbo.bindFrameBuffer();
 		OpenGlUtils.prepareNewRenderParse(1.0f, 1.0f, 1.0f);
 		shader.start();
@@ -63,12 +72,27 @@ public abstract class PostFilter {
 
 		glDrawArrays(GL_TRIANGLE_STRIP, 0, POSITIONS.length); // Render post filter.
 
-		OpenGlUtils.unbindVAO(0);
+		OpenGlUtils.unbindVAO();
 		OpenGlUtils.goWireframe(lastWireframe);
 		shader.stop();
 		OpenGlUtils.disableBlending();
 		OpenGlUtils.enableDepthTesting();
 		fbo.unbindFrameBuffer();
+		gpuTimer.end();
+
+		if (FlounderProfiler.isOpen() && timerProfile.isPassedTime()) {
+			gpuTimer.profile(FlounderRenderer.PROFILE_TAB_NAME);
+			timerProfile.resetStartTime();
+		}
+	}
+
+	/**
+	 * Gets the GPU time of a recent application of the filter, read a few frames after it was applied.
+	 *
+	 * @return The GPU time (in milliseconds).
+	 */
+	public double getGpuTime() {
+		return gpuTimer.getTime();
 	}
 
 	/**
@@ -82,5 +106,6 @@ public abstract class PostFilter {
 	public void dispose() {
 		fbo.delete();
 		shader.delete();
+		gpuTimer.delete();
 	}
 }
@@ -1,10 +1,21 @@
 package flounder.renderer;
 
+import flounder.camera.*;
 import flounder.devices.*;
 import flounder.framework.*;
+import flounder.helpers.*;
 import flounder.logger.*;
+import flounder.processing.*;
+import flounder.processing.opengl.*;
 import flounder.profiling.*;
 import flounder.shaders.*;
+import org.lwjgl.opengl.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import static org.lwjgl.glfw.GLFW.*;
 
 /**
  * A module used for OpenGL rendering and management.
@@ -13,59 +24,370 @@ public class FlounderRenderer extends Module {
 	private static final FlounderRenderer INSTANCE = new FlounderRenderer();
 	public static final String PROFILE_TAB_NAME = "Renderer";
 
+	public static final String FRAME_BLOCK = "FrameData";
+
 	private RendererMaster renderer;
+	private UniformBuffer frameBlock;
+	private FrameSnapshot frameSnapshot;
+	private FrameSnapshot passSnapshot;
+	private FrameSnapshot renderingSnapshot;
+	private Camera blockCamera;
+	private boolean timerQueriesSupported;
 
+	private boolean threaded = false;
 	private Thread renderThread;
+	private TripleBuffer<FrameSnapshot> snapshots;
+	private Queue<Runnable> renderTasks;
+	private final Map<String, Supplier<?>> snapshotItems;
+	private final Object renderSignal;
+	private boolean signalled;
+	private volatile RendererMaster nextRenderer;
+	private volatile boolean rendering;
+	private long frame;
+	private volatile long framesRendered;
+	private volatile long frameStateCalls;
+	private volatile long frameRedundantCalls;
+
+	/**
+	 * A function called before initialization to configure the render thread.
+	 *
+	 * @param threaded If frames are rendered on a dedicated render thread owning the OpenGL context, while the update thread builds the next frame.
+	 * The update thread hands each frame over as a {@link FrameSnapshot}, OpenGL work from other threads must be sent with {@link #runOnRenderThread(Runnable)} or {@link #sendRequest(RequestOpenGL)}.
+	 */
+	public static void setupThreaded(boolean threaded) {
+		INSTANCE.threaded = threaded;
+	}
 
 	/**
 	 * Creates a new OpenGL renderer manager.
 	 */
 	public FlounderRenderer() {
 		super(ModuleUpdate.UPDATE_RENDER, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderDisplay.class, FlounderShaders.class);
+
+		// Created with the instance, so modules can register their snapshot items before the renderer is initialized.
+		this.snapshotItems = new ConcurrentHashMap<>();
+		this.renderSignal = new Object();
 	}
 
 	@Override
 	public void init() {
 		this.renderer = null;
-		this.renderThread = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				// Runs updates for the renderer.
-				if (renderer != null) {
-					renderer.render();
-				}
-			}
-		});
-		this.renderThread.setName("rendering");
+		this.frameBlock = new UniformBuffer(FRAME_BLOCK, new Std140Layout()
+				.addMat4("projectionMatrix")
+				.addMat4("viewMatrix")
+				.addVec3("cameraPosition")
+		);
+		this.frameSnapshot = new FrameSnapshot();
+		this.passSnapshot = new FrameSnapshot();
+		this.renderingSnapshot = null;
+		this.blockCamera = null;
+		this.snapshots = new TripleBuffer<>(FrameSnapshot::new);
+		this.renderTasks = new ConcurrentLinkedQueue<>();
+		this.nextRenderer = null;
+		this.frame = 0;
+		this.framesRendered = 0;
+
+		// Capabilities are only readable from the OpenGL thread, timers check this flag instead.
+		this.timerQueriesSupported = GL.getCapabilities().OpenGL33 || GL.getCapabilities().GL_ARB_timer_query;
+
+		if (threaded) {
+			// The render thread takes the OpenGL context, it can only be current on one thread at a time.
+			glfwMakeContextCurrent(0);
+			this.rendering = true;
+			this.renderThread = new Thread(this::runRenderThread, "rendering");
+			this.renderThread.start();
+		}
 	}
 
 	@Override
 	public void update() {
 		// Gets a new renderer, if available.
-		RendererMaster newRenderer = (RendererMaster) getExtensionMatch(renderer, RendererMaster.class, true);
+		RendererMaster newRenderer = (RendererMaster) getExtensionMatch(threaded ? nextRenderer : renderer, RendererMaster.class, true);
+
+		if (threaded) {
+			if (newRenderer != null) {
+				nextRenderer = newRenderer;
+			}
+
+			// Captures the frame for the render thread, which renders it while the next frame is updated.
+			FrameSnapshot snapshot = snapshots.getWriteSlot();
+			snapshot.capture(FlounderCamera.getCamera(), frame++);
+			captureItems(snapshot);
+			snapshots.publish();
+			signalRenderThread();
+			return;
+		}
 
 		// If there is a new renderer, disable the old one and start to use the new one.
 		if (newRenderer != null) {
+			switchRenderer(newRenderer);
+		}
+
+		frameSnapshot.capture(FlounderCamera.getCamera(), frame++);
+		captureItems(frameSnapshot);
+		beginFrame(frameSnapshot);
+
+		// Runs updates for the renderer.
+		if (renderer != null) {
+			renderer.render();
+		}
+
+		endFrame();
+	}
+
+	private void switchRenderer(RendererMaster newRenderer) {
+		if (renderer != null) {
+			renderer.dispose();
+			renderer.setInitialized(false);
+		}
+
+		if (!newRenderer.isInitialized()) {
+			newRenderer.init();
+			newRenderer.setInitialized(true);
+		}
+
+		renderer = newRenderer;
+	}
+
+	/**
+	 * Renders each newly published frame snapshot on the render thread, sleeping until the update thread publishes another.
+	 */
+	private void runRenderThread() {
+		glfwMakeContextCurrent(FlounderDisplay.getWindow());
+		GL.createCapabilities(true);
+		OpenGlUtils.invalidateState();
+
+		while (rendering) {
+			awaitSignal();
+			runRenderTasks();
+
+			if (!snapshots.acquire()) {
+				continue;
+			}
+
+			RendererMaster next = nextRenderer;
+
+			if (next != null && next != renderer) {
+				switchRenderer(next);
+			}
+
+			beginFrame(snapshots.getReadSlot());
+
 			if (renderer != null) {
-				renderer.dispose();
-				renderer.setInitialized(false);
+				renderer.render();
 			}
 
-			if (!newRenderer.isInitialized()) {
-				newRenderer.init();
-				newRenderer.setInitialized(true);
+			FlounderDisplay.swapBuffers();
+			endFrame();
+		}
+
+		// Runs the work sent while stopping, then gives the context back to the update thread for the other modules to dispose with.
+		runRenderTasks();
+		disposeRenderer();
+		glfwMakeContextCurrent(0);
+		GL.setCapabilities(null);
+	}
+
+	/**
+	 * Copies the registered items into a snapshot, each is built from the state of the frame being updated.
+	 */
+	private void captureItems(FrameSnapshot snapshot) {
+		for (Map.Entry<String, Supplier<?>> entry : snapshotItems.entrySet()) {
+			snapshot.putItem(entry.getKey(), entry.getValue().get());
+		}
+	}
+
+	/**
+	 * Wakes the render thread, for a published frame, queued work or stopping.
+	 */
+	private void signalRenderThread() {
+		synchronized (renderSignal) {
+			signalled = true;
+			renderSignal.notifyAll();
+		}
+	}
+
+	/**
+	 * Blocks the render thread until it is signalled, signals sent while it was rendering are not lost.
+	 */
+	private void awaitSignal() {
+		synchronized (renderSignal) {
+			while (!signalled && rendering) {
+				try {
+					renderSignal.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
 			}
 
-			renderer = newRenderer;
+			signalled = false;
+		}
+	}
+
+	/**
+	 * Fills the shared per frame uniform block from a snapshot once, before any renderer draws.
+	 */
+	private void beginFrame(FrameSnapshot snapshot) {
+		renderingSnapshot = snapshot;
+		blockCamera = snapshot.getCamera();
+
+		if (FlounderShaders.isUniformBuffersSupported()) {
+			snapshot.apply(frameBlock);
+			frameBlock.update();
 		}
+	}
 
-		// Runs updates for the renderer.
-		renderThread.run();
+	/**
+	 * Counts a rendered frame, and keeps the OpenGL state calls it made for the profiler.
+	 */
+	private void endFrame() {
+		frameStateCalls = OpenGlUtils.getStateCalls();
+		frameRedundantCalls = OpenGlUtils.getRedundantCalls();
+		OpenGlUtils.resetCallCounters();
+		framesRendered++;
+	}
+
+	private void runRenderTasks() {
+		Runnable task;
+
+		while ((task = renderTasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Runs OpenGL work on the thread owning the OpenGL context. With a render thread the work is queued and run before the next frame is rendered,
+	 * otherwise, or when called from the render thread itself, it is run straight away.
+	 *
+	 * @param task The OpenGL work.
+	 */
+	public static void runOnRenderThread(Runnable task) {
+		if (INSTANCE.threaded && INSTANCE.rendering && Thread.currentThread() != INSTANCE.renderThread) {
+			INSTANCE.renderTasks.add(task);
+			INSTANCE.signalRenderThread();
+		} else {
+			task.run();
+		}
+	}
+
+	/**
+	 * Sends a OpenGL request to the thread owning the OpenGL context. With a render thread the request is run before the next frame is rendered,
+	 * otherwise it is sent to the OpenGL processor.
+	 *
+	 * @param request The OpenGL request.
+	 */
+	public static void sendRequest(RequestOpenGL request) {
+		if (INSTANCE.threaded && INSTANCE.rendering) {
+			runOnRenderThread(request::executeRequestGL);
+		} else {
+			FlounderProcessors.sendRequest(request);
+		}
+	}
+
+	/**
+	 * Registers a item copied into each frame snapshot, such as the draws of a renderer. The item is built on the update thread after the modules have updated,
+	 * and must not be changed once it is returned, as the render thread may still be drawing it while the next frame is updated.
+	 *
+	 * @param key The items key, usually the name of the renderer reading it.
+	 * @param capture Builds the item from the state of the frame being updated.
+	 */
+	public static void registerSnapshotItem(String key, Supplier<?> capture) {
+		INSTANCE.snapshotItems.put(key, capture);
+	}
+
+	/**
+	 * Stops copying a item into the frame snapshots, used when the renderer reading it is disposed.
+	 *
+	 * @param key The items key.
+	 */
+	public static void removeSnapshotItem(String key) {
+		INSTANCE.snapshotItems.remove(key);
+	}
+
+	/**
+	 * Gets a item of the frame being rendered, renderers read their draws from this instead of the state the update thread is changing.
+	 *
+	 * @param key The items key.
+	 *
+	 * @return The item, or null if none was captured for this frame.
+	 */
+	public static Object getFrameItem(String key) {
+		FrameSnapshot snapshot = INSTANCE.renderingSnapshot;
+		return snapshot == null ? null : snapshot.getItem(key);
+	}
+
+	/**
+	 * Gets if the GPU time of passes can be measured.
+	 *
+	 * @return If GL_ARB_timer_query is supported.
+	 */
+	public static boolean isTimerQueriesSupported() {
+		return INSTANCE.timerQueriesSupported;
+	}
+
+	/**
+	 * Gets if frames are rendered on a dedicated render thread.
+	 *
+	 * @return If the renderer is threaded.
+	 */
+	public static boolean isThreaded() {
+		return INSTANCE.threaded;
+	}
+
+	/**
+	 * Loads the camera of a pass into a started shader that includes {@code frame.glsl}, called by renderers after starting their shader.
+	 * The frame block holds the main camera of the frame, it is only rewritten when a pass renders from another camera (such as a reflection) and back again.
+	 * When uniform buffers are not supported the block is declared as plain uniforms, which are loaded into the shader instead.
+	 *
+	 * @param shader The started shader.
+	 * @param camera The camera of the pass, may be null to use the main camera.
+	 */
+	public static void bindFrame(ShaderObject shader, Camera camera) {
+		FrameSnapshot frameSnapshot = INSTANCE.renderingSnapshot;
+
+		if (frameSnapshot == null) {
+			return;
+		}
+
+		FrameSnapshot snapshot = frameSnapshot;
+
+		if (camera != null && camera != frameSnapshot.getCamera()) {
+			snapshot = INSTANCE.passSnapshot;
+			snapshot.capture(camera, frameSnapshot.getFrame());
+		}
+
+		if (!FlounderShaders.isUniformBuffersSupported()) {
+			snapshot.load(shader);
+		} else if (snapshot != frameSnapshot || INSTANCE.blockCamera != frameSnapshot.getCamera()) {
+			snapshot.apply(INSTANCE.frameBlock);
+			INSTANCE.frameBlock.update();
+			INSTANCE.blockCamera = snapshot.getCamera();
+		}
+	}
+
+	/**
+	 * Gets the per frame uniform block shared by every shader that includes {@code frame.glsl}.
+	 *
+	 * @return The frame uniform buffer.
+	 */
+	public static UniformBuffer getFrameBlock() {
+		return INSTANCE.frameBlock;
 	}
 
 	@Override
 	public void profile() {
-		FlounderProfiler.add(PROFILE_TAB_NAME, "Selected", renderer == null ? "NULL" : renderer.getClass());
+		RendererMaster selected = threaded ? nextRenderer : renderer;
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Selected", selected == null ? "NULL" : selected.getClass());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Threaded", threaded);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Frames Rendered", framesRendered);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "GL State Calls", frameStateCalls);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "GL Redundant Calls Skipped", frameRedundantCalls);
+
+		if (threaded) {
+			// Frames published faster than they are rendered are replaced before the render thread takes them.
+			FlounderProfiler.add(PROFILE_TAB_NAME, "Frames Skipped", snapshots.getPublished() - framesRendered);
+		}
 	}
 
 	/**
@@ -84,10 +406,40 @@ public class FlounderRenderer extends Module {
 
 	@Override
 	public void dispose() {
+		if (threaded) {
+			rendering = false;
+			signalRenderThread();
+
+			try {
+				renderThread.join();
+			} catch (InterruptedException e) {
+				FlounderLogger.exception(e);
+			}
+
+			glfwMakeContextCurrent(FlounderDisplay.getWindow());
+			GL.createCapabilities(true);
+			OpenGlUtils.invalidateState();
+
+			// Work sent after the render thread took its last tasks is run here, now the update thread owns the context again.
+			runRenderTasks();
+			return;
+		}
+
+		disposeRenderer();
+	}
+
+	/**
+	 * Disposes the renderer and the frame block on the thread owning the OpenGL context.
+	 */
+	private void disposeRenderer() {
 		// Disposes the renderer with the module.
 		if (renderer != null) {
 			renderer.dispose();
 			renderer.setInitialized(false);
 		}
+
+		// Renderers the master only disposed still hold their timer queries.
+		GpuTimer.deleteAll();
+		frameBlock.delete();
 	}
 }
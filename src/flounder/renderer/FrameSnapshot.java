@@ -0,0 +1,140 @@
+package flounder.renderer;
+
+import flounder.camera.*;
+import flounder.maths.matrices.*;
+import flounder.shaders.*;
+
+import java.util.*;
+
+/**
+ * A copy of the scene state a frame is rendered from, captured by the update thread so the render thread never reads state the update thread is changing.
+ * Snapshots are reused between frames, a snapshot is only written by the thread owning it in its {@link TripleBuffer} and is unchanged while it is rendered.
+ */
+public class FrameSnapshot {
+	private final Matrix4f projectionMatrix;
+	private final Matrix4f viewMatrix;
+	private final float[] cameraPosition;
+	private Camera camera;
+
+	private final Map<String, Object> items;
+	private long frame;
+
+	/**
+	 * Creates a new empty frame snapshot.
+	 */
+	public FrameSnapshot() {
+		this.projectionMatrix = new Matrix4f();
+		this.viewMatrix = new Matrix4f();
+		this.cameraPosition = new float[3];
+		this.items = new HashMap<>();
+	}
+
+	/**
+	 * Copies the camera into this snapshot, and clears the items of the last frame it held.
+	 *
+	 * @param camera The camera to render from, may be null.
+	 * @param frame The number of the frame.
+	 */
+	public void capture(Camera camera, long frame) {
+		this.camera = camera;
+
+		if (camera != null) {
+			projectionMatrix.set(camera.getProjectionMatrix());
+			viewMatrix.set(camera.getViewMatrix());
+			cameraPosition[0] = camera.getPosition().x;
+			cameraPosition[1] = camera.getPosition().y;
+			cameraPosition[2] = camera.getPosition().z;
+		}
+
+		items.clear();
+		this.frame = frame;
+	}
+
+	/**
+	 * Writes this snapshot into the per frame uniform block, the block is uploaded by its next update.
+	 *
+	 * @param block The frame uniform block.
+	 */
+	public void apply(UniformBuffer block) {
+		if (camera != null) {
+			block.setMat4("projectionMatrix", projectionMatrix);
+			block.setMat4("viewMatrix", viewMatrix);
+			block.setVec3("cameraPosition", 0, cameraPosition[0], cameraPosition[1], cameraPosition[2]);
+		}
+	}
+
+	/**
+	 * Loads this snapshot into the plain uniforms a started shader has in place of the frame block, used when uniform buffers are not supported.
+	 *
+	 * @param shader The started shader.
+	 */
+	public void load(ShaderObject shader) {
+		if (camera == null) {
+			return;
+		}
+
+		UniformMat4 projection = shader.getUniformMat4("projectionMatrix");
+		UniformMat4 view = shader.getUniformMat4("viewMatrix");
+		UniformVec3 position = shader.getUniformVec3("cameraPosition");
+
+		if (projection != null) {
+			projection.loadMat4(projectionMatrix);
+		}
+
+		if (view != null) {
+			view.loadMat4(viewMatrix);
+		}
+
+		if (position != null) {
+			position.loadVec3(cameraPosition[0], cameraPosition[1], cameraPosition[2]);
+		}
+	}
+
+	/**
+	 * Adds a item to the snapshot, such as a list of visible draws, for a renderer to read on the render thread.
+	 * The item must not be changed by the update thread after the snapshot is published.
+	 *
+	 * @param key The items key, usually the name of the renderer reading it.
+	 * @param item The item.
+	 */
+	public void putItem(String key, Object item) {
+		items.put(key, item);
+	}
+
+	/**
+	 * Gets a item added to the snapshot.
+	 *
+	 * @param key The items key.
+	 *
+	 * @return The item, or null if none was added this frame.
+	 */
+	public Object getItem(String key) {
+		return items.get(key);
+	}
+
+	public Matrix4f getProjectionMatrix() {
+		return projectionMatrix;
+	}
+
+	public Matrix4f getViewMatrix() {
+		return viewMatrix;
+	}
+
+	/**
+	 * Gets the camera the snapshot was captured from.
+	 *
+	 * @return The camera, or null if there was none.
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+
+	/**
+	 * Gets the number of the frame the snapshot was captured for.
+	 *
+	 * @return The frame number.
+	 */
+	public long getFrame() {
+		return frame;
+	}
+}
@@ -0,0 +1,23 @@
+package flounder.renderer;
+
+import flounder.helpers.*;
+
+/**
+ * A render backend making its state changes with OpenGL through {@link OpenGlUtils}, must be used on the OpenGL thread.
+ */
+public class GlRenderBackend implements RenderBackend {
+	@Override
+	public void bindProgram(int programID) {
+		OpenGlUtils.useProgram(programID);
+	}
+
+	@Override
+	public void bindVertexArray(int vaoID) {
+		OpenGlUtils.bindVertexArray(vaoID);
+	}
+
+	@Override
+	public void bindTexture(int unit, int target, int textureID) {
+		OpenGlUtils.bindTexture(textureID, target, unit);
+	}
+}
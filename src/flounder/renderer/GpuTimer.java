@@ -0,0 +1,186 @@
+package flounder.renderer;
+
+import flounder.profiling.*;
+import org.lwjgl.opengl.*;
+
+import java.util.*;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Measures the time the GPU spends on a pass with {@code GL_TIME_ELAPSED} queries. The GPU runs behind the CPU, so each frame begins a new query
+ * from a ring and the results are read frames later once they are available, never waiting on the GPU.
+ * Only one elapsed time query can be active at a time, a pass begun inside another timed pass is not timed and counts towards the outer pass.
+ */
+public class GpuTimer {
+	private static final int RING_SIZE = 4;
+
+	private static final Map<String, Integer> NAMES = new HashMap<>();
+	private static final Set<GpuTimer> TIMERS = new HashSet<>();
+
+	private static boolean timing = false;
+
+	private final String name;
+	private int[] queries;
+	private final boolean[] pending;
+	private int next;
+	private boolean active;
+
+	private double time;
+	private int skipped;
+
+	/**
+	 * Creates a new GPU timer, the queries are created on the first {@link #begin()}.
+	 *
+	 * @param name The name of the timed pass, a number is added to the names of later timers with the same name so each is profiled separately.
+	 */
+	public GpuTimer(String name) {
+		synchronized (NAMES) {
+			int count = NAMES.merge(name, 1, Integer::sum);
+			this.name = count == 1 ? name : name + " " + count;
+		}
+
+		this.queries = null;
+		this.pending = new boolean[RING_SIZE];
+		this.next = 0;
+		this.active = false;
+		this.time = 0.0;
+		this.skipped = 0;
+	}
+
+	/**
+	 * Begins timing the OpenGL calls made until {@link #end()}, and reads the results of earlier frames that are available.
+	 */
+	public void begin() {
+		if (timing || !FlounderRenderer.isTimerQueriesSupported()) {
+			return;
+		}
+
+		if (queries == null) {
+			queries = new int[RING_SIZE];
+			glGenQueries(queries);
+
+			synchronized (TIMERS) {
+				TIMERS.add(this);
+			}
+		}
+
+		collect();
+
+		// Every query is still waiting on the GPU, this frame is not timed rather than stalling to free a query.
+		if (pending[next]) {
+			skipped++;
+			return;
+		}
+
+		glBeginQuery(ARBTimerQuery.GL_TIME_ELAPSED, queries[next]);
+		active = true;
+		timing = true;
+	}
+
+	/**
+	 * Ends timing, the result is read by a later {@link #begin()}.
+	 */
+	public void end() {
+		if (!active) {
+			return;
+		}
+
+		glEndQuery(ARBTimerQuery.GL_TIME_ELAPSED);
+		pending[next] = true;
+		next = (next + 1) % RING_SIZE;
+		active = false;
+		timing = false;
+	}
+
+	/**
+	 * Reads the pending queries from oldest to newest, stopping at the first that the GPU has not finished.
+	 */
+	private void collect() {
+		for (int i = 0; i < RING_SIZE; i++) {
+			int slot = (next + i) % RING_SIZE;
+
+			if (!pending[slot]) {
+				continue;
+			}
+
+			if (glGetQueryObjecti(queries[slot], GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) {
+				break;
+			}
+
+			time = ARBTimerQuery.glGetQueryObjectui64(queries[slot], GL_QUERY_RESULT) / 1000000.0;
+			pending[slot] = false;
+		}
+	}
+
+	/**
+	 * Adds the GPU time and skipped passes of this timer to the profiler.
+	 *
+	 * @param tabName The profiler tab.
+	 */
+	public void profile(String tabName) {
+		FlounderProfiler.add(tabName, name + " GPU ms", time);
+		FlounderProfiler.add(tabName, name + " GPU Skipped", skipped);
+	}
+
+	/**
+	 * Gets the unique name of the timer, used in its profiler keys.
+	 *
+	 * @return The timers name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the GPU time of the newest pass with a result, a few frames old.
+	 *
+	 * @return The GPU time (in milliseconds).
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the number of passes not timed because every query was still waiting on the GPU.
+	 *
+	 * @return The skipped pass count.
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Deletes the queries.
+	 */
+	public void delete() {
+		if (active) {
+			end();
+		}
+
+		if (queries != null) {
+			glDeleteQueries(queries);
+			queries = null;
+
+			synchronized (TIMERS) {
+				TIMERS.remove(this);
+			}
+		}
+
+		Arrays.fill(pending, false);
+	}
+
+	/**
+	 * Deletes the queries of every timer that has not been deleted, used when the renderer is disposed. Must be called on the OpenGL thread.
+	 */
+	protected static void deleteAll() {
+		List<GpuTimer> timers;
+
+		synchronized (TIMERS) {
+			timers = new ArrayList<>(TIMERS);
+		}
+
+		timers.forEach(GpuTimer::delete);
+	}
+}
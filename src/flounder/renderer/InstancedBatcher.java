@@ -0,0 +1,298 @@
+package flounder.renderer;
+
+import flounder.helpers.*;
+import flounder.loaders.*;
+import flounder.maths.*;
+import flounder.maths.matrices.*;
+import flounder.models.*;
+import org.lwjgl.*;
+import org.lwjgl.opengl.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.function.*;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+
+/**
+ * Collects instances of models each frame and draws every instance of a model with one instanced draw call.
+ * Each instance has a model matrix and a colour, streamed into one VBO each frame and read by the shader as per instance attributes:
+ * {@code layout(location = N) in mat4} for the matrix (taking four attributes), then {@code layout(location = N + 4) in vec3} for the colour.
+ * When instancing is not supported the instances are drawn one at a time, with the attributes set as constant values.
+ */
+public class InstancedBatcher {
+	/**
+	 * The number of floats stored for each instance, a matrix then a colour.
+	 */
+	public static final int INSTANCE_LENGTH = 16 + 3;
+
+	private final int startingAttribute;
+	private final Map<ModelObject, Batch> batches;
+	private final FloatBuffer matrixBuffer;
+	private FloatBuffer instanceBuffer;
+	private int vboID;
+
+	private int draws;
+	private int instances;
+
+	/**
+	 * Creates a new instanced batcher.
+	 *
+	 * @param startingAttribute The first attribute of the instance matrix, the matrix uses this and the next three, the colour the one after.
+	 */
+	public InstancedBatcher(int startingAttribute) {
+		this.startingAttribute = startingAttribute;
+		this.batches = new LinkedHashMap<>();
+		this.matrixBuffer = BufferUtils.createFloatBuffer(16);
+		this.instanceBuffer = null;
+		this.vboID = -1;
+	}
+
+	/**
+	 * Adds a instance of a model, drawn by the next {@link #render(int, int...)}.
+	 *
+	 * @param model The model to draw.
+	 * @param transform The instances model matrix.
+	 * @param colour The instances colour.
+	 */
+	public void add(ModelObject model, Matrix4f transform, Colour colour) {
+		Batch batch = batches.computeIfAbsent(model, m -> new Batch());
+		float[] data = batch.reserve();
+		int offset = (batch.count - 1) * INSTANCE_LENGTH;
+
+		matrixBuffer.clear();
+		transform.store(matrixBuffer);
+		matrixBuffer.flip();
+		matrixBuffer.get(data, offset, 16);
+
+		data[offset + 16] = colour.r;
+		data[offset + 17] = colour.g;
+		data[offset + 18] = colour.b;
+	}
+
+	/**
+	 * Draws every instance added since the last render, then clears the batches. The shader and other state must already be set.
+	 *
+	 * @param glMode The OpenGL primitive mode.
+	 * @param attributes The models own vertex attributes to enable.
+	 */
+	public void render(int glMode, int... attributes) {
+		render(glMode, null, attributes);
+	}
+
+	/**
+	 * Draws every instance added since the last render, then clears the batches. The shader and other state must already be set.
+	 *
+	 * @param glMode The OpenGL primitive mode.
+	 * @param prepareModel Called with each model before its instances are drawn, such as to load the models position offset and scale. May be null.
+	 * @param attributes The models own vertex attributes to enable.
+	 */
+	public void render(int glMode, Consumer<ModelObject> prepareModel, int... attributes) {
+		draws = 0;
+		instances = 0;
+
+		if (FlounderModels.isInstancingSupported()) {
+			renderInstanced(glMode, prepareModel, attributes);
+		} else {
+			renderEach(glMode, prepareModel, attributes);
+		}
+
+		OpenGlUtils.unbindVAO();
+		clear();
+	}
+
+	private void renderInstanced(int glMode, Consumer<ModelObject> prepareModel, int... attributes) {
+		int total = 0;
+
+		for (Map.Entry<ModelObject, Batch> entry : batches.entrySet()) {
+			if (entry.getKey().isLoaded()) {
+				total += entry.getValue().count;
+			}
+		}
+
+		if (total == 0) {
+			return;
+		}
+
+		upload(total);
+
+		int[] instanceAttributes = new int[attributes.length + 5];
+		System.arraycopy(attributes, 0, instanceAttributes, 0, attributes.length);
+
+		for (int i = 0; i < 5; i++) {
+			instanceAttributes[attributes.length + i] = startingAttribute + i;
+		}
+
+		// The instances of each model follow each other in the VBO, the attributes are pointed at the models range before it is drawn.
+		int first = 0;
+
+		for (Map.Entry<ModelObject, Batch> entry : batches.entrySet()) {
+			ModelObject model = entry.getKey();
+			int count = entry.getValue().count;
+
+			if (!model.isLoaded() || count == 0) {
+				continue;
+			}
+
+			OpenGlUtils.bindVAO(model.getVaoID(), instanceAttributes);
+			pointAttributes(first);
+
+			if (prepareModel != null) {
+				prepareModel.accept(model);
+			}
+
+			OpenGlUtils.renderElementsInstanced(glMode, model, count);
+			first += count;
+			draws++;
+			instances += count;
+		}
+	}
+
+	/**
+	 * Streams the instances of every loaded model into the VBO, orphaning last frames data so the upload does not wait on draws still reading it.
+	 */
+	private void upload(int total) {
+		int length = total * INSTANCE_LENGTH;
+
+		if (instanceBuffer == null || instanceBuffer.capacity() < length) {
+			int capacity = instanceBuffer == null ? length : Math.max(length, instanceBuffer.capacity() * 2);
+			instanceBuffer = BufferUtils.createFloatBuffer(capacity);
+		}
+
+		if (vboID == -1) {
+			vboID = FlounderLoader.createEmptyVBO(instanceBuffer.capacity());
+		}
+
+		instanceBuffer.clear();
+
+		for (Map.Entry<ModelObject, Batch> entry : batches.entrySet()) {
+			if (entry.getKey().isLoaded()) {
+				instanceBuffer.put(entry.getValue().data, 0, entry.getValue().count * INSTANCE_LENGTH);
+			}
+		}
+
+		instanceBuffer.flip();
+
+		glBindBuffer(GL_ARRAY_BUFFER, vboID);
+		glBufferData(GL_ARRAY_BUFFER, instanceBuffer.capacity() * 4L, GL_STREAM_DRAW);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, instanceBuffer);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+
+	private void pointAttributes(int firstInstance) {
+		int stride = INSTANCE_LENGTH * 4;
+		long offset = (long) firstInstance * stride;
+
+		glBindBuffer(GL_ARRAY_BUFFER, vboID);
+
+		for (int i = 0; i < 4; i++) {
+			glVertexAttribPointer(startingAttribute + i, 4, GL_FLOAT, false, stride, offset + i * 16);
+			ARBInstancedArrays.glVertexAttribDivisorARB(startingAttribute + i, 1);
+		}
+
+		glVertexAttribPointer(startingAttribute + 4, 3, GL_FLOAT, false, stride, offset + 64);
+		ARBInstancedArrays.glVertexAttribDivisorARB(startingAttribute + 4, 1);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Draws each instance with its own call, the instance attributes are left disabled so the shader reads the constant values set before each draw.
+	 */
+	private void renderEach(int glMode, Consumer<ModelObject> prepareModel, int... attributes) {
+		for (Map.Entry<ModelObject, Batch> entry : batches.entrySet()) {
+			ModelObject model = entry.getKey();
+			Batch batch = entry.getValue();
+
+			if (!model.isLoaded() || batch.count == 0) {
+				continue;
+			}
+
+			OpenGlUtils.bindVAO(model.getVaoID(), attributes);
+
+			if (prepareModel != null) {
+				prepareModel.accept(model);
+			}
+
+			for (int i = 0; i < batch.count; i++) {
+				int offset = i * INSTANCE_LENGTH;
+
+				for (int c = 0; c < 4; c++) {
+					int column = offset + c * 4;
+					glVertexAttrib4f(startingAttribute + c, batch.data[column], batch.data[column + 1], batch.data[column + 2], batch.data[column + 3]);
+				}
+
+				glVertexAttrib3f(startingAttribute + 4, batch.data[offset + 16], batch.data[offset + 17], batch.data[offset + 18]);
+				OpenGlUtils.renderElements(glMode, model);
+				draws++;
+			}
+
+			instances += batch.count;
+		}
+	}
+
+	/**
+	 * Removes every instance, models with no instances this frame are forgotten.
+	 */
+	public void clear() {
+		Iterator<Batch> iterator = batches.values().iterator();
+
+		while (iterator.hasNext()) {
+			Batch batch = iterator.next();
+
+			if (batch.count == 0) {
+				iterator.remove();
+			} else {
+				batch.count = 0;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of draw calls made by the last render.
+	 *
+	 * @return The draw count.
+	 */
+	public int getDraws() {
+		return draws;
+	}
+
+	/**
+	 * Gets the number of instances drawn by the last render.
+	 *
+	 * @return The instance count.
+	 */
+	public int getInstances() {
+		return instances;
+	}
+
+	/**
+	 * Deletes the instance VBO.
+	 */
+	public void delete() {
+		if (vboID != -1) {
+			glDeleteBuffers(vboID);
+			vboID = -1;
+		}
+
+		batches.clear();
+	}
+
+	/**
+	 * The instances of one model, kept between frames so the array is reused.
+	 */
+	private static class Batch {
+		private float[] data = new float[INSTANCE_LENGTH * 16];
+		private int count;
+
+		private float[] reserve() {
+			if ((count + 1) * INSTANCE_LENGTH > data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+
+			count++;
+			return data;
+		}
+	}
+}
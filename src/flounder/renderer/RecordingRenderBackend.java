@@ -0,0 +1,78 @@
+package flounder.renderer;
+
+import java.util.*;
+
+/**
+ * A render backend that records state changes instead of making them, used to check the ordering and bind elimination of a {@link RenderQueue} without OpenGL.
+ */
+public class RecordingRenderBackend implements RenderBackend {
+	private final List<String> calls;
+	private int programBinds;
+	private int vertexArrayBinds;
+	private int textureBinds;
+
+	/**
+	 * Creates a new recording render backend.
+	 */
+	public RecordingRenderBackend() {
+		this.calls = new ArrayList<>();
+	}
+
+	@Override
+	public void bindProgram(int programID) {
+		calls.add("program " + programID);
+		programBinds++;
+	}
+
+	@Override
+	public void bindVertexArray(int vaoID) {
+		calls.add("vao " + vaoID);
+		vertexArrayBinds++;
+	}
+
+	@Override
+	public void bindTexture(int unit, int target, int textureID) {
+		calls.add("texture " + unit + " " + textureID);
+		textureBinds++;
+	}
+
+	/**
+	 * Gets the recorded calls in order, such as {@code program 3}, {@code vao 7} or {@code texture 0 12}.
+	 *
+	 * @return The recorded calls.
+	 */
+	public List<String> getCalls() {
+		return calls;
+	}
+
+	public int getProgramBinds() {
+		return programBinds;
+	}
+
+	public int getVertexArrayBinds() {
+		return vertexArrayBinds;
+	}
+
+	public int getTextureBinds() {
+		return textureBinds;
+	}
+
+	/**
+	 * Gets the total number of state changes recorded.
+	 *
+	 * @return The state change count.
+	 */
+	public int getStateChanges() {
+		return programBinds + vertexArrayBinds + textureBinds;
+	}
+
+	/**
+	 * Clears the recorded calls and counts.
+	 */
+	public void reset() {
+		calls.clear();
+		programBinds = 0;
+		vertexArrayBinds = 0;
+		textureBinds = 0;
+	}
+}
@@ -0,0 +1,29 @@
+package flounder.renderer;
+
+/**
+ * The state changes a {@link RenderQueue} makes while drawing, implemented with OpenGL by {@link GlRenderBackend} and recorded by {@link RecordingRenderBackend}.
+ */
+public interface RenderBackend {
+	/**
+	 * Uses a shader program.
+	 *
+	 * @param programID The program ID.
+	 */
+	void bindProgram(int programID);
+
+	/**
+	 * Binds a vertex array.
+	 *
+	 * @param vaoID The VAO ID.
+	 */
+	void bindVertexArray(int vaoID);
+
+	/**
+	 * Binds a texture to a texture unit.
+	 *
+	 * @param unit The texture unit.
+	 * @param target The OpenGL texture type, such as {@code GL_TEXTURE_2D}.
+	 * @param textureID The texture ID.
+	 */
+	void bindTexture(int unit, int target, int textureID);
+}
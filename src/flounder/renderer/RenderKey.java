@@ -0,0 +1,89 @@
+package flounder.renderer;
+
+/**
+ * Packs the state a draw needs into a 64 bit key, so sorting a {@link RenderQueue} by key groups draws that share state.
+ * The layer is always the highest 8 bits, so layers are drawn in order. Opaque keys then sort by shader, texture, VAO and front to back depth.
+ * Translucent keys sort by depth straight after the layer, so blending happens in draw order, and only draws of equal depth are grouped by state.
+ * IDs wider than their field are wrapped, this only weakens the grouping as the queue compares the real IDs when binding.
+ */
+public class RenderKey {
+	public static final int LAYER_BITS = 8;
+	public static final int SHADER_BITS = 12;
+	public static final int TEXTURE_BITS = 16;
+	public static final int VAO_BITS = 12;
+	public static final int DEPTH_BITS = 16;
+
+	public static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+
+	private RenderKey() {
+	}
+
+	/**
+	 * Creates the key of a opaque draw.
+	 *
+	 * @param layer The layer, lower layers are drawn first.
+	 * @param shader The shaders program ID.
+	 * @param texture The texture ID, or 0 for none.
+	 * @param vao The VAO ID.
+	 * @param depth The quantized depth, from {@link #quantizeDepth(float, float, float)}.
+	 *
+	 * @return The sort key.
+	 */
+	public static long opaque(int layer, int shader, int texture, int vao, int depth) {
+		long key = field(layer, LAYER_BITS);
+		key = (key << SHADER_BITS) | field(shader, SHADER_BITS);
+		key = (key << TEXTURE_BITS) | field(texture, TEXTURE_BITS);
+		key = (key << VAO_BITS) | field(vao, VAO_BITS);
+		key = (key << DEPTH_BITS) | field(depth, DEPTH_BITS);
+		return key;
+	}
+
+	/**
+	 * Creates the key of a translucent draw.
+	 *
+	 * @param layer The layer, lower layers are drawn first.
+	 * @param depth The draw order inside the layer, such as {@link #MAX_DEPTH} minus a quantized depth to draw back to front.
+	 * @param shader The shaders program ID.
+	 * @param texture The texture ID, or 0 for none.
+	 * @param vao The VAO ID.
+	 *
+	 * @return The sort key.
+	 */
+	public static long translucent(int layer, int depth, int shader, int texture, int vao) {
+		long key = field(layer, LAYER_BITS);
+		key = (key << DEPTH_BITS) | field(Math.min(depth, MAX_DEPTH), DEPTH_BITS);
+		key = (key << SHADER_BITS) | field(shader, SHADER_BITS);
+		key = (key << TEXTURE_BITS) | field(texture, TEXTURE_BITS);
+		key = (key << VAO_BITS) | field(vao, VAO_BITS);
+		return key;
+	}
+
+	/**
+	 * Quantizes a view depth into the depth field of a key, depths outside of the range are clamped.
+	 *
+	 * @param depth The distance from the camera.
+	 * @param near The near plane distance.
+	 * @param far The far plane distance.
+	 *
+	 * @return The quantized depth, 0 at the near plane and {@link #MAX_DEPTH} at the far plane.
+	 */
+	public static int quantizeDepth(float depth, float near, float far) {
+		float scaled = (depth - near) / (far - near);
+		return (int) (Math.max(0.0f, Math.min(1.0f, scaled)) * MAX_DEPTH);
+	}
+
+	/**
+	 * Gets the layer of a key.
+	 *
+	 * @param key The sort key.
+	 *
+	 * @return The keys layer.
+	 */
+	public static int getLayer(long key) {
+		return (int) (key >>> (64 - LAYER_BITS));
+	}
+
+	private static long field(int value, int bits) {
+		return value & ((1L << bits) - 1);
+	}
+}
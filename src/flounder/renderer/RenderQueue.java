@@ -0,0 +1,254 @@
+package flounder.renderer;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A queue of draws submitted by a renderer each frame. The draws are radix sorted by their {@link RenderKey} then drawn in order,
+ * the shader, VAO and texture are only bound when they differ from the previous draw.
+ *
+ * @param <T> The type of the item drawn by each draw, given back to the renderer to set its uniforms and issue the draw call.
+ */
+public class RenderQueue<T> {
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX_SIZE = 1 << RADIX_BITS;
+	private static final RenderBackend GL_BACKEND = new GlRenderBackend();
+
+	private long[] keys;
+	private int[] programs;
+	private int[] vaos;
+	private int[] textureTargets;
+	private int[] textures;
+	private Object[] items;
+	private int size;
+
+	private int[] order;
+	private int[] scratchOrder;
+	private long[] sortedKeys;
+	private long[] scratchKeys;
+	private final int[] counts;
+	private boolean sorted;
+
+	private int stateChanges;
+	private int redundantBinds;
+	private int draws;
+
+	/**
+	 * Creates a new render queue.
+	 *
+	 * @param capacity The number of draws to make room for, the queue grows when more are submitted.
+	 */
+	public RenderQueue(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.keys = new long[capacity];
+		this.programs = new int[capacity];
+		this.vaos = new int[capacity];
+		this.textureTargets = new int[capacity];
+		this.textures = new int[capacity];
+		this.items = new Object[capacity];
+		this.size = 0;
+
+		this.order = new int[capacity];
+		this.scratchOrder = new int[capacity];
+		this.sortedKeys = new long[capacity];
+		this.scratchKeys = new long[capacity];
+		this.counts = new int[RADIX_SIZE];
+		this.sorted = true;
+	}
+
+	/**
+	 * Adds a draw to the queue.
+	 *
+	 * @param key The sort key, from {@link RenderKey}.
+	 * @param programID The shader program to draw with.
+	 * @param vaoID The VAO to draw, or -1 to leave the bound VAO.
+	 * @param textureTarget The OpenGL texture type bound to unit 0, such as {@code GL_TEXTURE_2D}.
+	 * @param textureID The texture bound to unit 0, or -1 for none.
+	 * @param item The item given back when drawing.
+	 */
+	public void submit(long key, int programID, int vaoID, int textureTarget, int textureID, T item) {
+		if (size == keys.length) {
+			grow(size * 2);
+		}
+
+		keys[size] = key;
+		programs[size] = programID;
+		vaos[size] = vaoID;
+		textureTargets[size] = textureTarget;
+		textures[size] = textureID;
+		items[size] = item;
+		size++;
+		sorted = false;
+	}
+
+	private void grow(int capacity) {
+		keys = Arrays.copyOf(keys, capacity);
+		programs = Arrays.copyOf(programs, capacity);
+		vaos = Arrays.copyOf(vaos, capacity);
+		textureTargets = Arrays.copyOf(textureTargets, capacity);
+		textures = Arrays.copyOf(textures, capacity);
+		items = Arrays.copyOf(items, capacity);
+		order = new int[capacity];
+		scratchOrder = new int[capacity];
+		sortedKeys = new long[capacity];
+		scratchKeys = new long[capacity];
+	}
+
+	/**
+	 * Sorts the draws by key with a least significant byte first radix sort. Draws with equal keys keep their submission order.
+	 * Bytes shared by every key are skipped, so a frame whose draws only differ in a few fields takes only a few passes.
+	 */
+	public void sort() {
+		if (sorted) {
+			return;
+		}
+
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+			sortedKeys[i] = keys[i];
+		}
+
+		for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+			Arrays.fill(counts, 0);
+
+			for (int i = 0; i < size; i++) {
+				counts[(int) (sortedKeys[i] >>> shift) & (RADIX_SIZE - 1)]++;
+			}
+
+			if (counts[(int) (sortedKeys[0] >>> shift) & (RADIX_SIZE - 1)] == size) {
+				continue;
+			}
+
+			for (int i = 0, total = 0; i < RADIX_SIZE; i++) {
+				int count = counts[i];
+				counts[i] = total;
+				total += count;
+			}
+
+			for (int i = 0; i < size; i++) {
+				int bucket = (int) (sortedKeys[i] >>> shift) & (RADIX_SIZE - 1);
+				int destination = counts[bucket]++;
+				scratchKeys[destination] = sortedKeys[i];
+				scratchOrder[destination] = order[i];
+			}
+
+			long[] swapKeys = sortedKeys;
+			sortedKeys = scratchKeys;
+			scratchKeys = swapKeys;
+			int[] swapOrder = order;
+			order = scratchOrder;
+			scratchOrder = swapOrder;
+		}
+
+		sorted = true;
+	}
+
+	/**
+	 * Sorts and draws the queue with OpenGL, then clears it. Must be called on the OpenGL thread.
+	 *
+	 * @param draw Called with each item once its state is bound, sets the items uniforms and issues its draw call.
+	 */
+	public void execute(Consumer<T> draw) {
+		execute(GL_BACKEND, draw);
+	}
+
+	/**
+	 * Sorts and draws the queue, then clears it. The state bound before this is called is not known, so the first draw binds all of its state.
+	 *
+	 * @param backend The backend making the state changes.
+	 * @param draw Called with each item once its state is bound, sets the items uniforms and issues its draw call.
+	 */
+	@SuppressWarnings("unchecked")
+	public void execute(RenderBackend backend, Consumer<T> draw) {
+		sort();
+
+		int currentProgram = -1;
+		int currentVao = -1;
+		int currentTexture = -1;
+		stateChanges = 0;
+		redundantBinds = 0;
+		draws = 0;
+
+		for (int i = 0; i < size; i++) {
+			int index = order[i];
+
+			if (programs[index] != currentProgram) {
+				backend.bindProgram(programs[index]);
+				currentProgram = programs[index];
+				stateChanges++;
+			} else {
+				redundantBinds++;
+			}
+
+			if (vaos[index] != -1) {
+				if (vaos[index] != currentVao) {
+					backend.bindVertexArray(vaos[index]);
+					currentVao = vaos[index];
+					stateChanges++;
+				} else {
+					redundantBinds++;
+				}
+			}
+
+			if (textures[index] != -1) {
+				if (textures[index] != currentTexture) {
+					backend.bindTexture(0, textureTargets[index], textures[index]);
+					currentTexture = textures[index];
+					stateChanges++;
+				} else {
+					redundantBinds++;
+				}
+			}
+
+			draw.accept((T) items[index]);
+			draws++;
+		}
+
+		clear();
+	}
+
+	/**
+	 * Removes every draw from the queue.
+	 */
+	public void clear() {
+		Arrays.fill(items, 0, size, null);
+		size = 0;
+		sorted = true;
+	}
+
+	/**
+	 * Gets the number of draws waiting in the queue.
+	 *
+	 * @return The queue size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of binds made by the last execute.
+	 *
+	 * @return The state change count.
+	 */
+	public int getStateChanges() {
+		return stateChanges;
+	}
+
+	/**
+	 * Gets the number of binds the last execute skipped because the state was already bound.
+	 *
+	 * @return The skipped bind count.
+	 */
+	public int getRedundantBinds() {
+		return redundantBinds;
+	}
+
+	/**
+	 * Gets the number of draws made by the last execute.
+	 *
+	 * @return The draw count.
+	 */
+	public int getDraws() {
+		return draws;
+	}
+}
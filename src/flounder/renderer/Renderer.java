@@ -10,6 +10,7 @@ import flounder.profiling.*;
  */
 public abstract class Renderer {
 	private ProfileTimer profileTimer;
+	private GpuTimer gpuTimer;
 	private Timer timerProfile;
 
 	/**
@@ -18,6 +19,7 @@ public abstract class Renderer {
 	public Renderer() {
 		// TODO: Have own internal Module requirements to render.
 		this.profileTimer = new ProfileTimer();
+		this.gpuTimer = new GpuTimer(getProfileName());
 		this.timerProfile = new Timer(1.0 / 5.0);
 	}
 
@@ -29,19 +31,30 @@ public abstract class Renderer {
 	 */
 	public void render(Vector4f clipPlane, Camera camera) {
 		profileTimer.startInvocation();
+		gpuTimer.begin();
 		renderObjects(clipPlane, camera);
+		gpuTimer.end();
 		profileTimer.stopInvocation();
 		profileTimer.reset();
 
 		// Profile some values to the profiler.
 		if (FlounderProfiler.isOpen() && timerProfile.isPassedTime()) {
 			profile();
+			gpuTimer.profile(FlounderRenderer.PROFILE_TAB_NAME);
 
 			// Resets the timer.
 			timerProfile.resetStartTime();
 		}
 	}
 
+	/**
+	 * Gets the name the renderer is profiled with, anonymous renderers use their generated class name.
+	 */
+	private String getProfileName() {
+		String name = getClass().getName();
+		return getClass().isAnonymousClass() ? name.substring(name.lastIndexOf('.') + 1) : getClass().getSimpleName();
+	}
+
 	/**
 	 * An internal render method for renderers.
 	 *
@@ -62,8 +75,23 @@ public abstract class Renderer {
 		return profileTimer.getFinalTime();
 	}
 
+	/**
+	 * @return The GPU time of a recent render (in milliseconds), read a few frames after it was rendered.
+	 */
+	public double getGpuTime() {
+		return gpuTimer.getTime();
+	}
+
 	/**
 	 * Cleans up all of the renderers processes.
 	 */
 	public abstract void dispose();
+
+	/**
+	 * Disposes the renderer and deletes its GPU timer, called instead of {@link #dispose()} when the renderer is no longer used.
+	 */
+	public final void delete() {
+		dispose();
+		gpuTimer.delete();
+	}
 }
@@ -0,0 +1,72 @@
+package flounder.renderer;
+
+import flounder.shaders.*;
+import flounder.textures.*;
+
+/**
+ * A draw copied into a {@link FrameSnapshot} on the update thread: a texture, a VAO and the values of a uniform block.
+ * The values are set while the snapshot is captured and never changed after, so the render thread draws them while the update thread moves on.
+ */
+public class SnapshotDraw {
+	private final TextureObject texture;
+	private final int vaoID;
+	private final int vertexCount;
+	private final float[] values;
+
+	/**
+	 * Creates a new snapshot draw.
+	 *
+	 * @param texture The texture to draw with.
+	 * @param vaoID The VAO to draw, or -1 if the renderer binds its own.
+	 * @param vertexCount The number of vertices to draw.
+	 * @param slots The number of vec4 slots in the uniform block.
+	 */
+	public SnapshotDraw(TextureObject texture, int vaoID, int vertexCount, int slots) {
+		this.texture = texture;
+		this.vaoID = vaoID;
+		this.vertexCount = vertexCount;
+		this.values = new float[slots * 4];
+	}
+
+	/**
+	 * Sets a slot of the uniform block values, only used while the draw is captured.
+	 *
+	 * @param slot The vec4 slot.
+	 * @param x The first value.
+	 * @param y The second value.
+	 * @param z The third value.
+	 * @param w The fourth value.
+	 *
+	 * @return this.
+	 */
+	public SnapshotDraw set(int slot, float x, float y, float z, float w) {
+		values[slot * 4] = x;
+		values[slot * 4 + 1] = y;
+		values[slot * 4 + 2] = z;
+		values[slot * 4 + 3] = w;
+		return this;
+	}
+
+	/**
+	 * Sets every slot of a uniform block to the captured values, the block is uploaded by the caller.
+	 *
+	 * @param block The uniform block.
+	 */
+	public void load(UniformBlock block) {
+		for (int slot = 0; slot < values.length / 4; slot++) {
+			block.set(slot, values[slot * 4], values[slot * 4 + 1], values[slot * 4 + 2], values[slot * 4 + 3]);
+		}
+	}
+
+	public TextureObject getTexture() {
+		return texture;
+	}
+
+	public int getVaoID() {
+		return vaoID;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+}
@@ -0,0 +1,97 @@
+package flounder.renderer;
+
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Hands values from one producer thread to one consumer thread without locks. The producer fills its own slot then swaps it with the shared middle slot,
+ * and the consumer swaps its slot with the middle slot when a newer value was published. Neither thread waits on the other, the producer may publish
+ * several times between reads and the consumer then only sees the latest value.
+ *
+ * @param <T> The type of value handed over, reused between frames.
+ */
+public class TripleBuffer<T> {
+	private static final int INDEX_MASK = 3;
+	private static final int FRESH = 4;
+
+	private final Object[] slots;
+	private final AtomicInteger middle;
+	private int writeIndex;
+	private int readIndex;
+
+	private long published;
+	private long consumed;
+
+	/**
+	 * Creates a new triple buffer.
+	 *
+	 * @param factory Creates each of the three slots.
+	 */
+	public TripleBuffer(Supplier<T> factory) {
+		this.slots = new Object[]{factory.get(), factory.get(), factory.get()};
+		this.writeIndex = 0;
+		this.readIndex = 1;
+		this.middle = new AtomicInteger(2);
+	}
+
+	/**
+	 * Gets the slot owned by the producer, only the producer thread may use it until the next {@link #publish()}.
+	 *
+	 * @return The slot to write.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteSlot() {
+		return (T) slots[writeIndex];
+	}
+
+	/**
+	 * Publishes the write slot as the latest value, and gives the producer a slot the consumer is not using.
+	 */
+	public void publish() {
+		writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+		published++;
+	}
+
+	/**
+	 * Takes the latest published value if one was published since the last call.
+	 *
+	 * @return If the read slot now holds a newer value.
+	 */
+	public boolean acquire() {
+		if ((middle.get() & FRESH) == 0) {
+			return false;
+		}
+
+		readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+		consumed++;
+		return true;
+	}
+
+	/**
+	 * Gets the slot owned by the consumer, only the consumer thread may use it until the next {@link #acquire()}.
+	 *
+	 * @return The latest acquired value.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getReadSlot() {
+		return (T) slots[readIndex];
+	}
+
+	/**
+	 * Gets the number of values published, read by the producer thread.
+	 *
+	 * @return The publish count.
+	 */
+	public long getPublished() {
+		return published;
+	}
+
+	/**
+	 * Gets the number of values acquired, read by the consumer thread.
+	 *
+	 * @return The acquire count.
+	 */
+	public long getConsumed() {
+		return consumed;
+	}
+}
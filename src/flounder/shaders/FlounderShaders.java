@@ -2,13 +2,20 @@ package flounder.shaders;
 
 import flounder.factory.*;
 import flounder.framework.*;
+import flounder.loaders.*;
+import flounder.logger.*;
 import flounder.processing.*;
 import flounder.profiling.*;
 import flounder.resources.*;
+import org.lwjgl.opengl.*;
 
+import java.io.*;
 import java.lang.ref.*;
 import java.util.*;
 
+import static org.lwjgl.opengl.ARBGetProgramBinary.*;
+import static org.lwjgl.opengl.GL11.*;
+
 /**
  * A module used for loading GLSL files into shaders.
  */
@@ -18,27 +25,86 @@ public class FlounderShaders extends Module {
 
 	public static final MyFile SHADERS_LOC = new MyFile(MyFile.RES_FOLDER, "shaders");
 
-	private Map<String, SoftReference<FactoryObject>> loaded;
+	private FactoryCache<ShaderObject> loaded;
+	private Map<String, Integer> blockBindings;
+	private boolean uniformBuffersSupported;
+	private ProgramBinaryCache programCache;
+	private boolean programCacheEnabled = false;
+	private long cacheWeight = Long.MAX_VALUE;
+	private CachePolicy cachePolicy = new LruCachePolicy();
+
+	/**
+	 * A function called before initialization to configure the shader cache.
+	 *
+	 * @param cacheWeight The number of loaded shaders to keep, each shader weighs one, the least valuable unused shaders past this are deleted.
+	 * @param cachePolicy The policy choosing which shaders are evicted, {@link LruCachePolicy} or {@link ArcCachePolicy}.
+	 */
+	public static void setupCache(long cacheWeight, CachePolicy cachePolicy) {
+		INSTANCE.cacheWeight = cacheWeight;
+		INSTANCE.cachePolicy = cachePolicy;
+	}
+
+	/**
+	 * A function called before initialization to configure the program binary cache.
+	 *
+	 * @param programCacheEnabled If linked programs are cached to disk and loaded on later launches instead of being compiled again, used when the driver supports program binaries.
+	 */
+	public static void setupProgramCache(boolean programCacheEnabled) {
+		INSTANCE.programCacheEnabled = programCacheEnabled;
+	}
 
 	/**
 	 * Creates a new shader loader class.
 	 */
 	public FlounderShaders() {
 		super(ModuleUpdate.UPDATE_PRE, PROFILE_TAB_NAME, FlounderProcessors.class);
+
+		// Created with the instance, so uniform buffers can be created before the module is initialized.
+		this.blockBindings = new HashMap<>();
 	}
 
 	@Override
 	public void init() {
-		this.loaded = new HashMap<>();
+		this.loaded = new FactoryCache<>(cacheWeight, cachePolicy, shader -> shader.isLoaded() ? 1 : 0, shader -> shader.isLoaded() && loaded.isIdle(shader.getLastUsedFrame()), ShaderObject::delete);
+
+		FlounderLoader.registerReloader(ShaderFactory::reload);
+
+		// Uniform blocks are core in OpenGL 3.1, the engine only requests a 3.0 context.
+		this.uniformBuffersSupported = GL.getCapabilities().OpenGL31 || GL.getCapabilities().GL_ARB_uniform_buffer_object;
+
+		if (!uniformBuffersSupported) {
+			FlounderLogger.warning("Uniform buffer objects are not supported, uniform blocks are loaded as plain uniforms!");
+		}
+
+		// Program binaries are core in OpenGL 4.1, drivers may also report no binary formats at all.
+		if (programCacheEnabled && (GL.getCapabilities().OpenGL41 || GL.getCapabilities().GL_ARB_get_program_binary) && glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0) {
+			String driver = glGetString(GL_VENDOR) + " " + glGetString(GL_RENDERER) + " " + glGetString(GL_VERSION);
+			this.programCache = new ProgramBinaryCache(new File(Framework.getRoamingFolder().getPath(), "cache" + File.separator + "programs"), driver);
+		} else {
+			this.programCache = null;
+		}
 	}
 
 	@Override
 	public void update() {
+		loaded.update();
 	}
 
 	@Override
 	public void profile() {
 		FlounderProfiler.add(PROFILE_TAB_NAME, "Loaded", loaded.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Hit Rate", loaded.getHitRate());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Hits", loaded.getHits());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Misses", loaded.getMisses());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Evictions", loaded.getEvictions());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Uniform Blocks", blockBindings.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Include Cache Hits", ShaderFactory.getPreprocessor().getIncludeHits());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Include Cache Misses", ShaderFactory.getPreprocessor().getIncludeMisses());
+
+		if (programCache != null) {
+			FlounderProfiler.add(PROFILE_TAB_NAME, "Program Cache Hits", programCache.getHits());
+			FlounderProfiler.add(PROFILE_TAB_NAME, "Program Cache Misses", programCache.getMisses());
+		}
 	}
 
 	/**
@@ -50,6 +116,55 @@ public class FlounderShaders extends Module {
 		return INSTANCE.loaded;
 	}
 
+	/**
+	 * Gets the binding point of a uniform block, every shader declaring the block and its {@link UniformBuffer} use the same binding point.
+	 *
+	 * @param blockName The name of the uniform block.
+	 *
+	 * @return The blocks binding point.
+	 */
+	public static int getBlockBinding(String blockName) {
+		synchronized (INSTANCE.blockBindings) {
+			Integer binding = INSTANCE.blockBindings.get(blockName);
+
+			if (binding == null) {
+				binding = INSTANCE.blockBindings.size();
+				INSTANCE.blockBindings.put(blockName, binding);
+			}
+
+			return binding;
+		}
+	}
+
+	/**
+	 * Gets if uniform blocks can be used.
+	 *
+	 * @return If uniform buffer objects are supported.
+	 */
+	public static boolean isUniformBuffersSupported() {
+		return INSTANCE.uniformBuffersSupported;
+	}
+
+	/**
+	 * Records a shader as started this frame, shaders held by renderers are started every frame so are never evicted from the cache.
+	 *
+	 * @param shader The shader being started.
+	 */
+	public static void markUsed(ShaderObject shader) {
+		if (INSTANCE.loaded != null) {
+			shader.setLastUsedFrame(INSTANCE.loaded.getFrame());
+		}
+	}
+
+	/**
+	 * Gets the program binary cache.
+	 *
+	 * @return The cache, or null if it is disabled or not supported by the driver.
+	 */
+	public static ProgramBinaryCache getProgramCache() {
+		return INSTANCE.programCache;
+	}
+
 	@Override
 	public Module getInstance() {
 		return INSTANCE;
@@ -57,7 +172,7 @@ public class FlounderShaders extends Module {
 
 	@Override
 	public void dispose() {
-		loaded.keySet().forEach(key -> ((ShaderObject) loaded.get(key).get()).delete());
+		loaded.getObjects().forEach(object -> ((ShaderObject) object).delete());
 		loaded.clear();
 	}
 }
@@ -0,0 +1,221 @@
+package flounder.shaders;
+
+import flounder.logger.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * A disk cache of linked shader programs, stored in the drivers own binary format so a program can be loaded without compiling its sources again.
+ * Each program is keyed by its preprocessed sources and the driver it was linked by. A program whose sources changed, or one linked by another driver,
+ * is not loaded and is compiled again then replaces the cached binary.
+ */
+public class ProgramBinaryCache {
+	private static final int CACHE_MAGIC = 0x46505242;
+	private static final int CACHE_VERSION = 2;
+	private static final int MAX_BINARY_BYTES = 64 * 1024 * 1024;
+
+	private final File folder;
+	private final String driver;
+
+	private int hits;
+	private int misses;
+
+	/**
+	 * Creates a new program binary cache.
+	 *
+	 * @param folder The folder the binaries are stored in.
+	 * @param driver The vendor, renderer and version of the OpenGL driver, binaries from other drivers are never loaded.
+	 */
+	public ProgramBinaryCache(File folder, String driver) {
+		this.folder = folder;
+		this.driver = driver;
+	}
+
+	/**
+	 * Creates the key of a program, from everything that changes the program once it is linked.
+	 *
+	 * @param types The OpenGL type of each shader in the program.
+	 * @param sources The preprocessed source of each shader, in the same order as the types.
+	 * @param layoutLocations The attribute and output location declarations, these are bound before linking so are not in the sources.
+	 *
+	 * @return The programs key, a SHA-256 digest so a changed source is not mistaken for a cached one.
+	 */
+	public static byte[] createKey(int[] types, String[] sources, List<String> layoutLocations) {
+		MessageDigest digest = createDigest();
+
+		// Every part is hashed with its length, so moving text from one source to the next changes the key.
+		for (int i = 0; i < types.length; i++) {
+			byte[] source = sources[i].getBytes(StandardCharsets.UTF_8);
+			digest.update(ByteBuffer.allocate(8).putInt(types[i]).putInt(source.length).array());
+			digest.update(source);
+		}
+
+		for (String location : layoutLocations) {
+			byte[] bytes = location.getBytes(StandardCharsets.UTF_8);
+			digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+			digest.update(bytes);
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Reads a program from the cache.
+	 *
+	 * @param name The programs name.
+	 * @param key The key of the programs current sources, from {@link #createKey(int[], String[], List)}.
+	 *
+	 * @return The cached binary, or null if there is none or it was made from other sources or by another driver.
+	 */
+	public ProgramBinary read(String name, byte[] key) {
+		File file = getFile(name);
+
+		if (!file.exists()) {
+			misses++;
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || !Arrays.equals(readKey(in), key) || !in.readUTF().equals(driver)) {
+				misses++;
+				return null;
+			}
+
+			int format = in.readInt();
+			int length = in.readInt();
+
+			if (length < 0 || length > MAX_BINARY_BYTES) {
+				throw new IOException("Program binary length " + length + " is out of range");
+			}
+
+			byte[] data = new byte[length];
+			in.readFully(data);
+			hits++;
+			return new ProgramBinary(format, data);
+		} catch (IOException e) {
+			FlounderLogger.warning("Could not read program binary cache " + file + ", recompiling");
+			misses++;
+			return null;
+		}
+	}
+
+	private static byte[] readKey(DataInputStream in) throws IOException {
+		int length = in.readInt();
+
+		if (length < 0 || length > 64) {
+			return null;
+		}
+
+		byte[] key = new byte[length];
+		in.readFully(key);
+		return key;
+	}
+
+	/**
+	 * Writes a program to the cache, replacing the binary of any older sources.
+	 *
+	 * @param name The programs name.
+	 * @param key The key of the programs sources.
+	 * @param binary The linked program.
+	 */
+	public void write(String name, byte[] key, ProgramBinary binary) {
+		File file = getFile(name);
+		file.getParentFile().mkdirs();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(CACHE_MAGIC);
+			out.writeInt(CACHE_VERSION);
+			out.writeInt(key.length);
+			out.write(key);
+			out.writeUTF(driver);
+			out.writeInt(binary.format);
+			out.writeInt(binary.data.length);
+			out.write(binary.data);
+		} catch (IOException e) {
+			FlounderLogger.warning("Could not write program binary cache " + file);
+		}
+	}
+
+	/**
+	 * Deletes a program from the cache, used when a cached binary is rejected by the driver.
+	 *
+	 * @param name The programs name.
+	 */
+	public void remove(String name) {
+		File file = getFile(name);
+
+		if (file.exists() && !file.delete()) {
+			FlounderLogger.warning("Could not delete program binary cache " + file);
+		}
+	}
+
+	/**
+	 * Gets the file a program is cached in. Names are sanitised to be file names, so a hash of the full name is added to keep names like a/b and a_b apart.
+	 *
+	 * @param name The programs name.
+	 *
+	 * @return The cache file.
+	 */
+	public File getFile(String name) {
+		byte[] hash = createDigest().digest(name.getBytes(StandardCharsets.UTF_8));
+		StringBuilder result = new StringBuilder(name.replaceAll("[^A-Za-z0-9_\\-]", "_")).append('-');
+
+		for (int i = 0; i < 8; i++) {
+			result.append(String.format("%02x", hash[i]));
+		}
+
+		return new File(folder, result.append(".fpb").toString());
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	public String getDriver() {
+		return driver;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * A linked program in a drivers binary format.
+	 */
+	public static class ProgramBinary {
+		private final int format;
+		private final byte[] data;
+
+		/**
+		 * Creates a new program binary.
+		 *
+		 * @param format The drivers binary format.
+		 * @param data The program data.
+		 */
+		public ProgramBinary(int format, byte[] data) {
+			this.format = format;
+			this.data = data;
+		}
+
+		public int getFormat() {
+			return format;
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+	}
+}
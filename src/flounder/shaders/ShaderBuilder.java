@@ -61,6 +61,7 @@ public class ShaderBuilder extends FactoryBuilder {
 
 	@Override
 	public ShaderObject create() {
+		ShaderFactory.preprocess(this);
 		return (ShaderObject) builderCreate(name);
 	}
 
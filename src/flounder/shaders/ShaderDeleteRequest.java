@@ -1,9 +1,8 @@
 package flounder.shaders;
 
+import flounder.helpers.*;
 import flounder.processing.opengl.*;
 
-import static org.lwjgl.opengl.GL20.*;
-
 /**
  * A class that can process a request to delete a shader.
  */
@@ -28,7 +27,6 @@ public class ShaderDeleteRequest implements RequestOpenGL {
 		FlounderShaders.getLoaded().get(shader.getName()).clear();
 		FlounderShaders.getLoaded().remove(shader.getName());
 
-		glUseProgram(0);
-		glDeleteProgram(shader.getProgramID());
+		OpenGlUtils.deleteProgram(shader.getProgramID());
 	}
 }
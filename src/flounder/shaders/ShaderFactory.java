@@ -2,17 +2,22 @@ package flounder.shaders;
 
 import flounder.factory.*;
 import flounder.helpers.*;
+import flounder.loaders.*;
 import flounder.logger.*;
-import flounder.resources.*;
+import flounder.processing.opengl.*;
+import flounder.renderer.*;
+import org.lwjgl.*;
 
-import java.io.*;
 import java.lang.ref.*;
-import java.lang.reflect.*;
+import java.nio.*;
 import java.util.*;
+import java.util.concurrent.*;
 
+import static org.lwjgl.opengl.ARBGetProgramBinary.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
 
 /**
  * A class that represents a factory for loading shaders.
@@ -20,8 +25,16 @@ import static org.lwjgl.opengl.GL30.*;
 public class ShaderFactory extends Factory {
 	private static final ShaderFactory INSTANCE = new ShaderFactory();
 
+	private final ShaderPreprocessor preprocessor;
+	private final PriorityExecutor preprocessExecutor;
+	private final Map<String, Future<ShaderPreprocessor.Preprocessed>> preprocessed;
+
 	private ShaderFactory() {
 		super("shader");
+
+		this.preprocessor = new ShaderPreprocessor();
+		this.preprocessExecutor = new PriorityExecutor("Shader Preprocessor", Math.max(Runtime.getRuntime().availableProcessors() - 1, 1));
+		this.preprocessed = new ConcurrentHashMap<>();
 	}
 
 	/**
@@ -33,6 +46,57 @@ public class ShaderFactory extends Factory {
 		return new ShaderBuilder(INSTANCE);
 	}
 
+	/**
+	 * Starts preprocessing a shader on the preprocessor threads, so the sources of many shaders are read and scanned at the same time.
+	 * The result is used when the shader is loaded, compiling and linking still happens on the OpenGL thread.
+	 *
+	 * @param builder The builder of the shader.
+	 */
+	protected static void preprocess(ShaderBuilder builder) {
+		String name = builder.getName();
+
+		if (name == null || isLoaded(name) || INSTANCE.preprocessed.containsKey(name)) {
+			return;
+		}
+
+		INSTANCE.preprocessed.put(name, INSTANCE.preprocessExecutor.submit(LoadPriority.VISIBLE_NOW, () -> INSTANCE.preprocessor.preprocess(builder)));
+	}
+
+	/**
+	 * Creates a batch of shaders, the shader sources are preprocessed concurrently before the shaders are loaded.
+	 *
+	 * @param builders The builders of the shaders to create.
+	 *
+	 * @return The created shaders, in the order of the builders.
+	 */
+	public static ShaderObject[] createBatch(ShaderBuilder... builders) {
+		for (ShaderBuilder builder : builders) {
+			preprocess(builder);
+		}
+
+		ShaderObject[] shaders = new ShaderObject[builders.length];
+
+		for (int i = 0; i < builders.length; i++) {
+			shaders[i] = builders[i].create();
+		}
+
+		return shaders;
+	}
+
+	private static boolean isLoaded(String name) {
+		SoftReference<FactoryObject> reference = FlounderShaders.getLoaded().get(name);
+		return reference != null && reference.get() != null;
+	}
+
+	/**
+	 * Gets the preprocessor used for every shader, used to read its include cache statistics.
+	 *
+	 * @return The shader preprocessor.
+	 */
+	protected static ShaderPreprocessor getPreprocessor() {
+		return INSTANCE.preprocessor;
+	}
+
 	@Override
 	public ShaderObject newObject() {
 		return new ShaderObject();
@@ -42,109 +106,106 @@ public class ShaderFactory extends Factory {
 	public void loadData(FactoryObject object, FactoryBuilder builder, String name) {
 		ShaderBuilder b = (ShaderBuilder) builder;
 		ShaderObject o = (ShaderObject) object;
+		ShaderPreprocessor.Preprocessed shader = null;
+
+		try {
+			// Uses the result of preprocessing started when the shader was requested, or preprocesses it now.
+			Future<ShaderPreprocessor.Preprocessed> future = preprocessed.remove(name);
+			shader = future != null ? future.get() : preprocessor.preprocess(b);
+		} catch (Exception e) {
+			FlounderLogger.error("Could not preprocess shader " + name);
+			FlounderLogger.exception(e);
+			System.exit(-1);
+		}
+
+		for (int i = 0; i < b.getTypes().size(); i++) {
+			StringBuilder source = b.getTypes().get(i).getShaderBuilder();
+			source.setLength(0);
+			source.append(shader.getSources().get(i));
+		}
 
-		List<Pair<String, String>> constantValues = new ArrayList<>();
-		List<String> layoutLocations = new ArrayList<>();
-		List<String> layoutBindings = new ArrayList<>();
-		List<Pair<Uniform.Uniforms, String>> shaderUniforms = new ArrayList<>();
+		o.loadData(shader.getConstantValues(), shader.getLayoutLocations(), shader.getLayoutBindings(), shader.getShaderUniforms(), shader.getUniformArrays(), shader.getUniformBlocks(), name);
+		o.loadBuilder(b);
+	}
 
-		for (ShaderType type : b.getTypes()) {
-			if (type.getShaderFile().isPresent()) {
-				MyFile file = type.getShaderFile().get();
+	/**
+	 * Recompiles the shaders using a changed file, used by hot reloading. Shaders are preprocessed on the calling thread, then compiled and swapped into
+	 * the existing shader objects on the OpenGL thread. A shader that fails to compile keeps its old program. Changes to included files recompile every file based shader.
+	 *
+	 * @param path The normalized path of the changed file.
+	 */
+	protected static void reload(String path) {
+		if (!path.startsWith(AssetPack.normalize(FlounderShaders.SHADERS_LOC.getPath()))) {
+			return;
+		}
 
-				try {
-					BufferedReader reader = file.getReader();
-					String line;
+		List<ShaderObject> shaders = new ArrayList<>();
+		boolean included = true;
 
-					while ((line = reader.readLine()) != null) {
-						type.getShaderBuilder().append(INSTANCE.processShaderLine(line.trim(), constantValues, layoutLocations, layoutBindings, shaderUniforms, type.getShaderType()) + "\n");
-					}
-				} catch (Exception e) {
-					FlounderLogger.error("Could not read file " + file.getName());
-					FlounderLogger.exception(e);
-					System.exit(-1);
-				}
-			} else if (type.getShaderString().isPresent()) {
-				String string = type.getShaderString().get();
+		for (FactoryObject object : ((FactoryCache<?>) FlounderShaders.getLoaded()).getObjects()) {
+			ShaderObject o = (ShaderObject) object;
 
-				for (String line : string.split("\n")) {
-					type.getShaderBuilder().append(INSTANCE.processShaderLine(line.trim(), constantValues, layoutLocations, layoutBindings, shaderUniforms, type.getShaderType()) + "\n");
-				}
+			if (o.getBuilder() == null || !o.isLoaded() || !isFileBased(o.getBuilder())) {
+				continue;
 			}
-		}
 
-		o.loadData(constantValues, layoutLocations, layoutBindings, shaderUniforms, name);
-	}
+			shaders.add(o);
 
-	private StringBuilder processShaderLine(String line, List<Pair<String, String>> constantValues, List<String> layoutLocations, List<String> layoutBindings, List<Pair<Uniform.Uniforms, String>> shaderUniforms, int shaderType) {
-		if (line.contains("#include")) {
-			String included = line.replaceAll("\\s+", "").replaceAll("\"", "");
-			included = included.substring("#include".length(), included.length());
-			MyFile includeFile = new MyFile(FlounderShaders.SHADERS_LOC, included);
-			StringBuilder includeSource = new StringBuilder();
+			for (ShaderType type : o.getBuilder().getTypes()) {
+				if (AssetPack.normalize(type.getShaderFile().get().getPath()).equals(path)) {
+					included = false;
+				}
+			}
+		}
 
-			try {
-				BufferedReader reader = includeFile.getReader();
-				String includeLine;
+		for (ShaderObject o : shaders) {
+			ShaderBuilder b = o.getBuilder();
+			boolean uses = included;
 
-				while ((includeLine = reader.readLine()) != null) {
-					includeSource.append(processShaderLine(includeLine.trim(), constantValues, layoutLocations, layoutBindings, shaderUniforms, shaderType) + "\n");
-				}
-			} catch (Exception e) {
-				FlounderLogger.error("Could not read file " + includeFile.getName());
-				FlounderLogger.exception(e);
-				System.exit(-1);
+			for (ShaderType type : b.getTypes()) {
+				uses |= AssetPack.normalize(type.getShaderFile().get().getPath()).equals(path);
 			}
 
-			return includeSource;
-		} else if (line.replaceAll("\\s+", "").startsWith("layout") && shaderType != -1) {
-			if (line.contains("location")) {
-				layoutLocations.add(line);
-				return new StringBuilder().append(line.substring(findCharPos(line, ')') + 1, line.length()));
-			} else if (line.contains("binding")) {
-				layoutBindings.add(line);
-				return new StringBuilder().append(line.substring(findCharPos(line, ')') + 1, line.length()));
+			if (!uses) {
+				continue;
 			}
-		}
 
-		if (line.startsWith("const")) {
-			String uniformVarName = line.substring("const".length() + 1, line.length() - 1);
-			uniformVarName = uniformVarName.substring(findCharPos(uniformVarName, ' '), uniformVarName.length()).trim();
-			constantValues.add(new Pair<>(uniformVarName.split("=")[0].trim(), uniformVarName.split("=")[1].trim()));
-		}
+			ShaderObject reloaded = new ShaderObject();
 
-		if (line.startsWith("uniform")) {
-			String uniformVarName = line.substring("uniform".length() + 1, line.length() - 1);
-			String uniform = uniformVarName.split(" ")[0].toUpperCase();
-			String name = uniformVarName.split(" ")[1];
+			// The builders shader types hold the preprocessed source until it is compiled, so a builder is only reloaded by one thread at a time.
+			synchronized (b) {
+				INSTANCE.loadData(reloaded, b, o.getName());
+			}
 
-			// Array Uniforms.
-			if (name.contains("[") && name.contains("]")) {
-				String nameArray = name.substring(0, findCharPos(name, '[')).trim();
-				String arraySize = name.substring(findCharPos(name, '[') + 1, name.length() - 1).trim();
-				int size = 0;
+			FlounderRenderer.sendRequest((RequestOpenGL) () -> {
+				if (!o.isLoaded()) {
+					return;
+				}
 
-				if (ByteWork.isInteger(arraySize)) {
-					size = Integer.parseInt(arraySize);
-				} else {
-					for (Pair<String, String> pair : constantValues) {
-						if (pair.getFirst().equals(arraySize)) {
-							size = Integer.parseInt(pair.getSecond());
-							break;
-						}
+				synchronized (b) {
+					try {
+						INSTANCE.createGL(reloaded, b);
+					} catch (RuntimeException e) {
+						FlounderLogger.error("Could not reload shader " + o.getName() + ", the old program is kept");
+						return;
 					}
 				}
 
-				for (int i = 0; i < size; i++) {
-					shaderUniforms.add(new Pair<>(Uniform.Uniforms.valueOf(uniform), nameArray + "[" + i + "]"));
-				}
-			} else {
-				// Normal Uniforms.
-				shaderUniforms.add(new Pair<>(Uniform.Uniforms.valueOf(uniform), name));
+				int oldProgramID = o.getProgramID();
+				o.loadReloaded(reloaded);
+				OpenGlUtils.deleteProgram(oldProgramID);
+			});
+		}
+	}
+
+	private static boolean isFileBased(ShaderBuilder b) {
+		for (ShaderType type : b.getTypes()) {
+			if (type.getShaderFile() == null || !type.getShaderFile().isPresent()) {
+				return false;
 			}
 		}
 
-		return new StringBuilder().append(line);
+		return true;
 	}
 
 	@Override
@@ -153,6 +214,88 @@ public class ShaderFactory extends Factory {
 		ShaderBuilder b = (ShaderBuilder) builder;
 		ShaderObject o = (ShaderObject) object;
 
+		// The factory may call this from the update thread, the program is compiled on the thread owning the context.
+		FlounderRenderer.runOnRenderThread(() -> {
+			synchronized (b) {
+				createGL(o, b);
+			}
+		});
+	}
+
+	/**
+	 * Compiles or loads the cached binary of a program, then finds its uniforms. Must be called on the thread owning the OpenGL context.
+	 */
+	private void createGL(ShaderObject o, ShaderBuilder b) {
+		ProgramBinaryCache cache = FlounderShaders.getProgramCache();
+		byte[] key = null;
+		int programID = -1;
+
+		if (cache != null) {
+			int[] types = new int[b.getTypes().size()];
+			String[] sources = new String[types.length];
+
+			for (int i = 0; i < types.length; i++) {
+				types[i] = b.getTypes().get(i).getShaderType();
+				sources[i] = b.getTypes().get(i).getShaderBuilder().toString();
+			}
+
+			key = ProgramBinaryCache.createKey(types, sources, o.getLayoutLocations());
+			programID = loadBinary(cache, o.getName(), key);
+		}
+
+		if (programID == -1) {
+			programID = compile(o, b, cache != null);
+
+			if (cache != null) {
+				storeBinary(cache, o.getName(), key, programID);
+			}
+		}
+
+		for (String block : o.getUniformBlocks()) {
+			int blockIndex = glGetUniformBlockIndex(programID, block);
+
+			if (blockIndex == GL_INVALID_INDEX) {
+				FlounderLogger.warning("No uniform block called " + block + " found in shader " + o.getName() + "!");
+				continue;
+			}
+
+			glUniformBlockBinding(programID, blockIndex, FlounderShaders.getBlockBinding(block));
+		}
+
+		OpenGlUtils.useProgram(programID);
+
+		for (String binding : o.getLayoutBindings()) {
+			String bindingName = binding.substring(binding.lastIndexOf(" ") + 1, binding.length() - 1);
+			int bindingValue = Integer.parseInt(binding.substring(findCharPos(binding, '=') + 1, findCharPos(binding, ')')).replaceAll("\\s+", ""));
+			UniformSampler2D sampler = new UniformSampler2D(bindingName, o);
+			sampler.storeUniformLocation(programID);
+			sampler.loadTexUnit(bindingValue);
+		}
+
+		OpenGlUtils.useProgram(0);
+
+		Map<String, Uniform> uniforms = new HashMap<>();
+
+		for (Pair<Uniform.Uniforms, String> pair : o.getShaderUniforms()) {
+			Uniform uniform = pair.getFirst().create(pair.getSecond(), o);
+			uniform.storeUniformLocation(programID);
+			uniforms.put(pair.getSecond(), uniform);
+		}
+
+		// Arrays are loaded as one uniform, uploaded together instead of once per element.
+		for (Map.Entry<String, Pair<Uniform.Uniforms, Integer>> entry : o.getUniformArrays().entrySet()) {
+			Uniform uniform = new UniformArray(entry.getKey(), o, entry.getValue().getFirst(), entry.getValue().getSecond());
+			uniform.storeUniformLocation(programID);
+			uniforms.put(entry.getKey(), uniform);
+		}
+
+		o.loadGL(uniforms, programID);
+	}
+
+	/**
+	 * Compiles and links the shaders sources into a new program.
+	 */
+	private int compile(ShaderObject o, ShaderBuilder b, boolean retrievable) {
 		int programID = glCreateProgram();
 
 		for (ShaderType type : b.getTypes()) {
@@ -160,13 +303,14 @@ public class ShaderFactory extends Factory {
 			glShaderSource(shaderID, type.getShaderBuilder());
 			glCompileShader(shaderID);
 
+			type.setShaderProgramID(shaderID);
+			glAttachShader(programID, shaderID);
+
 			if (glGetShaderi(shaderID, GL_COMPILE_STATUS) == GL_FALSE) {
 				FlounderLogger.error(glGetShaderInfoLog(shaderID, 500));
-				throw new RuntimeException("Could not compile shader " + ((ShaderObject) object).getName() + ", type=" + type);
+				deleteCompiled(b, programID);
+				throw new RuntimeException("Could not compile shader " + o.getName() + ", type=" + type);
 			}
-
-			type.setShaderProgramID(shaderID);
-			glAttachShader(programID, shaderID);
 		}
 
 		for (String location : o.getLayoutLocations()) {
@@ -184,54 +328,89 @@ public class ShaderFactory extends Factory {
 			}
 		}
 
+		if (retrievable) {
+			glProgramParameteri(programID, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+		}
+
 		glLinkProgram(programID);
 
+		if (glGetProgrami(programID, GL_LINK_STATUS) == GL_FALSE) {
+			FlounderLogger.error(glGetProgramInfoLog(programID, 500));
+			deleteCompiled(b, programID);
+			throw new RuntimeException("Could not link shader " + o.getName());
+		}
+
 		for (ShaderType type : b.getTypes()) {
 			glDetachShader(programID, type.getShaderProgramID());
 			glDeleteShader(type.getShaderProgramID());
 			type.setShaderProgramID(-1);
 		}
 
-		glUseProgram(programID);
+		return programID;
+	}
 
-		for (String binding : o.getLayoutBindings()) {
-			String bindingName = binding.substring(binding.lastIndexOf(" ") + 1, binding.length() - 1);
-			int bindingValue = Integer.parseInt(binding.substring(findCharPos(binding, '=') + 1, findCharPos(binding, ')')).replaceAll("\\s+", ""));
-			UniformSampler2D sampler = new UniformSampler2D(bindingName, o);
-			sampler.storeUniformLocation(programID);
-			sampler.loadTexUnit(bindingValue);
+	/**
+	 * Deletes a program that failed to compile or link, and the shaders attached to it so far.
+	 */
+	private static void deleteCompiled(ShaderBuilder b, int programID) {
+		for (ShaderType type : b.getTypes()) {
+			if (type.getShaderProgramID() != -1) {
+				glDetachShader(programID, type.getShaderProgramID());
+				glDeleteShader(type.getShaderProgramID());
+				type.setShaderProgramID(-1);
+			}
 		}
 
-		glUseProgram(0);
+		OpenGlUtils.deleteProgram(programID);
+	}
 
-		Map<String, Uniform> uniforms = new HashMap<>();
+	/**
+	 * Creates a program from the cached binary of the same sources.
+	 *
+	 * @return The program, or -1 if there was no cached binary or the driver rejected it.
+	 */
+	private static int loadBinary(ProgramBinaryCache cache, String name, byte[] key) {
+		ProgramBinaryCache.ProgramBinary binary = cache.read(name, key);
 
-		for (Pair<Uniform.Uniforms, String> pair : o.getShaderUniforms()) {
-			String uniformClass = pair.getFirst().getUniformClass();
-			Uniform uniformObject = null;
-
-			// Loads the uniform from the class name.
-			try {
-				Class<?> clazz = Class.forName(uniformClass);
-				Constructor<?> ctor = clazz.getConstructor(String.class, ShaderObject.class);
-				Object uobject = ctor.newInstance(new Object[]{pair.getSecond(), o});
-				uniformObject = (Uniform) uobject;
-			} catch (ClassNotFoundException | IllegalAccessException | InstantiationException | InvocationTargetException | NoSuchMethodException e) {
-				FlounderLogger.error("Shader could not create the uniform type of " + uniformClass);
-				e.printStackTrace();
-			}
+		if (binary == null) {
+			return -1;
+		}
 
-			// If the uniform was loaded.
-			if (uniformObject != null) {
-				// Store uniform locations.
-				uniformObject.storeUniformLocation(programID);
+		ByteBuffer data = BufferUtils.createByteBuffer(binary.getData().length);
+		data.put(binary.getData());
+		data.flip();
 
-				// Keeps the uniform variables for later usage.
-				uniforms.put(pair.getSecond(), uniformObject);
-			}
+		int programID = glCreateProgram();
+		glProgramBinary(programID, binary.getFormat(), data);
+
+		// Drivers reject binaries made before they were updated, even when they report the same version.
+		if (glGetProgrami(programID, GL_LINK_STATUS) == GL_FALSE) {
+			FlounderLogger.warning("Cached program binary of shader " + name + " was rejected, recompiling");
+			OpenGlUtils.deleteProgram(programID);
+			cache.remove(name);
+			return -1;
 		}
 
-		o.loadGL(uniforms, programID);
+		return programID;
+	}
+
+	/**
+	 * Writes a newly linked program to the cache.
+	 */
+	private static void storeBinary(ProgramBinaryCache cache, String name, byte[] key, int programID) {
+		int length = glGetProgrami(programID, GL_PROGRAM_BINARY_LENGTH);
+
+		if (glGetProgrami(programID, GL_LINK_STATUS) == GL_FALSE || length <= 0) {
+			return;
+		}
+
+		ByteBuffer data = BufferUtils.createByteBuffer(length);
+		IntBuffer format = BufferUtils.createIntBuffer(1);
+		glGetProgramBinary(programID, null, format, data);
+
+		byte[] bytes = new byte[data.remaining()];
+		data.get(bytes);
+		cache.write(name, key, new ProgramBinaryCache.ProgramBinary(format.get(0), bytes));
 	}
 
 	private int findCharPos(String line, char c) {
@@ -3,9 +3,10 @@ package flounder.shaders;
 import flounder.factory.*;
 import flounder.helpers.*;
 import flounder.logger.*;
-import flounder.processing.*;
+import flounder.renderer.*;
 
 import java.util.*;
+import java.util.function.*;
 
 import static org.lwjgl.opengl.GL20.*;
 
@@ -17,28 +18,38 @@ public class ShaderObject extends FactoryObject {
 	private List<String> layoutLocations;
 	private List<String> layoutBindings;
 	private List<Pair<Uniform.Uniforms, String>> shaderUniforms;
+	private Map<String, Pair<Uniform.Uniforms, Integer>> uniformArrays;
+	private List<String> uniformBlocks;
 
 	private String name;
 
 	private Map<String, Uniform> uniforms;
+	private Map<String, Uniform> handles;
 
 	private int programID;
 
+	private ShaderBuilder builder;
+	private long lastUsedFrame;
+
 	/**
 	 * A new OpenGL shader object.
 	 */
 	protected ShaderObject() {
 		super();
 		this.uniforms = null;
+		this.handles = new HashMap<>();
 
 		this.name = null;
+		this.lastUsedFrame = 0;
 	}
 
-	protected void loadData(List<Pair<String, String>> constantValues, List<String> layoutLocations, List<String> layoutBindings, List<Pair<Uniform.Uniforms, String>> shaderUniforms, String name) {
+	protected void loadData(List<Pair<String, String>> constantValues, List<String> layoutLocations, List<String> layoutBindings, List<Pair<Uniform.Uniforms, String>> shaderUniforms, Map<String, Pair<Uniform.Uniforms, Integer>> uniformArrays, List<String> uniformBlocks, String name) {
 		this.constantValues = constantValues;
 		this.layoutLocations = layoutLocations;
 		this.layoutBindings = layoutBindings;
 		this.shaderUniforms = shaderUniforms;
+		this.uniformArrays = uniformArrays;
+		this.uniformBlocks = uniformBlocks;
 
 		this.name = name;
 
@@ -47,7 +58,8 @@ public class ShaderObject extends FactoryObject {
 		setDataLoaded(true);
 	}
 
-	protected void loadGL(Map<String, Uniform> uniforms, int shaderID) {
+	protected synchronized void loadGL(Map<String, Uniform> uniforms, int shaderID) {
+		bindHandles(uniforms, shaderID);
 		this.uniforms = uniforms;
 
 		this.programID = shaderID;
@@ -55,6 +67,30 @@ public class ShaderObject extends FactoryObject {
 		setFullyLoaded(true);
 	}
 
+	protected void loadBuilder(ShaderBuilder builder) {
+		this.builder = builder;
+	}
+
+	/**
+	 * Takes the program and uniforms of a shader compiled again from changed files, called on the OpenGL thread so renderers using this shader use the new program next frame.
+	 *
+	 * @param reloaded The compiled shader to take from.
+	 */
+	protected synchronized void loadReloaded(ShaderObject reloaded) {
+		bindHandles(reloaded.uniforms, reloaded.programID);
+
+		this.constantValues = reloaded.constantValues;
+		this.layoutLocations = reloaded.layoutLocations;
+		this.layoutBindings = reloaded.layoutBindings;
+		this.shaderUniforms = reloaded.shaderUniforms;
+		this.uniformArrays = reloaded.uniformArrays;
+		this.uniformBlocks = reloaded.uniformBlocks;
+
+		this.uniforms = reloaded.uniforms;
+
+		this.programID = reloaded.programID;
+	}
+
 	public List<Pair<String, String>> getConstantValues() {
 		return constantValues;
 	}
@@ -71,6 +107,24 @@ public class ShaderObject extends FactoryObject {
 		return shaderUniforms;
 	}
 
+	/**
+	 * Gets the array uniforms declared by the shader, each is loaded as one {@link UniformArray} named without a index.
+	 *
+	 * @return The element type and length of each array, by name.
+	 */
+	public Map<String, Pair<Uniform.Uniforms, Integer>> getUniformArrays() {
+		return uniformArrays;
+	}
+
+	/**
+	 * Gets the names of the uniform blocks declared by the shader, each is bound to the binding point shared by its {@link UniformBuffer}.
+	 *
+	 * @return The uniform block names.
+	 */
+	public List<String> getUniformBlocks() {
+		return uniformBlocks;
+	}
+
 	/**
 	 * Gets the loaded name for the shader.
 	 *
@@ -84,18 +138,205 @@ public class ShaderObject extends FactoryObject {
 		return programID;
 	}
 
+	/**
+	 * Points the handles given out by this shader at a newly linked program, and uses them in place of the uniforms created for it.
+	 */
+	private void bindHandles(Map<String, Uniform> uniforms, int programID) {
+		for (Map.Entry<String, Uniform> entry : handles.entrySet()) {
+			entry.getValue().storeUniformLocation(programID);
+			uniforms.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Gets the handle of a uniform, creating it when the shader is not loaded yet. Handles are kept for the life of the shader and follow it when it is reloaded.
+	 */
+	private synchronized <T extends Uniform> T handle(String uniformName, Class<T> type, String typeName, Supplier<T> constructor) {
+		Uniform handle = handles.get(uniformName);
+
+		if (handle == null) {
+			Uniform loaded = uniforms != null ? uniforms.get(uniformName) : null;
+
+			if (type.isInstance(loaded)) {
+				handle = loaded;
+			} else {
+				handle = constructor.get();
+
+				if (uniforms != null) {
+					handle.storeUniformLocation(programID);
+					uniforms.put(uniformName, handle);
+				}
+			}
+
+			handles.put(uniformName, handle);
+		}
+
+		if (!type.isInstance(handle)) {
+			FlounderLogger.error(uniformName + " is not a " + typeName + "!");
+			return null;
+		}
+
+		return type.cast(handle);
+	}
+
+	/**
+	 * Gets a handle to a uniform, to be kept by the caller instead of looking the uniform up every time it is loaded.
+	 * Handles can be taken before the shader has loaded, and stay valid when the shader is reloaded.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformBool handleBool(String uniformName) {
+		return handle(uniformName, UniformBool.class, "bool", () -> new UniformBool(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformFloat handleFloat(String uniformName) {
+		return handle(uniformName, UniformFloat.class, "float", () -> new UniformFloat(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformInt handleInt(String uniformName) {
+		return handle(uniformName, UniformInt.class, "int", () -> new UniformInt(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformMat2 handleMat2(String uniformName) {
+		return handle(uniformName, UniformMat2.class, "mat2", () -> new UniformMat2(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformMat3 handleMat3(String uniformName) {
+		return handle(uniformName, UniformMat3.class, "mat3", () -> new UniformMat3(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformMat4 handleMat4(String uniformName) {
+		return handle(uniformName, UniformMat4.class, "mat4", () -> new UniformMat4(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformSampler2D handleSampler(String uniformName) {
+		return handle(uniformName, UniformSampler2D.class, "sampler", () -> new UniformSampler2D(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformVec2 handleVec2(String uniformName) {
+		return handle(uniformName, UniformVec2.class, "vec2", () -> new UniformVec2(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformVec3 handleVec3(String uniformName) {
+		return handle(uniformName, UniformVec3.class, "vec3", () -> new UniformVec3(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a uniform, see {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The uniforms name.
+	 *
+	 * @return The uniform handle.
+	 */
+	public UniformVec4 handleVec4(String uniformName) {
+		return handle(uniformName, UniformVec4.class, "vec4", () -> new UniformVec4(uniformName, this));
+	}
+
+	/**
+	 * Gets a handle to a {@code vec4} array uniform, used to upload a block of packed values with one call. See {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The name of the array.
+	 * @param size The length of the array.
+	 *
+	 * @return The uniform block handle.
+	 */
+	public UniformBlock handleBlock(String uniformName, int size) {
+		return handle(uniformName, UniformBlock.class, "vec4 block", () -> new UniformBlock(uniformName, this, size));
+	}
+
+	/**
+	 * Gets a handle to a array uniform, uploaded with one call. See {@link #handleBool(String)}.
+	 *
+	 * @param uniformName The name of the array, without a index.
+	 * @param type The type of each element.
+	 * @param length The length of the array.
+	 *
+	 * @return The uniform array handle.
+	 */
+	public UniformArray handleArray(String uniformName, Uniform.Uniforms type, int length) {
+		return handle(uniformName, UniformArray.class, type.name().toLowerCase() + " array", () -> new UniformArray(uniformName, this, type, length));
+	}
+
+	/**
+	 * Gets the builder the shader was loaded from.
+	 *
+	 * @return The shaders builder.
+	 */
+	protected ShaderBuilder getBuilder() {
+		return builder;
+	}
+
 	/**
 	 * Starts the shader program.
 	 */
 	public void start() {
-		glUseProgram(programID);
+		FlounderShaders.markUsed(this);
+		OpenGlUtils.useProgram(programID);
 	}
 
 	/**
 	 * Stops the shader program.
 	 */
 	public void stop() {
-		glUseProgram(0);
+		OpenGlUtils.useProgram(0);
 	}
 
 	/**
@@ -328,6 +569,42 @@ public class ShaderObject extends FactoryObject {
 		return null;
 	}
 
+	/**
+	 * Gets a array uniform from its name without a index.
+	 *
+	 * @param uniformName The arrays name.
+	 *
+	 * @return The uniform that was found.
+	 */
+	public UniformArray getUniformArray(String uniformName) {
+		try {
+			return (UniformArray) uniforms.get(uniformName);
+		} catch (ClassCastException e) {
+			if (uniforms.get(uniformName) != null) {
+				FlounderLogger.error(uniformName + " is not a array!");
+			} else {
+				FlounderLogger.error("Could not find a uniform for " + uniformName);
+			}
+
+			FlounderLogger.exception(e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the last shader cache frame the shader was started in.
+	 *
+	 * @return The last used frame.
+	 */
+	public long getLastUsedFrame() {
+		return lastUsedFrame;
+	}
+
+	protected void setLastUsedFrame(long lastUsedFrame) {
+		this.lastUsedFrame = lastUsedFrame;
+	}
+
 	@Override
 	public boolean isLoaded() {
 		return super.isLoaded() && programID != -1;
@@ -339,7 +616,7 @@ public class ShaderObject extends FactoryObject {
 	public void delete() {
 		if (isLoaded()) {
 			setFullyLoaded(false);
-			FlounderProcessors.sendRequest(new ShaderDeleteRequest(this));
+			FlounderRenderer.sendRequest(new ShaderDeleteRequest(this));
 		}
 	}
 }
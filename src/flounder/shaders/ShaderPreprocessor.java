@@ -0,0 +1,483 @@
+package flounder.shaders;
+
+import flounder.helpers.*;
+import flounder.loaders.*;
+import flounder.resources.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Turns the GLSL sources of a shader into the source given to OpenGL, and collects the layouts, constants, uniforms and uniform blocks the shader declares.
+ * Each line is scanned once by a small lexer. Included files are preprocessed once and cached by path and modification time, so shaders sharing
+ * includes do not read them again. Preprocessing uses no OpenGL, so shaders can be preprocessed on any thread.
+ */
+public class ShaderPreprocessor {
+	private final Map<String, Unit> includes;
+
+	private final AtomicLong includeHits;
+	private final AtomicLong includeMisses;
+
+	/**
+	 * Creates a new shader preprocessor.
+	 */
+	public ShaderPreprocessor() {
+		this.includes = new ConcurrentHashMap<>();
+		this.includeHits = new AtomicLong();
+		this.includeMisses = new AtomicLong();
+	}
+
+	/**
+	 * Preprocesses every type of a shader.
+	 *
+	 * @param builder The builder of the shader.
+	 *
+	 * @return The preprocessed shader.
+	 *
+	 * @throws IOException If a source or included file could not be read.
+	 */
+	public Preprocessed preprocess(ShaderBuilder builder) throws IOException {
+		Unit shader = new Unit();
+		List<String> sources = new ArrayList<>();
+
+		for (ShaderType type : builder.getTypes()) {
+			int start = shader.source.length();
+
+			if (type.getShaderFile() != null && type.getShaderFile().isPresent()) {
+				MyFile file = type.getShaderFile().get();
+
+				try (BufferedReader reader = open(file)) {
+					String line;
+
+					while ((line = reader.readLine()) != null) {
+						processLine(line, shader);
+					}
+				}
+			} else if (type.getShaderString() != null && type.getShaderString().isPresent()) {
+				for (String line : type.getShaderString().get().split("\n")) {
+					processLine(line, shader);
+				}
+			}
+
+			sources.add(shader.source.substring(start));
+		}
+
+		return new Preprocessed(sources, shader);
+	}
+
+	/**
+	 * Processes one line into a unit, lines are trimmed and scanned from their first token.
+	 */
+	private void processLine(String rawLine, Unit unit) throws IOException {
+		String line = rawLine.trim();
+		String token = firstToken(line);
+
+		// Without uniform buffers the members of a uniform block are declared as plain uniforms, loaded into each shader instead.
+		if (unit.plainBlock) {
+			if (line.startsWith("}")) {
+				unit.plainBlock = false;
+			} else if (!line.isEmpty() && !line.startsWith("//")) {
+				unit.addUniform("uniform " + line);
+				unit.source.append("uniform ").append(line).append('\n');
+			}
+
+			return;
+		}
+
+		switch (token) {
+			case "#include":
+				MyFile includeFile = new MyFile(FlounderShaders.SHADERS_LOC, includeName(line));
+				Unit include = getInclude(includeFile);
+				unit.append(include);
+				unit.source.append('\n');
+				return;
+			case "layout":
+				int close = line.indexOf(')');
+				String qualifiers = close == -1 ? "" : line.substring(0, close);
+				String declaration = close == -1 ? "" : line.substring(close + 1).trim();
+
+				if (firstToken(declaration).equals("uniform") && declaration.endsWith("{")) {
+					if (!FlounderShaders.isUniformBuffersSupported()) {
+						unit.plainBlock = true;
+						return;
+					}
+
+					unit.addBlock(blockName(declaration));
+				} else if (qualifiers.contains("location")) {
+					unit.layoutLocations.add(line);
+					unit.source.append(declaration).append('\n');
+					return;
+				} else if (qualifiers.contains("binding")) {
+					unit.layoutBindings.add(line);
+					unit.source.append(declaration).append('\n');
+					return;
+				}
+
+				break;
+			case "uniform":
+				if (line.endsWith("{")) {
+					if (!FlounderShaders.isUniformBuffersSupported()) {
+						unit.plainBlock = true;
+						return;
+					}
+
+					unit.addBlock(blockName(line));
+				} else {
+					unit.addUniform(line);
+				}
+
+				break;
+			case "const":
+				unit.addConstant(line);
+				break;
+		}
+
+		unit.source.append(line).append('\n');
+	}
+
+	/**
+	 * Gets a preprocessed include, from the cache when neither it nor the files it includes have changed.
+	 */
+	private Unit getInclude(MyFile file) throws IOException {
+		String path = AssetPack.normalize(file.getPath());
+		Unit cached = includes.get(path);
+
+		if (cached != null && cached.isCurrent()) {
+			includeHits.incrementAndGet();
+			return cached;
+		}
+
+		includeMisses.incrementAndGet();
+		Unit unit = new Unit();
+		unit.dependencies.put(file, getLastModified(file));
+
+		try (BufferedReader reader = open(file)) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				processLine(line, unit);
+			}
+		}
+
+		// Drops the newline after the last line, the including line adds its own.
+		if (unit.source.length() > 0) {
+			unit.source.setLength(unit.source.length() - 1);
+		}
+
+		includes.put(path, unit);
+		return unit;
+	}
+
+	private static BufferedReader open(MyFile file) throws IOException {
+		BufferedReader reader;
+
+		try {
+			reader = FlounderLoader.openReader(file);
+		} catch (Exception e) {
+			throw new IOException("Could not read file " + file.getName(), e);
+		}
+
+		if (reader == null) {
+			throw new IOException("Could not read file " + file.getName());
+		}
+
+		return reader;
+	}
+
+	/**
+	 * Gets when a file last changed, files inside jars and asset packs never change while running.
+	 */
+	private static long getLastModified(MyFile file) {
+		URL url = ShaderPreprocessor.class.getResource("/" + AssetPack.normalize(file.getPath()));
+
+		if (url != null && "file".equals(url.getProtocol())) {
+			try {
+				return new File(url.toURI()).lastModified();
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				return 0;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Gets the first token of a line, ending at whitespace or a open bracket.
+	 */
+	private static String firstToken(String line) {
+		int end = 0;
+
+		while (end < line.length()) {
+			char c = line.charAt(end);
+
+			if (Character.isWhitespace(c) || c == '(') {
+				break;
+			}
+
+			end++;
+		}
+
+		return line.substring(0, end);
+	}
+
+	/**
+	 * Gets the file name of a include line, such as {@code #include "maths.glsl"}.
+	 */
+	private static String includeName(String line) {
+		StringBuilder name = new StringBuilder();
+
+		for (int i = "#include".length(); i < line.length(); i++) {
+			char c = line.charAt(i);
+
+			if (c != '"' && c != '<' && c != '>' && !Character.isWhitespace(c)) {
+				name.append(c);
+			}
+		}
+
+		return name.toString();
+	}
+
+	/**
+	 * Gets the name of a uniform block declaration, such as {@code uniform FrameData {}.
+	 */
+	private static String blockName(String declaration) {
+		return declaration.substring(declaration.indexOf("uniform") + "uniform".length(), declaration.length() - 1).trim();
+	}
+
+	/**
+	 * Splits a line into its whitespace separated words.
+	 */
+	private static List<String> words(String line) {
+		List<String> words = new ArrayList<>();
+		int start = -1;
+
+		for (int i = 0; i <= line.length(); i++) {
+			boolean separator = i == line.length() || Character.isWhitespace(line.charAt(i));
+
+			if (!separator && start == -1) {
+				start = i;
+			} else if (separator && start != -1) {
+				words.add(line.substring(start, i));
+				start = -1;
+			}
+		}
+
+		return words;
+	}
+
+	/**
+	 * Gets the number of includes taken from the cache.
+	 *
+	 * @return The include cache hits.
+	 */
+	public long getIncludeHits() {
+		return includeHits.get();
+	}
+
+	/**
+	 * Gets the number of includes read from their file, because they were not cached or had changed.
+	 *
+	 * @return The include cache misses.
+	 */
+	public long getIncludeMisses() {
+		return includeMisses.get();
+	}
+
+	/**
+	 * The output of preprocessing a file or a whole shader.
+	 */
+	private static class Unit {
+		private final StringBuilder source;
+		private final List<Pair<String, String>> constantValues;
+		private final List<String> layoutLocations;
+		private final List<String> layoutBindings;
+		private final List<UniformDeclaration> uniforms;
+		private final List<String> uniformBlocks;
+		private final Map<MyFile, Long> dependencies;
+		private boolean plainBlock;
+
+		private Unit() {
+			this.source = new StringBuilder();
+			this.constantValues = new ArrayList<>();
+			this.layoutLocations = new ArrayList<>();
+			this.layoutBindings = new ArrayList<>();
+			this.uniforms = new ArrayList<>();
+			this.uniformBlocks = new ArrayList<>();
+			this.dependencies = new HashMap<>();
+		}
+
+		/**
+		 * Parses a constant such as {@code const int SIZE = 4;}.
+		 */
+		private void addConstant(String line) {
+			int equals = line.indexOf('=');
+			int end = line.lastIndexOf(';');
+
+			if (equals == -1) {
+				return;
+			}
+
+			List<String> declaration = words(line.substring(0, equals));
+			String value = line.substring(equals + 1, end > equals ? end : line.length()).trim();
+
+			if (declaration.size() >= 3) {
+				constantValues.add(new Pair<>(declaration.get(declaration.size() - 1), value));
+			}
+		}
+
+		/**
+		 * Parses a uniform such as {@code uniform vec3 colour;} or {@code uniform vec4 data[SIZE];}.
+		 */
+		private void addUniform(String line) {
+			int end = line.lastIndexOf(';');
+			List<String> declaration = words(line.substring("uniform".length(), end == -1 ? line.length() : end));
+
+			if (declaration.size() < 2) {
+				return;
+			}
+
+			Uniform.Uniforms type = Uniform.Uniforms.valueOf(declaration.get(0).toUpperCase());
+			String name = declaration.get(1);
+			int open = name.indexOf('[');
+
+			if (open != -1 && name.endsWith("]")) {
+				uniforms.add(new UniformDeclaration(type, name.substring(0, open).trim(), name.substring(open + 1, name.length() - 1).trim()));
+			} else {
+				uniforms.add(new UniformDeclaration(type, name, null));
+			}
+		}
+
+		private void addBlock(String name) {
+			if (!uniformBlocks.contains(name)) {
+				uniformBlocks.add(name);
+			}
+		}
+
+		/**
+		 * Adds the source and declarations of a included unit.
+		 */
+		private void append(Unit include) {
+			source.append(include.source);
+			constantValues.addAll(include.constantValues);
+			layoutLocations.addAll(include.layoutLocations);
+			layoutBindings.addAll(include.layoutBindings);
+			uniforms.addAll(include.uniforms);
+			include.uniformBlocks.forEach(this::addBlock);
+			dependencies.putAll(include.dependencies);
+		}
+
+		/**
+		 * Gets if none of the files this unit was read from have changed since.
+		 */
+		private boolean isCurrent() {
+			for (Map.Entry<MyFile, Long> dependency : dependencies.entrySet()) {
+				if (getLastModified(dependency.getKey()) != dependency.getValue()) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * A declared uniform, the length of arrays is found once every constant is known.
+	 */
+	private static class UniformDeclaration {
+		private final Uniform.Uniforms type;
+		private final String name;
+		private final String arraySize;
+
+		private UniformDeclaration(Uniform.Uniforms type, String name, String arraySize) {
+			this.type = type;
+			this.name = name;
+			this.arraySize = arraySize;
+		}
+	}
+
+	/**
+	 * A preprocessed shader, ready to be compiled on the OpenGL thread.
+	 */
+	public static class Preprocessed {
+		private final List<String> sources;
+		private final List<Pair<String, String>> constantValues;
+		private final List<String> layoutLocations;
+		private final List<String> layoutBindings;
+		private final List<Pair<Uniform.Uniforms, String>> shaderUniforms;
+		private final Map<String, Pair<Uniform.Uniforms, Integer>> uniformArrays;
+		private final List<String> uniformBlocks;
+
+		private Preprocessed(List<String> sources, Unit shader) {
+			this.sources = sources;
+			this.constantValues = shader.constantValues;
+			this.layoutLocations = shader.layoutLocations;
+			this.layoutBindings = shader.layoutBindings;
+			this.shaderUniforms = new ArrayList<>();
+			this.uniformArrays = new LinkedHashMap<>();
+			this.uniformBlocks = shader.uniformBlocks;
+
+			for (UniformDeclaration uniform : shader.uniforms) {
+				if (uniform.arraySize == null) {
+					shaderUniforms.add(new Pair<>(uniform.type, uniform.name));
+					continue;
+				}
+
+				int size = 0;
+
+				if (ByteWork.isInteger(uniform.arraySize)) {
+					size = Integer.parseInt(uniform.arraySize);
+				} else {
+					for (Pair<String, String> pair : constantValues) {
+						if (pair.getFirst().equals(uniform.arraySize)) {
+							size = Integer.parseInt(pair.getSecond());
+							break;
+						}
+					}
+				}
+
+				uniformArrays.put(uniform.name, new Pair<>(uniform.type, size));
+			}
+		}
+
+		/**
+		 * Gets the source of each shader type, in the order of the builders types.
+		 *
+		 * @return The shader sources.
+		 */
+		public List<String> getSources() {
+			return sources;
+		}
+
+		public List<Pair<String, String>> getConstantValues() {
+			return constantValues;
+		}
+
+		public List<String> getLayoutLocations() {
+			return layoutLocations;
+		}
+
+		public List<String> getLayoutBindings() {
+			return layoutBindings;
+		}
+
+		public List<Pair<Uniform.Uniforms, String>> getShaderUniforms() {
+			return shaderUniforms;
+		}
+
+		/**
+		 * Gets the array uniforms, by name without a index.
+		 *
+		 * @return The element type and length of each array.
+		 */
+		public Map<String, Pair<Uniform.Uniforms, Integer>> getUniformArrays() {
+			return uniformArrays;
+		}
+
+		public List<String> getUniformBlocks() {
+			return uniformBlocks;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package flounder.shaders;
+
+import java.util.*;
+
+/**
+ * Lays out the members of a uniform block by the std140 rules, so block data can be packed on the CPU in the same layout the shader reads it.
+ * Scalars align to 4 bytes, vec2 to 8, vec3 and vec4 to 16, matrices are stored as vec4 columns and every array element is padded to 16 bytes.
+ */
+public class Std140Layout {
+	private final Map<String, Member> members;
+	private int size;
+
+	/**
+	 * Creates a new empty std140 layout.
+	 */
+	public Std140Layout() {
+		this.members = new LinkedHashMap<>();
+		this.size = 0;
+	}
+
+	public Std140Layout addFloat(String name) {
+		return add(name, Type.FLOAT, 1, false);
+	}
+
+	public Std140Layout addInt(String name) {
+		return add(name, Type.INT, 1, false);
+	}
+
+	public Std140Layout addVec2(String name) {
+		return add(name, Type.VEC2, 1, false);
+	}
+
+	public Std140Layout addVec3(String name) {
+		return add(name, Type.VEC3, 1, false);
+	}
+
+	public Std140Layout addVec4(String name) {
+		return add(name, Type.VEC4, 1, false);
+	}
+
+	public Std140Layout addMat3(String name) {
+		return add(name, Type.MAT3, 1, false);
+	}
+
+	public Std140Layout addMat4(String name) {
+		return add(name, Type.MAT4, 1, false);
+	}
+
+	/**
+	 * Adds a array member.
+	 *
+	 * @param name The members name.
+	 * @param type The element type.
+	 * @param length The number of elements.
+	 *
+	 * @return this.
+	 */
+	public Std140Layout addArray(String name, Type type, int length) {
+		return add(name, type, length, true);
+	}
+
+	private Std140Layout add(String name, Type type, int length, boolean array) {
+		if (members.containsKey(name)) {
+			throw new IllegalArgumentException("Uniform block member " + name + " was added twice");
+		}
+
+		// Array elements are rounded up to the size of a vec4, for both their alignment and their stride.
+		int alignment = array ? roundUp(type.alignment, 16) : type.alignment;
+		int stride = array ? roundUp(type.size, 16) : type.size;
+		int offset = roundUp(size, alignment);
+
+		members.put(name, new Member(type, offset, stride, length));
+		size = offset + stride * length;
+		return this;
+	}
+
+	/**
+	 * Gets the byte offset of a member.
+	 *
+	 * @param name The members name.
+	 *
+	 * @return The offset from the start of the block.
+	 */
+	public int getOffset(String name) {
+		return getOffset(name, 0);
+	}
+
+	/**
+	 * Gets the byte offset of a array element.
+	 *
+	 * @param name The members name.
+	 * @param index The element index.
+	 *
+	 * @return The offset from the start of the block.
+	 */
+	public int getOffset(String name, int index) {
+		Member member = getMember(name);
+
+		if (index < 0 || index >= member.length) {
+			throw new IndexOutOfBoundsException("Uniform block member " + name + " has " + member.length + " elements, " + index + " is out of range");
+		}
+
+		return member.offset + member.stride * index;
+	}
+
+	/**
+	 * Gets the bytes between the start of each element of a member.
+	 *
+	 * @param name The members name.
+	 *
+	 * @return The array stride, or the members size when it is not a array.
+	 */
+	public int getStride(String name) {
+		return getMember(name).stride;
+	}
+
+	/**
+	 * Gets the type of a member.
+	 *
+	 * @param name The members name.
+	 *
+	 * @return The member type.
+	 */
+	public Type getType(String name) {
+		return getMember(name).type;
+	}
+
+	/**
+	 * Gets if the layout has a member.
+	 *
+	 * @param name The members name.
+	 *
+	 * @return If the member was added.
+	 */
+	public boolean contains(String name) {
+		return members.containsKey(name);
+	}
+
+	/**
+	 * Gets the size of the block, padded to a multiple of a vec4 as a block used in a array would be.
+	 *
+	 * @return The block size in bytes.
+	 */
+	public int getSize() {
+		return roundUp(size, 16);
+	}
+
+	private Member getMember(String name) {
+		Member member = members.get(name);
+
+		if (member == null) {
+			throw new IllegalArgumentException("Uniform block has no member called " + name);
+		}
+
+		return member;
+	}
+
+	private static int roundUp(int value, int multiple) {
+		return (value + multiple - 1) / multiple * multiple;
+	}
+
+	/**
+	 * The types a block member can have, with their std140 base alignment and size in bytes.
+	 */
+	public enum Type {
+		FLOAT(4, 4), INT(4, 4), VEC2(8, 8), VEC3(16, 12), VEC4(16, 16), MAT3(16, 48), MAT4(16, 64);
+
+		private final int alignment;
+		private final int size;
+
+		Type(int alignment, int size) {
+			this.alignment = alignment;
+			this.size = size;
+		}
+
+		public int getAlignment() {
+			return alignment;
+		}
+
+		public int getSize() {
+			return size;
+		}
+	}
+
+	private static class Member {
+		private final Type type;
+		private final int offset;
+		private final int stride;
+		private final int length;
+
+		private Member(Type type, int offset, int stride, int length) {
+			this.type = type;
+			this.offset = offset;
+			this.stride = stride;
+			this.length = length;
+		}
+	}
+}
@@ -2,6 +2,8 @@ package flounder.shaders;
 
 import flounder.logger.*;
 
+import java.util.function.*;
+
 import static org.lwjgl.opengl.GL20.*;
 
 /**
@@ -14,6 +16,7 @@ public abstract class Uniform {
 	private ShaderObject shader;
 
 	private int location;
+	private boolean stale;
 
 	protected Uniform(String name, ShaderObject shader) {
 		this.name = name;
@@ -26,26 +29,78 @@ public abstract class Uniform {
 		if (location == NOT_FOUND) {
 			FlounderLogger.warning("No uniform variable called " + name + " found in shader " + shader.getName() + "!");
 		}
+
+		// A newly linked program holds none of the cached values.
+		stale = true;
+	}
+
+	/**
+	 * Gets if a value should be uploaded, when it differs from the cached value or the program was linked since the last upload.
+	 *
+	 * @param changed If the value differs from the cached value.
+	 *
+	 * @return If the value should be uploaded, the caller must upload it and update its cache.
+	 */
+	protected boolean needsUpload(boolean changed) {
+		if (!changed && !stale) {
+			return false;
+		}
+
+		stale = false;
+		return true;
 	}
 
 	protected int getLocation() {
 		return location;
 	}
 
+	/**
+	 * The uniform types that can be declared in a shader, each creates its uniform class directly from its constructor.
+	 */
 	public enum Uniforms {
-		BOOL(UniformBool.class.getName()), FLOAT(UniformFloat.class.getName()), INT(UniformInt.class.getName()),
-		SAMPLER2D(UniformSampler2D.class.getName()),
-		MAT2(UniformMat2.class.getName()), MAT3(UniformMat3.class.getName()), MAT4(UniformMat4.class.getName()),
-		VEC2(UniformVec2.class.getName()), VEC3(UniformVec3.class.getName()), VEC4(UniformVec4.class.getName());
+		BOOL(UniformBool::new, 1, false), FLOAT(UniformFloat::new, 1, false), INT(UniformInt::new, 1, true),
+		SAMPLER2D(UniformSampler2D::new, 1, true),
+		MAT2(UniformMat2::new, 4, false), MAT3(UniformMat3::new, 9, false), MAT4(UniformMat4::new, 16, false),
+		VEC2(UniformVec2::new, 2, false), VEC3(UniformVec3::new, 3, false), VEC4(UniformVec4::new, 4, false);
+
+		private final BiFunction<String, ShaderObject, Uniform> constructor;
+		private final int components;
+		private final boolean integer;
 
-		private String uniformClass;
+		Uniforms(BiFunction<String, ShaderObject, Uniform> constructor, int components, boolean integer) {
+			this.constructor = constructor;
+			this.components = components;
+			this.integer = integer;
+		}
+
+		/**
+		 * Creates a uniform of this type.
+		 *
+		 * @param name The uniforms name.
+		 * @param shader The shader the uniform is in.
+		 *
+		 * @return The new uniform.
+		 */
+		public Uniform create(String name, ShaderObject shader) {
+			return constructor.apply(name, shader);
+		}
 
-		Uniforms(String uniformClass) {
-			this.uniformClass = uniformClass;
+		/**
+		 * Gets the number of float or int values in one uniform of this type.
+		 *
+		 * @return The component count.
+		 */
+		public int getComponents() {
+			return components;
 		}
 
-		public String getUniformClass() {
-			return uniformClass;
+		/**
+		 * Gets if this type is uploaded as ints instead of floats.
+		 *
+		 * @return If the type is integer.
+		 */
+		public boolean isInteger() {
+			return integer;
 		}
 	}
 }
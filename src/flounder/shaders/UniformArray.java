@@ -0,0 +1,189 @@
+package flounder.shaders;
+
+import flounder.maths.*;
+import flounder.maths.matrices.*;
+import flounder.maths.vectors.*;
+import org.lwjgl.*;
+
+import java.nio.*;
+import java.util.*;
+
+import static org.lwjgl.opengl.GL20.*;
+
+/**
+ * Represents a array uniform, the elements are stored together and set one at a time then uploaded together with a single call.
+ */
+public class UniformArray extends Uniform {
+	private final Uniform.Uniforms type;
+	private final int length;
+	private final float[] values;
+	private final float[] currentValues;
+	private final int[] intValues;
+	private final int[] currentIntValues;
+	private final FloatBuffer floatBuffer;
+	private final IntBuffer intBuffer;
+	private final FloatBuffer matrixBuffer;
+
+	/**
+	 * Creates a new array uniform.
+	 *
+	 * @param name The name of the array in the shader, without a index.
+	 * @param shader The shader the array is in.
+	 * @param type The type of each element.
+	 * @param length The number of elements.
+	 */
+	public UniformArray(String name, ShaderObject shader, Uniform.Uniforms type, int length) {
+		super(name, shader);
+		this.type = type;
+		this.length = length;
+		this.values = new float[type.isInteger() ? 0 : length * type.getComponents()];
+		this.currentValues = new float[values.length];
+		this.intValues = new int[type.isInteger() ? length : 0];
+		this.currentIntValues = new int[intValues.length];
+		this.floatBuffer = type.isInteger() ? null : BufferUtils.createFloatBuffer(values.length);
+		this.intBuffer = type.isInteger() ? BufferUtils.createIntBuffer(intValues.length) : null;
+		this.matrixBuffer = type == Uniform.Uniforms.MAT4 ? BufferUtils.createFloatBuffer(16) : null;
+	}
+
+	/**
+	 * Sets the components of a element, uploaded on the next {@link #upload()}.
+	 *
+	 * @param index The element index.
+	 * @param components The new components, as many as the element type has. Matrices are given column after column.
+	 */
+	public void set(int index, float... components) {
+		System.arraycopy(components, 0, values, index * type.getComponents(), type.getComponents());
+	}
+
+	public void setFloat(int index, float value) {
+		values[index * type.getComponents()] = value;
+	}
+
+	/**
+	 * Sets a element of a {@code int} or {@code sampler2D} array, uploaded on the next {@link #upload()}.
+	 *
+	 * @param index The element index.
+	 * @param value The new value, or texture unit for samplers.
+	 */
+	public void setInt(int index, int value) {
+		intValues[index] = value;
+	}
+
+	public void setBoolean(int index, boolean value) {
+		values[index * type.getComponents()] = value ? 1.0f : 0.0f;
+	}
+
+	public void setVec2(int index, float x, float y) {
+		int offset = index * type.getComponents();
+		values[offset] = x;
+		values[offset + 1] = y;
+	}
+
+	public void setVec2(int index, Vector2f vector) {
+		setVec2(index, vector.x, vector.y);
+	}
+
+	public void setVec3(int index, float x, float y, float z) {
+		int offset = index * type.getComponents();
+		values[offset] = x;
+		values[offset + 1] = y;
+		values[offset + 2] = z;
+	}
+
+	public void setVec3(int index, Vector3f vector) {
+		setVec3(index, vector.x, vector.y, vector.z);
+	}
+
+	public void setVec3(int index, Colour colour) {
+		setVec3(index, colour.r, colour.g, colour.b);
+	}
+
+	public void setVec4(int index, float x, float y, float z, float w) {
+		int offset = index * type.getComponents();
+		values[offset] = x;
+		values[offset + 1] = y;
+		values[offset + 2] = z;
+		values[offset + 3] = w;
+	}
+
+	public void setVec4(int index, Vector4f vector) {
+		setVec4(index, vector.x, vector.y, vector.z, vector.w);
+	}
+
+	/**
+	 * Sets a element of a {@code mat4} array, uploaded on the next {@link #upload()}.
+	 *
+	 * @param index The element index.
+	 * @param matrix The new matrix.
+	 */
+	public void setMat4(int index, Matrix4f matrix) {
+		matrixBuffer.clear();
+		matrix.store(matrixBuffer);
+		matrixBuffer.flip();
+		matrixBuffer.get(values, index * 16, 16);
+	}
+
+	/**
+	 * Loads every element to the uniform with one call, if any value already on the GPU is not the same as the new values.
+	 */
+	public void upload() {
+		if (type.isInteger()) {
+			if (needsUpload(!Arrays.equals(intValues, currentIntValues))) {
+				intBuffer.clear();
+				intBuffer.put(intValues);
+				intBuffer.flip();
+				glUniform1iv(super.getLocation(), intBuffer);
+				System.arraycopy(intValues, 0, currentIntValues, 0, intValues.length);
+			}
+		} else if (needsUpload(!Arrays.equals(values, currentValues))) {
+			floatBuffer.clear();
+			floatBuffer.put(values);
+			floatBuffer.flip();
+
+			switch (type) {
+				case BOOL:
+				case FLOAT:
+					glUniform1fv(super.getLocation(), floatBuffer);
+					break;
+				case VEC2:
+					glUniform2fv(super.getLocation(), floatBuffer);
+					break;
+				case VEC3:
+					glUniform3fv(super.getLocation(), floatBuffer);
+					break;
+				case VEC4:
+					glUniform4fv(super.getLocation(), floatBuffer);
+					break;
+				case MAT2:
+					glUniformMatrix2fv(super.getLocation(), false, floatBuffer);
+					break;
+				case MAT3:
+					glUniformMatrix3fv(super.getLocation(), false, floatBuffer);
+					break;
+				case MAT4:
+					glUniformMatrix4fv(super.getLocation(), false, floatBuffer);
+					break;
+			}
+
+			System.arraycopy(values, 0, currentValues, 0, values.length);
+		}
+	}
+
+	/**
+	 * Gets the type of each element.
+	 *
+	 * @return The element type.
+	 */
+	public Uniform.Uniforms getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the length of the array.
+	 *
+	 * @return The number of elements.
+	 */
+	public int getLength() {
+		return length;
+	}
+}
@@ -0,0 +1,63 @@
+package flounder.shaders;
+
+import flounder.maths.*;
+import flounder.maths.vectors.*;
+
+/**
+ * Represents a {@code vec4} array uniform used as a block of packed values, the values are set one slot at a time then uploaded together with a single call.
+ */
+public class UniformBlock extends UniformArray {
+	/**
+	 * Creates a new uniform block.
+	 *
+	 * @param name The name of the {@code vec4} array in the shader.
+	 * @param shader The shader the block is in.
+	 * @param size The length of the array.
+	 */
+	public UniformBlock(String name, ShaderObject shader, int size) {
+		super(name, shader, Uniform.Uniforms.VEC4, size);
+	}
+
+	/**
+	 * Sets a slot of the block, uploaded on the next {@link #upload()}.
+	 *
+	 * @param slot The array index.
+	 * @param x The first value.
+	 * @param y The second value.
+	 * @param z The third value.
+	 * @param w The fourth value.
+	 */
+	public void set(int slot, float x, float y, float z, float w) {
+		setVec4(slot, x, y, z, w);
+	}
+
+	/**
+	 * Sets a slot of the block, uploaded on the next {@link #upload()}.
+	 *
+	 * @param slot The array index.
+	 * @param vector The new vector.
+	 */
+	public void set(int slot, Vector4f vector) {
+		set(slot, vector.x, vector.y, vector.z, vector.w);
+	}
+
+	/**
+	 * Sets a slot of the block, uploaded on the next {@link #upload()}.
+	 *
+	 * @param slot The array index.
+	 * @param colour The new colour, stored in the first three values.
+	 * @param w The fourth value.
+	 */
+	public void set(int slot, Colour colour, float w) {
+		set(slot, colour.r, colour.g, colour.b, w);
+	}
+
+	/**
+	 * Gets the length of the array.
+	 *
+	 * @return The number of {@code vec4} slots.
+	 */
+	public int getSize() {
+		return getLength();
+	}
+}
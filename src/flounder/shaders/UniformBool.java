@@ -18,7 +18,7 @@ public class UniformBool extends Uniform {
 	 * @param value The new value.
 	 */
 	public void loadBoolean(boolean value) {
-		if (currentValue != value) {
+		if (needsUpload(currentValue != value)) {
 			glUniform1f(super.getLocation(), value ? 1.0f : 0.0f);
 			currentValue = value;
 		}
@@ -0,0 +1,159 @@
+package flounder.shaders;
+
+import flounder.maths.*;
+import flounder.maths.matrices.*;
+import flounder.maths.vectors.*;
+import org.lwjgl.*;
+
+import java.nio.*;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+
+/**
+ * A uniform buffer object holding the data of a uniform block shared by every shader that declares it.
+ * Values are packed into a CPU copy with the blocks {@link Std140Layout}, and the buffer is uploaded once per {@link #update()} when something changed.
+ */
+public class UniformBuffer {
+	private final String blockName;
+	private final Std140Layout layout;
+	private final ByteBuffer data;
+	private final int bindingPoint;
+
+	private int bufferID;
+	private boolean dirty;
+
+	/**
+	 * Creates a new uniform buffer, the OpenGL buffer is created on the first update.
+	 *
+	 * @param blockName The name of the uniform block in the shaders.
+	 * @param layout The layout of the blocks members.
+	 */
+	public UniformBuffer(String blockName, Std140Layout layout) {
+		this.blockName = blockName;
+		this.layout = layout;
+		this.data = BufferUtils.createByteBuffer(layout.getSize());
+		this.bindingPoint = FlounderShaders.getBlockBinding(blockName);
+		this.bufferID = -1;
+		this.dirty = true;
+	}
+
+	public UniformBuffer setFloat(String name, float value) {
+		data.putFloat(layout.getOffset(name), value);
+		dirty = true;
+		return this;
+	}
+
+	public UniformBuffer setInt(String name, int value) {
+		data.putInt(layout.getOffset(name), value);
+		dirty = true;
+		return this;
+	}
+
+	public UniformBuffer setVec2(String name, int index, float x, float y) {
+		int offset = layout.getOffset(name, index);
+		data.putFloat(offset, x);
+		data.putFloat(offset + 4, y);
+		dirty = true;
+		return this;
+	}
+
+	public UniformBuffer setVec3(String name, int index, float x, float y, float z) {
+		int offset = layout.getOffset(name, index);
+		data.putFloat(offset, x);
+		data.putFloat(offset + 4, y);
+		data.putFloat(offset + 8, z);
+		dirty = true;
+		return this;
+	}
+
+	public UniformBuffer setVec3(String name, Vector3f vector) {
+		return setVec3(name, 0, vector.x, vector.y, vector.z);
+	}
+
+	public UniformBuffer setVec3(String name, Colour colour) {
+		return setVec3(name, 0, colour.r, colour.g, colour.b);
+	}
+
+	public UniformBuffer setVec4(String name, int index, float x, float y, float z, float w) {
+		int offset = layout.getOffset(name, index);
+		data.putFloat(offset, x);
+		data.putFloat(offset + 4, y);
+		data.putFloat(offset + 8, z);
+		data.putFloat(offset + 12, w);
+		dirty = true;
+		return this;
+	}
+
+	public UniformBuffer setVec4(String name, Vector4f vector) {
+		return setVec4(name, 0, vector.x, vector.y, vector.z, vector.w);
+	}
+
+	/**
+	 * Sets a mat4 member, stored column after column.
+	 *
+	 * @param name The members name.
+	 * @param matrix The new matrix.
+	 *
+	 * @return this.
+	 */
+	public UniformBuffer setMat4(String name, Matrix4f matrix) {
+		data.position(layout.getOffset(name));
+		matrix.store(data.slice().order(ByteOrder.nativeOrder()).asFloatBuffer());
+		data.clear();
+		dirty = true;
+		return this;
+	}
+
+	/**
+	 * Uploads the packed data if it changed since the last update, and binds the buffer to the blocks binding point. Must be called on the OpenGL thread.
+	 */
+	public void update() {
+		if (bufferID == -1) {
+			bufferID = glGenBuffers();
+			glBindBuffer(GL_UNIFORM_BUFFER, bufferID);
+			glBufferData(GL_UNIFORM_BUFFER, data.capacity(), GL_DYNAMIC_DRAW);
+			glBindBufferBase(GL_UNIFORM_BUFFER, bindingPoint, bufferID);
+		}
+
+		if (dirty) {
+			data.clear();
+			glBindBuffer(GL_UNIFORM_BUFFER, bufferID);
+			glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+			glBindBuffer(GL_UNIFORM_BUFFER, 0);
+			dirty = false;
+		}
+	}
+
+	/**
+	 * Gets the CPU copy of the packed block.
+	 *
+	 * @return The block data, in the layouts byte order.
+	 */
+	public ByteBuffer getData() {
+		return data;
+	}
+
+	public String getBlockName() {
+		return blockName;
+	}
+
+	public Std140Layout getLayout() {
+		return layout;
+	}
+
+	public int getBindingPoint() {
+		return bindingPoint;
+	}
+
+	/**
+	 * Deletes the buffer from OpenGL memory.
+	 */
+	public void delete() {
+		if (bufferID != -1) {
+			glDeleteBuffers(bufferID);
+			bufferID = -1;
+		}
+	}
+}
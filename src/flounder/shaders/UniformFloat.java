@@ -18,7 +18,7 @@ public class UniformFloat extends Uniform {
 	 * @param value The new value.
 	 */
 	public void loadFloat(float value) {
-		if (currentValue != value) {
+		if (needsUpload(currentValue != value)) {
 			glUniform1f(super.getLocation(), value);
 			currentValue = value;
 		}
@@ -18,7 +18,7 @@ public class UniformInt extends Uniform {
 	 * @param value The new value.
 	 */
 	public void loadInt(int value) {
-		if (currentValue != value) {
+		if (needsUpload(currentValue != value)) {
 			glUniform1i(super.getLocation(), value);
 			currentValue = value;
 		}
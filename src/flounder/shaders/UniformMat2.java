@@ -26,7 +26,7 @@ public class UniformMat2 extends Uniform {
 	 * @param value The new value.
 	 */
 	public void loadMat2(Matrix2f value) {
-		if (value != null && !currentValue.equals(value)) {
+		if (value != null && needsUpload(!currentValue.equals(value))) {
 			floatBuffer.clear();
 			value.store(floatBuffer);
 			floatBuffer.flip();
@@ -26,7 +26,7 @@ public class UniformMat3 extends Uniform {
 	 * @param value The new value.
 	 */
 	public void loadMat3(Matrix3f value) {
-		if (value != null && !currentValue.equals(value)) {
+		if (value != null && needsUpload(!currentValue.equals(value))) {
 			floatBuffer.clear();
 			value.store(floatBuffer);
 			floatBuffer.flip();
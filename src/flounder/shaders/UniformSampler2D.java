@@ -18,7 +18,7 @@ public class UniformSampler2D extends Uniform {
 	 * @param value The new value.
 	 */
 	public void loadTexUnit(int value) {
-		if (currentValue != value) {
+		if (needsUpload(currentValue != value)) {
 			glUniform1i(super.getLocation(), value);
 			currentValue = value;
 		}
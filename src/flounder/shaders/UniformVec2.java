@@ -31,7 +31,7 @@ public class UniformVec2 extends Uniform {
 	 * @param y The new y value.
 	 */
 	public void loadVec2(float x, float y) {
-		if (x != currentX || y != currentY) {
+		if (needsUpload(x != currentX || y != currentY)) {
 			glUniform2f(super.getLocation(), x, y);
 			currentX = x;
 			currentY = y;
@@ -53,7 +53,7 @@ public class UniformVec3 extends Uniform {
 	 * @param z The new z value.
 	 */
 	public void loadVec3(float x, float y, float z) {
-		if (x != currentX || y != currentY || z != currentZ) {
+		if (needsUpload(x != currentX || y != currentY || z != currentZ)) {
 			glUniform3f(super.getLocation(), x, y, z);
 			currentX = x;
 			currentY = y;
@@ -45,7 +45,7 @@ public class UniformVec4 extends Uniform {
 	 * @param w The new w value.
 	 */
 	public void loadVec4(float x, float y, float z, float w) {
-		if (x != currentX || y != currentY || z != currentZ || w != currentW) {
+		if (needsUpload(x != currentX || y != currentY || z != currentZ || w != currentW)) {
 			glUniform4f(super.getLocation(), x, y, z, w);
 			currentX = x;
 			currentY = y;
@@ -1,8 +1,8 @@
 package flounder.sounds;
 
+import flounder.loaders.*;
 import flounder.logger.*;
 import flounder.resources.*;
-import org.lwjgl.*;
 import org.lwjgl.openal.*;
 
 import javax.sound.sampled.*;
@@ -43,7 +43,7 @@ public class WavDataStream {
 		this.chunkSize = chunkSize;
 		audioStream = stream;
 
-		buffer = BufferUtils.createByteBuffer(chunkSize);
+		buffer = FlounderLoader.acquireBuffer(chunkSize);
 		data = new byte[chunkSize];
 
 		totalBytesRead = 0;
@@ -76,7 +76,7 @@ public class WavDataStream {
 	 * @throws Exception If something goes wrong.
 	 */
 	protected static WavDataStream openWavStream(MyFile wavFile, int chunkSize) throws Exception {
-		InputStream bufferedInput = new BufferedInputStream(wavFile.getInputStream());
+		InputStream bufferedInput = new BufferedInputStream(FlounderLoader.openStream(wavFile));
 		AudioInputStream audioStream = AudioSystem.getAudioInputStream(bufferedInput);
 		WavDataStream wavStream = new WavDataStream(audioStream, chunkSize);
 		return wavStream;
@@ -152,5 +152,8 @@ public class WavDataStream {
 			FlounderLogger.error("Could not close Wav Data Streamer!");
 			FlounderLogger.exception(e);
 		}
+
+		FlounderLoader.releaseBuffer(buffer);
+		buffer = null;
 	}
 }
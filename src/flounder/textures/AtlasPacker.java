@@ -0,0 +1,239 @@
+package flounder.textures;
+
+import java.util.*;
+
+/**
+ * A MaxRects rectangle packer used to place images into atlas pages. Does not touch OpenGL, and the same input always produces the same placements.
+ * Rectangles are placed largest first using the best short side fit heuristic, a new page is started when no existing page has room.
+ */
+public class AtlasPacker {
+	private final int pageWidth;
+	private final int pageHeight;
+	private final int padding;
+
+	/**
+	 * Creates a new atlas packer.
+	 *
+	 * @param pageWidth The width of a page in pixels.
+	 * @param pageHeight The height of a page in pixels.
+	 * @param padding The pixels kept free around each rectangle, used for edge bleeding.
+	 */
+	public AtlasPacker(int pageWidth, int pageHeight, int padding) {
+		this.pageWidth = pageWidth;
+		this.pageHeight = pageHeight;
+		this.padding = padding;
+	}
+
+	/**
+	 * Packs rectangles into as few pages as the heuristic finds.
+	 *
+	 * @param widths The widths of the rectangles.
+	 * @param heights The heights of the rectangles.
+	 *
+	 * @return The placements, in the same order as the input rectangles.
+	 *
+	 * @throws IllegalArgumentException If a rectangle and its padding do not fit on a empty page.
+	 */
+	public Placement[] pack(int[] widths, int[] heights) {
+		Integer[] order = new Integer[widths.length];
+
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+
+			if (widths[i] + 2 * padding > pageWidth || heights[i] + 2 * padding > pageHeight) {
+				throw new IllegalArgumentException("Rectangle " + i + " (" + widths[i] + "x" + heights[i] + ") does not fit in a " + pageWidth + "x" + pageHeight + " page");
+			}
+		}
+
+		// Largest side first, then largest area, then input order so the result does not depend on the sort implementation.
+		Arrays.sort(order, (a, b) -> {
+			int compare = Integer.compare(Math.max(widths[b], heights[b]), Math.max(widths[a], heights[a]));
+
+			if (compare == 0) {
+				compare = Long.compare((long) widths[b] * heights[b], (long) widths[a] * heights[a]);
+			}
+
+			return compare != 0 ? compare : Integer.compare(a, b);
+		});
+
+		List<List<int[]>> pages = new ArrayList<>();
+		Placement[] placements = new Placement[widths.length];
+
+		for (int index : order) {
+			int width = widths[index] + 2 * padding;
+			int height = heights[index] + 2 * padding;
+			int[] placed = null;
+			int page = 0;
+
+			for (; page < pages.size(); page++) {
+				placed = findPosition(pages.get(page), width, height);
+
+				if (placed != null) {
+					break;
+				}
+			}
+
+			if (placed == null) {
+				List<int[]> free = new ArrayList<>();
+				free.add(new int[]{0, 0, pageWidth, pageHeight});
+				pages.add(free);
+				placed = findPosition(free, width, height);
+			}
+
+			place(pages.get(page), placed[0], placed[1], width, height);
+			placements[index] = new Placement(page, placed[0] + padding, placed[1] + padding, widths[index], heights[index]);
+		}
+
+		return placements;
+	}
+
+	/**
+	 * Finds the free rectangle that leaves the shortest leftover side.
+	 *
+	 * @param free The free rectangles of a page, as {x, y, width, height}.
+	 * @param width The width to place.
+	 * @param height The height to place.
+	 *
+	 * @return The position {x, y}, or null if the page has no room.
+	 */
+	private int[] findPosition(List<int[]> free, int width, int height) {
+		int[] best = null;
+		int bestShort = Integer.MAX_VALUE;
+		int bestLong = Integer.MAX_VALUE;
+
+		for (int[] rect : free) {
+			if (rect[2] < width || rect[3] < height) {
+				continue;
+			}
+
+			int leftoverX = rect[2] - width;
+			int leftoverY = rect[3] - height;
+			int shortSide = Math.min(leftoverX, leftoverY);
+			int longSide = Math.max(leftoverX, leftoverY);
+
+			if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+				best = new int[]{rect[0], rect[1]};
+				bestShort = shortSide;
+				bestLong = longSide;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Splits every free rectangle overlapping a placed rectangle, then removes free rectangles contained in others.
+	 */
+	private void place(List<int[]> free, int x, int y, int width, int height) {
+		List<int[]> split = new ArrayList<>();
+
+		for (Iterator<int[]> iterator = free.iterator(); iterator.hasNext(); ) {
+			int[] rect = iterator.next();
+
+			if (x >= rect[0] + rect[2] || x + width <= rect[0] || y >= rect[1] + rect[3] || y + height <= rect[1]) {
+				continue;
+			}
+
+			iterator.remove();
+
+			if (x > rect[0]) {
+				split.add(new int[]{rect[0], rect[1], x - rect[0], rect[3]});
+			}
+
+			if (x + width < rect[0] + rect[2]) {
+				split.add(new int[]{x + width, rect[1], rect[0] + rect[2] - (x + width), rect[3]});
+			}
+
+			if (y > rect[1]) {
+				split.add(new int[]{rect[0], rect[1], rect[2], y - rect[1]});
+			}
+
+			if (y + height < rect[1] + rect[3]) {
+				split.add(new int[]{rect[0], y + height, rect[2], rect[1] + rect[3] - (y + height)});
+			}
+		}
+
+		free.addAll(split);
+
+		for (int i = 0; i < free.size(); i++) {
+			for (int j = i + 1; j < free.size(); j++) {
+				if (contains(free.get(j), free.get(i))) {
+					free.remove(i);
+					i--;
+					break;
+				}
+
+				if (contains(free.get(i), free.get(j))) {
+					free.remove(j);
+					j--;
+				}
+			}
+		}
+	}
+
+	private static boolean contains(int[] outer, int[] inner) {
+		return inner[0] >= outer[0] && inner[1] >= outer[1] && inner[0] + inner[2] <= outer[0] + outer[2] && inner[1] + inner[3] <= outer[1] + outer[3];
+	}
+
+	public int getPageWidth() {
+		return pageWidth;
+	}
+
+	public int getPageHeight() {
+		return pageHeight;
+	}
+
+	public int getPadding() {
+		return padding;
+	}
+
+	/**
+	 * Where a rectangle was placed, the position excludes the padding.
+	 */
+	public static class Placement {
+		private final int page;
+		private final int x;
+		private final int y;
+		private final int width;
+		private final int height;
+
+		public Placement(int page, int x, int y, int width, int height) {
+			this.page = page;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+
+		public int getPage() {
+			return page;
+		}
+
+		public int getX() {
+			return x;
+		}
+
+		public int getY() {
+			return y;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		@Override
+		public String toString() {
+			return "Placement{" +
+					"page=" + page +
+					", x=" + x +
+					", y=" + y +
+					", width=" + width +
+					", height=" + height +
+					'}';
+		}
+	}
+}
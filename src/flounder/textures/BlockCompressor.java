@@ -0,0 +1,241 @@
+package flounder.textures;
+
+/**
+ * A CPU encoder for the BC1 (DXT1) and BC3 (DXT5) block compressed formats, used to shrink textures before they are cached and uploaded.
+ * Endpoints are picked from the inset bounding box of each 4x4 block, which is fast enough to run while textures load.
+ */
+public class BlockCompressor {
+	/**
+	 * The bytes used by a BC1 block, 4 bits per pixel.
+	 */
+	public static final int BC1_BLOCK_BYTES = 8;
+
+	/**
+	 * The bytes used by a BC3 block, 8 bits per pixel.
+	 */
+	public static final int BC3_BLOCK_BYTES = 16;
+
+	/**
+	 * Compresses a BGRA image into BC1 blocks, alpha is ignored.
+	 *
+	 * @param bgra The image pixels, 4 bytes per pixel in BGRA order.
+	 * @param width The image width.
+	 * @param height The image height.
+	 *
+	 * @return The compressed blocks, row by row from the top left block.
+	 */
+	public static byte[] compressBC1(byte[] bgra, int width, int height) {
+		return compress(bgra, width, height, false);
+	}
+
+	/**
+	 * Compresses a BGRA image into BC3 blocks, with interpolated alpha.
+	 *
+	 * @param bgra The image pixels, 4 bytes per pixel in BGRA order.
+	 * @param width The image width.
+	 * @param height The image height.
+	 *
+	 * @return The compressed blocks, row by row from the top left block.
+	 */
+	public static byte[] compressBC3(byte[] bgra, int width, int height) {
+		return compress(bgra, width, height, true);
+	}
+
+	/**
+	 * Gets the number of bytes a compressed image will use.
+	 *
+	 * @param width The image width.
+	 * @param height The image height.
+	 * @param alpha If the image is compressed as BC3.
+	 *
+	 * @return The compressed size in bytes.
+	 */
+	public static int getCompressedSize(int width, int height, boolean alpha) {
+		return ((width + 3) / 4) * ((height + 3) / 4) * (alpha ? BC3_BLOCK_BYTES : BC1_BLOCK_BYTES);
+	}
+
+	private static byte[] compress(byte[] bgra, int width, int height, boolean alpha) {
+		byte[] output = new byte[getCompressedSize(width, height, alpha)];
+		int[] block = new int[16 * 4];
+		int offset = 0;
+
+		for (int blockY = 0; blockY < height; blockY += 4) {
+			for (int blockX = 0; blockX < width; blockX += 4) {
+				// Edge blocks repeat the last row and column.
+				for (int y = 0; y < 4; y++) {
+					int row = Math.min(blockY + y, height - 1);
+
+					for (int x = 0; x < 4; x++) {
+						int pixel = (row * width + Math.min(blockX + x, width - 1)) * 4;
+						int index = (y * 4 + x) * 4;
+						block[index] = bgra[pixel + 2] & 0xFF;
+						block[index + 1] = bgra[pixel + 1] & 0xFF;
+						block[index + 2] = bgra[pixel] & 0xFF;
+						block[index + 3] = bgra[pixel + 3] & 0xFF;
+					}
+				}
+
+				if (alpha) {
+					encodeAlphaBlock(block, output, offset);
+					offset += 8;
+				}
+
+				encodeColourBlock(block, output, offset);
+				offset += 8;
+			}
+		}
+
+		return output;
+	}
+
+	/**
+	 * Encodes the RGB of a block, always in four colour mode.
+	 */
+	private static void encodeColourBlock(int[] block, byte[] output, int offset) {
+		int[] min = {255, 255, 255};
+		int[] max = {0, 0, 0};
+
+		for (int i = 0; i < 16; i++) {
+			for (int c = 0; c < 3; c++) {
+				min[c] = Math.min(min[c], block[i * 4 + c]);
+				max[c] = Math.max(max[c], block[i * 4 + c]);
+			}
+		}
+
+		// Insets the bounding box, the extremes are usually outliers.
+		for (int c = 0; c < 3; c++) {
+			int inset = (max[c] - min[c]) >> 4;
+			min[c] = Math.min(min[c] + inset, 255);
+			max[c] = Math.max(max[c] - inset, 0);
+		}
+
+		// The box corners only fit colours along its main diagonal, flips red and green when they fall as blue rises.
+		int covarianceRB = 0;
+		int covarianceGB = 0;
+
+		for (int i = 0; i < 16; i++) {
+			int b = block[i * 4 + 2] * 2 - min[2] - max[2];
+			covarianceRB += (block[i * 4] * 2 - min[0] - max[0]) * b;
+			covarianceGB += (block[i * 4 + 1] * 2 - min[1] - max[1]) * b;
+		}
+
+		for (int c = 0; c < 2; c++) {
+			if ((c == 0 ? covarianceRB : covarianceGB) < 0) {
+				int swap = min[c];
+				min[c] = max[c];
+				max[c] = swap;
+			}
+		}
+
+		int colour0 = to565(max[0], max[1], max[2]);
+		int colour1 = to565(min[0], min[1], min[2]);
+
+		if (colour0 < colour1) {
+			int swap = colour0;
+			colour0 = colour1;
+			colour1 = swap;
+		}
+
+		int[][] palette = new int[4][3];
+		from565(colour0, palette[0]);
+		from565(colour1, palette[1]);
+
+		for (int c = 0; c < 3; c++) {
+			palette[2][c] = (2 * palette[0][c] + palette[1][c]) / 3;
+			palette[3][c] = (palette[0][c] + 2 * palette[1][c]) / 3;
+		}
+
+		int indices = 0;
+
+		if (colour0 != colour1) {
+			for (int i = 0; i < 16; i++) {
+				int best = 0;
+				int bestDistance = Integer.MAX_VALUE;
+
+				for (int p = 0; p < 4; p++) {
+					int dr = block[i * 4] - palette[p][0];
+					int dg = block[i * 4 + 1] - palette[p][1];
+					int db = block[i * 4 + 2] - palette[p][2];
+					int distance = dr * dr + dg * dg + db * db;
+
+					if (distance < bestDistance) {
+						best = p;
+						bestDistance = distance;
+					}
+				}
+
+				indices |= best << (i * 2);
+			}
+		}
+
+		output[offset] = (byte) colour0;
+		output[offset + 1] = (byte) (colour0 >> 8);
+		output[offset + 2] = (byte) colour1;
+		output[offset + 3] = (byte) (colour1 >> 8);
+		output[offset + 4] = (byte) indices;
+		output[offset + 5] = (byte) (indices >> 8);
+		output[offset + 6] = (byte) (indices >> 16);
+		output[offset + 7] = (byte) (indices >> 24);
+	}
+
+	/**
+	 * Encodes the alpha of a block in eight alpha mode.
+	 */
+	private static void encodeAlphaBlock(int[] block, byte[] output, int offset) {
+		int min = 255;
+		int max = 0;
+
+		for (int i = 0; i < 16; i++) {
+			min = Math.min(min, block[i * 4 + 3]);
+			max = Math.max(max, block[i * 4 + 3]);
+		}
+
+		int[] palette = new int[8];
+		palette[0] = max;
+		palette[1] = min;
+
+		for (int p = 1; p < 7; p++) {
+			palette[p + 1] = ((7 - p) * max + p * min) / 7;
+		}
+
+		long indices = 0;
+
+		if (max != min) {
+			for (int i = 0; i < 16; i++) {
+				int best = 0;
+				int bestDistance = Integer.MAX_VALUE;
+
+				for (int p = 0; p < 8; p++) {
+					int distance = Math.abs(block[i * 4 + 3] - palette[p]);
+
+					if (distance < bestDistance) {
+						best = p;
+						bestDistance = distance;
+					}
+				}
+
+				indices |= (long) best << (i * 3);
+			}
+		}
+
+		output[offset] = (byte) max;
+		output[offset + 1] = (byte) min;
+
+		for (int i = 0; i < 6; i++) {
+			output[offset + 2 + i] = (byte) (indices >> (i * 8));
+		}
+	}
+
+	private static int to565(int r, int g, int b) {
+		return ((r * 31 + 127) / 255) << 11 | ((g * 63 + 127) / 255) << 5 | ((b * 31 + 127) / 255);
+	}
+
+	private static void from565(int colour, int[] rgb) {
+		int r = (colour >> 11) & 31;
+		int g = (colour >> 5) & 63;
+		int b = colour & 31;
+		rgb[0] = (r << 3) | (r >> 2);
+		rgb[1] = (g << 2) | (g >> 4);
+		rgb[2] = (b << 3) | (b >> 2);
+	}
+}
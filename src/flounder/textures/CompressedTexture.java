@@ -0,0 +1,162 @@
+package flounder.textures;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * A block compressed mipmap chain, and the disk container it is cached in.
+ */
+public class CompressedTexture {
+	private static final int CACHE_MAGIC = 0x46424354;
+	private static final int CACHE_VERSION = 3;
+
+	private final boolean alpha;
+	private final int width;
+	private final int height;
+	private final List<byte[]> levels;
+
+	/**
+	 * Creates a new compressed texture.
+	 *
+	 * @param alpha If the levels are BC3, otherwise BC1.
+	 * @param width The base level width.
+	 * @param height The base level height.
+	 * @param levels The compressed levels, starting with the base level.
+	 */
+	public CompressedTexture(boolean alpha, int width, int height, List<byte[]> levels) {
+		this.alpha = alpha;
+		this.width = width;
+		this.height = height;
+		this.levels = levels;
+	}
+
+	/**
+	 * Compresses a image and its mipmap chain.
+	 *
+	 * @param bgra The base level pixels, 4 bytes per pixel.
+	 * @param width The base level width.
+	 * @param height The base level height.
+	 * @param alpha If the alpha channel is kept (BC3), otherwise BC1 is used.
+	 * @param srgb If the colour channels are gamma encoded, used when averaging the mipmaps.
+	 *
+	 * @return The compressed texture.
+	 */
+	public static CompressedTexture compress(byte[] bgra, int width, int height, boolean alpha, boolean srgb) {
+		List<byte[]> levels = new ArrayList<>();
+		int levelWidth = width;
+		int levelHeight = height;
+
+		for (byte[] level : MipmapGenerator.generate(bgra, width, height, srgb)) {
+			levels.add(alpha ? BlockCompressor.compressBC3(level, levelWidth, levelHeight) : BlockCompressor.compressBC1(level, levelWidth, levelHeight));
+			levelWidth = Math.max(levelWidth / 2, 1);
+			levelHeight = Math.max(levelHeight / 2, 1);
+		}
+
+		return new CompressedTexture(alpha, width, height, levels);
+	}
+
+	/**
+	 * Reads a compressed texture from the disk cache.
+	 *
+	 * @param file The cache file.
+	 * @param key The key of the source data, the cache is ignored if it was written for a different key.
+	 *
+	 * @return The compressed texture, or null if there is no valid cache.
+	 */
+	public static CompressedTexture read(File file, long key) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || in.readLong() != key) {
+				return null;
+			}
+
+			boolean alpha = in.readBoolean();
+			int width = in.readInt();
+			int height = in.readInt();
+			List<byte[]> levels = new ArrayList<>();
+			int levelCount = in.readInt();
+
+			for (int i = 0; i < levelCount; i++) {
+				byte[] level = new byte[in.readInt()];
+				in.readFully(level);
+				levels.add(level);
+			}
+
+			return new CompressedTexture(alpha, width, height, levels);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes this compressed texture to the disk cache.
+	 *
+	 * @param file The cache file.
+	 * @param key The key of the source data.
+	 *
+	 * @throws IOException If the file could not be written.
+	 */
+	public void write(File file, long key) throws IOException {
+		file.getParentFile().mkdirs();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(CACHE_MAGIC);
+			out.writeInt(CACHE_VERSION);
+			out.writeLong(key);
+			out.writeBoolean(alpha);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeInt(levels.size());
+
+			for (byte[] level : levels) {
+				out.writeInt(level.length);
+				out.write(level);
+			}
+		}
+	}
+
+	/**
+	 * Gets if the levels are BC3 (with alpha), otherwise BC1.
+	 *
+	 * @return If the texture has alpha.
+	 */
+	public boolean isAlpha() {
+		return alpha;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the compressed levels, starting with the base level.
+	 *
+	 * @return The compressed levels.
+	 */
+	public List<byte[]> getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Gets the total compressed size of all levels.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long getSize() {
+		long size = 0;
+
+		for (byte[] level : levels) {
+			size += level.length;
+		}
+
+		return size;
+	}
+}
@@ -5,6 +5,8 @@ import flounder.framework.*;
 import flounder.loaders.*;
 import flounder.processing.*;
 import flounder.profiling.*;
+import flounder.renderer.*;
+import org.lwjgl.opengl.*;
 
 import java.lang.ref.*;
 import java.util.*;
@@ -19,9 +21,15 @@ public class FlounderTextures extends Module {
 	private static final FlounderTextures INSTANCE = new FlounderTextures();
 	public static final String PROFILE_TAB_NAME = "Textures";
 
-	private Map<String, SoftReference<FactoryObject>> loaded;
+	private FactoryCache<TextureObject> loaded;
+	private TextureResidency residency;
 
 	private float anisotropyLevel = -1;
+	private float maxAnisotropy;
+	private boolean compressionSupported;
+	private long residencyBudget = Long.MAX_VALUE;
+	private long cacheWeight = Long.MAX_VALUE;
+	private CachePolicy cachePolicy = new LruCachePolicy();
 
 	/**
 	 * A function called before initialization to configure the textures.
@@ -32,6 +40,28 @@ public class FlounderTextures extends Module {
 		INSTANCE.anisotropyLevel = anisotropyLevel;
 	}
 
+	/**
+	 * A function called before initialization to configure the textures.
+	 *
+	 * @param anisotropyLevel The new anisotropy target level.
+	 * @param residencyBudget The bytes of GPU memory loaded textures should stay under, least recently used textures are evicted to low resolution mipmaps past this.
+	 */
+	public static void setup(float anisotropyLevel, long residencyBudget) {
+		INSTANCE.anisotropyLevel = anisotropyLevel;
+		INSTANCE.residencyBudget = residencyBudget;
+	}
+
+	/**
+	 * A function called before initialization to configure the texture cache.
+	 *
+	 * @param cacheWeight The bytes of loaded textures to keep, the least valuable unused textures past this are deleted.
+	 * @param cachePolicy The policy choosing which textures are evicted, {@link LruCachePolicy} or {@link ArcCachePolicy}.
+	 */
+	public static void setupCache(long cacheWeight, CachePolicy cachePolicy) {
+		INSTANCE.cacheWeight = cacheWeight;
+		INSTANCE.cachePolicy = cachePolicy;
+	}
+
 	/**
 	 * Creates a new texture loader class.
 	 */
@@ -41,23 +71,52 @@ public class FlounderTextures extends Module {
 
 	@Override
 	public void init() {
-		this.loaded = new HashMap<>();
+		this.residency = new TextureResidency(residencyBudget);
+		this.loaded = new FactoryCache<>(cacheWeight, cachePolicy,
+				texture -> texture.isLoaded() ? TextureFactory.getResidentBytes(texture) : 0,
+				texture -> texture.isLoaded() && !texture.isStreaming() && texture.getLastUsedFrame() < residency.getFrame() - 1,
+				TextureObject::delete
+		);
 
-		float maxAnisotropy = glGetFloat(GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT);
+		maxAnisotropy = glGetFloat(GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT);
 
 		if (anisotropyLevel == -1 || anisotropyLevel > maxAnisotropy) {
 			anisotropyLevel = maxAnisotropy;
 		}
+
+		// Capabilities are only readable from the OpenGL thread, loaders check this flag instead.
+		compressionSupported = GL.getCapabilities().GL_EXT_texture_compression_s3tc;
+
+		FlounderLoader.registerPrefetcher("texture", TextureFactory.getPrefetcher());
+		FlounderLoader.registerReloader(TextureFactory::reload);
 	}
 
 	@Override
 	public void update() {
+		loaded.update();
+
+		// Evicting changes the textures, so it runs on the thread owning the OpenGL context.
+		List<FactoryObject> objects = loaded.getObjects();
+		FlounderRenderer.runOnRenderThread(() -> residency.update(objects));
 	}
 
 	@Override
 	public void profile() {
 		FlounderProfiler.add(PROFILE_TAB_NAME, "Loaded", loaded.size());
-		FlounderProfiler.add(PROFILE_TAB_NAME, "Max Anisotropy", glGetFloat(GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT));
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Hit Rate", loaded.getHitRate());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Hits", loaded.getHits());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Misses", loaded.getMisses());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache Evictions", loaded.getEvictions());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "In Flight", TextureFactory.getCoalescer().getInFlight());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Coalesced", TextureFactory.getCoalescer().getCoalesced());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Cache MB", loaded.getWeight() / (1024.0 * 1024.0));
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Max Anisotropy", maxAnisotropy);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "S3TC Supported", compressionSupported);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Resident MB", residency.getResidentBytes() / (1024.0 * 1024.0));
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Budget MB", residency.getBudgetBytes() == Long.MAX_VALUE ? "Unlimited" : residency.getBudgetBytes() / (1024.0 * 1024.0));
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Evicted", residency.getEvictedTextures());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Evictions", residency.getEvictions());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Restores", residency.getRestores());
 	}
 
 	/**
@@ -69,6 +128,35 @@ public class FlounderTextures extends Module {
 		return INSTANCE.loaded;
 	}
 
+	/**
+	 * Records a texture as bound this frame, evicted textures are streamed back in.
+	 *
+	 * @param texture The texture being used.
+	 */
+	public static void markUsed(TextureObject texture) {
+		if (INSTANCE.residency != null) {
+			INSTANCE.residency.markUsed(texture);
+		}
+	}
+
+	/**
+	 * Gets the texture residency manager.
+	 *
+	 * @return The residency manager.
+	 */
+	public static TextureResidency getResidency() {
+		return INSTANCE.residency;
+	}
+
+	/**
+	 * Gets if S3TC compressed textures can be uploaded.
+	 *
+	 * @return If BC1 and BC3 textures are supported.
+	 */
+	public static boolean isCompressionSupported() {
+		return INSTANCE.compressionSupported;
+	}
+
 	/**
 	 * Gets the current anisotropy level for textures with anisotropy enabled to use.
 	 *
@@ -85,7 +173,7 @@ public class FlounderTextures extends Module {
 
 	@Override
 	public void dispose() {
-		loaded.keySet().forEach(key -> ((TextureObject) loaded.get(key).get()).delete());
+		loaded.getObjects().forEach(object -> ((TextureObject) object).delete());
 		loaded.clear();
 	}
 }
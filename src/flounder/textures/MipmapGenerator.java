@@ -0,0 +1,230 @@
+package flounder.textures;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * Generates mipmap chains on the CPU, so mipmaps are built on loading threads instead of with {@code glGenerateMipmap} on the OpenGL thread.
+ * Colour channels are averaged in linear space (gamma correct) unless the texture holds linear data, alpha is always averaged directly.
+ */
+public class MipmapGenerator {
+	private static final float[] SRGB_TO_LINEAR = new float[256];
+	private static final float[] SRGB_THRESHOLDS = new float[255];
+
+	static {
+		for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+			SRGB_TO_LINEAR[i] = (float) srgbToLinear(i / 255.0);
+		}
+
+		// The linear value half way between each pair of gamma encoded values, finding a value among these rounds it to the nearest encoded value at any brightness.
+		for (int i = 0; i < SRGB_THRESHOLDS.length; i++) {
+			SRGB_THRESHOLDS[i] = (float) srgbToLinear((i + 0.5) / 255.0);
+		}
+	}
+
+	private static double srgbToLinear(double value) {
+		return value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4);
+	}
+
+	/**
+	 * Gets the nearest gamma encoded value to a linear value.
+	 *
+	 * @param linear The linear value, from 0 to 1.
+	 *
+	 * @return The gamma encoded value, from 0 to 255.
+	 */
+	protected static int linearToSrgb(float linear) {
+		int low = 0;
+		int high = SRGB_THRESHOLDS.length;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (SRGB_THRESHOLDS[middle] <= linear) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the number of levels in a full mipmap chain down to 1x1.
+	 *
+	 * @param width The base level width.
+	 * @param height The base level height.
+	 *
+	 * @return The level count.
+	 */
+	public static int getLevelCount(int width, int height) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(Math.max(width, height), 1));
+	}
+
+	/**
+	 * Gets the dimension of a level.
+	 *
+	 * @param size The base level width or height.
+	 * @param level The level.
+	 *
+	 * @return The levels width or height.
+	 */
+	public static int getLevelSize(int size, int level) {
+		return Math.max(size >> level, 1);
+	}
+
+	/**
+	 * Gets the byte offset of a level in a chain stored level after level.
+	 *
+	 * @param width The base level width.
+	 * @param height The base level height.
+	 * @param level The level.
+	 *
+	 * @return The byte offset, or the total chain size when level is the level count.
+	 */
+	public static int getLevelOffset(int width, int height, int level) {
+		int offset = 0;
+
+		for (int i = 0; i < level; i++) {
+			offset += 4 * getLevelSize(width, i) * getLevelSize(height, i);
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Gets the number of bytes used by a full chain.
+	 *
+	 * @param width The base level width.
+	 * @param height The base level height.
+	 *
+	 * @return The chain size in bytes.
+	 */
+	public static int getChainSize(int width, int height) {
+		return getLevelOffset(width, height, getLevelCount(width, height));
+	}
+
+	/**
+	 * Generates a full mipmap chain down to 1x1.
+	 *
+	 * @param bgra The base level pixels, 4 bytes per pixel.
+	 * @param width The base level width.
+	 * @param height The base level height.
+	 * @param srgb If the colour channels are gamma encoded.
+	 *
+	 * @return The levels, starting with the base level.
+	 */
+	public static List<byte[]> generate(byte[] bgra, int width, int height, boolean srgb) {
+		ByteBuffer chain = ByteBuffer.allocate(getChainSize(width, height));
+		chain.put(bgra);
+		generateChain(chain, width, height, srgb);
+
+		List<byte[]> levels = new ArrayList<>();
+
+		for (int level = 0; level < getLevelCount(width, height); level++) {
+			byte[] data = new byte[4 * getLevelSize(width, level) * getLevelSize(height, level)];
+			chain.position(getLevelOffset(width, height, level));
+			chain.get(data);
+			levels.add(data);
+		}
+
+		return levels;
+	}
+
+	/**
+	 * Fills a chain buffer from its base level, levels are stored one after another from the start of the buffer.
+	 *
+	 * @param chain The chain buffer, the base level must already be written and the buffer at least {@link #getChainSize(int, int)} bytes.
+	 * @param width The base level width.
+	 * @param height The base level height.
+	 * @param srgb If the colour channels are gamma encoded.
+	 */
+	public static void generateChain(ByteBuffer chain, int width, int height, boolean srgb) {
+		for (int level = 1; level < getLevelCount(width, height); level++) {
+			downsample(chain, getLevelOffset(width, height, level - 1), getLevelSize(width, level - 1), getLevelSize(height, level - 1), chain, getLevelOffset(width, height, level), srgb);
+		}
+	}
+
+	/**
+	 * Halves a image with a box filter. When a dimension is odd the last pixel along it averages three source pixels, so the extra row or column is folded in rather than dropped.
+	 *
+	 * @param source The source buffer.
+	 * @param sourceOffset The byte offset of the source image.
+	 * @param width The source width.
+	 * @param height The source height.
+	 * @param destination The destination buffer, may be the source buffer.
+	 * @param destinationOffset The byte offset to write the half sized image to.
+	 * @param srgb If the colour channels are gamma encoded.
+	 */
+	public static void downsample(ByteBuffer source, int sourceOffset, int width, int height, ByteBuffer destination, int destinationOffset, boolean srgb) {
+		int newWidth = Math.max(width / 2, 1);
+		int newHeight = Math.max(height / 2, 1);
+
+		int[] rows = new int[3];
+		int[] columns = new int[3];
+
+		for (int y = 0; y < newHeight; y++) {
+			int rowCount = getTaps(y, height, newHeight, rows);
+
+			for (int x = 0; x < newWidth; x++) {
+				int columnCount = getTaps(x, width, newWidth, columns);
+				int taps = rowCount * columnCount;
+				int output = destinationOffset + (y * newWidth + x) * 4;
+
+				for (int c = 0; c < 4; c++) {
+					boolean gamma = srgb && c != 3;
+					float linear = 0.0f;
+					int sum = 0;
+
+					for (int r = 0; r < rowCount; r++) {
+						int row = sourceOffset + rows[r] * width * 4;
+
+						for (int k = 0; k < columnCount; k++) {
+							int p = source.get(row + columns[k] * 4 + c) & 0xFF;
+
+							if (gamma) {
+								linear += SRGB_TO_LINEAR[p];
+							} else {
+								sum += p;
+							}
+						}
+					}
+
+					if (gamma) {
+						destination.put(output + c, (byte) linearToSrgb(linear / taps));
+					} else {
+						destination.put(output + c, (byte) ((sum + taps / 2) / taps));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the source pixels averaged into a output pixel along one dimension.
+	 *
+	 * @param index The output pixel.
+	 * @param size The source size.
+	 * @param newSize The output size.
+	 * @param taps Filled with the source pixels.
+	 *
+	 * @return The number of source pixels, 1 for a source size of 1, 3 for the last output pixel of a odd size, otherwise 2.
+	 */
+	private static int getTaps(int index, int size, int newSize, int[] taps) {
+		if (size == 1) {
+			taps[0] = 0;
+			return 1;
+		}
+
+		taps[0] = index * 2;
+		taps[1] = index * 2 + 1;
+
+		if (index == newSize - 1 && (size & 1) != 0) {
+			taps[2] = index * 2 + 2;
+			return 3;
+		}
+
+		return 2;
+	}
+}
@@ -0,0 +1,362 @@
+package flounder.textures;
+
+import flounder.framework.*;
+import flounder.helpers.*;
+import flounder.loaders.*;
+import flounder.logger.*;
+import flounder.processing.opengl.*;
+import flounder.renderer.*;
+import flounder.resources.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL13.*;
+
+/**
+ * Many small images packed into a few large texture pages, so renderers drawing them do not need to rebind textures.
+ * Each image is handed back as a {@link TextureObject} that shares its pages texture ID and describes its sub-rectangle with {@link TextureObject#getAtlasRegion()}.
+ */
+public class TextureAtlas {
+	private static final int CACHE_MAGIC = 0x46415432;
+
+	private final String name;
+	private final List<TextureObject> pages;
+	private final Map<String, TextureObject> textures;
+
+	private TextureAtlas(String name) {
+		this.name = name;
+		this.pages = new ArrayList<>();
+		this.textures = new HashMap<>();
+	}
+
+	/**
+	 * Creates a atlas from PNG files. The images are decoded and packed on the calling thread, the pages are queued for upload.
+	 *
+	 * @param name The name of the atlas, also names the disk cache.
+	 * @param pageSize The width and height of each page in pixels.
+	 * @param padding The pixels of edge bleeding around each image, stops filtering from sampling neighbouring images.
+	 * @param diskCache If the packed pages are cached to disk and reused while the source files do not change.
+	 * @param files The PNG files to pack.
+	 *
+	 * @return The created atlas, or null if a file could not be read.
+	 */
+	public static TextureAtlas create(String name, int pageSize, int padding, boolean diskCache, MyFile... files) {
+		AtlasData data;
+
+		try {
+			byte[][] sources = new byte[files.length][];
+
+			for (int i = 0; i < files.length; i++) {
+				sources[i] = readFile(files[i]);
+			}
+
+			long key = createKey(files, sources, pageSize, padding);
+			File cacheFile = new File(new File(Framework.getRoamingFolder().getPath(), "cache" + File.separator + "atlases"), name + ".atlas");
+			data = diskCache ? readCache(cacheFile, key, pageSize) : null;
+
+			if (data == null) {
+				data = build(files, sources, pageSize, padding);
+
+				if (diskCache) {
+					writeCache(cacheFile, key, data);
+				}
+			}
+		} catch (IOException e) {
+			FlounderLogger.error("Could not create texture atlas " + name);
+			FlounderLogger.exception(e);
+			return null;
+		}
+
+		TextureAtlas atlas = new TextureAtlas(name);
+		atlas.load(data);
+		return atlas;
+	}
+
+	/**
+	 * Decodes and packs the source images into pages.
+	 */
+	private static AtlasData build(MyFile[] files, byte[][] sources, int pageSize, int padding) throws IOException {
+		int[] widths = new int[files.length];
+		int[] heights = new int[files.length];
+		boolean[] hasAlpha = new boolean[files.length];
+		byte[][] images = new byte[files.length][];
+
+		for (int i = 0; i < files.length; i++) {
+			TextureDecoder decoder = new TextureDecoder(new ByteArrayInputStream(sources[i]));
+			widths[i] = decoder.getWidth();
+			heights[i] = decoder.getHeight();
+			hasAlpha[i] = decoder.hasAlpha();
+			images[i] = new byte[4 * widths[i] * heights[i]];
+			decoder.decode(ByteBuffer.wrap(images[i]), widths[i] * 4, TextureDecoder.Format.BGRA);
+		}
+
+		AtlasPacker.Placement[] placements = new AtlasPacker(pageSize, pageSize, padding).pack(widths, heights);
+		int pageCount = 0;
+
+		for (AtlasPacker.Placement placement : placements) {
+			pageCount = Math.max(pageCount, placement.getPage() + 1);
+		}
+
+		byte[][] pages = new byte[pageCount][4 * pageSize * pageSize];
+
+		for (int i = 0; i < files.length; i++) {
+			AtlasPacker.Placement placement = placements[i];
+			blit(pages[placement.getPage()], pageSize, images[i], widths[i], heights[i], placement.getX(), placement.getY(), padding);
+		}
+
+		String[] names = new String[files.length];
+
+		// Images are keyed by their full path, files with the same name in different folders are different images.
+		for (int i = 0; i < files.length; i++) {
+			names[i] = files[i].getPath();
+		}
+
+		return new AtlasData(pageSize, pages, names, placements, hasAlpha);
+	}
+
+	/**
+	 * Copies a BGRA image into a page, repeating the edge pixels into the padding around it.
+	 * Each row is copied with its left and right padding, then the padded first and last rows are repeated above and below, which also fills the corners with the corner pixels.
+	 */
+	protected static void blit(byte[] page, int pageSize, byte[] image, int width, int height, int x, int y, int padding) {
+		int paddedLength = (width + 2 * padding) * 4;
+
+		for (int row = 0; row < height; row++) {
+			int pageRow = (y + row) * pageSize;
+			System.arraycopy(image, row * width * 4, page, (pageRow + x) * 4, width * 4);
+
+			for (int column = 1; column <= padding; column++) {
+				System.arraycopy(image, row * width * 4, page, (pageRow + x - column) * 4, 4);
+				System.arraycopy(image, (row * width + width - 1) * 4, page, (pageRow + x + width - 1 + column) * 4, 4);
+			}
+		}
+
+		int firstRow = (y * pageSize + x - padding) * 4;
+		int lastRow = ((y + height - 1) * pageSize + x - padding) * 4;
+
+		for (int row = 1; row <= padding; row++) {
+			System.arraycopy(page, firstRow, page, firstRow - row * pageSize * 4, paddedLength);
+			System.arraycopy(page, lastRow, page, lastRow + row * pageSize * 4, paddedLength);
+		}
+	}
+
+	/**
+	 * Creates the page and image texture objects, and queues the pages for upload.
+	 */
+	private void load(AtlasData data) {
+		float size = data.pageSize;
+
+		for (int i = 0; i < data.pages.length; i++) {
+			ByteBuffer buffer = FlounderLoader.acquireBuffer(data.pages[i].length);
+			buffer.put(data.pages[i]);
+			buffer.flip();
+
+			TextureObject page = new TextureObject();
+			page.loadData(null, buffer, data.pageSize, data.pageSize, true, 1, name + "/page" + i);
+			pages.add(page);
+		}
+
+		for (int i = 0; i < data.names.length; i++) {
+			AtlasPacker.Placement placement = data.placements[i];
+			TextureObject texture = new TextureObject();
+			texture.loadData(null, null, placement.getWidth(), placement.getHeight(), data.hasAlpha[i], 1, name + "/" + data.names[i]);
+			texture.loadAtlasRegion(placement.getX() / size, placement.getY() / size, placement.getWidth() / size, placement.getHeight() / size);
+			textures.put(data.names[i], texture);
+		}
+
+		for (int i = 0; i < pages.size(); i++) {
+			final int pageIndex = i;
+
+			FlounderLoader.queueUpload(new UploadRequest() {
+				@Override
+				public long getUploadBytes() {
+					return data.pages[pageIndex].length;
+				}
+
+				@Override
+				public void executeUpload() {
+					uploadPage(pageIndex, data);
+				}
+			}, UploadPriority.HIGH);
+		}
+	}
+
+	private void uploadPage(int pageIndex, AtlasData data) {
+		TextureObject page = pages.get(pageIndex);
+
+		int textureID = glGenTextures();
+		OpenGlUtils.bindTexture(textureID, GL_TEXTURE_2D, 0);
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, page.getWidth(), page.getHeight(), 0, GL_BGRA, GL_UNSIGNED_BYTE, page.getBuffer());
+
+		// Mipmaps would blend neighbouring images, the padding only protects linear filtering.
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+		page.loadGL(textureID, GL_TEXTURE_2D);
+		page.releaseBuffer();
+
+		for (int i = 0; i < data.names.length; i++) {
+			if (data.placements[i].getPage() == pageIndex) {
+				textures.get(data.names[i]).loadGL(textureID, GL_TEXTURE_2D);
+			}
+		}
+	}
+
+	protected static byte[] readFile(MyFile file) throws IOException {
+		try (InputStream in = FlounderLoader.openStream(file)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+
+			return out.toByteArray();
+		}
+	}
+
+	protected static long createKey(MyFile[] files, byte[][] sources, int pageSize, int padding) {
+		CRC32 crc = new CRC32();
+		// CRC32.update(int) only uses the low byte, the sizes are hashed as whole ints.
+		crc.update(ByteBuffer.allocate(8).putInt(pageSize).putInt(padding).array());
+
+		for (int i = 0; i < files.length; i++) {
+			byte[] path = files[i].getPath().getBytes(StandardCharsets.UTF_8);
+			crc.update(ByteBuffer.allocate(8).putInt(path.length).putInt(sources[i].length).array());
+			crc.update(path);
+			crc.update(sources[i]);
+		}
+
+		return crc.getValue();
+	}
+
+	private static AtlasData readCache(File file, long key, int pageSize) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != CACHE_MAGIC || in.readLong() != key || in.readInt() != pageSize) {
+				return null;
+			}
+
+			byte[][] pages = new byte[in.readInt()][4 * pageSize * pageSize];
+			String[] names = new String[in.readInt()];
+			AtlasPacker.Placement[] placements = new AtlasPacker.Placement[names.length];
+			boolean[] hasAlpha = new boolean[names.length];
+
+			for (int i = 0; i < names.length; i++) {
+				names[i] = in.readUTF();
+				placements[i] = new AtlasPacker.Placement(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+				hasAlpha[i] = in.readBoolean();
+			}
+
+			for (byte[] page : pages) {
+				in.readFully(page);
+			}
+
+			return new AtlasData(pageSize, pages, names, placements, hasAlpha);
+		} catch (IOException e) {
+			FlounderLogger.warning("Could not read texture atlas cache " + file + ", rebuilding");
+			return null;
+		}
+	}
+
+	private static void writeCache(File file, long key, AtlasData data) {
+		file.getParentFile().mkdirs();
+
+		try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(CACHE_MAGIC);
+			out.writeLong(key);
+			out.writeInt(data.pageSize);
+			out.writeInt(data.pages.length);
+			out.writeInt(data.names.length);
+
+			for (int i = 0; i < data.names.length; i++) {
+				AtlasPacker.Placement placement = data.placements[i];
+				out.writeUTF(data.names[i]);
+				out.writeInt(placement.getPage());
+				out.writeInt(placement.getX());
+				out.writeInt(placement.getY());
+				out.writeInt(placement.getWidth());
+				out.writeInt(placement.getHeight());
+				out.writeBoolean(data.hasAlpha[i]);
+			}
+
+			for (byte[] page : data.pages) {
+				out.write(page);
+			}
+		} catch (IOException e) {
+			FlounderLogger.warning("Could not write texture atlas cache " + file);
+		}
+	}
+
+	/**
+	 * Gets the texture of a packed image.
+	 *
+	 * @param file The source file of the image.
+	 *
+	 * @return The images texture, or null if the file was not packed into this atlas.
+	 */
+	public TextureObject getTexture(MyFile file) {
+		return textures.get(file.getPath());
+	}
+
+	/**
+	 * Gets the name of the atlas.
+	 *
+	 * @return The atlas name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the page textures of the atlas.
+	 *
+	 * @return The atlas pages.
+	 */
+	public List<TextureObject> getPages() {
+		return pages;
+	}
+
+	/**
+	 * Deletes the atlas pages from OpenGL memory.
+	 */
+	public void delete() {
+		for (TextureObject page : pages) {
+			if (page.isLoaded()) {
+				int textureID = page.getTextureID();
+				FlounderRenderer.sendRequest((RequestOpenGL) () -> OpenGlUtils.deleteTexture(textureID));
+			}
+		}
+	}
+
+	/**
+	 * The packed pages and image placements of a atlas.
+	 */
+	private static class AtlasData {
+		private final int pageSize;
+		private final byte[][] pages;
+		private final String[] names;
+		private final AtlasPacker.Placement[] placements;
+		private final boolean[] hasAlpha;
+
+		private AtlasData(int pageSize, byte[][] pages, String[] names, AtlasPacker.Placement[] placements, boolean[] hasAlpha) {
+			this.pageSize = pageSize;
+			this.pages = pages;
+			this.names = names;
+			this.placements = placements;
+			this.hasAlpha = hasAlpha;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package flounder.textures;
 
 import flounder.factory.*;
+import flounder.loaders.*;
 import flounder.maths.*;
 import flounder.resources.*;
 
@@ -17,6 +18,10 @@ public class TextureBuilder extends FactoryBuilder {
 	private boolean anisotropic;
 	private boolean nearest;
 	private int numberOfRows;
+	private boolean compress;
+	private boolean linearColour;
+	private LoadPriority loadPriority;
+	private UploadPriority uploadPriority;
 
 	protected TextureBuilder(Factory factory) {
 		super(factory);
@@ -29,6 +34,10 @@ public class TextureBuilder extends FactoryBuilder {
 		this.anisotropic = true;
 		this.nearest = false;
 		this.numberOfRows = 1;
+		this.compress = false;
+		this.linearColour = false;
+		this.loadPriority = LoadPriority.VISIBLE_NOW;
+		this.uploadPriority = loadPriority.getUploadPriority();
 	}
 
 	/**
@@ -111,6 +120,51 @@ public class TextureBuilder extends FactoryBuilder {
 		return this;
 	}
 
+	/**
+	 * Block compresses the texture (BC1, or BC3 with alpha) and caches the compressed mipmaps to disk. Ignored when S3TC is not supported.
+	 *
+	 * @return this.
+	 */
+	public TextureBuilder compress() {
+		this.compress = true;
+		return this;
+	}
+
+	/**
+	 * Marks the texture as holding linear data (normal maps, noise), mipmaps are then averaged without gamma correction.
+	 *
+	 * @return this.
+	 */
+	public TextureBuilder linearColour() {
+		this.linearColour = true;
+		return this;
+	}
+
+	/**
+	 * Sets the priority class of the texture load (default = visible now), also sets the upload priority to match.
+	 *
+	 * @param loadPriority The load priority.
+	 *
+	 * @return this.
+	 */
+	public TextureBuilder setLoadPriority(LoadPriority loadPriority) {
+		this.loadPriority = loadPriority;
+		this.uploadPriority = loadPriority.getUploadPriority();
+		return this;
+	}
+
+	/**
+	 * Sets the priority the texture is uploaded to the GPU with (default = normal).
+	 *
+	 * @param uploadPriority The upload priority.
+	 *
+	 * @return this.
+	 */
+	public TextureBuilder setUploadPriority(UploadPriority uploadPriority) {
+		this.uploadPriority = uploadPriority;
+		return this;
+	}
+
 	/**
 	 * Gets the source file.
 	 *
@@ -183,10 +237,47 @@ public class TextureBuilder extends FactoryBuilder {
 		return numberOfRows;
 	}
 
+	/**
+	 * Gets if the texture will be block compressed.
+	 *
+	 * @return If compressing.
+	 */
+	public boolean isCompress() {
+		return compress;
+	}
+
+	/**
+	 * Gets if the texture holds linear data.
+	 *
+	 * @return If the colours are linear.
+	 */
+	public boolean isLinearColour() {
+		return linearColour;
+	}
+
+	/**
+	 * Gets the load priority.
+	 *
+	 * @return The load priority.
+	 */
+	public LoadPriority getLoadPriority() {
+		return loadPriority;
+	}
+
+	/**
+	 * Gets the upload priority.
+	 *
+	 * @return The upload priority.
+	 */
+	public UploadPriority getUploadPriority() {
+		return uploadPriority;
+	}
+
 	@Override
 	public TextureObject create() {
 		if (file != null) {
-			return (TextureObject) builderCreate(file.getName());
+			FlounderLoader.recordLoad("texture", file);
+			return (TextureObject) TextureFactory.coalesce(file.getName(), () -> builderCreate(file.getName()));
 		}
 
 		return null;
@@ -203,6 +294,10 @@ public class TextureBuilder extends FactoryBuilder {
 				", anisotropic=" + anisotropic +
 				", nearest=" + nearest +
 				", numberOfRows=" + numberOfRows +
+				", loadPriority=" + loadPriority +
+				", uploadPriority=" + uploadPriority +
+				", compress=" + compress +
+				", linearColour=" + linearColour +
 				'}';
 	}
 }
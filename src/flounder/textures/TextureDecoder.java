@@ -33,6 +33,7 @@ package flounder.textures;
 import java.io.*;
 import java.nio.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 /**
@@ -69,6 +70,9 @@ public class TextureDecoder {
 
 	private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
 
+	private static final int PIPELINE_LINES = 32;
+	private static final byte[] PIPELINE_END = new byte[0];
+
 	private static final int IHDR = 0x49484452;
 	private static final int PLTE = 0x504C5445;
 	private static final int tRNS = 0x74524E53;
@@ -282,105 +286,217 @@ public class TextureDecoder {
 				unfilter(curLine, prevLine);
 
 				buffer.position(offset + y * stride);
+				copyLine(buffer, curLine, palLine, fmt);
+
+				byte[] tmp = curLine;
+				curLine = prevLine;
+				prevLine = tmp;
+			}
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Decodes the image like {@link #decode(ByteBuffer, int, Format)}, but inflates the IDAT data on a second thread while this thread unfilters and converts the rows.
+	 * The output is identical to {@link #decode(ByteBuffer, int, Format)}, this is only faster for large images.
+	 *
+	 * @param buffer The buffer.
+	 * @param stride The stride in bytes from start of a line to start of the next line, can be negative.
+	 * @param fmt The target format into which the image should be decoded.
+	 *
+	 * @throws IOException If a read or data error occurred.
+	 * @throws IllegalArgumentException If the start position of a line falls outside the buffer.
+	 * @throws UnsupportedOperationException If the image can't be decoded into the desired format.
+	 */
+	public void decodePipelined(ByteBuffer buffer, int stride, Format fmt) throws IOException {
+		final int offset = buffer.position();
+		final int lineSize = ((width * bitdepth + 7) / 8) * bytesPerPixel;
+		final BlockingQueue<byte[]> freeLines = new ArrayBlockingQueue<>(PIPELINE_LINES + 1);
+		final BlockingQueue<byte[]> inflatedLines = new ArrayBlockingQueue<>(PIPELINE_LINES + 1);
+		final Throwable[] inflateError = new Throwable[1];
+		byte[] prevLine = new byte[lineSize + 1];
+		byte[] palLine = (bitdepth < 8) ? new byte[width + 1] : null;
+
+		for (int i = 0; i < PIPELINE_LINES; i++) {
+			freeLines.add(new byte[lineSize + 1]);
+		}
+
+		// The inflate thread owns the input stream until it has read every line.
+		Thread inflateThread = new Thread(() -> {
+			final Inflater inflater = new Inflater();
+			boolean inflated = false;
 
-				switch (colourType) {
-					case COLOUR_TRUECOLOUR:
-						switch (fmt) {
-							case ABGR:
-								copyRGBtoABGR(buffer, curLine);
-								break;
-							case RGBA:
-								copyRGBtoRGBA(buffer, curLine);
-								break;
-							case BGRA:
-								copyRGBtoBGRA(buffer, curLine);
-								break;
-							case RGB:
-								copy(buffer, curLine);
-								break;
-							default:
-								throw new UnsupportedOperationException("Unsupported format for this image");
-						}
+			try {
+				for (int y = 0; y < height; y++) {
+					byte[] line = freeLines.take();
+					readChunkUnzip(inflater, line, 0, line.length);
+					inflatedLines.put(line);
+				}
+
+				inflated = true;
+			} catch (InterruptedException e) {
+				// The unfiltering thread has stopped.
+			} catch (Throwable e) {
+				inflateError[0] = e;
+			} finally {
+				inflater.end();
+
+				// Any failure, even one from corrupt data that is not an IOException, must wake the unfiltering thread waiting on the next line.
+				if (!inflated) {
+					inflatedLines.offer(PIPELINE_END);
+				}
+			}
+		}, "TextureDecoder Inflate");
+		inflateThread.setDaemon(true);
+		inflateThread.start();
+
+		boolean finished = false;
+
+		try {
+			for (int y = 0; y < height; y++) {
+				byte[] curLine = inflatedLines.take();
+
+				if (curLine == PIPELINE_END) {
+					throw inflateFailure(inflateError[0]);
+				}
+
+				unfilter(curLine, prevLine);
+
+				buffer.position(offset + y * stride);
+				copyLine(buffer, curLine, palLine, fmt);
+
+				freeLines.put(prevLine);
+				prevLine = curLine;
+			}
+
+			finished = true;
+		} catch (InterruptedException e) {
+			throw (IOException) (new IOException("Interrupted while decoding").initCause(e));
+		} finally {
+			if (!finished) {
+				inflateThread.interrupt();
+			}
+
+			try {
+				inflateThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Gets the exception to throw on the unfiltering thread for a failure on the inflate thread.
+	 *
+	 * @param error The failure on the inflate thread.
+	 *
+	 * @return The exception to throw.
+	 */
+	private static IOException inflateFailure(Throwable error) {
+		if (error instanceof IOException) {
+			return (IOException) error;
+		}
+
+		if (error instanceof Error) {
+			throw (Error) error;
+		}
+
+		// Runtime exceptions while inflating come from corrupt data, report them as a data error like the single threaded decode.
+		return (IOException) (new IOException("Inflate error").initCause(error));
+	}
+
+	private void copyLine(ByteBuffer buffer, byte[] curLine, byte[] palLine, Format fmt) {
+		switch (colourType) {
+			case COLOUR_TRUECOLOUR:
+				switch (fmt) {
+					case ABGR:
+						copyRGBtoABGR(buffer, curLine);
+						break;
+					case RGBA:
+						copyRGBtoRGBA(buffer, curLine);
+						break;
+					case BGRA:
+						copyRGBtoBGRA(buffer, curLine);
+						break;
+					case RGB:
+						copy(buffer, curLine);
+						break;
+					default:
+						throw new UnsupportedOperationException("Unsupported format for this image");
+				}
+				break;
+			case COLOUR_TRUEALPHA:
+				switch (fmt) {
+					case ABGR:
+						copyRGBAtoABGR(buffer, curLine);
 						break;
-					case COLOUR_TRUEALPHA:
-						switch (fmt) {
-							case ABGR:
-								copyRGBAtoABGR(buffer, curLine);
-								break;
-							case RGBA:
-								copy(buffer, curLine);
-								break;
-							case BGRA:
-								copyRGBAtoBGRA(buffer, curLine);
-								break;
-							case RGB:
-								copyRGBAtoRGB(buffer, curLine);
-								break;
-							default:
-								throw new UnsupportedOperationException("Unsupported format for this image");
-						}
+					case RGBA:
+						copy(buffer, curLine);
+						break;
+					case BGRA:
+						copyRGBAtoBGRA(buffer, curLine);
 						break;
-					case COLOUR_GREYSCALE:
-						switch (fmt) {
-							case LUMINANCE:
-							case ALPHA:
-								copy(buffer, curLine);
-								break;
-							default:
-								throw new UnsupportedOperationException("Unsupported format for this image");
-						}
+					case RGB:
+						copyRGBAtoRGB(buffer, curLine);
 						break;
-					case COLOUR_GREYALPHA:
-						switch (fmt) {
-							case LUMINANCE_ALPHA:
-								copy(buffer, curLine);
-								break;
-							default:
-								throw new UnsupportedOperationException("Unsupported format for this image");
-						}
+					default:
+						throw new UnsupportedOperationException("Unsupported format for this image");
+				}
+				break;
+			case COLOUR_GREYSCALE:
+				switch (fmt) {
+					case LUMINANCE:
+					case ALPHA:
+						copy(buffer, curLine);
 						break;
-					case COLOUR_INDEXED:
-						switch (bitdepth) {
-							case 8:
-								palLine = curLine;
-								break;
-							case 4:
-								expand4(curLine, palLine);
-								break;
-							case 2:
-								expand2(curLine, palLine);
-								break;
-							case 1:
-								expand1(curLine, palLine);
-								break;
-							default:
-								throw new UnsupportedOperationException("Unsupported bitdepth for this image");
-						}
-
-						switch (fmt) {
-							case ABGR:
-								copyPALtoABGR(buffer, palLine);
-								break;
-							case RGBA:
-								copyPALtoRGBA(buffer, palLine);
-								break;
-							case BGRA:
-								copyPALtoBGRA(buffer, palLine);
-								break;
-							default:
-								throw new UnsupportedOperationException("Unsupported format for this image");
-						}
+					default:
+						throw new UnsupportedOperationException("Unsupported format for this image");
+				}
+				break;
+			case COLOUR_GREYALPHA:
+				switch (fmt) {
+					case LUMINANCE_ALPHA:
+						copy(buffer, curLine);
 						break;
 					default:
-						throw new UnsupportedOperationException("Not yet implemented");
+						throw new UnsupportedOperationException("Unsupported format for this image");
+				}
+				break;
+			case COLOUR_INDEXED:
+				switch (bitdepth) {
+					case 8:
+						palLine = curLine;
+						break;
+					case 4:
+						expand4(curLine, palLine);
+						break;
+					case 2:
+						expand2(curLine, palLine);
+						break;
+					case 1:
+						expand1(curLine, palLine);
+						break;
+					default:
+						throw new UnsupportedOperationException("Unsupported bitdepth for this image");
 				}
 
-				byte[] tmp = curLine;
-				curLine = prevLine;
-				prevLine = tmp;
-			}
-		} finally {
-			inflater.end();
+				switch (fmt) {
+					case ABGR:
+						copyPALtoABGR(buffer, palLine);
+						break;
+					case RGBA:
+						copyPALtoRGBA(buffer, palLine);
+						break;
+					case BGRA:
+						copyPALtoBGRA(buffer, palLine);
+						break;
+					default:
+						throw new UnsupportedOperationException("Unsupported format for this image");
+				}
+				break;
+			default:
+				throw new UnsupportedOperationException("Not yet implemented");
 		}
 	}
 
@@ -1,9 +1,8 @@
 package flounder.textures;
 
+import flounder.helpers.*;
 import flounder.processing.opengl.*;
 
-import static org.lwjgl.opengl.GL11.*;
-
 /**
  * A class that can process a request to delete a texture.
  */
@@ -28,6 +27,6 @@ public class TextureDeleteRequest implements RequestOpenGL {
 		FlounderTextures.getLoaded().get(texture.getName()).clear();
 		FlounderTextures.getLoaded().remove(texture.getName());
 
-		glDeleteTextures(texture.getTextureID());
+		OpenGlUtils.deleteTexture(texture.getTextureID());
 	}
 }
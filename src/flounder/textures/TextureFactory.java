@@ -1,20 +1,29 @@
 package flounder.textures;
 
 import flounder.factory.*;
+import flounder.framework.*;
+import flounder.helpers.*;
+import flounder.loaders.*;
 import flounder.logger.*;
+import flounder.processing.opengl.*;
+import flounder.renderer.*;
+import flounder.resources.*;
 import org.lwjgl.*;
 
 import java.io.*;
 import java.lang.ref.*;
 import java.nio.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.zip.*;
 
+import static org.lwjgl.opengl.EXTTextureCompressionS3TC.*;
 import static org.lwjgl.opengl.EXTTextureFilterAnisotropic.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL12.*;
 import static org.lwjgl.opengl.GL13.*;
 import static org.lwjgl.opengl.GL14.*;
-import static org.lwjgl.opengl.GL30.*;
 
 /**
  * A class that represents a factory for loading textures.
@@ -22,8 +31,24 @@ import static org.lwjgl.opengl.GL30.*;
 public class TextureFactory extends Factory {
 	private static final TextureFactory INSTANCE = new TextureFactory();
 
+	// Images with at least this many pixels inflate and unfilter on separate threads.
+	private static final int PIPELINE_PIXELS = 1024 * 1024;
+
+	// The smallest mipmap levels are uploaded together up to this size, larger levels are then streamed in one per upload request.
+	private static final int STREAM_TAIL_BYTES = 64 * 1024;
+
+	private final PriorityExecutor decodeExecutor;
+	private final Map<String, PredecodedTexture> predecoded;
+	private final RequestCoalescer coalescer;
+	private final Prefetcher prefetcher;
+
 	private TextureFactory() {
 		super("texture");
+
+		this.decodeExecutor = new PriorityExecutor("Texture Decoder", Math.max(Runtime.getRuntime().availableProcessors() - 1, 1));
+		this.predecoded = new ConcurrentHashMap<>();
+		this.coalescer = new RequestCoalescer();
+		this.prefetcher = new TexturePrefetcher();
 	}
 
 	/**
@@ -35,6 +60,254 @@ public class TextureFactory extends Factory {
 		return new TextureBuilder(INSTANCE);
 	}
 
+	/**
+	 * Creates a batch of textures, the image files are decoded concurrently before the textures are loaded.
+	 *
+	 * @param builders The builders of the textures to create.
+	 *
+	 * @return The created textures, in the order of the builders.
+	 */
+	public static TextureObject[] createBatch(TextureBuilder... builders) {
+		for (TextureBuilder builder : builders) {
+			MyFile file = builder.getFile();
+
+			if (file != null && !builder.isCompress()) {
+				predecode(file, builder.getLoadPriority(), builder.isMipmap(), !builder.isLinearColour());
+			}
+		}
+
+		TextureObject[] textures = new TextureObject[builders.length];
+
+		for (int i = 0; i < builders.length; i++) {
+			textures[i] = builders[i].create();
+
+			// A texture already loaded came from the cache and never loads its data, the decode started for it is not used.
+			if (textures[i] != null && textures[i].isLoaded()) {
+				discardPredecoded(builders[i].getFile().getPath());
+			}
+		}
+
+		return textures;
+	}
+
+	/**
+	 * Starts decoding a file on the decode threads, loading the texture later picks up the decoded image.
+	 * Nothing is decoded if the texture is loaded, already loading, or already being decoded.
+	 *
+	 * @param file The file to decode.
+	 * @param priority The priority of the decode.
+	 * @param mipmap If the mipmap chain is generated.
+	 * @param srgb If the colour channels are gamma encoded.
+	 */
+	private static void predecode(MyFile file, LoadPriority priority, boolean mipmap, boolean srgb) {
+		if (isLoaded(file.getName()) || INSTANCE.coalescer.isInFlight(file.getName())) {
+			return;
+		}
+
+		PredecodedTexture predecode = new PredecodedTexture(mipmap, srgb);
+		predecode.future = INSTANCE.decodeExecutor.submit(priority, () -> predecode.start() ? predecode.complete(decode(file, mipmap, srgb)) : null);
+
+		if (INSTANCE.predecoded.putIfAbsent(file.getPath(), predecode) != null) {
+			predecode.discard();
+		}
+	}
+
+	/**
+	 * Removes the decode started for a file that will not be used, and returns its pooled buffer whether the decode has finished or not.
+	 *
+	 * @param path The path of the file.
+	 */
+	private static void discardPredecoded(String path) {
+		PredecodedTexture predecode = INSTANCE.predecoded.remove(path);
+
+		if (predecode != null) {
+			predecode.discard();
+		}
+	}
+
+	/**
+	 * Creates a texture, or attaches to the texture already loading under the same name.
+	 *
+	 * @param name The name of the texture.
+	 * @param create Creates the texture through the factory.
+	 *
+	 * @return The loading or created texture.
+	 */
+	protected static FactoryObject coalesce(String name, Supplier<FactoryObject> create) {
+		return INSTANCE.coalescer.request(name, create);
+	}
+
+	/**
+	 * Gets the tracker of textures still loading.
+	 *
+	 * @return The request coalescer.
+	 */
+	public static RequestCoalescer getCoalescer() {
+		return INSTANCE.coalescer;
+	}
+
+	/**
+	 * Gets the prefetcher that decodes textures recorded in load traces.
+	 *
+	 * @return The texture prefetcher.
+	 */
+	public static Prefetcher getPrefetcher() {
+		return INSTANCE.prefetcher;
+	}
+
+	/**
+	 * Reloads the textures loaded from a changed file, used by hot reloading. The file is decoded on the calling thread,
+	 * then the new levels are uploaded into the existing texture IDs so textures held by renderers show the change.
+	 *
+	 * @param path The normalized path of the changed file.
+	 */
+	protected static void reload(String path) {
+		for (FactoryObject object : ((FactoryCache<?>) FlounderTextures.getLoaded()).getObjects()) {
+			TextureObject o = (TextureObject) object;
+			TextureBuilder b = o.getBuilder();
+
+			if (b == null || o.getFile() == null || !o.isLoaded() || !AssetPack.normalize(o.getFile().getPath()).equals(path)) {
+				continue;
+			}
+
+			if (o.isStreaming()) {
+				FlounderLogger.warning("Texture '" + path + "' changed while streaming, it was not reloaded");
+				continue;
+			}
+
+			ByteBuffer buffer = null;
+			CompressedTexture compressed = null;
+			int width;
+			int height;
+			boolean hasAlpha;
+			int levels;
+
+			try {
+				if (isCompressedFormat(o)) {
+					compressed = decodeCompressed(b.getFile(), !b.isLinearColour());
+					width = compressed.getWidth();
+					height = compressed.getHeight();
+					hasAlpha = compressed.isAlpha();
+					levels = compressed.getLevels().size();
+				} else {
+					DecodedTexture decoded = decode(b.getFile(), b.isMipmap(), !b.isLinearColour());
+					buffer = decoded.buffer;
+					width = decoded.width;
+					height = decoded.height;
+					hasAlpha = decoded.hasAlpha;
+					levels = decoded.levels;
+				}
+			} catch (IOException e) {
+				FlounderLogger.error("Could not reload texture '" + path + "'");
+				FlounderLogger.exception(e);
+				continue;
+			}
+
+			final ByteBuffer reloadBuffer = buffer;
+			final CompressedTexture reloadCompressed = compressed;
+
+			FlounderRenderer.sendRequest((RequestOpenGL) () -> {
+				if (!o.isLoaded() || o.isStreaming()) {
+					FlounderLoader.releaseBuffer(reloadBuffer);
+					return;
+				}
+
+				o.loadReloaded(reloadBuffer, reloadCompressed, width, height, hasAlpha, levels);
+				OpenGlUtils.bindTexture(o.getTextureID(), GL_TEXTURE_2D, 0);
+				glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+				for (int level = levels - 1; level >= 0; level--) {
+					uploadLevel(o, level);
+				}
+
+				if (levels > 1) {
+					glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, 0);
+					glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, levels - 1);
+				}
+
+				o.releaseBuffer();
+			});
+		}
+	}
+
+	private static boolean isLoaded(String name) {
+		SoftReference<FactoryObject> reference = FlounderTextures.getLoaded().get(name);
+		return reference != null && reference.get() != null;
+	}
+
+	/**
+	 * Decodes a PNG file into a pooled BGRA buffer, and builds the mipmap chain after the full sized image when needed.
+	 *
+	 * @param file The file to decode.
+	 * @param mipmap If the mipmap chain is generated.
+	 * @param srgb If the colour channels are gamma encoded, used when averaging the mipmaps.
+	 *
+	 * @return The decoded texture.
+	 *
+	 * @throws IOException If the file could not be read or decoded.
+	 */
+	private static DecodedTexture decode(MyFile file, boolean mipmap, boolean srgb) throws IOException {
+		try (InputStream in = FlounderLoader.openStream(file)) {
+			TextureDecoder decoder = new TextureDecoder(in);
+			int width = decoder.getWidth();
+			int height = decoder.getHeight();
+			int levels = mipmap ? MipmapGenerator.getLevelCount(width, height) : 1;
+			ByteBuffer buffer = FlounderLoader.acquireBuffer(MipmapGenerator.getLevelOffset(width, height, levels));
+
+			if (width * height >= PIPELINE_PIXELS) {
+				decoder.decodePipelined(buffer, width * 4, TextureDecoder.Format.BGRA);
+			} else {
+				decoder.decode(buffer, width * 4, TextureDecoder.Format.BGRA);
+			}
+
+			if (mipmap) {
+				MipmapGenerator.generateChain(buffer, width, height, srgb);
+			}
+
+			buffer.clear();
+			buffer.limit(MipmapGenerator.getLevelOffset(width, height, levels));
+			return new DecodedTexture(buffer, levels, width, height, decoder.hasAlpha());
+		}
+	}
+
+	/**
+	 * Loads a block compressed mipmap chain for a PNG file, from the disk cache when the file has not changed since it was compressed.
+	 *
+	 * @param file The file to load.
+	 * @param srgb If the colour channels are gamma encoded, used when averaging the mipmaps.
+	 *
+	 * @return The compressed texture.
+	 *
+	 * @throws IOException If the file could not be read or decoded.
+	 */
+	private static CompressedTexture decodeCompressed(MyFile file, boolean srgb) throws IOException {
+		byte[] source = TextureAtlas.readFile(file);
+		CRC32 crc = new CRC32();
+		crc.update(source);
+		crc.update(srgb ? 1 : 0);
+		long key = crc.getValue();
+
+		File cacheFile = new File(new File(Framework.getRoamingFolder().getPath(), "cache" + File.separator + "textures"), Integer.toHexString(file.getPath().hashCode()) + "_" + file.getName() + ".fbc");
+		CompressedTexture compressed = CompressedTexture.read(cacheFile, key);
+
+		if (compressed == null) {
+			TextureDecoder decoder = new TextureDecoder(new ByteArrayInputStream(source));
+			int width = decoder.getWidth();
+			int height = decoder.getHeight();
+			byte[] pixels = new byte[4 * width * height];
+			decoder.decode(ByteBuffer.wrap(pixels), width * 4, TextureDecoder.Format.BGRA);
+			compressed = CompressedTexture.compress(pixels, width, height, decoder.hasAlpha(), srgb);
+
+			try {
+				compressed.write(cacheFile, key);
+			} catch (IOException e) {
+				FlounderLogger.warning("Could not cache compressed texture " + cacheFile);
+			}
+		}
+
+		return compressed;
+	}
+
 	@Override
 	protected FactoryObject newObject() {
 		return new TextureObject();
@@ -45,78 +318,491 @@ public class TextureFactory extends Factory {
 		TextureBuilder b = (TextureBuilder) builder;
 		TextureObject o = (TextureObject) object;
 
-		int width = 0;
-		int height = 0;
-		boolean hasAlpha = false;
-		ByteBuffer buffer = null;
+		if (b.isCompress() && FlounderTextures.isCompressionSupported()) {
+			CompressedTexture compressed = null;
+
+			try {
+				compressed = decodeCompressed(b.getFile(), !b.isLinearColour());
+			} catch (Exception e) {
+				FlounderLogger.error("Tried to load texture '" + b.getFile() + "', didn't work");
+				FlounderLogger.exception(e);
+				System.exit(-1);
+			}
+
+			o.loadData(b.getFile(), null, compressed.getWidth(), compressed.getHeight(), compressed.isAlpha(), b.getNumberOfRows(), name);
+			o.loadCompressed(compressed);
+			o.loadMipmapLevels(compressed.getLevels().size());
+			o.loadBuilder(b);
+			return;
+		}
+
+		DecodedTexture decoded = null;
 
 		try {
-			InputStream in = b.getFile().getInputStream();
-			TextureDecoder decoder = new TextureDecoder(in);
-			width = decoder.getWidth();
-			height = decoder.getHeight();
-			hasAlpha = decoder.hasAlpha();
-			buffer = ByteBuffer.allocateDirect(4 * width * height);
-			decoder.decode(buffer, width * 4, TextureDecoder.Format.BGRA);
-			buffer.flip();
-			in.close();
+			// Uses the result of a batch decode if one was started for this file, unless a visible texture would wait behind queued prefetches.
+			PredecodedTexture predecode = predecoded.remove(b.getFile().getPath());
+
+			// Prefetches assume a mipmapped sRGB texture, a decode made with different flags than the builders is dropped.
+			if (predecode != null && !predecode.matches(b.isMipmap(), !b.isLinearColour())) {
+				predecode.discard();
+				predecode = null;
+			}
+
+			decoded = predecode != null ? predecode.take(b.getLoadPriority() == LoadPriority.VISIBLE_NOW) : null;
+
+			if (decoded == null) {
+				decoded = decode(b.getFile(), b.isMipmap(), !b.isLinearColour());
+			}
 		} catch (Exception e) {
 			FlounderLogger.error("Tried to load texture '" + b.getFile() + "', didn't work");
 			FlounderLogger.exception(e);
 			System.exit(-1);
 		}
 
-		o.loadData(b.getFile(), buffer, width, height, hasAlpha, b.getNumberOfRows(), name);
+		o.loadData(b.getFile(), decoded.buffer, decoded.width, decoded.height, decoded.hasAlpha, b.getNumberOfRows(), name);
+		o.loadMipmapLevels(decoded.levels);
+		o.loadBuilder(b);
 	}
 
 	@Override
 	protected void create(FactoryObject object, FactoryBuilder builder) {
 		TextureBuilder b = (TextureBuilder) builder;
 		TextureObject o = (TextureObject) object;
+		int levels = o.getMipmapLevels();
 
-		int textureID = glGenTextures();
-		glActiveTexture(GL_TEXTURE0);
-		glBindTexture(GL_TEXTURE_2D, textureID);
-		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
-		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, o.getWidth(), o.getHeight(), 0, GL_BGRA, GL_UNSIGNED_BYTE, o.getBuffer());
+		// The small levels go up first so the texture is usable early, then it sharpens as each larger level arrives.
+		final int firstLevel = getTailLevel(o);
+		long tailBytes = 0;
+
+		for (int level = firstLevel; level < levels; level++) {
+			tailBytes += getLevelBytes(o, level);
+		}
 
-		if (b.isMipmap()) {
-			glGenerateMipmap(GL_TEXTURE_2D);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
+		final long firstBytes = tailBytes;
+		o.setStreaming(firstLevel > 0);
 
-			if (b.isAnisotropic()) {
-				glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_LOD_BIAS, 0);
-				glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAX_ANISOTROPY_EXT, FlounderTextures.getAnisotropyLevel());
+		FlounderLoader.queueUpload(new UploadRequest() {
+			@Override
+			public long getUploadBytes() {
+				return firstBytes;
 			}
-		} else if (b.isNearest()) {
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-		} else {
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-		}
-
-		if (b.isClampEdges()) {
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
-		} else if (b.isClampToBorder()) {
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
-			FloatBuffer buffer = BufferUtils.createFloatBuffer(4);
-			b.getBorderColour().store(buffer);
+
+			@Override
+			public void executeUpload() {
+				upload(b, o, firstLevel, levels);
+			}
+		}, b.getUploadPriority());
+
+		for (int level = firstLevel - 1; level >= 0; level--) {
+			final int streamLevel = level;
+			final long streamBytes = getLevelBytes(o, level);
+
+			FlounderLoader.queueUpload(new UploadRequest() {
+				@Override
+				public long getUploadBytes() {
+					return streamBytes;
+				}
+
+				@Override
+				public void executeUpload() {
+					uploadStreamed(o, streamLevel);
+				}
+			}, b.getUploadPriority());
+		}
+	}
+
+	/**
+	 * Creates the OpenGL texture and uploads the smallest levels, called by the loaders upload queue.
+	 *
+	 * @param b The builder the texture was created from.
+	 * @param o The texture to upload.
+	 * @param firstLevel The largest level uploaded now, larger levels are streamed in later.
+	 * @param levels The number of levels the texture has.
+	 */
+	private void upload(TextureBuilder b, TextureObject o, int firstLevel, int levels) {
+		// A failed upload must still end the request, otherwise later requests attach to a texture that never loads.
+		try {
+			int textureID = glGenTextures();
+			OpenGlUtils.bindTexture(textureID, GL_TEXTURE_2D, 0);
+			glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+			for (int level = levels - 1; level >= firstLevel; level--) {
+				uploadLevel(o, level);
+			}
+
+			if (levels > 1) {
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, firstLevel);
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, levels - 1);
+			}
+
+			if (b.isMipmap()) {
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
+
+				if (b.isAnisotropic()) {
+					glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_LOD_BIAS, 0);
+					glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAX_ANISOTROPY_EXT, FlounderTextures.getAnisotropyLevel());
+				}
+			} else if (b.isNearest()) {
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+			} else {
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+			}
+
+			if (b.isClampEdges()) {
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+			} else if (b.isClampToBorder()) {
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
+				FloatBuffer buffer = BufferUtils.createFloatBuffer(4);
+				b.getBorderColour().store(buffer);
+				buffer.flip();
+				glTexParameterfv(GL_TEXTURE_2D, GL_TEXTURE_BORDER_COLOR, buffer);
+			} else {
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
+				glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+			}
+
+			o.setResidentLevel(firstLevel);
+			o.loadGL(textureID, GL_TEXTURE_2D);
+
+			if (firstLevel == 0) {
+				o.releaseBuffer();
+			}
+		} finally {
+			coalescer.complete(o.getName());
+		}
+	}
+
+	/**
+	 * Uploads a larger level to a texture that is already in use, and lets sampling reach it.
+	 *
+	 * @param o The texture to upload to.
+	 * @param level The level to upload.
+	 */
+	private void uploadStreamed(TextureObject o, int level) {
+		if (o.getBuffer() == null && o.getCompressed() == null) {
+			return;
+		}
+
+		// The texture was deleted before it finished streaming in.
+		if (!o.isLoaded()) {
+			o.releaseBuffer();
+			o.setStreaming(false);
+			return;
+		}
+
+		OpenGlUtils.bindTexture(o.getTextureID(), GL_TEXTURE_2D, 0);
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+		uploadLevel(o, level);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, level);
+		o.setResidentLevel(level);
+
+		if (level == 0) {
+			o.releaseBuffer();
+			o.setStreaming(false);
+		}
+	}
+
+	/**
+	 * Uploads one level of the loaded pixels, or of the compressed chain, to the bound texture.
+	 *
+	 * @param o The texture being uploaded.
+	 * @param level The level to upload.
+	 */
+	private static void uploadLevel(TextureObject o, int level) {
+		int width = MipmapGenerator.getLevelSize(o.getWidth(), level);
+		int height = MipmapGenerator.getLevelSize(o.getHeight(), level);
+		CompressedTexture compressed = o.getCompressed();
+
+		if (compressed != null) {
+			byte[] data = compressed.getLevels().get(level);
+			ByteBuffer buffer = FlounderLoader.acquireBuffer(data.length);
+			buffer.put(data);
 			buffer.flip();
-			glTexParameterfv(GL_TEXTURE_2D, GL_TEXTURE_BORDER_COLOR, buffer);
+			glCompressedTexImage2D(GL_TEXTURE_2D, level, compressed.isAlpha() ? GL_COMPRESSED_RGBA_S3TC_DXT5_EXT : GL_COMPRESSED_RGB_S3TC_DXT1_EXT, width, height, 0, buffer);
+			FlounderLoader.releaseBuffer(buffer);
 		} else {
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+			ByteBuffer buffer = o.getBuffer();
+			buffer.clear();
+			buffer.limit(MipmapGenerator.getLevelOffset(o.getWidth(), o.getHeight(), level + 1));
+			buffer.position(MipmapGenerator.getLevelOffset(o.getWidth(), o.getHeight(), level));
+			glTexImage2D(GL_TEXTURE_2D, level, GL_RGBA, width, height, 0, GL_BGRA, GL_UNSIGNED_BYTE, buffer);
 		}
+	}
+
+	/**
+	 * Frees every level larger than the streaming tail of a idle texture, or replaces a texture without mipmaps with a 1x1 placeholder.
+	 *
+	 * @param o The texture to evict, must be fully loaded and have a source file.
+	 */
+	protected static void evict(TextureObject o) {
+		int levels = o.getMipmapLevels();
+		OpenGlUtils.bindTexture(o.getTextureID(), GL_TEXTURE_2D, 0);
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+		if (levels > 1) {
+			int tail = getTailLevel(o);
+
+			// Sampling is limited to the resident levels first, then the storage of the larger levels is dropped.
+			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, tail);
+
+			for (int level = 0; level < tail; level++) {
+				glTexImage2D(GL_TEXTURE_2D, level, GL_RGBA, 0, 0, 0, GL_BGRA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+			}
 
-		o.loadGL(textureID, GL_TEXTURE_2D);
+			o.setResidentLevel(tail);
+		} else {
+			ByteBuffer placeholder = FlounderLoader.acquireBuffer(4);
+			placeholder.put(new byte[]{(byte) 128, (byte) 128, (byte) 128, (byte) 255});
+			placeholder.flip();
+			glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, 1, 1, 0, GL_BGRA, GL_UNSIGNED_BYTE, placeholder);
+			FlounderLoader.releaseBuffer(placeholder);
+			o.setResidentLevel(levels);
+		}
+	}
+
+	/**
+	 * Decodes a evicted texture again on the decode threads, then streams the missing levels back in through the upload queue.
+	 *
+	 * @param o The texture to restore.
+	 */
+	protected static void restore(TextureObject o) {
+		TextureBuilder b = o.getBuilder();
+		o.setStreaming(true);
+
+		INSTANCE.decodeExecutor.submit(LoadPriority.VISIBLE_NOW, () -> {
+			try {
+				if (isCompressedFormat(o)) {
+					o.loadStreamData(null, decodeCompressed(b.getFile(), !b.isLinearColour()));
+				} else {
+					o.loadStreamData(decode(b.getFile(), b.isMipmap(), !b.isLinearColour()).buffer, null);
+				}
+			} catch (IOException e) {
+				FlounderLogger.error("Could not stream texture '" + b.getFile() + "' back in");
+				FlounderLogger.exception(e);
+				o.setStreaming(false);
+				return null;
+			}
+
+			for (int level = o.getResidentLevel() - 1; level >= 0; level--) {
+				final int streamLevel = level;
+				final long streamBytes = getLevelBytes(o, level);
+
+				FlounderLoader.queueUpload(new UploadRequest() {
+					@Override
+					public long getUploadBytes() {
+						return streamBytes;
+					}
+
+					@Override
+					public void executeUpload() {
+						INSTANCE.uploadStreamed(o, streamLevel);
+					}
+				}, UploadPriority.HIGH);
+			}
+
+			return null;
+		});
+	}
+
+	/**
+	 * Gets the bytes of GPU memory used by the resident levels of a texture.
+	 *
+	 * @param o The texture.
+	 *
+	 * @return The resident bytes.
+	 */
+	protected static long getResidentBytes(TextureObject o) {
+		if (o.getResidentLevel() >= o.getMipmapLevels()) {
+			return 4;
+		}
+
+		long bytes = 0;
+
+		for (int level = o.getResidentLevel(); level < o.getMipmapLevels(); level++) {
+			bytes += getLevelBytes(o, level);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Gets the largest level of the small levels that are uploaded together, and kept when the texture is evicted.
+	 *
+	 * @param o The texture.
+	 *
+	 * @return The tail level, 0 if the whole texture fits.
+	 */
+	protected static int getTailLevel(TextureObject o) {
+		int tail = o.getMipmapLevels() - 1;
+		long bytes = getLevelBytes(o, tail);
+
+		while (tail > 0 && bytes + getLevelBytes(o, tail - 1) <= STREAM_TAIL_BYTES) {
+			tail--;
+			bytes += getLevelBytes(o, tail);
+		}
+
+		return tail;
+	}
+
+	private static boolean isCompressedFormat(TextureObject o) {
+		TextureBuilder b = o.getBuilder();
+		return b != null && b.isCompress() && FlounderTextures.isCompressionSupported();
+	}
+
+	private static long getLevelBytes(TextureObject o, int level) {
+		int width = MipmapGenerator.getLevelSize(o.getWidth(), level);
+		int height = MipmapGenerator.getLevelSize(o.getHeight(), level);
+		return isCompressedFormat(o) ? BlockCompressor.getCompressedSize(width, height, o.hasAlpha()) : 4L * width * height;
 	}
 
 	@Override
 	protected Map<String, SoftReference<FactoryObject>> getLoaded() {
 		return FlounderTextures.getLoaded();
 	}
+
+	/**
+	 * Decodes textures recorded in a load trace at background priority, loading the texture later picks up the decoded image.
+	 */
+	private static class TexturePrefetcher implements Prefetcher {
+		@Override
+		public void prefetch(String path) {
+			MyFile file = new MyFile(path);
+
+			if (INSTANCE.predecoded.containsKey(path)) {
+				return;
+			}
+
+			predecode(file, LoadPriority.BACKGROUND, true, true);
+		}
+
+		@Override
+		public void clear() {
+			for (String path : new ArrayList<>(INSTANCE.predecoded.keySet())) {
+				discardPredecoded(path);
+			}
+		}
+	}
+
+	/**
+	 * A decode started before its texture was requested. A discarded decode returns its buffer to the pool when it finishes, or right away if it already has.
+	 * Cancelling the future alone is not enough, a task already running would finish and its buffer would never be released.
+	 */
+	private static class PredecodedTexture {
+		private final boolean mipmap;
+		private final boolean srgb;
+		private Future<DecodedTexture> future;
+		private boolean started;
+		private boolean finished;
+		private boolean discarded;
+
+		private PredecodedTexture(boolean mipmap, boolean srgb) {
+			this.mipmap = mipmap;
+			this.srgb = srgb;
+		}
+
+		/**
+		 * Gets if the decode was made with the flags a texture is loaded with.
+		 *
+		 * @param mipmap If the texture has mipmaps.
+		 * @param srgb If the textures colour channels are gamma encoded.
+		 *
+		 * @return If the decoded image can be used.
+		 */
+		private boolean matches(boolean mipmap, boolean srgb) {
+			return this.mipmap == mipmap && this.srgb == srgb;
+		}
+
+		/**
+		 * Called on the decode thread before decoding.
+		 *
+		 * @return If the decode should run, false if it was discarded while queued.
+		 */
+		private synchronized boolean start() {
+			started = !discarded;
+			return started;
+		}
+
+		/**
+		 * Called on the decode thread with the decoded image.
+		 *
+		 * @param decoded The decoded image.
+		 *
+		 * @return The decoded image, or null if the decode was discarded.
+		 */
+		private synchronized DecodedTexture complete(DecodedTexture decoded) {
+			if (discarded) {
+				FlounderLoader.releaseBuffer(decoded.buffer);
+				return null;
+			}
+
+			finished = true;
+			return decoded;
+		}
+
+		/**
+		 * Gets the decoded image for the texture being loaded, waiting for the decode if it has started.
+		 *
+		 * @param skipQueued If a decode that has not started is discarded instead of waited on.
+		 *
+		 * @return The decoded image, or null if the decode was skipped.
+		 *
+		 * @throws InterruptedException If interrupted while waiting.
+		 * @throws ExecutionException If the decode failed.
+		 */
+		private DecodedTexture take(boolean skipQueued) throws InterruptedException, ExecutionException {
+			synchronized (this) {
+				if (skipQueued && !started) {
+					discarded = true;
+					future.cancel(false);
+					return null;
+				}
+			}
+
+			return future.get();
+		}
+
+		/**
+		 * Stops the decode if it has not started, otherwise makes sure its buffer is returned to the pool.
+		 */
+		private void discard() {
+			synchronized (this) {
+				discarded = true;
+
+				if (!finished) {
+					future.cancel(false);
+					return;
+				}
+			}
+
+			try {
+				FlounderLoader.releaseBuffer(future.get().buffer);
+			} catch (InterruptedException | ExecutionException e) {
+				// Failed decodes hold no buffer.
+			}
+		}
+	}
+
+	/**
+	 * The pixels and header of a decoded image.
+	 */
+	private static class DecodedTexture {
+		private final ByteBuffer buffer;
+		private final int levels;
+		private final int width;
+		private final int height;
+		private final boolean hasAlpha;
+
+		private DecodedTexture(ByteBuffer buffer, int levels, int width, int height, boolean hasAlpha) {
+			this.buffer = buffer;
+			this.levels = levels;
+			this.width = width;
+			this.height = height;
+			this.hasAlpha = hasAlpha;
+		}
+	}
 }
@@ -1,7 +1,9 @@
 package flounder.textures;
 
 import flounder.factory.*;
-import flounder.processing.*;
+import flounder.loaders.*;
+import flounder.maths.vectors.*;
+import flounder.renderer.*;
 import flounder.resources.*;
 
 import java.nio.*;
@@ -14,6 +16,7 @@ import static org.lwjgl.opengl.GL11.*;
 public class TextureObject extends FactoryObject {
 	private MyFile file;
 	private ByteBuffer buffer;
+	private int mipmapLevels;
 	private int width;
 	private int height;
 	private boolean hasAlpha;
@@ -23,6 +26,13 @@ public class TextureObject extends FactoryObject {
 
 	private int textureID;
 	private int glType;
+	private Vector4f atlasRegion;
+	private CompressedTexture compressed;
+
+	private TextureBuilder builder;
+	private int residentLevel;
+	private volatile long lastUsedFrame;
+	private volatile boolean streaming;
 
 	/**
 	 * A new OpenGL texture object.
@@ -30,6 +40,7 @@ public class TextureObject extends FactoryObject {
 	protected TextureObject() {
 		super();
 		this.file = null;
+		this.mipmapLevels = 1;
 		this.hasAlpha = false;
 		this.numberOfRows = 1;
 
@@ -37,6 +48,12 @@ public class TextureObject extends FactoryObject {
 
 		this.textureID = -1;
 		this.glType = GL_TEXTURE_2D;
+		this.atlasRegion = new Vector4f(0.0f, 0.0f, 1.0f, 1.0f);
+
+		this.builder = null;
+		this.residentLevel = 0;
+		this.lastUsedFrame = 0;
+		this.streaming = false;
 	}
 
 	protected void loadData(MyFile file, ByteBuffer buffer, int width, int height, boolean hasAlpha, int numberOfRows, String name) {
@@ -54,6 +71,19 @@ public class TextureObject extends FactoryObject {
 		setDataLoaded(true);
 	}
 
+	protected void loadCompressed(CompressedTexture compressed) {
+		this.compressed = compressed;
+	}
+
+	/**
+	 * Sets the number of mipmap levels stored in the buffer, one after another starting with the full sized image.
+	 *
+	 * @param mipmapLevels The number of levels.
+	 */
+	protected void loadMipmapLevels(int mipmapLevels) {
+		this.mipmapLevels = mipmapLevels;
+	}
+
 	protected void loadGL(int textureID, int glType) {
 		this.textureID = textureID;
 		this.glType = glType;
@@ -61,6 +91,55 @@ public class TextureObject extends FactoryObject {
 		setFullyLoaded(true);
 	}
 
+	/**
+	 * Sets the builder the texture was loaded from, used to load the texture again after it is evicted.
+	 *
+	 * @param builder The texture builder.
+	 */
+	protected void loadBuilder(TextureBuilder builder) {
+		this.builder = builder;
+	}
+
+	/**
+	 * Sets pixels being streamed back into a evicted texture.
+	 *
+	 * @param buffer The decoded mipmap chain, or null.
+	 * @param compressed The compressed mipmap chain, or null.
+	 */
+	protected void loadStreamData(ByteBuffer buffer, CompressedTexture compressed) {
+		this.buffer = buffer;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * Replaces the image of a loaded texture after its file changed, called on the OpenGL thread before the new levels are uploaded to the same texture ID.
+	 *
+	 * @param buffer The new pixels, or null when compressed.
+	 * @param compressed The new compressed chain, or null.
+	 * @param width The new width.
+	 * @param height The new height.
+	 * @param hasAlpha If the new image has alpha.
+	 * @param mipmapLevels The number of levels in the new image.
+	 */
+	protected void loadReloaded(ByteBuffer buffer, CompressedTexture compressed, int width, int height, boolean hasAlpha, int mipmapLevels) {
+		this.buffer = buffer;
+		this.compressed = compressed;
+		this.width = width;
+		this.height = height;
+		this.hasAlpha = hasAlpha;
+		this.mipmapLevels = mipmapLevels;
+		this.residentLevel = 0;
+	}
+
+	/**
+	 * Releases the loaded pixels once every level is on the GPU, the staging buffer goes back to the loaders pool.
+	 */
+	protected void releaseBuffer() {
+		FlounderLoader.releaseBuffer(buffer);
+		this.buffer = null;
+		this.compressed = null;
+	}
+
 	/**
 	 * Gets texture file this was stored in.
 	 *
@@ -71,14 +150,80 @@ public class TextureObject extends FactoryObject {
 	}
 
 	/**
-	 * Gets the buffer the texture was loaded into.
+	 * Gets the buffer the texture was loaded into, only available until the texture is uploaded.
 	 *
-	 * @return The texture buffer.
+	 * @return The texture buffer, or null once uploaded.
 	 */
 	public ByteBuffer getBuffer() {
 		return buffer;
 	}
 
+	/**
+	 * Gets the number of mipmap levels in the loaded buffer.
+	 *
+	 * @return The number of levels, 1 if the texture has no CPU generated mipmaps.
+	 */
+	public int getMipmapLevels() {
+		return mipmapLevels;
+	}
+
+	/**
+	 * Gets the builder the texture was loaded from.
+	 *
+	 * @return The texture builder, or null if the texture was not loaded by the factory.
+	 */
+	protected TextureBuilder getBuilder() {
+		return builder;
+	}
+
+	/**
+	 * Gets the largest level currently on the GPU.
+	 *
+	 * @return The resident level, 0 when fully loaded, equal to the number of levels when only a placeholder is resident.
+	 */
+	public int getResidentLevel() {
+		return residentLevel;
+	}
+
+	protected void setResidentLevel(int residentLevel) {
+		this.residentLevel = residentLevel;
+	}
+
+	/**
+	 * Gets the frame this texture was last bound in.
+	 *
+	 * @return The last used frame.
+	 */
+	public long getLastUsedFrame() {
+		return lastUsedFrame;
+	}
+
+	protected void setLastUsedFrame(long lastUsedFrame) {
+		this.lastUsedFrame = lastUsedFrame;
+	}
+
+	/**
+	 * Gets if levels are still being uploaded to the texture.
+	 *
+	 * @return If the texture is streaming in.
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	protected void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Gets the compressed mipmap chain the texture was loaded from, only available until the texture is uploaded.
+	 *
+	 * @return The compressed texture, or null if the texture is not compressed or already uploaded.
+	 */
+	public CompressedTexture getCompressed() {
+		return compressed;
+	}
+
 	/**
 	 * Gets the width of the texture.
 	 *
@@ -155,6 +300,27 @@ public class TextureObject extends FactoryObject {
 		return glType;
 	}
 
+	/**
+	 * Sets the sub-rectangle of a atlas page this texture is stored in.
+	 *
+	 * @param x The left of the region in texture coords.
+	 * @param y The top of the region in texture coords.
+	 * @param width The width of the region in texture coords.
+	 * @param height The height of the region in texture coords.
+	 */
+	protected void loadAtlasRegion(float x, float y, float width, float height) {
+		this.atlasRegion.set(x, y, width, height);
+	}
+
+	/**
+	 * Gets the region of the bound texture this texture covers, as offset (x, y) and scale (z, w). Shaders map coords with {@code region.xy + coords * region.zw}.
+	 *
+	 * @return The atlas region, (0, 0, 1, 1) for textures that are not in a atlas.
+	 */
+	public Vector4f getAtlasRegion() {
+		return atlasRegion;
+	}
+
 	@Override
 	public boolean isLoaded() {
 		return super.isLoaded() && textureID != -1;
@@ -166,7 +332,7 @@ public class TextureObject extends FactoryObject {
 	public void delete() {
 		if (isLoaded()) {
 			setFullyLoaded(false);
-			FlounderProcessors.sendRequest(new TextureDeleteRequest(this));
+			FlounderRenderer.sendRequest(new TextureDeleteRequest(this));
 		}
 	}
 }
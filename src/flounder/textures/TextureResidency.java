@@ -0,0 +1,139 @@
+package flounder.textures;
+
+import flounder.factory.*;
+
+import java.util.*;
+
+/**
+ * Keeps the GPU memory used by loaded textures under a budget. Textures are evicted least recently bound first, down to their small mipmap levels
+ * (or a placeholder when they have no mipmaps), and the evicted levels are streamed back in the next time the texture is bound.
+ * Textures are marked used from the render thread while the update runs on the update thread, so both hold the residency lock.
+ */
+public class TextureResidency {
+	private final long budgetBytes;
+
+	private long frame;
+	private long residentBytes;
+	private int evictedTextures;
+	private long evictions;
+	private long restores;
+
+	/**
+	 * Creates a new texture residency manager.
+	 *
+	 * @param budgetBytes The bytes of texture memory to stay under.
+	 */
+	public TextureResidency(long budgetBytes) {
+		this.budgetBytes = budgetBytes;
+		this.frame = 0;
+	}
+
+	/**
+	 * Advances the frame, and evicts idle textures while the resident textures are over budget. Must be called on the OpenGL thread.
+	 *
+	 * @param loaded A snapshot of the textures loaded by the factory.
+	 */
+	protected synchronized void update(List<FactoryObject> loaded) {
+		frame++;
+		residentBytes = 0;
+		evictedTextures = 0;
+		List<TextureObject> candidates = new ArrayList<>();
+
+		for (FactoryObject object : loaded) {
+			TextureObject texture = (TextureObject) object;
+
+			if (!texture.isLoaded()) {
+				continue;
+			}
+
+			residentBytes += TextureFactory.getResidentBytes(texture);
+
+			if (texture.getResidentLevel() != 0) {
+				if (!texture.isStreaming()) {
+					evictedTextures++;
+				}
+			} else if (isEvictable(texture)) {
+				candidates.add(texture);
+			}
+		}
+
+		if (residentBytes <= budgetBytes) {
+			return;
+		}
+
+		candidates.sort(Comparator.comparingLong(TextureObject::getLastUsedFrame));
+
+		for (TextureObject texture : candidates) {
+			if (residentBytes <= budgetBytes) {
+				break;
+			}
+
+			long before = TextureFactory.getResidentBytes(texture);
+			TextureFactory.evict(texture);
+			residentBytes -= before - TextureFactory.getResidentBytes(texture);
+			evictedTextures++;
+			evictions++;
+		}
+	}
+
+	/**
+	 * Gets if a fully resident texture can be evicted, textures bound last frame and textures that would not shrink are kept.
+	 */
+	private boolean isEvictable(TextureObject texture) {
+		return texture.getBuilder() != null && !texture.isStreaming() && texture.getLastUsedFrame() < frame - 1 &&
+				(texture.getMipmapLevels() == 1 ? TextureFactory.getResidentBytes(texture) > 4 : TextureFactory.getTailLevel(texture) > 0);
+	}
+
+	/**
+	 * Records a texture as used this frame, and starts streaming it back in if it was evicted.
+	 *
+	 * @param texture The texture being bound.
+	 */
+	protected synchronized void markUsed(TextureObject texture) {
+		texture.setLastUsedFrame(frame);
+
+		if (texture.getResidentLevel() != 0 && !texture.isStreaming() && texture.getBuilder() != null) {
+			TextureFactory.restore(texture);
+			restores++;
+		}
+	}
+
+	/**
+	 * Gets the texture memory budget.
+	 *
+	 * @return The budget in bytes.
+	 */
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+
+	/**
+	 * Gets the bytes of texture memory resident after the last update.
+	 *
+	 * @return The resident bytes.
+	 */
+	public synchronized long getResidentBytes() {
+		return residentBytes;
+	}
+
+	/**
+	 * Gets the number of textures not fully resident after the last update.
+	 *
+	 * @return The evicted texture count.
+	 */
+	public synchronized int getEvictedTextures() {
+		return evictedTextures;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getRestores() {
+		return restores;
+	}
+
+	public synchronized long getFrame() {
+		return frame;
+	}
+}
@@ -0,0 +1,78 @@
+package flounder.loaders;
+
+import flounder.factory.*;
+import org.junit.*;
+
+import java.lang.ref.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FactoryCacheTest {
+	@Test
+	@SuppressWarnings("unchecked")
+	public void objectsUsedRecentlyAreNotEvicted() {
+		List<TestObject> evicted = new ArrayList<>();
+		FactoryCache<TestObject>[] holder = new FactoryCache[1];
+		FactoryCache<TestObject> cache = new FactoryCache<>(1, new LruCachePolicy(), object -> 1, object -> holder[0].isIdle(object.lastUsedFrame), evicted::add);
+		holder[0] = cache;
+
+		TestObject used = new TestObject();
+		TestObject idle = new TestObject();
+		cache.put("used", new SoftReference<>(used));
+		cache.put("idle", new SoftReference<>(idle));
+
+		for (int i = 0; i <= FactoryCache.IDLE_FRAMES; i++) {
+			used.lastUsedFrame = cache.getFrame();
+			cache.update();
+		}
+
+		assertEquals(Collections.singletonList(idle), evicted);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void nothingIsEvictedWhileEverythingIsInUse() {
+		List<TestObject> evicted = new ArrayList<>();
+		FactoryCache<TestObject>[] holder = new FactoryCache[1];
+		FactoryCache<TestObject> cache = new FactoryCache<>(0, new LruCachePolicy(), object -> 1, object -> holder[0].isIdle(object.lastUsedFrame), evicted::add);
+		holder[0] = cache;
+
+		TestObject object = new TestObject();
+		cache.put("object", new SoftReference<>(object));
+
+		for (int i = 0; i < FactoryCache.IDLE_FRAMES * 2; i++) {
+			object.lastUsedFrame = cache.getFrame();
+			cache.update();
+		}
+
+		assertTrue(evicted.isEmpty());
+		assertEquals(1, cache.getObjects().size());
+	}
+
+	@Test
+	public void entrySetIsASnapshot() {
+		FactoryCache<TestObject> cache = new FactoryCache<>(Long.MAX_VALUE, new LruCachePolicy(), object -> 1, object -> false, object -> {
+		});
+		List<TestObject> objects = new ArrayList<>();
+
+		for (int i = 0; i < 4; i++) {
+			TestObject object = new TestObject();
+			objects.add(object);
+			cache.put("object" + i, new SoftReference<>(object));
+		}
+
+		// Adding while iterating the values would throw with a live view.
+		for (SoftReference<FactoryObject> reference : cache.values()) {
+			TestObject object = new TestObject();
+			objects.add(object);
+			cache.put("added" + objects.size(), new SoftReference<>(object));
+		}
+
+		assertEquals(8, cache.size());
+	}
+
+	private static class TestObject extends FactoryObject {
+		private long lastUsedFrame;
+	}
+}
@@ -0,0 +1,173 @@
+package flounder.loaders;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GeometryAllocatorTest {
+	@Test
+	public void allocatesFromTheFirstBlockThatFits() {
+		GeometryAllocator allocator = new GeometryAllocator(100);
+		GeometryAllocator.Allocation a = allocator.allocate(10);
+		GeometryAllocator.Allocation b = allocator.allocate(20);
+		GeometryAllocator.Allocation c = allocator.allocate(10);
+		allocator.allocate(10);
+
+		assertEquals(0, a.getOffset());
+		assertEquals(10, b.getOffset());
+		assertEquals(30, c.getOffset());
+
+		// Frees two 10 unit holes, a 15 unit allocation skips both.
+		allocator.free(a);
+		allocator.free(c);
+		assertEquals(50, allocator.allocate(15).getOffset());
+		assertEquals(0, allocator.allocate(5).getOffset());
+		assertEquals(30, allocator.allocate(10).getOffset());
+		assertEquals(60, allocator.getUsed());
+	}
+
+	@Test
+	public void freeMergesWithBothNeighbours() {
+		GeometryAllocator allocator = new GeometryAllocator(30);
+		GeometryAllocator.Allocation a = allocator.allocate(10);
+		GeometryAllocator.Allocation b = allocator.allocate(10);
+		GeometryAllocator.Allocation c = allocator.allocate(10);
+
+		allocator.free(a);
+		allocator.free(c);
+		assertEquals(2, allocator.getFreeBlockCount());
+
+		allocator.free(b);
+		assertTrue(b.isFreed());
+		assertEquals(1, allocator.getFreeBlockCount());
+		assertEquals(30, allocator.getLargestFreeBlock());
+		assertEquals(0, allocator.getUsed());
+
+		// Freeing twice changes nothing.
+		allocator.free(b);
+		assertEquals(0, allocator.getUsed());
+		assertEquals(0, allocator.allocate(30).getOffset());
+	}
+
+	@Test
+	public void allocationFailsWhenNoBlockIsLargeEnough() {
+		GeometryAllocator allocator = new GeometryAllocator(30);
+		GeometryAllocator.Allocation a = allocator.allocate(10);
+		allocator.allocate(10);
+		GeometryAllocator.Allocation c = allocator.allocate(10);
+		allocator.free(a);
+		allocator.free(c);
+
+		// 20 units are free, but not in one block.
+		assertNull(allocator.allocate(20));
+		assertEquals(10, allocator.getUsed());
+		assertNull(new GeometryAllocator(0).allocate(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyAllocationsAreRejected() {
+		new GeometryAllocator(10).allocate(0);
+	}
+
+	@Test
+	public void growExtendsTheLastFreeBlock() {
+		GeometryAllocator allocator = new GeometryAllocator(20);
+		allocator.allocate(15);
+		allocator.grow(40);
+
+		assertEquals(40, allocator.getCapacity());
+		assertEquals(1, allocator.getFreeBlockCount());
+		assertEquals(15, allocator.allocate(25).getOffset());
+
+		// A full allocator gets a new block at the old end.
+		allocator.grow(50);
+		assertEquals(40, allocator.allocate(10).getOffset());
+		assertNull(allocator.allocate(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void growCanNotShrink() {
+		new GeometryAllocator(20).grow(10);
+	}
+
+	@Test
+	public void compactMovesAllocationsIntoOneRange() {
+		GeometryAllocator allocator = new GeometryAllocator(100);
+		List<GeometryAllocator.Allocation> allocations = new ArrayList<>();
+
+		for (int i = 0; i < 10; i++) {
+			allocations.add(allocator.allocate(i + 1));
+		}
+
+		// Fills the storage with the index of the allocation owning each unit.
+		int[] storage = new int[100];
+		Arrays.fill(storage, -1);
+
+		for (int i = 0; i < allocations.size(); i++) {
+			Arrays.fill(storage, allocations.get(i).getOffset(), allocations.get(i).getOffset() + allocations.get(i).getSize(), i);
+		}
+
+		for (int i = 0; i < allocations.size(); i += 3) {
+			allocator.free(allocations.get(i));
+		}
+
+		List<GeometryAllocator.Move> moves = allocator.compact();
+		int previousTo = -1;
+
+		for (GeometryAllocator.Move move : moves) {
+			// Moves go down in ascending order, so one never writes over a range a later move reads.
+			assertTrue(move.getTo() < move.getFrom());
+			assertTrue(move.getTo() > previousTo);
+			previousTo = move.getTo();
+			System.arraycopy(storage, move.getFrom(), storage, move.getTo(), move.getSize());
+		}
+
+		int cursor = 0;
+
+		for (GeometryAllocator.Allocation allocation : allocator.getAllocations()) {
+			assertEquals(cursor, allocation.getOffset());
+			int index = allocations.indexOf(allocation);
+
+			for (int unit = 0; unit < allocation.getSize(); unit++) {
+				assertEquals(index, storage[allocation.getOffset() + unit]);
+			}
+
+			cursor += allocation.getSize();
+		}
+
+		assertEquals(allocator.getUsed(), cursor);
+		assertEquals(1, allocator.getFreeBlockCount());
+		assertEquals(100 - cursor, allocator.getLargestFreeBlock());
+		assertEquals(0.0f, allocator.getFragmentation(), 0.0f);
+	}
+
+	@Test
+	public void compactWithoutGapsMovesNothing() {
+		GeometryAllocator allocator = new GeometryAllocator(10);
+		allocator.allocate(4);
+		allocator.allocate(6);
+
+		assertTrue(allocator.compact().isEmpty());
+		assertEquals(0, allocator.getFreeBlockCount());
+	}
+
+	@Test
+	public void fragmentationIsFreeSpaceOutsideTheLargestBlock() {
+		GeometryAllocator allocator = new GeometryAllocator(40);
+		assertEquals(0.0f, allocator.getFragmentation(), 0.0f);
+
+		GeometryAllocator.Allocation a = allocator.allocate(10);
+		allocator.allocate(10);
+		allocator.allocate(10);
+		allocator.free(a);
+
+		// 20 units free, the largest block holds 10.
+		assertEquals(0.5f, allocator.getFragmentation(), 1.0e-6f);
+
+		allocator.allocate(10);
+		allocator.allocate(10);
+		assertEquals(0.0f, allocator.getFragmentation(), 0.0f);
+	}
+}
@@ -0,0 +1,159 @@
+package flounder.loaders;
+
+import org.junit.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class PrefetchSchedulerTest {
+	@Test
+	public void traceRoundTrips() throws IOException {
+		LoadTrace trace = new LoadTrace();
+		trace.record("texture", "res/guis/icon.png", 10);
+		trace.record("model", "res/models/tree.obj", 250);
+		trace.record("texture", "res/guis/icon.png", 300);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		trace.write(out);
+		LoadTrace read = LoadTrace.read(new ByteArrayInputStream(out.toByteArray()));
+
+		assertEquals(2, read.size());
+		assertEquals("res/models/tree.obj", read.getEntries().get(1).getPath());
+		assertEquals(250, read.getEntries().get(1).getOffsetMs());
+	}
+
+	@Test(expected = IOException.class)
+	public void malformedTraceIsRejected() throws IOException {
+		LoadTrace.read(new ByteArrayInputStream("# flounder load trace v1\nnot a line\n".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void entriesAreIssuedALeadTimeEarly() {
+		LoadTrace trace = new LoadTrace();
+		trace.record("texture", "c.png", 5000);
+		trace.record("texture", "a.png", 1000);
+		trace.record("texture", "b.png", 2500);
+
+		List<String> prefetched = new ArrayList<>();
+		PrefetchScheduler scheduler = new PrefetchScheduler(trace, Collections.singletonMap("texture", new RecordingPrefetcher(prefetched)), 1000);
+
+		assertEquals(1, scheduler.update(0));
+		assertEquals(Collections.singletonList("a.png"), prefetched);
+
+		assertEquals(0, scheduler.update(1400));
+		assertEquals(1, scheduler.update(1500));
+		assertEquals(1, scheduler.update(10000));
+
+		assertEquals(Arrays.asList("a.png", "b.png", "c.png"), prefetched);
+		assertTrue(scheduler.isFinished());
+		assertEquals(3, scheduler.getIssued());
+	}
+
+	@Test
+	public void requestedAndUnknownEntriesAreSkipped() {
+		LoadTrace trace = new LoadTrace();
+		trace.record("texture", "a.png", 0);
+		trace.record("texture", "b.png", 0);
+		trace.record("sound", "c.ogg", 0);
+
+		List<String> prefetched = new ArrayList<>();
+		PrefetchScheduler scheduler = new PrefetchScheduler(trace, Collections.singletonMap("texture", new RecordingPrefetcher(prefetched)), 0);
+		scheduler.markRequested("texture", "a.png");
+
+		assertEquals(1, scheduler.update(0));
+		assertEquals(Collections.singletonList("b.png"), prefetched);
+		assertEquals(2, scheduler.getSkipped());
+		assertEquals(0, scheduler.getRemaining());
+	}
+
+	@Test(timeout = 10000)
+	public void filePrefetcherTakesEachFileOnce() throws Exception {
+		CountDownLatch opened = new CountDownLatch(1);
+		FilePrefetcher prefetcher = new FilePrefetcher(1024, file -> {
+			opened.countDown();
+			return new ByteArrayInputStream(file.getPath().getBytes(StandardCharsets.UTF_8));
+		});
+
+		prefetcher.prefetch("res/a.txt");
+		opened.await();
+
+		byte[] data = null;
+
+		while (data == null) {
+			data = prefetcher.take("res/a.txt");
+			Thread.sleep(1);
+		}
+
+		assertEquals("res/a.txt", new String(data, StandardCharsets.UTF_8));
+		assertNull(prefetcher.take("res/a.txt"));
+		assertEquals(1, prefetcher.getTaken());
+		assertEquals(0, prefetcher.getBytes());
+	}
+
+	@Test(timeout = 10000)
+	public void clearDropsPrefetchesStillReading() throws Exception {
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch cleared = new CountDownLatch(1);
+		CountDownLatch read = new CountDownLatch(1);
+
+		FilePrefetcher prefetcher = new FilePrefetcher(1024, file -> new InputStream() {
+			private int remaining = 4;
+
+			@Override
+			public int read() throws IOException {
+				reading.countDown();
+
+				try {
+					cleared.await();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+
+				if (remaining-- > 0) {
+					return 1;
+				}
+
+				read.countDown();
+				return -1;
+			}
+		});
+
+		prefetcher.prefetch("res/a.txt");
+		reading.await();
+		prefetcher.clear();
+		cleared.countDown();
+		read.await();
+
+		// The prefetcher has one worker, so the first prefetch has finished once a second one is stored.
+		prefetcher.prefetch("res/b.txt");
+
+		while (prefetcher.getBytes() == 0) {
+			Thread.sleep(1);
+		}
+
+		assertNull(prefetcher.take("res/a.txt"));
+		assertNotNull(prefetcher.take("res/b.txt"));
+	}
+
+	private static class RecordingPrefetcher implements Prefetcher {
+		private final List<String> prefetched;
+
+		private RecordingPrefetcher(List<String> prefetched) {
+			this.prefetched = prefetched;
+		}
+
+		@Override
+		public void prefetch(String path) {
+			prefetched.add(path);
+		}
+
+		@Override
+		public void clear() {
+			prefetched.clear();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package flounder.loaders;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class UploadSchedulerTest {
+	private static final long MS = 1000000L;
+
+	@Test
+	public void drainsInPriorityThenQueueOrder() {
+		RecordingBackend backend = new RecordingBackend();
+		UploadScheduler scheduler = new UploadScheduler(backend, Long.MAX_VALUE, 1000.0);
+		scheduler.queue(new FakeUpload("low", 1, 0), UploadPriority.LOW);
+		scheduler.queue(new FakeUpload("normal 1", 1, 0), UploadPriority.NORMAL);
+		scheduler.queue(new FakeUpload("high", 1, 0), UploadPriority.HIGH);
+		scheduler.queue(new FakeUpload("normal 2", 1, 0), UploadPriority.NORMAL);
+		scheduler.queue(new FakeUpload("immediate", 1, 0), UploadPriority.IMMEDIATE);
+
+		assertEquals(5, scheduler.drain());
+		assertEquals(Arrays.asList("immediate", "high", "normal 1", "normal 2", "low"), backend.uploaded);
+		assertEquals(0, scheduler.getQueueDepth());
+		assertEquals(0, scheduler.getQueuedBytes());
+	}
+
+	@Test
+	public void byteBudgetSpreadsUploadsOverFrames() {
+		RecordingBackend backend = new RecordingBackend();
+		UploadScheduler scheduler = new UploadScheduler(backend, 100, 1000.0);
+
+		for (int i = 0; i < 5; i++) {
+			scheduler.queue(new FakeUpload("upload " + i, 40, 0), UploadPriority.NORMAL);
+		}
+
+		assertEquals(200, scheduler.getQueuedBytes());
+		assertEquals(2, scheduler.drain());
+		assertEquals(80, scheduler.getFrameBytes());
+		assertEquals(2, scheduler.drain());
+		assertEquals(1, scheduler.drain());
+		assertEquals(0, scheduler.drain());
+		assertEquals(200, scheduler.getTotalBytes());
+		assertEquals(5, backend.uploaded.size());
+	}
+
+	@Test
+	public void timeBudgetStopsTheDrain() {
+		RecordingBackend backend = new RecordingBackend();
+		UploadScheduler scheduler = new UploadScheduler(backend, Long.MAX_VALUE, 2.0);
+
+		for (int i = 0; i < 4; i++) {
+			scheduler.queue(new FakeUpload("upload " + i, 1, MS), UploadPriority.NORMAL);
+		}
+
+		// Each upload takes 1ms on the fake clock, the third starts when the 2ms budget is used.
+		assertEquals(2, scheduler.drain());
+		assertEquals(2, scheduler.drain());
+		assertEquals(4 * MS, backend.time);
+	}
+
+	@Test
+	public void immediateUploadsIgnoreTheBudget() {
+		RecordingBackend backend = new RecordingBackend();
+		UploadScheduler scheduler = new UploadScheduler(backend, 10, 1.0);
+		scheduler.queue(new FakeUpload("normal", 10, 0), UploadPriority.NORMAL);
+
+		for (int i = 0; i < 3; i++) {
+			scheduler.queue(new FakeUpload("immediate " + i, 100, 5 * MS), UploadPriority.IMMEDIATE);
+		}
+
+		assertEquals(3, scheduler.drain());
+		assertEquals(Arrays.asList("immediate 0", "immediate 1", "immediate 2"), backend.uploaded);
+		assertEquals(1, scheduler.getQueueDepth());
+	}
+
+	@Test
+	public void oneUploadIsDrainedEveryFrame() {
+		RecordingBackend backend = new RecordingBackend();
+		UploadScheduler scheduler = new UploadScheduler(backend, 10, 0.0);
+		scheduler.queue(new FakeUpload("large 1", 1000, MS), UploadPriority.LOW);
+		scheduler.queue(new FakeUpload("large 2", 1000, MS), UploadPriority.LOW);
+
+		assertEquals(1, scheduler.drain());
+		assertEquals(1000, scheduler.getFrameBytes());
+		assertEquals(1, scheduler.drain());
+		assertEquals(Arrays.asList("large 1", "large 2"), backend.uploaded);
+	}
+
+	@Test
+	public void uploadsRunWithoutTheSchedulerLocked() {
+		RecordingBackend backend = new RecordingBackend();
+		UploadScheduler scheduler = new UploadScheduler(backend, Long.MAX_VALUE, 1000.0);
+
+		// Queues from the upload itself, which would block another thread if the lock was held.
+		scheduler.queue(new FakeUpload("first", 1, 0) {
+			@Override
+			public void executeUpload() {
+				Thread thread = new Thread(() -> scheduler.queue(new FakeUpload("queued", 1, 0), UploadPriority.NORMAL));
+				thread.start();
+
+				try {
+					thread.join(5000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				assertFalse(thread.isAlive());
+			}
+		}, UploadPriority.NORMAL);
+
+		assertEquals(2, scheduler.drain());
+		assertEquals(Arrays.asList("first", "queued"), backend.uploaded);
+	}
+
+	private static class RecordingBackend implements UploadBackend {
+		private final List<String> uploaded = new ArrayList<>();
+		private long time;
+
+		@Override
+		public void upload(UploadRequest request) {
+			FakeUpload upload = (FakeUpload) request;
+			upload.executeUpload();
+			uploaded.add(upload.name);
+			time += upload.nanos;
+		}
+
+		@Override
+		public long getTimeNanos() {
+			return time;
+		}
+	}
+
+	private static class FakeUpload implements UploadRequest {
+		private final String name;
+		private final long bytes;
+		private final long nanos;
+
+		private FakeUpload(String name, long bytes, long nanos) {
+			this.name = name;
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+
+		@Override
+		public long getUploadBytes() {
+			return bytes;
+		}
+
+		@Override
+		public void executeUpload() {
+		}
+	}
+}
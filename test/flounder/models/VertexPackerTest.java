@@ -0,0 +1,77 @@
+package flounder.models;
+
+import flounder.maths.vectors.*;
+import flounder.physics.*;
+import org.junit.*;
+
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+public class VertexPackerTest {
+	private static final float[] POSITIONS = {
+			-2.0f, 0.5f, 10.0f,
+			3.0f, -1.25f, 12.5f,
+			0.123f, 0.0f, 11.0f,
+			-1.999f, 0.4999f, 10.001f
+	};
+
+	@Test
+	public void quantizeRoundTripIsWithinHalfAStep() {
+		float min = -2.0f;
+		float max = 3.0f;
+		float step = (max - min) / 65535.0f;
+
+		for (int i = 0; i <= 1000; i++) {
+			float value = min + (max - min) * i / 1000.0f;
+			float restored = VertexPacker.dequantizeUnorm16(VertexPacker.quantizeUnorm16(value, min, max), min, max);
+			assertEquals(value, restored, step * 0.5f + 1.0e-6f);
+		}
+	}
+
+	@Test
+	public void quantizeKeepsTheRangeEnds() {
+		assertEquals(0, VertexPacker.quantizeUnorm16(-2.0f, -2.0f, 3.0f) & 0xFFFF);
+		assertEquals(65535, VertexPacker.quantizeUnorm16(3.0f, -2.0f, 3.0f) & 0xFFFF);
+		assertEquals(-2.0f, VertexPacker.dequantizeUnorm16((short) 0, -2.0f, 3.0f), 0.0f);
+		assertEquals(3.0f, VertexPacker.dequantizeUnorm16((short) 0xFFFF, -2.0f, 3.0f), 1.0e-6f);
+	}
+
+	@Test
+	public void quantizeClampsOutsideTheRange() {
+		assertEquals(0, VertexPacker.quantizeUnorm16(-5.0f, -2.0f, 3.0f) & 0xFFFF);
+		assertEquals(65535, VertexPacker.quantizeUnorm16(8.0f, -2.0f, 3.0f) & 0xFFFF);
+	}
+
+	@Test
+	public void quantizeFlatAxisRestoresTheMinimum() {
+		short quantized = VertexPacker.quantizeUnorm16(4.0f, 4.0f, 4.0f);
+		assertEquals(4.0f, VertexPacker.dequantizeUnorm16(quantized, 4.0f, 4.0f), 0.0f);
+	}
+
+	@Test
+	public void quantizedPositionsRestoreWithOffsetAndScale() {
+		AABB aabb = new AABB(new Vector3f(-2.0f, -1.25f, 10.0f), new Vector3f(3.0f, 0.5f, 12.5f));
+		ByteBuffer buffer = ByteBuffer.allocate(VertexPacker.POSITION_QUANTIZED_BYTES * POSITIONS.length / 3).order(ByteOrder.nativeOrder());
+
+		for (int v = 0; v < POSITIONS.length / 3; v++) {
+			VertexPacker.putQuantizedPosition(buffer, POSITIONS, v, aabb);
+		}
+
+		assertFalse(buffer.hasRemaining());
+		buffer.flip();
+
+		// Restores the way model shaders do, positionOffset + position * positionScale, with the normalized attribute in [0, 1].
+		float[] offset = {-2.0f, -1.25f, 10.0f};
+		float[] scale = {5.0f, 1.75f, 2.5f};
+
+		for (int v = 0; v < POSITIONS.length / 3; v++) {
+			for (int c = 0; c < 3; c++) {
+				float normalized = (buffer.getShort() & 0xFFFF) / 65535.0f;
+				assertEquals(POSITIONS[v * 3 + c], offset[c] + normalized * scale[c], scale[c] / 65535.0f);
+			}
+
+			assertEquals(0, buffer.getShort());
+		}
+	}
+}
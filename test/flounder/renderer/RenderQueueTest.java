@@ -0,0 +1,81 @@
+package flounder.renderer;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RenderQueueTest {
+	@Test
+	public void drawsInKeyOrder() {
+		RenderQueue<Long> queue = new RenderQueue<>(4);
+		Random random = new Random(1);
+		List<Long> keys = new ArrayList<>();
+
+		for (int i = 0; i < 1000; i++) {
+			// Negative keys have the top bit set, they sort after every positive key.
+			long key = random.nextLong();
+			keys.add(key);
+			queue.submit(key, 1, -1, 0, -1, key);
+		}
+
+		List<Long> drawn = new ArrayList<>();
+		queue.execute(new RecordingRenderBackend(), drawn::add);
+
+		keys.sort(Long::compareUnsigned);
+		assertEquals(keys, drawn);
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void equalKeysKeepSubmissionOrder() {
+		RenderQueue<Integer> queue = new RenderQueue<>(8);
+
+		for (int i = 0; i < 20; i++) {
+			queue.submit(RenderKey.opaque(0, i % 2, 0, 0, 0), 1, -1, 0, -1, i);
+		}
+
+		List<Integer> drawn = new ArrayList<>();
+		queue.execute(new RecordingRenderBackend(), drawn::add);
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Integer.valueOf(i * 2), drawn.get(i));
+			assertEquals(Integer.valueOf(i * 2 + 1), drawn.get(i + 10));
+		}
+	}
+
+	@Test
+	public void layersSortBeforeState() {
+		RenderQueue<String> queue = new RenderQueue<>(4);
+		queue.submit(RenderKey.opaque(2, 1, 1, 1, 0), 1, 1, 0, 1, "top");
+		queue.submit(RenderKey.opaque(0, 9, 9, 9, 0), 9, 9, 0, 9, "bottom");
+		queue.submit(RenderKey.translucent(1, 5, 1, 1, 1), 1, 1, 0, 1, "far");
+		queue.submit(RenderKey.translucent(1, 2, 9, 9, 9), 9, 9, 0, 9, "near");
+
+		List<String> drawn = new ArrayList<>();
+		queue.execute(new RecordingRenderBackend(), drawn::add);
+
+		assertEquals(Arrays.asList("bottom", "near", "far", "top"), drawn);
+	}
+
+	@Test
+	public void sharedStateIsBoundOnce() {
+		RenderQueue<Integer> queue = new RenderQueue<>(4);
+
+		// Submitted with the textures interleaved, sorting groups each texture into one run.
+		for (int i = 0; i < 6; i++) {
+			int texture = 10 + i % 2;
+			queue.submit(RenderKey.opaque(0, 3, texture, 7, i), 3, 7, 0, texture, i);
+		}
+
+		RecordingRenderBackend backend = new RecordingRenderBackend();
+		queue.execute(backend, draw -> {
+		});
+
+		assertEquals(Arrays.asList("program 3", "vao 7", "texture 0 10", "texture 0 11"), backend.getCalls());
+		assertEquals(4, queue.getStateChanges());
+		assertEquals(14, queue.getRedundantBinds());
+		assertEquals(6, queue.getDraws());
+	}
+}
@@ -0,0 +1,154 @@
+package flounder.shaders;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static org.junit.Assert.*;
+
+public class ProgramBinaryCacheTest {
+	private static final int VERTEX = 0x8B31;
+	private static final int FRAGMENT = 0x8B30;
+	private static final byte[] DATA = {1, 2, 3, 4, 5, 6, 7, 8};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void keyChangesWithEveryInput() {
+		byte[] key = key(new int[]{VERTEX, FRAGMENT}, new String[]{"void main() {}", "out vec4 c;"}, "0 in_position");
+
+		assertArrayEquals(key, key(new int[]{VERTEX, FRAGMENT}, new String[]{"void main() {}", "out vec4 c;"}, "0 in_position"));
+		assertFalse(Arrays.equals(key, key(new int[]{FRAGMENT, FRAGMENT}, new String[]{"void main() {}", "out vec4 c;"}, "0 in_position")));
+		assertFalse(Arrays.equals(key, key(new int[]{VERTEX, FRAGMENT}, new String[]{"void main() { }", "out vec4 c;"}, "0 in_position")));
+		assertFalse(Arrays.equals(key, key(new int[]{VERTEX, FRAGMENT}, new String[]{"void main() {}", "out vec4 c;"}, "1 in_position")));
+		assertFalse(Arrays.equals(key, key(new int[]{VERTEX, FRAGMENT}, new String[]{"void main() {}", "out vec4 c;"})));
+
+		// The same text split between the sources at another point.
+		assertFalse(Arrays.equals(key, key(new int[]{VERTEX, FRAGMENT}, new String[]{"void main() {}out", " vec4 c;"}, "0 in_position")));
+		assertFalse(Arrays.equals(key(new int[]{VERTEX}, new String[]{"a"}, "bc"), key(new int[]{VERTEX}, new String[]{"a"}, "b", "c")));
+	}
+
+	@Test
+	public void writtenBinaryIsRead() {
+		ProgramBinaryCache cache = new ProgramBinaryCache(folder.getRoot(), "driver");
+		byte[] key = key(new int[]{VERTEX}, new String[]{"source"});
+		cache.write("shader", key, new ProgramBinaryCache.ProgramBinary(42, DATA));
+
+		ProgramBinaryCache.ProgramBinary binary = cache.read("shader", key);
+		assertNotNull(binary);
+		assertEquals(42, binary.getFormat());
+		assertArrayEquals(DATA, binary.getData());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void otherKeyIsAMiss() {
+		ProgramBinaryCache cache = new ProgramBinaryCache(folder.getRoot(), "driver");
+		cache.write("shader", key(new int[]{VERTEX}, new String[]{"source"}), new ProgramBinaryCache.ProgramBinary(42, DATA));
+
+		assertNull(cache.read("shader", key(new int[]{VERTEX}, new String[]{"changed source"})));
+		assertNull(cache.read("missing", key(new int[]{VERTEX}, new String[]{"source"})));
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void otherDriverIsAMiss() {
+		byte[] key = key(new int[]{VERTEX}, new String[]{"source"});
+		new ProgramBinaryCache(folder.getRoot(), "driver 1").write("shader", key, new ProgramBinaryCache.ProgramBinary(42, DATA));
+
+		assertNull(new ProgramBinaryCache(folder.getRoot(), "driver 2").read("shader", key));
+	}
+
+	@Test
+	public void otherVersionIsAMiss() throws IOException {
+		ProgramBinaryCache cache = new ProgramBinaryCache(folder.getRoot(), "driver");
+		byte[] key = key(new int[]{VERTEX}, new String[]{"source"});
+		cache.write("shader", key, new ProgramBinaryCache.ProgramBinary(42, DATA));
+
+		// Rewrites the file with the version after the magic changed.
+		File file = cache.getFile("shader");
+		byte[] contents = inflate(file);
+		contents[7]++;
+
+		try (OutputStream out = new DeflaterOutputStream(new FileOutputStream(file))) {
+			out.write(contents);
+		}
+
+		assertNull(cache.read("shader", key));
+	}
+
+	@Test
+	public void truncatedFileIsAMiss() throws IOException {
+		ProgramBinaryCache cache = new ProgramBinaryCache(folder.getRoot(), "driver");
+		byte[] key = key(new int[]{VERTEX}, new String[]{"source"});
+		cache.write("shader", key, new ProgramBinaryCache.ProgramBinary(42, DATA));
+
+		File file = cache.getFile("shader");
+		byte[] contents = inflate(file);
+
+		try (OutputStream out = new DeflaterOutputStream(new FileOutputStream(file))) {
+			out.write(contents, 0, contents.length - 3);
+		}
+
+		assertNull(cache.read("shader", key));
+	}
+
+	@Test
+	public void corruptFileIsAMiss() throws IOException {
+		ProgramBinaryCache cache = new ProgramBinaryCache(folder.getRoot(), "driver");
+		byte[] key = key(new int[]{VERTEX}, new String[]{"source"});
+		cache.write("shader", key, new ProgramBinaryCache.ProgramBinary(42, DATA));
+
+		File file = cache.getFile("shader");
+		byte[] contents = inflate(file);
+		byte[] garbage = new byte[64];
+		new Random(1).nextBytes(garbage);
+		Files.write(file.toPath(), garbage);
+		assertNull(cache.read("shader", key));
+
+		// A valid header followed by a negative binary length.
+		Arrays.fill(contents, contents.length - DATA.length - 4, contents.length - DATA.length, (byte) 0xFF);
+
+		try (OutputStream out = new DeflaterOutputStream(new FileOutputStream(file))) {
+			out.write(contents);
+		}
+
+		assertNull(cache.read("shader", key));
+	}
+
+	@Test
+	public void namesThatSanitiseTheSameUseOtherFiles() {
+		ProgramBinaryCache cache = new ProgramBinaryCache(folder.getRoot(), "driver");
+		Set<File> files = new HashSet<>(Arrays.asList(cache.getFile("a/b"), cache.getFile("a_b"), cache.getFile("a.b")));
+		assertEquals(3, files.size());
+
+		byte[] key = key(new int[]{VERTEX}, new String[]{"source"});
+		cache.write("a/b", key, new ProgramBinaryCache.ProgramBinary(1, DATA));
+		cache.write("a_b", key, new ProgramBinaryCache.ProgramBinary(2, DATA));
+		assertEquals(1, cache.read("a/b", key).getFormat());
+		assertEquals(2, cache.read("a_b", key).getFormat());
+	}
+
+	private static byte[] inflate(File file) throws IOException {
+		try (InputStream in = new InflaterInputStream(new FileInputStream(file))) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[256];
+			int read;
+
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+
+			return out.toByteArray();
+		}
+	}
+
+	private static byte[] key(int[] types, String[] sources, String... layoutLocations) {
+		return ProgramBinaryCache.createKey(types, sources, Arrays.asList(layoutLocations));
+	}
+}
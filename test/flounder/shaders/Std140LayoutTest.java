@@ -0,0 +1,74 @@
+package flounder.shaders;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class Std140LayoutTest {
+	@Test
+	public void floatPacksIntoTheEndOfAVec3() {
+		Std140Layout layout = new Std140Layout().addFloat("a").addVec3("position").addFloat("radius");
+
+		assertEquals(0, layout.getOffset("a"));
+		assertEquals(16, layout.getOffset("position"));
+		assertEquals(28, layout.getOffset("radius"));
+		assertEquals(32, layout.getSize());
+	}
+
+	@Test
+	public void vec2AlignsToEightBytes() {
+		Std140Layout layout = new Std140Layout().addFloat("a").addVec2("b").addFloat("c").addVec4("d");
+
+		assertEquals(0, layout.getOffset("a"));
+		assertEquals(8, layout.getOffset("b"));
+		assertEquals(16, layout.getOffset("c"));
+		assertEquals(32, layout.getOffset("d"));
+		assertEquals(48, layout.getSize());
+	}
+
+	@Test
+	public void arrayElementsHaveAVec4Stride() {
+		Std140Layout layout = new Std140Layout().addFloat("a").addArray("weights", Std140Layout.Type.FLOAT, 3).addArray("lights", Std140Layout.Type.VEC3, 2).addFloat("b");
+
+		assertEquals(16, layout.getOffset("weights"));
+		assertEquals(16, layout.getStride("weights"));
+		assertEquals(48, layout.getOffset("weights", 2));
+		assertEquals(64, layout.getOffset("lights"));
+		assertEquals(16, layout.getStride("lights"));
+		assertEquals(80, layout.getOffset("lights", 1));
+
+		// The array takes whole vec4s, so nothing packs into the last elements padding.
+		assertEquals(96, layout.getOffset("b"));
+		assertEquals(112, layout.getSize());
+	}
+
+	@Test
+	public void matricesAreVec4Columns() {
+		Std140Layout layout = new Std140Layout().addFloat("a").addMat3("normal").addMat4("model").addFloat("b");
+
+		assertEquals(16, layout.getOffset("normal"));
+		assertEquals(48, layout.getStride("normal"));
+		assertEquals(64, layout.getOffset("model"));
+		assertEquals(64, layout.getStride("model"));
+		assertEquals(128, layout.getOffset("b"));
+		assertEquals(144, layout.getSize());
+	}
+
+	@Test
+	public void sizeIsPaddedToAVec4() {
+		assertEquals(0, new Std140Layout().getSize());
+		assertEquals(16, new Std140Layout().addFloat("a").getSize());
+		assertEquals(16, new Std140Layout().addVec3("a").getSize());
+		assertEquals(32, new Std140Layout().addVec4("a").addInt("b").getSize());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void elementsOutsideTheArrayAreRejected() {
+		new Std140Layout().addArray("a", Std140Layout.Type.VEC4, 2).getOffset("a", 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void membersCanNotBeAddedTwice() {
+		new Std140Layout().addFloat("a").addVec2("a");
+	}
+}
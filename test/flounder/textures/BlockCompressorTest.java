@@ -0,0 +1,226 @@
+package flounder.textures;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class BlockCompressorTest {
+	@Test
+	public void solidBlockDecodesToOneColour() {
+		byte[] image = image(4, 4, (x, y) -> new int[]{200, 100, 50, 255});
+		int[][] decoded = decode(BlockCompressor.compressBC1(image, 4, 4), 4, 4, false);
+
+		for (int[] pixel : decoded) {
+			assertArrayEquals(decoded[0], pixel);
+			assertPixel(new int[]{200, 100, 50, 255}, pixel, 4);
+		}
+	}
+
+	@Test
+	public void twoColourBlockKeepsBothColours() {
+		int[] red = {230, 20, 20, 255};
+		int[] blue = {20, 20, 230, 255};
+		byte[] image = image(4, 4, (x, y) -> (x + y) % 2 == 0 ? red : blue);
+		byte[] compressed = BlockCompressor.compressBC1(image, 4, 4);
+		int[][] decoded = decode(compressed, 4, 4, false);
+
+		// Four colour mode, colour0 is greater than colour1.
+		assertTrue(readShort(compressed, 0) > readShort(compressed, 2));
+
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 4; x++) {
+				// The bounding box inset pulls the endpoints in by a 16th of the range.
+				assertPixel((x + y) % 2 == 0 ? red : blue, decoded[y * 4 + x], 24);
+			}
+		}
+	}
+
+	@Test
+	public void alphaBlockUsesExactEndpoints() {
+		int[] alphas = {0, 255, 128, 64};
+		byte[] image = image(4, 4, (x, y) -> new int[]{100, 100, 100, alphas[x]});
+		byte[] compressed = BlockCompressor.compressBC3(image, 4, 4);
+
+		assertEquals(BlockCompressor.BC3_BLOCK_BYTES, compressed.length);
+		assertEquals(255, compressed[0] & 0xFF);
+		assertEquals(0, compressed[1] & 0xFF);
+
+		int[][] decoded = decode(compressed, 4, 4, true);
+
+		for (int y = 0; y < 4; y++) {
+			assertEquals(0, decoded[y * 4][3]);
+			assertEquals(255, decoded[y * 4 + 1][3]);
+
+			// The nearest of the six interpolated alphas, one seventh of the range apart.
+			assertEquals(128, decoded[y * 4 + 2][3], 255 / 14 + 1);
+			assertEquals(64, decoded[y * 4 + 3][3], 255 / 14 + 1);
+			assertPixel(new int[]{100, 100, 100}, decoded[y * 4 + 2], 4);
+		}
+	}
+
+	@Test
+	public void constantAlphaIsExact() {
+		byte[] image = image(4, 4, (x, y) -> new int[]{x * 60, y * 60, 0, 77});
+		int[][] decoded = decode(BlockCompressor.compressBC3(image, 4, 4), 4, 4, true);
+
+		for (int[] pixel : decoded) {
+			assertEquals(77, pixel[3]);
+		}
+	}
+
+	@Test
+	public void edgeBlocksRepeatTheLastRowAndColumn() {
+		int width = 5;
+		int height = 3;
+		byte[] image = image(width, height, (x, y) -> x == 4 ? new int[]{255, 255, 255, 255} : new int[]{0, 0, 0, 255});
+		byte[] compressed = BlockCompressor.compressBC1(image, width, height);
+
+		assertEquals(BlockCompressor.getCompressedSize(width, height, false), compressed.length);
+
+		int[][] decoded = decode(compressed, width, height, false);
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				assertPixel(x == 4 ? new int[]{255, 255, 255} : new int[]{0, 0, 0}, decoded[y * width + x], 24);
+			}
+		}
+	}
+
+	@Test
+	public void compressedSizeRoundsUpToWholeBlocks() {
+		assertEquals(8, BlockCompressor.getCompressedSize(1, 1, false));
+		assertEquals(16, BlockCompressor.getCompressedSize(4, 4, true));
+		assertEquals(2 * 1 * 8, BlockCompressor.getCompressedSize(5, 3, false));
+		assertEquals(16 * 16 * 16, BlockCompressor.getCompressedSize(64, 61, true));
+	}
+
+	private interface PixelSource {
+		int[] get(int x, int y);
+	}
+
+	/**
+	 * Creates a BGRA image from RGBA pixels.
+	 */
+	private static byte[] image(int width, int height, PixelSource source) {
+		byte[] bgra = new byte[width * height * 4];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int[] rgba = source.get(x, y);
+				int i = (y * width + x) * 4;
+				bgra[i] = (byte) rgba[2];
+				bgra[i + 1] = (byte) rgba[1];
+				bgra[i + 2] = (byte) rgba[0];
+				bgra[i + 3] = (byte) rgba[3];
+			}
+		}
+
+		return bgra;
+	}
+
+	/**
+	 * Decodes BC1 or BC3 blocks into RGBA pixels, following the format specification rather than the encoder.
+	 */
+	private static int[][] decode(byte[] compressed, int width, int height, boolean alpha) {
+		int[][] pixels = new int[width * height][];
+		int blocksWide = (width + 3) / 4;
+		int blockBytes = alpha ? BlockCompressor.BC3_BLOCK_BYTES : BlockCompressor.BC1_BLOCK_BYTES;
+
+		for (int blockY = 0; blockY < (height + 3) / 4; blockY++) {
+			for (int blockX = 0; blockX < blocksWide; blockX++) {
+				int offset = (blockY * blocksWide + blockX) * blockBytes;
+				int[] alphas = alpha ? decodeAlpha(compressed, offset) : null;
+				int[][] colours = decodeColour(compressed, alpha ? offset + 8 : offset);
+
+				for (int i = 0; i < 16; i++) {
+					int x = blockX * 4 + i % 4;
+					int y = blockY * 4 + i / 4;
+
+					if (x < width && y < height) {
+						int[] colour = colours[i];
+						pixels[y * width + x] = new int[]{colour[0], colour[1], colour[2], alpha ? alphas[i] : colour[3]};
+					}
+				}
+			}
+		}
+
+		return pixels;
+	}
+
+	private static int[][] decodeColour(byte[] data, int offset) {
+		int colour0 = readShort(data, offset);
+		int colour1 = readShort(data, offset + 2);
+		int[][] palette = {rgb565(colour0), rgb565(colour1), new int[4], new int[4]};
+
+		for (int c = 0; c < 3; c++) {
+			if (colour0 > colour1) {
+				palette[2][c] = (2 * palette[0][c] + palette[1][c]) / 3;
+				palette[3][c] = (palette[0][c] + 2 * palette[1][c]) / 3;
+			} else {
+				palette[2][c] = (palette[0][c] + palette[1][c]) / 2;
+			}
+		}
+
+		palette[2][3] = 255;
+		palette[3][3] = colour0 > colour1 ? 255 : 0;
+		int[][] pixels = new int[16][];
+
+		for (int i = 0; i < 16; i++) {
+			pixels[i] = palette[(data[offset + 4 + i / 4] >> ((i % 4) * 2)) & 3];
+		}
+
+		return pixels;
+	}
+
+	private static int[] decodeAlpha(byte[] data, int offset) {
+		int alpha0 = data[offset] & 0xFF;
+		int alpha1 = data[offset + 1] & 0xFF;
+		int[] palette = new int[8];
+		palette[0] = alpha0;
+		palette[1] = alpha1;
+
+		if (alpha0 > alpha1) {
+			for (int p = 1; p < 7; p++) {
+				palette[p + 1] = ((7 - p) * alpha0 + p * alpha1) / 7;
+			}
+		} else {
+			for (int p = 1; p < 5; p++) {
+				palette[p + 1] = ((5 - p) * alpha0 + p * alpha1) / 5;
+			}
+
+			palette[6] = 0;
+			palette[7] = 255;
+		}
+
+		long indices = 0;
+
+		for (int i = 0; i < 6; i++) {
+			indices |= (long) (data[offset + 2 + i] & 0xFF) << (i * 8);
+		}
+
+		int[] alphas = new int[16];
+
+		for (int i = 0; i < 16; i++) {
+			alphas[i] = palette[(int) (indices >> (i * 3)) & 7];
+		}
+
+		return alphas;
+	}
+
+	private static int[] rgb565(int colour) {
+		int r = (colour >> 11) & 31;
+		int g = (colour >> 5) & 63;
+		int b = colour & 31;
+		return new int[]{(r << 3) | (r >> 2), (g << 2) | (g >> 4), (b << 3) | (b >> 2), 255};
+	}
+
+	private static int readShort(byte[] data, int offset) {
+		return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+	}
+
+	private static void assertPixel(int[] expected, int[] actual, int tolerance) {
+		for (int c = 0; c < expected.length; c++) {
+			assertEquals("Channel " + c, expected[c], actual[c], tolerance);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package flounder.textures;
+
+import org.junit.*;
+
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+public class MipmapGeneratorTest {
+	@Test
+	public void oddColumnIsFoldedIntoTheLastPixel() {
+		byte[] pixels = new byte[3 * 4];
+		pixels[8] = (byte) 255;
+
+		byte[] half = downsample(pixels, 3, 1, false);
+
+		// The third column is averaged in, not dropped.
+		assertEquals(85, half[0] & 0xFF);
+	}
+
+	@Test
+	public void oddSquareAveragesEveryPixel() {
+		byte[] pixels = new byte[3 * 3 * 4];
+
+		for (int i = 0; i < 9; i++) {
+			pixels[i * 4 + 3] = (byte) (i * 10);
+		}
+
+		byte[] half = downsample(pixels, 3, 3, false);
+		assertEquals(40, half[3] & 0xFF);
+	}
+
+	@Test
+	public void evenPixelsUseTwoTaps() {
+		int width = 5;
+		byte[] pixels = new byte[width * 4];
+
+		for (int i = 0; i < width; i++) {
+			pixels[i * 4] = (byte) (i * 20);
+		}
+
+		byte[] half = downsample(pixels, width, 1, false);
+		assertEquals(10, half[0] & 0xFF);
+		assertEquals(60, half[4] & 0xFF);
+	}
+
+	@Test
+	public void linearToSrgbRoundTripsEveryValue() {
+		for (int i = 0; i < 256; i++) {
+			double value = i / 255.0;
+			double linear = value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4);
+			assertEquals(i, MipmapGenerator.linearToSrgb((float) linear));
+		}
+	}
+
+	@Test
+	public void linearToSrgbRoundsToTheNearestValue() {
+		for (int i = 0; i <= 10000; i++) {
+			float linear = i / 10000.0f;
+			double exact = (linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1.0 / 2.4) - 0.055) * 255.0;
+			assertEquals("Linear " + linear, exact, MipmapGenerator.linearToSrgb(linear), 0.5 + 1.0e-3);
+		}
+	}
+
+	@Test
+	public void srgbAverageIsGammaCorrect() {
+		byte[] pixels = {0, 0, 0, 0, (byte) 255, (byte) 255, (byte) 255, (byte) 255};
+		byte[] half = downsample(pixels, 2, 1, true);
+
+		// Half of full brightness in linear space is 188 gamma encoded, alpha is averaged directly.
+		assertEquals(188, half[0] & 0xFF);
+		assertEquals(128, half[3] & 0xFF);
+	}
+
+	@Test
+	public void chainEndsAtOnePixel() {
+		assertEquals(4, MipmapGenerator.getLevelCount(13, 5));
+		assertEquals(1, MipmapGenerator.getLevelSize(13, 3));
+		assertEquals(4, MipmapGenerator.generate(new byte[13 * 5 * 4], 13, 5, true).size());
+	}
+
+	private static byte[] downsample(byte[] pixels, int width, int height, boolean srgb) {
+		int newWidth = Math.max(width / 2, 1);
+		int newHeight = Math.max(height / 2, 1);
+		ByteBuffer destination = ByteBuffer.allocate(newWidth * newHeight * 4);
+		MipmapGenerator.downsample(ByteBuffer.wrap(pixels), 0, width, height, destination, 0, srgb);
+		return destination.array();
+	}
+}
@@ -0,0 +1,55 @@
+package flounder.textures;
+
+import flounder.resources.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TextureAtlasTest {
+	@Test
+	public void blitBleedsEdgesAndCorners() {
+		int pageSize = 8;
+		int padding = 2;
+		int width = 3;
+		int height = 2;
+		byte[] image = new byte[width * height * 4];
+
+		for (int i = 0; i < width * height; i++) {
+			image[i * 4] = (byte) (i + 1);
+		}
+
+		byte[] page = new byte[pageSize * pageSize * 4];
+		TextureAtlas.blit(page, pageSize, image, width, height, 2, 3, padding);
+
+		for (int y = 3 - padding; y < 3 + height + padding; y++) {
+			for (int x = 2 - padding; x < 2 + width + padding; x++) {
+				int sourceX = Math.min(Math.max(x - 2, 0), width - 1);
+				int sourceY = Math.min(Math.max(y - 3, 0), height - 1);
+				assertEquals("Texel " + x + ", " + y, image[(sourceY * width + sourceX) * 4], page[(y * pageSize + x) * 4]);
+			}
+		}
+
+		// Nothing outside the padding is written.
+		assertEquals(0, page[(7 * pageSize + 7) * 4]);
+		assertEquals(0, page[(7 * pageSize) * 4]);
+	}
+
+	@Test
+	public void keyHashesWholeSizes() {
+		MyFile[] files = {};
+		byte[][] sources = {};
+
+		// 256 and 512 have the same low byte.
+		assertNotEquals(TextureAtlas.createKey(files, sources, 256, 2), TextureAtlas.createKey(files, sources, 512, 2));
+		assertNotEquals(TextureAtlas.createKey(files, sources, 512, 1), TextureAtlas.createKey(files, sources, 512, 257));
+	}
+
+	@Test
+	public void keyIncludesTheFullPath() {
+		byte[][] sources = {{1, 2, 3}};
+
+		long first = TextureAtlas.createKey(new MyFile[]{new MyFile("res/guis/icon.png")}, sources, 512, 2);
+		long second = TextureAtlas.createKey(new MyFile[]{new MyFile("res/items/icon.png")}, sources, 512, 2);
+		assertNotEquals(first, second);
+	}
+}
@@ -0,0 +1,270 @@
+package flounder.textures;
+
+import org.junit.*;
+
+import javax.imageio.*;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static org.junit.Assert.*;
+
+public class TextureDecoderTest {
+	private static final int WIDTH = 67;
+	private static final int HEIGHT = 90;
+
+	@Test
+	public void decodesEveryFilterType() throws IOException {
+		byte[] pixels = createPixels(WIDTH, HEIGHT, 4, 1);
+		byte[] png = encode(WIDTH, HEIGHT, 6, 4, pixels, 1024);
+
+		assertArrayEquals(pixels, decode(png, TextureDecoder.Format.RGBA, false));
+		assertArrayEquals(pixels, decode(png, TextureDecoder.Format.RGBA, true));
+	}
+
+	@Test
+	public void decodesTruecolourWithOpaqueAlpha() throws IOException {
+		byte[] pixels = createPixels(WIDTH, HEIGHT, 3, 2);
+		byte[] expected = new byte[WIDTH * HEIGHT * 4];
+
+		for (int i = 0; i < WIDTH * HEIGHT; i++) {
+			expected[i * 4] = pixels[i * 3];
+			expected[i * 4 + 1] = pixels[i * 3 + 1];
+			expected[i * 4 + 2] = pixels[i * 3 + 2];
+			expected[i * 4 + 3] = (byte) 255;
+		}
+
+		byte[] png = encode(WIDTH, HEIGHT, 2, 3, pixels, 512);
+
+		assertArrayEquals(expected, decode(png, TextureDecoder.Format.RGBA, false));
+		assertArrayEquals(expected, decode(png, TextureDecoder.Format.RGBA, true));
+	}
+
+	@Test
+	public void matchesImageIOReference() throws IOException {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(3);
+
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				// Smooth gradients with noise, so the encoder picks a mix of filters.
+				int a = (x * 3 + y) & 0xFF;
+				int r = (x * 4) & 0xFF;
+				int g = (y * 2 + random.nextInt(8)) & 0xFF;
+				int b = (x ^ y) & 0xFF;
+				image.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | b);
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(ImageIO.write(image, "png", out));
+
+		byte[] expected = new byte[WIDTH * HEIGHT * 4];
+
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				int argb = image.getRGB(x, y);
+				int i = (y * WIDTH + x) * 4;
+				expected[i] = (byte) argb;
+				expected[i + 1] = (byte) (argb >> 8);
+				expected[i + 2] = (byte) (argb >> 16);
+				expected[i + 3] = (byte) (argb >>> 24);
+			}
+		}
+
+		assertArrayEquals(expected, decode(out.toByteArray(), TextureDecoder.Format.BGRA, false));
+		assertArrayEquals(expected, decode(out.toByteArray(), TextureDecoder.Format.BGRA, true));
+	}
+
+	@Test
+	public void pipelinedDecodeMatchesWithNegativeStride() throws IOException {
+		byte[] png = encode(WIDTH, HEIGHT, 6, 4, createPixels(WIDTH, HEIGHT, 4, 4), 300);
+		int stride = WIDTH * 4;
+
+		ByteBuffer flipped = ByteBuffer.allocate(stride * HEIGHT);
+		new TextureDecoder(new ByteArrayInputStream(png)).decodeFlipped(flipped, stride, TextureDecoder.Format.RGBA);
+
+		ByteBuffer pipelined = ByteBuffer.allocate(stride * HEIGHT);
+		pipelined.position(stride * (HEIGHT - 1));
+		new TextureDecoder(new ByteArrayInputStream(png)).decodePipelined(pipelined, -stride, TextureDecoder.Format.RGBA);
+
+		assertArrayEquals(flipped.array(), pipelined.array());
+	}
+
+	@Test
+	public void invalidFilterTypeFails() throws IOException {
+		byte[] pixels = createPixels(WIDTH, HEIGHT, 4, 5);
+		byte[] png = encode(WIDTH, HEIGHT, 6, 4, pixels, 1024, 40, (byte) 9);
+
+		assertDecodeFails(png, false);
+		assertDecodeFails(png, true);
+	}
+
+	@Test(timeout = 10000)
+	public void truncatedDataFailsPipelined() throws IOException {
+		byte[] png = encode(WIDTH, HEIGHT, 6, 4, createPixels(WIDTH, HEIGHT, 4, 6), 1024);
+
+		// Cuts the file off part way through the image data.
+		assertDecodeFails(Arrays.copyOf(png, png.length / 2), true);
+	}
+
+	@Test(timeout = 10000)
+	public void corruptChunkLengthFailsPipelined() throws IOException {
+		byte[] png = encode(WIDTH, HEIGHT, 6, 4, createPixels(WIDTH, HEIGHT, 4, 7), 256);
+
+		// A negative length in the second IDAT chunk makes the inflate thread fail with a runtime exception, not a IOException.
+		int second = findChunk(png, "IDAT") + 4 + 256 + 4 + 4;
+		assertEquals("IDAT", new String(png, second, 4, "US-ASCII"));
+		png[second - 4] = (byte) 0x80;
+
+		assertDecodeFails(png, true);
+	}
+
+	private static void assertDecodeFails(byte[] png, boolean pipelined) {
+		try {
+			decode(png, TextureDecoder.Format.RGBA, pipelined);
+			fail("Expected the decode to fail");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	private static byte[] decode(byte[] png, TextureDecoder.Format format, boolean pipelined) throws IOException {
+		TextureDecoder decoder = new TextureDecoder(new ByteArrayInputStream(png));
+		int stride = decoder.getWidth() * format.getNumComponents();
+		ByteBuffer buffer = ByteBuffer.allocate(stride * decoder.getHeight());
+
+		if (pipelined) {
+			decoder.decodePipelined(buffer, stride, format);
+		} else {
+			decoder.decode(buffer, stride, format);
+		}
+
+		return buffer.array();
+	}
+
+	private static byte[] createPixels(int width, int height, int bytesPerPixel, long seed) {
+		Random random = new Random(seed);
+		byte[] pixels = new byte[width * height * bytesPerPixel];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				for (int c = 0; c < bytesPerPixel; c++) {
+					pixels[(y * width + x) * bytesPerPixel + c] = (byte) (x * (c + 1) + y * 3 + random.nextInt(16));
+				}
+			}
+		}
+
+		return pixels;
+	}
+
+	private static byte[] encode(int width, int height, int colourType, int bytesPerPixel, byte[] pixels, int chunkSize) throws IOException {
+		return encode(width, height, colourType, bytesPerPixel, pixels, chunkSize, -1, (byte) 0);
+	}
+
+	/**
+	 * Encodes 8 bit pixels as a PNG, each row uses the next of the five filter types, and the data is split over IDAT chunks of a size.
+	 */
+	private static byte[] encode(int width, int height, int colourType, int bytesPerPixel, byte[] pixels, int chunkSize, int badRow, byte badFilter) throws IOException {
+		int lineSize = width * bytesPerPixel;
+		ByteArrayOutputStream raw = new ByteArrayOutputStream();
+		byte[] prev = new byte[lineSize];
+
+		for (int y = 0; y < height; y++) {
+			byte[] line = Arrays.copyOfRange(pixels, y * lineSize, (y + 1) * lineSize);
+			int filter = y % 5;
+			raw.write(y == badRow ? badFilter : filter);
+
+			for (int i = 0; i < lineSize; i++) {
+				int a = i >= bytesPerPixel ? line[i - bytesPerPixel] & 0xFF : 0;
+				int b = prev[i] & 0xFF;
+				int c = i >= bytesPerPixel ? prev[i - bytesPerPixel] & 0xFF : 0;
+				int predictor;
+
+				switch (filter) {
+					case 1:
+						predictor = a;
+						break;
+					case 2:
+						predictor = b;
+						break;
+					case 3:
+						predictor = (a + b) >>> 1;
+						break;
+					case 4:
+						predictor = paeth(a, b, c);
+						break;
+					default:
+						predictor = 0;
+						break;
+				}
+
+				raw.write((line[i] - predictor) & 0xFF);
+			}
+
+			prev = line;
+		}
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+		try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+			deflater.write(raw.toByteArray());
+		}
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		png.write(new byte[]{(byte) 137, 80, 78, 71, 13, 10, 26, 10});
+
+		ByteBuffer header = ByteBuffer.allocate(13);
+		header.putInt(width).putInt(height).put((byte) 8).put((byte) colourType).put((byte) 0).put((byte) 0).put((byte) 0);
+		writeChunk(png, "IHDR", header.array(), 0, 13);
+
+		byte[] data = compressed.toByteArray();
+
+		for (int offset = 0; offset < data.length; offset += chunkSize) {
+			writeChunk(png, "IDAT", data, offset, Math.min(chunkSize, data.length - offset));
+		}
+
+		writeChunk(png, "IEND", new byte[0], 0, 0);
+		return png.toByteArray();
+	}
+
+	private static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a);
+		int pb = Math.abs(p - b);
+		int pc = Math.abs(p - c);
+
+		if (pa <= pb && pa <= pc) {
+			return a;
+		}
+
+		return pb <= pc ? b : c;
+	}
+
+	private static void writeChunk(ByteArrayOutputStream png, String type, byte[] data, int offset, int length) throws IOException {
+		byte[] typeBytes = type.getBytes("US-ASCII");
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, offset, length);
+
+		png.write(ByteBuffer.allocate(4).putInt(length).array());
+		png.write(typeBytes);
+		png.write(data, offset, length);
+		png.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+	}
+
+	/**
+	 * Gets the offset of the type of the first chunk of a type.
+	 */
+	private static int findChunk(byte[] png, String type) {
+		for (int i = 12; i + 4 <= png.length; i++) {
+			if (png[i] == type.charAt(0) && png[i + 1] == type.charAt(1) && png[i + 2] == type.charAt(2) && png[i + 3] == type.charAt(3)) {
+				return i;
+			}
+		}
+
+		throw new IllegalStateException("Missing chunk " + type);
+	}
+}